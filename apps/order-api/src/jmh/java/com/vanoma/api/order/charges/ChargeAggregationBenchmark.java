@@ -0,0 +1,70 @@
+package com.vanoma.api.order.charges;
+
+import com.vanoma.api.order.orders.DeliveryOrder;
+import com.vanoma.api.order.packages.Package;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Time to sum the transaction amounts of tens of thousands of charges and add the transaction fee of the sum, with
+// Money against the former BigDecimal reduction and double fee math. Run with:
+//   mvn -Pbenchmark test-compile exec:exec -Djmh.benchmark=com.vanoma.api.order.charges.ChargeAggregationBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Threads(1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChargeAggregationBenchmark {
+
+    @Param({"10000", "50000"})
+    private int chargeCount;
+
+    private List<Charge> charges;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        Package pkg = new Package(new DeliveryOrder(), null);
+        this.charges = new ArrayList<>();
+        for (int i = 0; i < this.chargeCount; i++) {
+            this.charges.add(new Charge(pkg)
+                    .setType(ChargeType.DELIVERY_FEE)
+                    .setTransactionAmount(BigDecimal.valueOf(random.nextInt(500_000), 2)));
+        }
+    }
+
+    @Benchmark
+    public Money money() {
+        return ChargeUtils.getTransactionAmount(this.charges, Set.of()).plusTransactionFee();
+    }
+
+    @Benchmark
+    public BigDecimal legacyBigDecimal() {
+        BigDecimal transactionAmount = this.charges.stream()
+                .map(Charge::getTransactionAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        double numerator = transactionAmount.multiply(ChargeUtils.TRANSACTION_FEE_PERCENTAGE).doubleValue();
+        double denominator = BigDecimal.ONE.subtract(ChargeUtils.TRANSACTION_FEE_PERCENTAGE).doubleValue();
+        BigDecimal transactionFee = BigDecimal.valueOf(numerator / denominator).setScale(2, RoundingMode.UP);
+        return transactionAmount.add(transactionFee);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ChargeAggregationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
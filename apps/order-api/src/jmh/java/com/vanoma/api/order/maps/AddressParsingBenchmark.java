@@ -0,0 +1,181 @@
+package com.vanoma.api.order.maps;
+
+import com.google.maps.model.AddressComponent;
+import com.google.maps.model.AddressComponentType;
+import com.google.maps.model.AddressType;
+import com.google.maps.model.GeocodingResult;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Parses the responses recorded in maps/TestData.json with the current GoogleMapsAPIWrapper and with the previous,
+// list-based parsing. Run with:
+//   mvn -Pbenchmark test-compile exec:exec
+// and compare gc.alloc.rate.norm (bytes allocated per parse) of the two benchmarks.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AddressParsingBenchmark {
+
+    @Param({"KIGALI_MARRIOTT_HOTEL", "KIGALI_SUBURBAN_AREA", "UNNAMED_ROAD_KIGALI", "MASAKA_AREA_KIGALI"})
+    public String fixture;
+
+    private List<GeocodingResult> results;
+
+    @Setup
+    public void setUp() {
+        this.results = GeocodingTestData.load().get(this.fixture);
+    }
+
+    @Benchmark
+    public void enumSetParsing(Blackhole blackhole) {
+        blackhole.consume(GoogleMapsAPIWrapper.getAddress(this.results));
+    }
+
+    @Benchmark
+    public void listParsing(Blackhole blackhole) {
+        blackhole.consume(ListParsing.getAddress(this.results));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(AddressParsingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+    // GoogleMapsAPIWrapper's parsing before it moved to AddressComponentSummary, for comparison.
+    static class ListParsing {
+        private final static String KIGALI = "kigali";
+        private final static String RWANDA = "rwanda";
+        private final static String MAPS_LOCALITY = "LOCALITY";
+        private final static String MAPS_UNNAMED_ROAD = "Unnamed Road";
+        private final static String MAPS_ROUTE = "ROUTE";
+        private final static String MAPS_STREET_NUMBER = "STREET_NUMBER";
+        private final static String MAPS_SUBLOCALITY_LEVEL_1 = "SUBLOCALITY_LEVEL_1";
+        private final static String MAPS_ADMINISTRATIVE_AREA_LEVEL_1 = "ADMINISTRATIVE_AREA_LEVEL_1";
+        private final static String MAPS_ADMINISTRATIVE_AREA_LEVEL_2 = "ADMINISTRATIVE_AREA_LEVEL_2";
+
+        static Map<String, Object> getAddress(List<GeocodingResult> results) {
+            GeocodingResult result = getMostAccurateResult(results);
+            if (!isCountryRwanda(result.addressComponents)) return null;
+            if (!isProvinceKigali(result.addressComponents)) return null;
+            Map<String, Object> response = new HashMap<>();
+            response.put("houseNumber", getHouseNumber(result.addressComponents));
+            response.put("streetName", getStreetName(result.addressComponents));
+            String district = getDistrict(result.addressComponents);
+            if (district == null) {
+                district = getDistrict(results);
+            }
+            response.put("district", district);
+            response.put("latitude", result.geometry.location.lat);
+            response.put("longitude", result.geometry.location.lng);
+            return response;
+        }
+
+        private static GeocodingResult getMostAccurateResult(List<GeocodingResult> geocodingResults) {
+            if (geocodingResults.size() == 1) return geocodingResults.get(0);
+
+            GeocodingResult mostAccurate = geocodingResults.get(0);
+            for (GeocodingResult result : geocodingResults) {
+                AddressComponent addressComponent = Arrays.asList(result.addressComponents).get(0);
+                if (convertTypesArrayToStringList(addressComponent.types).contains(AddressType.ROUTE.name())) {
+                    mostAccurate = result;
+                    if (convertTypesArrayToStringList(addressComponent.types).contains(AddressType.STREET_NUMBER.name())) {
+                        break;
+                    }
+                }
+            }
+            return mostAccurate;
+        }
+
+        private static boolean isCountryRwanda(AddressComponent[] addressComponents) {
+            List<AddressComponent> listComponents = Arrays.asList(addressComponents);
+            String countryName = listComponents.get(listComponents.size() - 1).longName;
+            if (countryName == null) return false;
+            return RWANDA.equalsIgnoreCase(countryName) || countryName.toLowerCase().startsWith(KIGALI);
+        }
+
+        private static boolean isProvinceKigali(AddressComponent[] addressComponents) {
+            boolean isKigali = false;
+            for (AddressComponent c : addressComponents) {
+                List<String> cTypes = convertTypesArrayToStringList(c.types);
+                if (cTypes.contains(MAPS_LOCALITY) && KIGALI.equalsIgnoreCase(c.longName)) {
+                    isKigali = true;
+                } else if (cTypes.contains(MAPS_ADMINISTRATIVE_AREA_LEVEL_1) &&
+                        c.longName.toLowerCase().contains(KIGALI.toLowerCase())) {
+                    isKigali = true;
+                }
+                if (isKigali) break;
+            }
+            return isKigali;
+        }
+
+        private static String getHouseNumber(AddressComponent[] addressComponents) {
+            for (AddressComponent c : addressComponents) {
+                if (convertTypesArrayToStringList(c.types).contains(MAPS_STREET_NUMBER)) return c.shortName;
+            }
+            return null;
+        }
+
+        private static List<String> convertTypesArrayToStringList(AddressComponentType[] types) {
+            return Arrays.stream(types).map(Enum::name).collect(Collectors.toList());
+        }
+
+        private static String getStreetName(AddressComponent[] addressComponents) {
+            String streetName = null;
+            for (AddressComponent c : addressComponents) {
+                if (convertTypesArrayToStringList(c.types).contains(MAPS_ROUTE)) {
+                    streetName = c.shortName;
+                    break;
+                }
+            }
+            return MAPS_UNNAMED_ROAD.equalsIgnoreCase(streetName) ? null : streetName;
+        }
+
+        private static String getDistrict(AddressComponent[] addressComponents) {
+            for (AddressComponent c : addressComponents) {
+                List<String> cTypes = convertTypesArrayToStringList(c.types);
+                if (cTypes.contains(MAPS_ADMINISTRATIVE_AREA_LEVEL_2) && isValidDistrict(c.longName)) return c.longName;
+            }
+            return null;
+        }
+
+        private static boolean isValidDistrict(String district) {
+            for (RwandaDistricts p : RwandaDistricts.values()) {
+                if (district.toUpperCase().equals(p.name())) return true;
+            }
+            return false;
+        }
+
+        private static String getDistrict(List<GeocodingResult> results) {
+            String district = null;
+            for (GeocodingResult result : results) {
+                if (district == null) {
+                    district = getDistrict(result.addressComponents);
+                    if (containsType(Arrays.asList(result.addressComponents), MAPS_SUBLOCALITY_LEVEL_1)) break;
+                }
+            }
+            return district;
+        }
+
+        private static boolean containsType(List<AddressComponent> addressComponents, String mapsType) {
+            for (AddressComponent c : addressComponents) {
+                if (convertTypesArrayToStringList(c.types).contains(mapsType)) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.vanoma.api.order.packages;
+
+import com.vanoma.api.order.utils.TimeOrderedId;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Insert throughput into tables shaped like package and package_event (primary key, foreign keys and the indexes
+// on them) that already hold rows, with random against time-ordered primary keys. Uses an in-memory H2 database
+// unless BENCHMARK_JDBC_URL (with BENCHMARK_JDBC_USER and BENCHMARK_JDBC_PASSWORD) points to a scratch MySQL
+// schema, which is where the difference shows once the indexes outgrow the buffer pool. Run with:
+//   mvn -Pbenchmark test-compile exec:exec -Djmh.benchmark=com.vanoma.api.order.packages.PrimaryKeyInsertBenchmark
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Threads(1)
+@Fork(1)
+@State(Scope.Benchmark)
+@OperationsPerInvocation(PrimaryKeyInsertBenchmark.BATCH_SIZE)
+public class PrimaryKeyInsertBenchmark {
+    static final int BATCH_SIZE = 100;
+
+    public enum IdType {
+        RANDOM(() -> UUID.randomUUID().toString()),
+        TIME_ORDERED(TimeOrderedId::next);
+
+        private final Supplier<String> generator;
+
+        IdType(Supplier<String> generator) {
+            this.generator = generator;
+        }
+    }
+
+    @Param({"RANDOM", "TIME_ORDERED"})
+    private IdType idType;
+
+    @Param({"100000"})
+    private int existingRows;
+
+    private Connection connection;
+    private PreparedStatement insertPackage;
+    private PreparedStatement insertPackageEvent;
+    private List<String> deliveryOrderIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String url = System.getenv().getOrDefault("BENCHMARK_JDBC_URL", "jdbc:h2:mem:pk_benchmark;MODE=MYSQL");
+        this.connection = DriverManager.getConnection(url,
+                System.getenv().getOrDefault("BENCHMARK_JDBC_USER", "sa"),
+                System.getenv().getOrDefault("BENCHMARK_JDBC_PASSWORD", ""));
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS benchmark_package_event");
+            statement.execute("DROP TABLE IF EXISTS benchmark_package");
+            statement.execute("CREATE TABLE benchmark_package (" +
+                    "package_id VARCHAR(255) NOT NULL PRIMARY KEY, " +
+                    "delivery_order_id VARCHAR(255) NOT NULL, " +
+                    "tracking_number VARCHAR(255), " +
+                    "created_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE INDEX benchmark_package_order_idx ON benchmark_package (delivery_order_id)");
+            statement.execute("CREATE TABLE benchmark_package_event (" +
+                    "package_event_id VARCHAR(255) NOT NULL PRIMARY KEY, " +
+                    "package_id VARCHAR(255) NOT NULL, " +
+                    "delivery_order_id VARCHAR(255) NOT NULL, " +
+                    "event_name VARCHAR(255) NOT NULL, " +
+                    "created_at TIMESTAMP NOT NULL, " +
+                    "FOREIGN KEY (package_id) REFERENCES benchmark_package (package_id))");
+            statement.execute("CREATE INDEX benchmark_package_event_order_idx " +
+                    "ON benchmark_package_event (delivery_order_id)");
+        }
+        this.connection.setAutoCommit(false);
+        this.insertPackage = this.connection.prepareStatement("INSERT INTO benchmark_package " +
+                "(package_id, delivery_order_id, tracking_number, created_at) VALUES (?, ?, ?, ?)");
+        this.insertPackageEvent = this.connection.prepareStatement("INSERT INTO benchmark_package_event " +
+                "(package_event_id, package_id, delivery_order_id, event_name, created_at) VALUES (?, ?, ?, ?, ?)");
+
+        this.deliveryOrderIds = List.of(this.idType.generator.get(), this.idType.generator.get());
+        for (int i = 0; i < this.existingRows; i += BATCH_SIZE) {
+            this.insertBatch();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        this.connection.rollback();
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("DROP TABLE benchmark_package_event");
+            statement.execute("DROP TABLE benchmark_package");
+        }
+        this.connection.close();
+    }
+
+    // One package and its first event per row, committed in batches like order placement does
+    @Benchmark
+    public int insert() throws SQLException {
+        return this.insertBatch();
+    }
+
+    private int insertBatch() throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        String[] packageIds = new String[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            packageIds[i] = this.idType.generator.get();
+            String deliveryOrderId = this.deliveryOrderIds.get(i % this.deliveryOrderIds.size());
+            this.insertPackage.setString(1, packageIds[i]);
+            this.insertPackage.setString(2, deliveryOrderId);
+            this.insertPackage.setString(3, Integer.toString(i));
+            this.insertPackage.setTimestamp(4, now);
+            this.insertPackage.addBatch();
+        }
+        this.insertPackage.executeBatch();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            this.insertPackageEvent.setString(1, this.idType.generator.get());
+            this.insertPackageEvent.setString(2, packageIds[i]);
+            this.insertPackageEvent.setString(3, this.deliveryOrderIds.get(i % this.deliveryOrderIds.size()));
+            this.insertPackageEvent.setString(4, "ORDER_PLACED");
+            this.insertPackageEvent.setTimestamp(5, now);
+            this.insertPackageEvent.addBatch();
+        }
+        this.insertPackageEvent.executeBatch();
+        this.connection.commit();
+        return BATCH_SIZE;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PrimaryKeyInsertBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
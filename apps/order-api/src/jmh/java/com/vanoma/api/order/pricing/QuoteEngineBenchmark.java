@@ -0,0 +1,76 @@
+package com.vanoma.api.order.pricing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vanoma.api.order.customers.Customer;
+import com.vanoma.api.order.maps.KigaliDistrictResolver;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Sustained single-core quote throughput of the QuoteEngine for a three-package request, with and without
+// customer terms. Run with:
+//   mvn -Pbenchmark test-compile exec:exec -Djmh.benchmark=com.vanoma.api.order.pricing.QuoteEngineBenchmark
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Threads(1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuoteEngineBenchmark {
+
+    private QuoteEngine quoteEngine;
+    private PricingJson anonymousRequest;
+    private PricingJson customerRequest;
+
+    @Setup
+    public void setUp() {
+        this.quoteEngine = QuoteEngine.builder()
+                .districtResolver(KigaliDistrictResolver.fromClasspath("maps/kigali-districts-fixture.geojson"))
+                .pricingMode(PricingMode.FLAT)
+                .build();
+        Customer customer = new Customer().setWeightingFactor(new BigDecimal("1.20"));
+        this.quoteEngine.putCustomer(customer);
+
+        this.anonymousRequest = createPricingJson(null);
+        this.customerRequest = createPricingJson(customer.getCustomerId());
+        if (this.quoteEngine.quote(this.anonymousRequest).isEmpty()) {
+            throw new IllegalStateException("The benchmark request is not answered by the engine");
+        }
+    }
+
+    @Benchmark
+    public void anonymousQuote(Blackhole blackhole) {
+        blackhole.consume(this.quoteEngine.quote(this.anonymousRequest));
+    }
+
+    @Benchmark
+    public void customerQuote(Blackhole blackhole) {
+        blackhole.consume(this.quoteEngine.quote(this.customerRequest));
+    }
+
+    private static PricingJson createPricingJson(String customerId) {
+        Map<String, Object> origin = Map.of("latitude", -1.939308, "longitude", 30.1312124);
+        List<Map<String, Object>> packages = List.of(
+                Map.of("size", "SMALL", "origin", origin, "destination", Map.of("latitude", -1.9518833, "longitude", 30.1369548)),
+                Map.of("size", "MEDIUM", "origin", origin, "destination", Map.of("latitude", -1.95, "longitude", 30.05)),
+                Map.of("size", "LARGE", "origin", origin, "destination", Map.of("latitude", -2.0, "longitude", 30.1)));
+        PricingJson pricingJson = new ObjectMapper().convertValue(Map.of("packages", packages), PricingJson.class);
+        return customerId == null ? pricingJson : pricingJson.setCustomerId(customerId);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(QuoteEngineBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -55,18 +55,26 @@ public class BusinessHourService implements IBusinessHourService {
 
     @Override
     public void validateBusinessHours(List<Package> packages, String customerId) {
+        if (packages.isEmpty()) return;
+
+        // Business hours are looked up once for all packages
+        BusinessHour todayBusinessHours = getTodayBusinessHours();
+        BusinessHour tomorrowBusinessHours = getTomorrowBusinessHours();
         for (Package pkg : packages) {
-            validateBusinessHours(pkg, customerId);
+            validateBusinessHours(pkg, customerId, todayBusinessHours, tomorrowBusinessHours);
         }
     }
 
     @Override
     public void validateBusinessHours(Package pkg, String customerId) {
+        validateBusinessHours(pkg, customerId, getTodayBusinessHours(), getTomorrowBusinessHours());
+    }
+
+    private void validateBusinessHours(Package pkg, String customerId, BusinessHour todayBusinessHours,
+                                       BusinessHour tomorrowBusinessHours) {
         // pickUpStart here can be null if for example user is using "soon enough" option in the UI.
         OffsetDateTime pickUpStart = PackageUtils.getPickUpStart(this.currentTimeWrapper, pkg.getPickUpStart());
 
-        BusinessHour todayBusinessHours = getTodayBusinessHours();
-        BusinessHour tomorrowBusinessHours = getTomorrowBusinessHours();
         if (todayBusinessHours.getIsDayOff()) {
             throw new InvalidParameterException("crud.businessHour.noOrderOnDayOff");
         }
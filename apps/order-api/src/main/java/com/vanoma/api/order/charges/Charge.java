@@ -5,14 +5,16 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.vanoma.api.order.orders.DeliveryOrder;
 import com.vanoma.api.order.packages.Package;
 import com.vanoma.api.order.utils.BigDecimalSerializer;
+import com.vanoma.api.order.utils.TimeOrderedId;
+import com.vanoma.api.utils.exceptions.ExpectedServerError;
 import com.vanoma.api.utils.exceptions.InvalidParameterException;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.*;
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
-import java.util.UUID;
 
 @Entity
 @Table(name = "charge",
@@ -21,7 +23,7 @@ import java.util.UUID;
                 @Index(name = "charge_package_id_idx", columnList = "package_id", unique = false),
                 @Index(name = "charge_type_idx", columnList = "type", unique = false),
         })
-public class Charge {
+public class Charge implements Persistable<String> {
 
     @Id
     @Column(name = "charge_id", nullable = false)
@@ -45,11 +47,13 @@ public class Charge {
 
     @Column(name = "transaction_amount", nullable = false,
             precision = 10, scale = 2)
-    private BigDecimal transactionAmount;
+    @Convert(converter = MoneyConverter.class)
+    private Money transactionAmount;
 
     @Column(name = "actual_transaction_amount", nullable = true,
             precision = 10, scale = 2)
-    private BigDecimal actualTransactionAmount;
+    @Convert(converter = MoneyConverter.class)
+    private Money actualTransactionAmount;
 
     @Column(name = "description", nullable = true)
     private String description;
@@ -62,18 +66,42 @@ public class Charge {
     @Column(name = "updated_at")
     private OffsetDateTime updatedAt;
 
+    // Ids are assigned on creation, so Spring Data can't tell new charges by their id. Without this, saving a new
+    // charge selects it by id first (merge) and the inserts can't be batched.
+    @Transient
+    private boolean isNew = false;
+
     @PrePersist
     void preInsert() {
         if (this.status == null) this.status = ChargeStatus.UNPAID;
     }
 
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
     public Charge() {
     }
 
     public Charge(Package pkg) {
-        this.chargeId = UUID.randomUUID().toString();
+        this.chargeId = TimeOrderedId.next();
         this.pkg = pkg;
         this.deliveryOrder = pkg.getDeliveryOrder();
+        this.isNew = true;
+    }
+
+    @Override
+    @JsonIgnore
+    public String getId() {
+        return chargeId;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
     }
 
     public String getChargeId() {
@@ -119,10 +147,19 @@ public class Charge {
 
     @JsonSerialize(using = BigDecimalSerializer.class)
     public BigDecimal getTransactionAmount() {
+        return transactionAmount == null ? null : transactionAmount.toBigDecimal();
+    }
+
+    @JsonIgnore
+    public Money getTransactionAmountAsMoney() {
         return transactionAmount;
     }
 
     public Charge setTransactionAmount(BigDecimal transactionAmount) {
+        return setTransactionAmount(Money.of(transactionAmount));
+    }
+
+    public Charge setTransactionAmount(Money transactionAmount) {
         if (this.type == null) throw new InvalidParameterException("crud.charge.type.required");
         this.transactionAmount = transactionAmount;
         return this;
@@ -130,10 +167,19 @@ public class Charge {
 
     @JsonSerialize(using = BigDecimalSerializer.class)
     public BigDecimal getActualTransactionAmount() {
+        return actualTransactionAmount == null ? null : actualTransactionAmount.toBigDecimal();
+    }
+
+    @JsonIgnore
+    public Money getActualTransactionAmountAsMoney() {
         return actualTransactionAmount;
     }
 
     public Charge setActualTransactionAmount(BigDecimal actualTransactionAmount) {
+        return setActualTransactionAmount(Money.of(actualTransactionAmount));
+    }
+
+    public Charge setActualTransactionAmount(Money actualTransactionAmount) {
         if (this.type == null) throw new InvalidParameterException("crud.charge.type.required");
         if (this.transactionAmount == null) throw new InvalidParameterException("crud.charge.transactionAmount.required");
         this.actualTransactionAmount = actualTransactionAmount;
@@ -142,12 +188,13 @@ public class Charge {
 
     @JsonSerialize(using = BigDecimalSerializer.class)
     public BigDecimal getTransactionFee() {
-        return ChargeUtils.computeTransactionFeeGivenTransactionAmount(transactionAmount);
+        if (transactionAmount == null) throw new ExpectedServerError("crud.payment.transactionAmount.required");
+        return transactionAmount.getTransactionFee().toBigDecimal();
     }
 
     @JsonSerialize(using = BigDecimalSerializer.class)
     public BigDecimal getTotalAmount() {
-        return getTransactionAmount().add(getTransactionFee());
+        return transactionAmount.plusTransactionFee().toBigDecimal();
     }
 
     public ChargeStatus getStatus() {
@@ -74,16 +74,15 @@ public class ChargeUtils {
         return bd.doubleValue();
     }
 
-    public static BigDecimal getTransactionAmount(Set<Charge> charges, Set<Discount> discounts) {
-        BigDecimal chargeAmount = charges.stream()
-                .map(Charge::getTransactionAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal discountAmount = discounts.stream()
-                .map(Discount::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        return chargeAmount.subtract(discountAmount);
+    public static Money getTransactionAmount(Collection<Charge> charges, Collection<Discount> discounts) {
+        long amount = 0;
+        for (Charge charge : charges) {
+            amount = Math.addExact(amount, charge.getTransactionAmountAsMoney().getMinorUnits());
+        }
+        for (Discount discount : discounts) {
+            amount = Math.subtractExact(amount, discount.getAmountAsMoney().getMinorUnits());
+        }
+        return Money.ofMinorUnits(amount);
     }
 
     public static Set<Charge> getUnpaidCharges(List<DeliveryOrder> deliveryOrders) {
@@ -115,17 +114,17 @@ public class ChargeUtils {
     }
 
     public static TransactionBreakdown getTransactionBreakdown(Set<Charge> charges, Set<Discount> discounts, BigDecimal expectedTotalAmount) {
-        BigDecimal transactionAmount = getTransactionAmount(charges, discounts);
-        BigDecimal transactionFee = computeTransactionFeeGivenTransactionAmount(transactionAmount);
-        BigDecimal totalAmount = transactionAmount.add(transactionFee);
+        Money transactionAmount = getTransactionAmount(charges, discounts);
+        Money transactionFee = transactionAmount.getTransactionFee();
+        Money totalAmount = transactionAmount.plus(transactionFee);
 
-        if (expectedTotalAmount != null && totalAmount.compareTo(expectedTotalAmount) != 0) {
+        if (expectedTotalAmount != null && totalAmount.toBigDecimal().compareTo(expectedTotalAmount) != 0) {
             throw new InvalidParameterException("crud.paymentAttempt.totalAmount.incorrect");
         }
 
         return new TransactionBreakdown()
                 .setTransactionAmount(transactionAmount)
                 .setTransactionFee(transactionFee)
-                .setTotalAmount(transactionAmount.add(transactionFee));
+                .setTotalAmount(totalAmount);
     }
 }
@@ -0,0 +1,108 @@
+package com.vanoma.api.order.charges;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+// An amount of Rwandan francs held as a whole number of centimes, the precision of the amount columns
+// (numeric(10, 2)). Sums are exact, and so is the transaction fee, computed in centimes with the rounding of
+// ChargeUtils.computeTransactionFeeGivenTransactionAmount. Amounts shown to customers are rounded up (away from zero)
+// to the franc.
+public final class Money implements Comparable<Money>, Serializable {
+
+    public static final Money ZERO = new Money(0);
+    private static final int SCALE = 2;
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinorUnits(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    // Rounded half up to the centime, as the amount columns store it. Null stays null.
+    public static Money of(BigDecimal amount) {
+        if (amount == null) return null;
+        return ofMinorUnits(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    public static Money ofFrancs(long francs) {
+        return ofMinorUnits(Math.multiplyExact(francs, 100));
+    }
+
+    public Money plus(Money other) {
+        return ofMinorUnits(Math.addExact(this.minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinorUnits(Math.subtractExact(this.minorUnits, other.minorUnits));
+    }
+
+    // amount * p / (1 - p), rounded up (away from zero) to the centime, with p = TRANSACTION_FEE_PERCENTAGE
+    public Money getTransactionFee() {
+        BigDecimal percentage = ChargeUtils.TRANSACTION_FEE_PERCENTAGE;
+        long numerator = Math.multiplyExact(this.minorUnits, percentage.unscaledValue().longValueExact());
+        long denominator = Math.subtractExact(BigInteger.TEN.pow(percentage.scale()).longValueExact(),
+                percentage.unscaledValue().longValueExact());
+
+        long fee = divideAwayFromZero(numerator, denominator);
+        if (fee != 0 && numerator % denominator == 0
+                && TransactionFeeRounding.addsACentime(this.minorUnits, fee, percentage)) {
+            fee += Long.signum(fee);
+        }
+        return ofMinorUnits(fee);
+    }
+
+    public Money plusTransactionFee() {
+        return this.plus(this.getTransactionFee());
+    }
+
+    public long getMinorUnits() {
+        return this.minorUnits;
+    }
+
+    public boolean isZero() {
+        return this.minorUnits == 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(this.minorUnits, SCALE);
+    }
+
+    // Whole francs, rounded up (away from zero) like the amounts returned by the API
+    public int toRoundedFrancs() {
+        return Math.toIntExact(divideAwayFromZero(this.minorUnits, 100));
+    }
+
+    private static long divideAwayFromZero(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        if (dividend % divisor == 0) return quotient;
+        return dividend > 0 ? quotient + 1 : quotient - 1;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(this.minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return this.minorUnits == ((Money) o).minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return this.toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,69 @@
+package com.vanoma.api.order.charges;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+// The transaction fee formula, (amount * p) / (1 - p) rounded up to the centime, used to be evaluated on doubles (see
+// ChargeUtils.computeTransactionFeeGivenTransactionAmount). When the fee is a whole number of centimes, the double
+// quotient can come out a hair above it, and rounding up then adds a centime: 1.17 francs pay 0.04, not 0.03.
+// Fees already charged and shown follow that, so Money reproduces it. Every double of the formula is represented here
+// as the exact fraction it holds, so the result is the same as the double arithmetic without using any.
+final class TransactionFeeRounding {
+    private static final int SIGNIFICAND_BITS = 53;
+
+    private TransactionFeeRounding() {
+    }
+
+    // Whether the double formula charges one centime more than feeMinorUnits, the exact fee of amountMinorUnits
+    static boolean addsACentime(long amountMinorUnits, long feeMinorUnits, BigDecimal percentage) {
+        BigInteger amount = BigInteger.valueOf(Math.abs(amountMinorUnits));
+        BigInteger fee = BigInteger.valueOf(Math.abs(feeMinorUnits));
+        BigInteger percentageDenominator = BigInteger.TEN.pow(percentage.scale());
+
+        // amount * p and 1 - p, as BigDecimal.doubleValue() rounds them
+        BigInteger[] numerator = nearestDouble(amount.multiply(percentage.unscaledValue()),
+                percentageDenominator.multiply(BigInteger.valueOf(100)));
+        BigInteger[] denominator = nearestDouble(percentageDenominator.subtract(percentage.unscaledValue()),
+                percentageDenominator);
+        BigInteger[] quotient = nearestDouble(numerator[0].multiply(denominator[1]), numerator[1].multiply(denominator[0]));
+
+        // Rounding to the centime goes through the shortest decimal of the quotient. That is the exact fee when the
+        // quotient is the double nearest to it, and above the exact fee when the quotient is any larger double.
+        BigInteger[] exactFee = nearestDouble(fee, BigInteger.valueOf(100));
+        return quotient[0].multiply(exactFee[1]).compareTo(exactFee[0].multiply(quotient[1])) > 0;
+    }
+
+    // The double nearest to numerator / denominator (both positive), rounded half to even like double arithmetic,
+    // as the fraction {numerator, denominator} it holds
+    private static BigInteger[] nearestDouble(BigInteger numerator, BigInteger denominator) {
+        int exponent = numerator.bitLength() - denominator.bitLength() - SIGNIFICAND_BITS;
+        BigInteger scaledNumerator;
+        BigInteger scaledDenominator;
+        BigInteger[] significand;
+        while (true) {
+            scaledNumerator = exponent < 0 ? numerator.shiftLeft(-exponent) : numerator;
+            scaledDenominator = exponent > 0 ? denominator.shiftLeft(exponent) : denominator;
+            significand = scaledNumerator.divideAndRemainder(scaledDenominator);
+            if (significand[0].bitLength() > SIGNIFICAND_BITS) {
+                exponent++;
+            } else if (significand[0].bitLength() < SIGNIFICAND_BITS) {
+                exponent--;
+            } else {
+                break;
+            }
+        }
+
+        BigInteger rounded = significand[0];
+        int half = significand[1].shiftLeft(1).compareTo(scaledDenominator);
+        if (half > 0 || (half == 0 && rounded.testBit(0))) {
+            rounded = rounded.add(BigInteger.ONE);
+            if (rounded.bitLength() > SIGNIFICAND_BITS) {
+                rounded = rounded.shiftRight(1);
+                exponent++;
+            }
+        }
+        return exponent >= 0
+                ? new BigInteger[]{rounded.shiftLeft(exponent), BigInteger.ONE}
+                : new BigInteger[]{rounded, BigInteger.ONE.shiftLeft(-exponent)};
+    }
+}
@@ -0,0 +1,13 @@
+package com.vanoma.api.order.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Scheduled tasks don't run in tests: every cached test context shares the in-memory database, and the dispatchers
+// of one context would pick up the outbox messages and order placements of another. Tests call them directly.
+@Configuration
+@EnableScheduling
+@Profile("!test")
+public class SchedulingConfig {
+}
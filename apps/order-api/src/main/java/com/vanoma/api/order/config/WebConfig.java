@@ -8,24 +8,47 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.datatype.jsr353.JSR353Module;
 import com.vanoma.api.order.contacts.Address;
 import com.vanoma.api.order.contacts.Contact;
+import com.vanoma.api.order.contacts.StreetAddressIndex;
 import com.vanoma.api.order.external.*;
+import com.vanoma.api.order.idempotency.IdempotencyFilter;
+import com.vanoma.api.order.idempotency.IdempotencyRecordRepository;
+import com.vanoma.api.order.idempotency.IdempotencyStore;
 import com.vanoma.api.order.maps.*;
 import com.vanoma.api.order.orders.DeliveryOrder;
 import com.vanoma.api.order.packages.Package;
+import com.vanoma.api.order.packages.TrackingNumberBlockRepository;
+import com.vanoma.api.order.packages.TrackingNumberGenerator;
+import com.vanoma.api.order.pricing.PricingMode;
+import com.vanoma.api.order.pricing.QuoteEngine;
+import com.vanoma.api.order.pricing.QuoteTokenCodec;
+import com.vanoma.api.order.pricing.TariffMatrix;
+import com.vanoma.api.order.utils.CircuitBreaker;
+import com.vanoma.api.order.utils.EnvironmentUtils;
 import com.vanoma.api.order.utils.JsonPatchMapper;
 import com.vanoma.api.order.utils.LanguageUtils;
 import com.vanoma.api.utils.httpwrapper.HttpClientWrapper;
 import com.vanoma.api.utils.httpwrapper.IHttpClientWrapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.LocaleResolver;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.i18n.AcceptHeaderLocaleResolver;
 
 import java.text.DateFormat;
+import java.time.Duration;
 import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
 
@@ -60,10 +83,126 @@ public class WebConfig implements WebMvcConfigurer {
                 .build();
     }
 
+    @Bean(destroyMethod = "close")
+    public GeoApiContextPool geoApiContextPool() {
+        return GeoApiContextPool.builder()
+                .apiKey(System.getenv("API_GOOGLE_MAPS_API_KEY"))
+                .size(EnvironmentUtils.getInt("GOOGLE_MAPS_CONTEXT_POOL_SIZE", 1))
+                .maxIdleConnections(EnvironmentUtils.getInt("GOOGLE_MAPS_MAX_IDLE_CONNECTIONS", 10))
+                .keepAlive(Duration.ofSeconds(EnvironmentUtils.getLong("GOOGLE_MAPS_KEEP_ALIVE_SECONDS", 300)))
+                .connectTimeout(Duration.ofMillis(EnvironmentUtils.getLong("GOOGLE_MAPS_CONNECT_TIMEOUT_MILLIS", 2_000)))
+                .readTimeout(Duration.ofMillis(EnvironmentUtils.getLong("GOOGLE_MAPS_READ_TIMEOUT_MILLIS", 5_000)))
+                .retryTimeout(Duration.ofMillis(EnvironmentUtils.getLong("GOOGLE_MAPS_RETRY_TIMEOUT_MILLIS", 10_000)))
+                .maxRetries(EnvironmentUtils.getInt("GOOGLE_MAPS_MAX_RETRIES", 2))
+                .queryRateLimit(EnvironmentUtils.getInt("GOOGLE_MAPS_QUERY_RATE_LIMIT", 50))
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public MapsCallGuard geocodingCallGuard(MeterRegistry meterRegistry) {
+        return createMapsCallGuard("geocoding", EnvironmentUtils.getInt("MAPS_GEOCODING_MAX_CONCURRENT_CALLS", 16), meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public MapsCallGuard distanceCallGuard(MeterRegistry meterRegistry) {
+        return createMapsCallGuard("distance", EnvironmentUtils.getInt("MAPS_DISTANCE_MAX_CONCURRENT_CALLS", 8), meterRegistry);
+    }
+
+    private static MapsCallGuard createMapsCallGuard(String name, int maxConcurrentCalls, MeterRegistry meterRegistry) {
+        return MapsCallGuard.builder()
+                .name(name)
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWait(Duration.ofMillis(EnvironmentUtils.getLong("MAPS_BULKHEAD_MAX_WAIT_MILLIS", 100)))
+                .circuitBreaker(new CircuitBreaker(
+                        EnvironmentUtils.getInt("MAPS_CIRCUIT_BREAKER_FAILURE_THRESHOLD", 5),
+                        Duration.ofSeconds(EnvironmentUtils.getLong("MAPS_CIRCUIT_BREAKER_OPEN_SECONDS", 30))))
+                .meterRegistry(meterRegistry)
+                .build();
+    }
+
+    @Bean
+    public IMapsAPI mapsApi(GeoApiContextPool geoApiContextPool,
+                            ReverseGeocodeCellRepository reverseGeocodeCellRepository,
+                            MapsCallGuard geocodingCallGuard,
+                            KigaliDistrictResolver kigaliDistrictResolver,
+                            MeterRegistry meterRegistry) {
+        IMapsAPI guardedClient = GuardedMapsAPIWrapper.builder()
+                .mapsClient(new GoogleMapsAPIWrapper(geoApiContextPool))
+                .guard(geocodingCallGuard)
+                .geocodeTimeout(Duration.ofMillis(EnvironmentUtils.getLong("MAPS_GEOCODE_TIMEOUT_MILLIS", 3_000)))
+                .reverseGeocodeTimeout(Duration.ofMillis(EnvironmentUtils.getLong("MAPS_REVERSE_GEOCODE_TIMEOUT_MILLIS", 3_000)))
+                .build();
+        boolean persistCells = EnvironmentUtils.getBoolean("MAPS_CACHE_PERSIST_CELLS", true);
+        IMapsAPI cachingClient = CachingMapsAPIWrapper.builder()
+                .mapsClient(guardedClient)
+                .cellSizeMeters(EnvironmentUtils.getInt("MAPS_CACHE_CELL_SIZE_METERS", 20))
+                .maxSize(EnvironmentUtils.getInt("MAPS_CACHE_MAX_SIZE", 20_000))
+                .ttl(Duration.ofMinutes(EnvironmentUtils.getLong("MAPS_CACHE_TTL_MINUTES", 24 * 60)))
+                .persistentTtl(Duration.ofDays(EnvironmentUtils.getLong("MAPS_CACHE_PERSISTENT_TTL_DAYS", 30)))
+                .repository(persistCells ? reverseGeocodeCellRepository : null)
+                .build();
+        FallbackMapsAPIWrapper mapsApi = new FallbackMapsAPIWrapper(cachingClient, kigaliDistrictResolver);
+        FunctionCounter.builder("maps.fallbacks", mapsApi, FallbackMapsAPIWrapper::getFallbackCount)
+                .tag("api", "geocoding")
+                .register(meterRegistry);
+        return mapsApi;
+    }
+
+    @Bean
+    public IGeocodingService geocodingService(IMapsAPI mapsApi, MeterRegistry meterRegistry) {
+        GeocodingService geocodingService = new GeocodingService(mapsApi);
+        FunctionCounter.builder("maps.geocoding.coalesced", geocodingService, GeocodingService::getCoalescedRequestCount)
+                .register(meterRegistry);
+        return geocodingService;
+    }
+
+    @Bean
+    @Primary
+    public GeocodingFanOut geocodingFanOut(IGeocodingService geocodingService) {
+        int threads = EnvironmentUtils.getInt("GEOCODING_FAN_OUT_THREADS", 8);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 32), runnable -> {
+                    Thread thread = new Thread(runnable, "geocoding-fan-out");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return GeocodingFanOut.builder()
+                .geocodingService(geocodingService)
+                .executor(executor)
+                .deadline(Duration.ofMillis(EnvironmentUtils.getLong("GEOCODING_FAN_OUT_DEADLINE_MILLIS", 10_000)))
+                .build();
+    }
+
+    // Batch geocoding endpoints get their own threads, so a large batch can't hold up pricing and order creation.
+    // Items that don't fit in the queue fail right away rather than running on the request thread.
+    @Bean
+    public GeocodingFanOut batchGeocodingFanOut(IGeocodingService geocodingService) {
+        int threads = EnvironmentUtils.getInt("MAPS_BATCH_THREADS", 4);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(EnvironmentUtils.getInt("MAPS_BATCH_QUEUE_CAPACITY", 10_000)), runnable -> {
+                    Thread thread = new Thread(runnable, "batch-geocoding");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return GeocodingFanOut.builder()
+                .geocodingService(geocodingService)
+                .executor(executor)
+                .deadline(MapsController.getBatchDeadline())
+                .build();
+    }
+
+    @Bean
+    public StreetAddressIndex streetAddressIndex() {
+        return new StreetAddressIndex();
+    }
+
     @Bean
-    public IGeocodingService geocodingService() {
-        String googleMapsApiKey = System.getenv("API_GOOGLE_MAPS_API_KEY");
-        return new GeocodingService(GoogleMapsAPIWrapper.getInstance(googleMapsApiKey));
+    public KigaliDistrictResolver kigaliDistrictResolver() {
+        // Off until official district boundaries are installed: pricing, quotes and saved addresses trust the district
+        String boundaries = EnvironmentUtils.getString("KIGALI_DISTRICTS_GEOJSON", null);
+        return boundaries == null ? KigaliDistrictResolver.empty() : KigaliDistrictResolver.fromClasspath(boundaries);
     }
 
     @Bean
@@ -83,8 +222,159 @@ public class WebConfig implements WebMvcConfigurer {
     }
 
     @Bean
-    public INavigationDistanceApi navigationDistanceApi() {
-        return new GoogleDistanceMatrixApiWrapper(System.getenv("API_GOOGLE_MAPS_API_KEY"));
+    public CachingNavigationDistanceApi navigationDistanceCache(GeoApiContextPool geoApiContextPool,
+                                                                NavigationDistanceCellRepository navigationDistanceCellRepository,
+                                                                MapsCallGuard distanceCallGuard,
+                                                                HaversineDistanceEstimator navigationDistanceEstimator) {
+        INavigationDistanceApi guardedApi = GuardedNavigationDistanceApi.builder()
+                .distanceApi(new GoogleDistanceMatrixApiWrapper(geoApiContextPool,
+                        EnvironmentUtils.getInt("GOOGLE_MAPS_DISTANCE_MATRIX_CONCURRENCY", 4)))
+                .guard(distanceCallGuard)
+                .timeout(Duration.ofMillis(EnvironmentUtils.getLong("MAPS_DISTANCE_TIMEOUT_MILLIS", 3_000)))
+                .matrixTimeout(Duration.ofMillis(EnvironmentUtils.getLong("MAPS_DISTANCE_MATRIX_TIMEOUT_MILLIS", 8_000)))
+                .build();
+        boolean persistCells = EnvironmentUtils.getBoolean("MAPS_DISTANCE_CACHE_PERSIST_CELLS", true);
+        return CachingNavigationDistanceApi.builder()
+                .distanceApi(new LearningNavigationDistanceApi(guardedApi, navigationDistanceEstimator))
+                .cellSizeMeters(EnvironmentUtils.getInt("MAPS_DISTANCE_CACHE_CELL_SIZE_METERS", 50))
+                .symmetric(EnvironmentUtils.getBoolean("MAPS_DISTANCE_CACHE_SYMMETRIC", true))
+                .maxSize(EnvironmentUtils.getInt("MAPS_DISTANCE_CACHE_MAX_SIZE", 50_000))
+                .ttl(Duration.ofMinutes(EnvironmentUtils.getLong("MAPS_DISTANCE_CACHE_TTL_MINUTES", 24 * 60)))
+                .persistentTtl(Duration.ofDays(EnvironmentUtils.getLong("MAPS_DISTANCE_CACHE_PERSISTENT_TTL_DAYS", 90)))
+                .repository(persistCells ? navigationDistanceCellRepository : null)
+                .build();
+    }
+
+    @Bean
+    public HaversineDistanceEstimator navigationDistanceEstimator(KigaliDistrictResolver kigaliDistrictResolver) {
+        return new HaversineDistanceEstimator(kigaliDistrictResolver,
+                EnvironmentUtils.getInt("MAPS_DISTANCE_ESTIMATOR_MIN_SAMPLES", 20));
+    }
+
+    @Bean
+    @Primary
+    public INavigationDistanceApi navigationDistanceApi(CachingNavigationDistanceApi navigationDistanceCache,
+                                                       HaversineDistanceEstimator navigationDistanceEstimator,
+                                                       MeterRegistry meterRegistry) {
+        FallbackNavigationDistanceApi distanceApi = new FallbackNavigationDistanceApi(navigationDistanceCache, navigationDistanceEstimator);
+        FunctionCounter.builder("maps.fallbacks", distanceApi, FallbackNavigationDistanceApi::getFallbackCount)
+                .tag("api", "distance")
+                .register(meterRegistry);
+        FunctionCounter.builder("maps.distance.cache.saved", navigationDistanceCache, CachingNavigationDistanceApi::getSavedApiCallCount)
+                .register(meterRegistry);
+        Gauge.builder("maps.distance.cache.hit.ratio", navigationDistanceCache, CachingNavigationDistanceApi::getHitRatio)
+                .register(meterRegistry);
+        return distanceApi;
+    }
+
+    @Bean
+    public PricingMode pricingMode() {
+        return PricingMode.create(EnvironmentUtils.getString("PRICING_MODE", PricingMode.FLAT.name()));
+    }
+
+    @Bean
+    public TariffMatrix tariffMatrix(CachingNavigationDistanceApi navigationDistanceCache,
+                                     HaversineDistanceEstimator navigationDistanceEstimator,
+                                     MeterRegistry meterRegistry) {
+        // Not the fallback API: the matrix must only keep real distances, it prices on estimates without keeping them
+        TariffMatrix tariffMatrix = TariffMatrix.builder()
+                .distanceApi(navigationDistanceCache)
+                .estimator(navigationDistanceEstimator)
+                .cellSizeMeters(EnvironmentUtils.getInt("PRICING_MATRIX_CELL_SIZE_METERS", 100))
+                .maxSize(EnvironmentUtils.getInt("PRICING_MATRIX_MAX_SIZE", 200_000))
+                .build();
+        FunctionCounter.builder("pricing.matrix.hits", tariffMatrix, TariffMatrix::getHitCount)
+                .register(meterRegistry);
+        FunctionCounter.builder("pricing.matrix.misses", tariffMatrix, TariffMatrix::getMissCount)
+                .register(meterRegistry);
+        FunctionCounter.builder("pricing.matrix.estimates", tariffMatrix, TariffMatrix::getEstimateCount)
+                .register(meterRegistry);
+        return tariffMatrix;
+    }
+
+    @Bean
+    public QuoteEngine quoteEngine(KigaliDistrictResolver kigaliDistrictResolver,
+                                   TariffMatrix tariffMatrix,
+                                   PricingMode pricingMode,
+                                   MeterRegistry meterRegistry) {
+        QuoteEngine quoteEngine = QuoteEngine.builder()
+                .districtResolver(kigaliDistrictResolver)
+                .tariffMatrix(tariffMatrix)
+                .pricingMode(pricingMode)
+                .build();
+        FunctionCounter.builder("pricing.quotes", quoteEngine, QuoteEngine::getQuoteCount)
+                .tag("path", "engine")
+                .register(meterRegistry);
+        FunctionCounter.builder("pricing.quotes", quoteEngine, QuoteEngine::getDeclinedCount)
+                .tag("path", "declined")
+                .register(meterRegistry);
+        return quoteEngine;
+    }
+
+    @Bean
+    public QuoteTokenCodec quoteTokenCodec(MeterRegistry meterRegistry) {
+        QuoteTokenCodec quoteTokenCodec = QuoteTokenCodec.builder()
+                .secret(EnvironmentUtils.getString("QUOTE_TOKEN_SECRET", ""))
+                .ttlSeconds(EnvironmentUtils.getLong("QUOTE_TOKEN_TTL_SECONDS", 900))
+                .build();
+        FunctionCounter.builder("pricing.quote.tokens", quoteTokenCodec, QuoteTokenCodec::getAcceptedCount)
+                .tag("result", "accepted")
+                .register(meterRegistry);
+        FunctionCounter.builder("pricing.quote.tokens", quoteTokenCodec, QuoteTokenCodec::getRejectedCount)
+                .tag("result", "rejected")
+                .register(meterRegistry);
+        return quoteTokenCodec;
+    }
+
+    @Bean(destroyMethod = "close")
+    public IdempotencyStore idempotencyStore(IdempotencyRecordRepository idempotencyRecordRepository, MeterRegistry meterRegistry) {
+        IdempotencyStore idempotencyStore = IdempotencyStore.builder()
+                .repository(idempotencyRecordRepository)
+                .maxSize(EnvironmentUtils.getInt("IDEMPOTENCY_CACHE_MAX_SIZE", 10_000))
+                .ttl(Duration.ofHours(EnvironmentUtils.getLong("IDEMPOTENCY_TTL_HOURS", 24)))
+                .claimTtl(Duration.ofSeconds(EnvironmentUtils.getLong("IDEMPOTENCY_CLAIM_TTL_SECONDS", 300)))
+                .maxWait(Duration.ofMillis(EnvironmentUtils.getLong("IDEMPOTENCY_MAX_WAIT_MILLIS", 30_000)))
+                .pollInterval(Duration.ofMillis(EnvironmentUtils.getLong("IDEMPOTENCY_POLL_INTERVAL_MILLIS", 200)))
+                .build();
+        FunctionCounter.builder("orders.idempotency.requests", idempotencyStore, IdempotencyStore::getExecutedCount)
+                .tag("result", "executed")
+                .register(meterRegistry);
+        FunctionCounter.builder("orders.idempotency.requests", idempotencyStore, IdempotencyStore::getReplayedCount)
+                .tag("result", "replayed")
+                .register(meterRegistry);
+        FunctionCounter.builder("orders.idempotency.requests", idempotencyStore, IdempotencyStore::getCoalescedCount)
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+        return idempotencyStore;
+    }
+
+    @Bean(destroyMethod = "close")
+    public TrackingNumberGenerator trackingNumberGenerator(TrackingNumberBlockRepository trackingNumberBlockRepository,
+                                                           MeterRegistry meterRegistry,
+                                                           Environment environment) {
+        // Required: the application doesn't start without it. The test profile sets tracking-number.key instead.
+        TrackingNumberGenerator trackingNumberGenerator = TrackingNumberGenerator.builder()
+                .repository(trackingNumberBlockRepository)
+                .key(EnvironmentUtils.getString("TRACKING_NUMBER_KEY", environment.getProperty("tracking-number.key")))
+                .build();
+        FunctionCounter.builder("packages.tracking.number.blocks", trackingNumberGenerator,
+                        TrackingNumberGenerator::getReservedBlockCount)
+                .register(meterRegistry);
+        return trackingNumberGenerator;
+    }
+
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(IdempotencyStore idempotencyStore) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(
+                new IdempotencyFilter(idempotencyStore, this.languageUtils(), this.objectMapper()));
+        registration.addUrlPatterns("/customers/*", "/delivery-payment-requests/*");
+        return registration;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Batch geocoding streams until its deadline, plus some time to write the last results
+        configurer.setDefaultTimeout(MapsController.getBatchDeadline().plusSeconds(30).toMillis());
     }
 
     // JsonPatch Mappers
@@ -1,22 +1,24 @@
 package com.vanoma.api.order.contacts;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.bedatadriven.jackson.datatype.jts.serialization.GeometrySerializer;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.vanoma.api.order.maps.KigaliDistrict;
+import com.vanoma.api.order.utils.TimeOrderedId;
 import com.vanoma.api.utils.exceptions.InvalidParameterException;
 import com.vanoma.api.utils.input.GeometryUtil;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.Type;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.locationtech.jts.geom.Point;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.*;
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 @Entity
 @Table(name = "address",
@@ -26,7 +28,7 @@ import java.util.UUID;
 
         })
 @JsonIgnoreProperties({"hibernateLazyInitializer"})
-public class Address {
+public class Address implements Persistable<String> {
 
     @Id
     @Column(name = "address_id", nullable = false)
@@ -106,12 +108,34 @@ public class Address {
         if (this.isSaved == null) this.isSaved = true;
     }
 
+    @Transient
+    private boolean isNew = false;
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
     public Address() {
     }
 
     public Address(String customerId) {
-        this.addressId = UUID.randomUUID().toString();
+        this.addressId = TimeOrderedId.next();
         this.customerId = customerId;
+        this.isNew = true;
+    }
+
+    @Override
+    @JsonIgnore
+    public String getId() {
+        return addressId;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
     }
 
 
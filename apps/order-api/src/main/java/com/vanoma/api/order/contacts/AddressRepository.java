@@ -1,5 +1,7 @@
 package com.vanoma.api.order.contacts;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -7,4 +9,6 @@ import org.springframework.stereotype.Repository;
 public
 interface AddressRepository extends JpaRepository<Address, String> {
     Address findFirstByCustomerIdAndIsSavedAndIsDefault(String customerId, boolean isSaved, boolean isDefault);
+
+    Slice<Address> findByIsConfirmedTrueAndStreetNameNotNullAndHouseNumberNotNull(Pageable pageable);
 }
@@ -1,14 +1,16 @@
 package com.vanoma.api.order.contacts;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.vanoma.api.order.utils.TimeOrderedId;
 import com.vanoma.api.utils.input.PhoneNumberUtils;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.*;
 import java.io.Serializable;
 import java.time.OffsetDateTime;
-import java.util.UUID;
 
 @Entity
 @Table(name = "contact",
@@ -19,7 +21,7 @@ import java.util.UUID;
                 @Index(name = "contact_customer_id_name_phone_number_one_is_saved_idx", columnList = "customer_id,name,phone_number_one,is_saved", unique = false),
         })
 @JsonIgnoreProperties({"hibernateLazyInitializer"})
-public class Contact implements Serializable {
+public class Contact implements Serializable, Persistable<String> {
 
     @Id
     @Column(name = "contact_id", nullable = false)
@@ -61,12 +63,34 @@ public class Contact implements Serializable {
         if (this.isSaved == null) this.isSaved = true;
     }
 
+    @Transient
+    private boolean isNew = false;
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
     public Contact() {
     }
 
     public Contact(String customerId) {
-        this.contactId = UUID.randomUUID().toString();
+        this.contactId = TimeOrderedId.next();
         this.customerId = customerId;
+        this.isNew = true;
+    }
+
+    @Override
+    @JsonIgnore
+    public String getId() {
+        return contactId;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
     }
 
     @Override
@@ -164,7 +188,7 @@ public class Contact implements Serializable {
 
     public Contact buildUnsavedCopy() {
         return new Contact(this.customerId)
-                .setContactId(UUID.randomUUID().toString()) // Overwriting existing ID
+                .setContactId(TimeOrderedId.next()) // Overwriting existing ID
                 .setIsSaved(false)
                 .setIsDefault(false)
                 .setName(this.name)
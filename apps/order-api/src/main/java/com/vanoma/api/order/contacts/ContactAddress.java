@@ -1,12 +1,13 @@
 package com.vanoma.api.order.contacts;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.vanoma.api.order.utils.TimeOrderedId;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.*;
 import java.time.OffsetDateTime;
-import java.util.UUID;
 
 @Entity
 @Table(name = "contact_address",
@@ -16,7 +17,7 @@ import java.util.UUID;
                 @Index(name = "contact_address_contact_id_idx", columnList = "contact_id", unique = false),
                 @Index(name = "contact_address_contact_id_address_id_idx", columnList = "contact_id,address_id", unique = true)
         })
-public class ContactAddress {
+public class ContactAddress implements Persistable<String> {
 
     @Id
     @Column(name = "contact_address_id", nullable = false)
@@ -48,15 +49,38 @@ public class ContactAddress {
     @Column(name = "updated_at")
     private OffsetDateTime updatedAt;
 
+    @Transient
+    private boolean isNew = false;
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
     public ContactAddress() {
-        this.contactAddressId = UUID.randomUUID().toString();
+        this.contactAddressId = TimeOrderedId.next();
+        this.isNew = true;
     }
 
     public ContactAddress(String customerId, Contact contact, Address address) {
-        this.contactAddressId = UUID.randomUUID().toString();
+        this.contactAddressId = TimeOrderedId.next();
         this.customerId = customerId;
         this.address = address;
         this.contact = contact;
+        this.isNew = true;
+    }
+
+    @Override
+    @JsonIgnore
+    public String getId() {
+        return contactAddressId;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
     }
 
     public String getContactAddressId() {
@@ -3,6 +3,7 @@ package com.vanoma.api.order.contacts;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -19,6 +20,8 @@ public interface ContactAddressRepository extends JpaRepository<ContactAddress,
 
     ContactAddress findFirstByContactAndAddress(Contact contact, Address address);
 
+    List<ContactAddress> findByContactInAndAddressIn(Collection<Contact> contacts, Collection<Address> addresses);
+
     List<ContactAddress> findByContactOrderByCreatedAtDesc(Contact contact);
 
     List<ContactAddress> findByCustomerIdOrderByCreatedAtDesc(String customerId);
@@ -2,7 +2,9 @@ package com.vanoma.api.order.contacts;
 
 import com.vanoma.api.order.maps.AddressLine;
 import com.vanoma.api.order.maps.Coordinates;
+import com.vanoma.api.order.maps.GeocodingFanOut;
 import com.vanoma.api.order.maps.IGeocodingService;
+import com.vanoma.api.order.maps.KigaliDistrictResolver;
 import com.vanoma.api.order.utils.JsonPatchMapper;
 import com.vanoma.api.utils.exceptions.ExceptionUtils;
 import com.vanoma.api.utils.exceptions.InvalidParameterException;
@@ -15,6 +17,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.orm.jpa.JpaObjectRetrievalFailureException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.json.JsonPatch;
 import javax.json.JsonValue;
@@ -22,6 +26,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Repository
@@ -39,6 +44,12 @@ public class ContactAddressService implements IContactAddressService {
     private JsonPatchMapper<Address> addressJsonPatchMapper;
     @Autowired
     private IGeocodingService geocodingService;
+    @Autowired
+    private KigaliDistrictResolver districtResolver;
+    @Autowired
+    private GeocodingFanOut geocodingFanOut;
+    @Autowired
+    private StreetAddressIndex streetAddressIndex;
 
     @Override
     public Contact saveContact(Contact contact) {
@@ -148,7 +159,23 @@ public class ContactAddressService implements IContactAddressService {
 
     @Override
     public Address saveAddress(Address address) {
-        return this.addressRepository.save(address);
+        Address savedAddress = this.addressRepository.save(address);
+        this.updateStreetAddressIndex(savedAddress);
+        return savedAddress;
+    }
+
+    private void updateStreetAddressIndex(Address address) {
+        // Only committed addresses go into the index, so a rollback can't leave it with a stale entry
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    streetAddressIndex.update(address);
+                }
+            });
+        } else {
+            this.streetAddressIndex.update(address);
+        }
     }
 
     @Override
@@ -182,21 +209,75 @@ public class ContactAddressService implements IContactAddressService {
         return Address.create(customerId, addressJson);
     }
 
+    @Override
+    public void addMissingFields(List<AddressJson> addressJsons) {
+        // Resolves what buildAddress would otherwise geocode one address at a time, concurrently and only once
+        // per distinct address line/coordinates. Failures are left for buildAddress, which retries and reports
+        // them in order.
+        List<AddressJson> toGeocode = new ArrayList<>();
+        for (AddressJson addressJson : addressJsons) {
+            if (addressJson.getLatitude() != null && addressJson.getLongitude() != null) continue;
+            if (StringUtils.isEmpty(addressJson.getStreetName())) continue;
+            if (!this.useDataFromStreetAddressIndex(addressJson)) toGeocode.add(addressJson);
+        }
+        List<GeocodingFanOut.Result> geocodingResults = this.geocodingFanOut.geocodeAll(toGeocode.stream()
+                .map(ContactAddressService::getAddressLine)
+                .collect(Collectors.toList()));
+        for (int i = 0; i < toGeocode.size(); i++) {
+            if (geocodingResults.get(i).isSuccess()) useDataFromGeocoding(toGeocode.get(i), geocodingResults.get(i).get());
+        }
+
+        List<AddressJson> toReverseGeocode = new ArrayList<>();
+        for (AddressJson addressJson : addressJsons) {
+            if (addressJson.getLatitude() == null || addressJson.getLongitude() == null) continue;
+            this.useDataFromDistrictResolver(addressJson);
+            if (!addressJson.hasDistrict()) toReverseGeocode.add(addressJson);
+        }
+        List<GeocodingFanOut.Result> reverseGeocodingResults = this.geocodingFanOut.reverseGeocodeAll(toReverseGeocode.stream()
+                .map(ContactAddressService::getCoordinates)
+                .collect(Collectors.toList()));
+        for (int i = 0; i < toReverseGeocode.size(); i++) {
+            if (reverseGeocodingResults.get(i).isSuccess()) {
+                useDataFromReverseGeocoding(toReverseGeocode.get(i), reverseGeocodingResults.get(i).get());
+            }
+        }
+    }
+
     private void addMissingFields(AddressJson addressJson) {
         if (addressJson.getLatitude() == null || addressJson.getLongitude() == null) {
-            this.useDataFromGeocoding(addressJson);
+            if (!this.useDataFromStreetAddressIndex(addressJson)) this.useDataFromGeocoding(addressJson);
         }
+        this.useDataFromDistrictResolver(addressJson);
         if (!addressJson.hasDistrict()) {
             this.useDataFromReverseGeocoding(addressJson);
         }
     }
 
+    private void useDataFromDistrictResolver(AddressJson addressJson) {
+        if (!addressJson.hasDistrict() && !StringUtils.isEmpty(addressJson.getStreetName())) {
+            // Only the district is missing, which doesn't need the maps API when the point is in a known district.
+            this.districtResolver.resolve(getCoordinates(addressJson))
+                    .ifPresent(district -> addressJson.setDistrict(district.name()));
+        }
+    }
+
+    private boolean useDataFromStreetAddressIndex(AddressJson addressJson) {
+        // Address lines already confirmed by staff don't need the maps API.
+        Optional<StreetAddressIndex.Match> match = this.streetAddressIndex.find(getAddressLine(addressJson));
+        match.ifPresent(m -> {
+            addressJson.setLatitude(m.getCoordinates().getLat());
+            addressJson.setLongitude(m.getCoordinates().getLng());
+            if (addressJson.getDistrict() == null) addressJson.setDistrict(m.getDistrict().name());
+        });
+        return match.isPresent();
+    }
+
     private void useDataFromGeocoding(AddressJson addressJson) {
-        AddressLine addressLine = new AddressLine()
-                .setHouseNumber(addressJson.getHouseNumber())
-                .setStreetName(addressJson.getStreetName());
-        HttpResult result = this.geocodingService.geocode(addressLine);
+        HttpResult result = this.geocodingService.geocode(getAddressLine(addressJson));
+        useDataFromGeocoding(addressJson, result);
+    }
 
+    private static void useDataFromGeocoding(AddressJson addressJson, HttpResult result) {
         if (result.isSuccess()) {
             addressJson.setLatitude((Double) result.getBody().get("latitude"));
             addressJson.setLongitude((Double) result.getBody().get("longitude"));
@@ -207,10 +288,11 @@ public class ContactAddressService implements IContactAddressService {
     }
 
     private void useDataFromReverseGeocoding(AddressJson addressJson) {
-        HttpResult result = this.geocodingService.reverseGeocode(new Coordinates()
-                .setLat(addressJson.getLatitude())
-                .setLng(addressJson.getLongitude()));
+        HttpResult result = this.geocodingService.reverseGeocode(getCoordinates(addressJson));
+        useDataFromReverseGeocoding(addressJson, result);
+    }
 
+    private static void useDataFromReverseGeocoding(AddressJson addressJson, HttpResult result) {
         if (result.isSuccess()) {
             addressJson.setDistrict((String) result.getBody().get("district"));
             String streetName = (String) result.getBody().get("streetName");
@@ -220,6 +302,18 @@ public class ContactAddressService implements IContactAddressService {
         }
     }
 
+    private static AddressLine getAddressLine(AddressJson addressJson) {
+        return new AddressLine()
+                .setHouseNumber(addressJson.getHouseNumber())
+                .setStreetName(addressJson.getStreetName());
+    }
+
+    private static Coordinates getCoordinates(AddressJson addressJson) {
+        return new Coordinates()
+                .setLat(addressJson.getLatitude())
+                .setLng(addressJson.getLongitude());
+    }
+
     private void invalidatePreviousDefaultAddress(Address address, String customerId) {
         if (address.getIsDefault() != null && address.getIsDefault()) {
             Address existingDefault = this.addressRepository
@@ -3,6 +3,7 @@ package com.vanoma.api.order.contacts;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,4 +16,6 @@ interface ContactRepository extends JpaRepository<Contact, String> {
     Contact findFirstByCustomerIdAndIsSavedAndIsDefault(String customerId, boolean isSaved, boolean isDefault);
 
     Contact findFirstByCustomerIdAndPhoneNumberOneAndIsSaved(String customerId, String phoneNumberOne, Boolean isSaved);
+
+    List<Contact> findByCustomerIdAndPhoneNumberOneInAndIsSaved(String customerId, Collection<String> phoneNumbersOne, Boolean isSaved);
 }
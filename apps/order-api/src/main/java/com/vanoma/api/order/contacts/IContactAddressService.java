@@ -17,6 +17,8 @@ public interface IContactAddressService {
 
     Address buildAddress(String customerId, AddressJson addressJson);
 
+    void addMissingFields(List<AddressJson> addressJsons);
+
     ResponseEntity<Contact> createAndSaveContact(String customerId, ContactJson contactJson);
 
     ResponseEntity<Map<String, Object>> updateContact(String contactId, JsonPatch jsonPatch);
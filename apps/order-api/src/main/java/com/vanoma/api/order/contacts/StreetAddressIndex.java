@@ -0,0 +1,146 @@
+package com.vanoma.api.order.contacts;
+
+import com.vanoma.api.order.maps.AddressLine;
+import com.vanoma.api.order.maps.Coordinates;
+import com.vanoma.api.order.maps.KigaliDistrict;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// In-memory index of confirmed addresses by normalized street name and house number, so address lines staff
+// already confirmed are resolved without calling the maps API. Kigali street codes are matched loosely: "KG 5 Ave",
+// "kg5 avenue", "K.G-05 Av" and "GK 5 Ave" are the same street, and a line without a suffix ("KG 5") matches when
+// only one street with that code and number is known.
+public class StreetAddressIndex {
+    private static final Pattern STREET_CODE = Pattern.compile("^(KG|KN|KK|GK|NK)\\s*0*(\\d+)\\s*([A-Z]*)$");
+    private static final Map<String, String> SUFFIXES = Map.of(
+            "AV", "AVE", "AVENUE", "AVE", "ROAD", "RD", "STR", "ST", "STREET", "ST");
+    private static final List<String> KNOWN_SUFFIXES = List.of("AVE", "RD", "ST");
+
+    private final Map<String, Match> matches = new ConcurrentHashMap<>();
+    private final Map<String, String> keysByAddressId = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // Indexes a confirmed address, or drops it when it is no longer usable (e.g. unconfirmed)
+    public void update(Address address) {
+        String previousKey = this.keysByAddressId.remove(address.getAddressId());
+        if (previousKey != null) {
+            this.matches.computeIfPresent(previousKey,
+                    (key, match) -> match.addressId.equals(address.getAddressId()) ? null : match);
+        }
+        if (!isIndexable(address)) return;
+
+        String key = getKey(address.getStreetName(), address.getHouseNumber());
+        this.matches.put(key, new Match(address.getAddressId(), address.getLatitude(), address.getLongitude(),
+                address.getDistrict()));
+        this.keysByAddressId.put(address.getAddressId(), key);
+    }
+
+    public Optional<Match> find(AddressLine addressLine) {
+        if (StringUtils.isEmpty(addressLine.getStreetName()) || StringUtils.isEmpty(addressLine.getHouseNumber())) {
+            return Optional.empty();
+        }
+
+        String street = normalizeStreetName(addressLine.getStreetName());
+        String houseNumber = normalizeHouseNumber(addressLine.getHouseNumber());
+        Match match = this.matches.get(street + "|" + houseNumber);
+        if (match == null && STREET_CODE.matcher(street).matches() && street.split(" ").length == 2) {
+            match = findWithAnySuffix(street, houseNumber);
+        }
+
+        if (match == null) {
+            this.misses.increment();
+            return Optional.empty();
+        }
+        this.hits.increment();
+        return Optional.of(match);
+    }
+
+    private Match findWithAnySuffix(String street, String houseNumber) {
+        Match found = null;
+        for (String suffix : KNOWN_SUFFIXES) {
+            Match match = this.matches.get(street + " " + suffix + "|" + houseNumber);
+            if (match == null) continue;
+            if (found != null) return null; // Ambiguous
+            found = match;
+        }
+        return found;
+    }
+
+    static String getKey(String streetName, String houseNumber) {
+        return normalizeStreetName(streetName) + "|" + normalizeHouseNumber(houseNumber);
+    }
+
+    static String normalizeStreetName(String streetName) {
+        String street = streetName.toUpperCase(Locale.ROOT).replaceAll("[.,\\-_/]", " ").replaceAll("\\s+", " ").trim();
+        Matcher matcher = STREET_CODE.matcher(street.replace(" ", ""));
+        if (!matcher.matches()) matcher = STREET_CODE.matcher(street);
+        if (!matcher.matches()) return street;
+
+        String code = matcher.group(1);
+        if (code.equals("GK")) code = "KG";
+        if (code.equals("NK")) code = "KN";
+        String suffix = SUFFIXES.getOrDefault(matcher.group(3), matcher.group(3));
+        return suffix.isEmpty() ? code + " " + matcher.group(2) : code + " " + matcher.group(2) + " " + suffix;
+    }
+
+    static String normalizeHouseNumber(String houseNumber) {
+        String normalized = houseNumber.toUpperCase(Locale.ROOT).replaceAll("[\\s.,\\-_/]", "");
+        return normalized.replaceFirst("^0+(?=\\d)", "");
+    }
+
+    private static boolean isIndexable(Address address) {
+        return Boolean.TRUE.equals(address.getIsConfirmed())
+                && !StringUtils.isEmpty(address.getStreetName())
+                && !StringUtils.isEmpty(address.getHouseNumber())
+                && address.getCoordinates() != null
+                && address.getDistrict() != null;
+    }
+
+    public int getSize() {
+        return this.matches.size();
+    }
+
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    public static class Match {
+        private final String addressId;
+        private final double latitude;
+        private final double longitude;
+        private final KigaliDistrict district;
+
+        private Match(String addressId, double latitude, double longitude, KigaliDistrict district) {
+            this.addressId = addressId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.district = district;
+        }
+
+        public String getAddressId() {
+            return this.addressId;
+        }
+
+        public Coordinates getCoordinates() {
+            return new Coordinates().setLat(this.latitude).setLng(this.longitude);
+        }
+
+        public KigaliDistrict getDistrict() {
+            return this.district;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.vanoma.api.order.contacts;
+
+import com.vanoma.api.order.utils.EnvironmentUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+@Component
+public class StreetAddressIndexLoader {
+    Logger logger = LoggerFactory.getLogger(StreetAddressIndexLoader.class);
+
+    @Autowired
+    AddressRepository addressRepository;
+    @Autowired
+    StreetAddressIndex streetAddressIndex;
+
+    // Loads confirmed addresses into the street address index at startup. Oldest first, so that when several
+    // confirmed addresses share a street and house number the most recent one wins, as it does for later saves.
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        int pageSize = EnvironmentUtils.getInt("STREET_ADDRESS_INDEX_PAGE_SIZE", 1_000);
+        if (pageSize <= 0) return;
+
+        try {
+            Pageable pageable = PageRequest.of(0, pageSize, Sort.by("createdAt", "addressId"));
+            Slice<Address> addresses;
+            do {
+                addresses = this.addressRepository.findByIsConfirmedTrueAndStreetNameNotNullAndHouseNumberNotNull(pageable);
+                addresses.forEach(this.streetAddressIndex::update);
+                pageable = addresses.nextPageable();
+            } while (addresses.hasNext());
+            logger.info(String.format("Indexed %d confirmed street addresses", this.streetAddressIndex.getSize()));
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to load the street address index", ex);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.vanoma.api.order.external.IAuthApiCaller;
 import com.vanoma.api.order.external.ICommunicationApiCaller;
 import com.vanoma.api.order.external.IPaymentAPICaller;
 import com.vanoma.api.order.external.PaymentMethodParams;
+import com.vanoma.api.order.pricing.QuoteEngine;
 import com.vanoma.api.utils.exceptions.InvalidParameterException;
 import com.vanoma.api.utils.httpwrapper.HttpResult;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +39,8 @@ public class CustomerService implements ICustomerService {
     private IPaymentAPICaller paymentAPICaller;
     @Autowired
     private ICommunicationApiCaller communicationApiCaller;
+    @Autowired
+    private QuoteEngine quoteEngine;
 
     @Override
     @Transactional
@@ -119,7 +122,9 @@ public class CustomerService implements ICustomerService {
                 customer.setFixedPriceExpiry(null);
             }
         }
-        return this.customerRepository.save(customer);
+        customer = this.customerRepository.save(customer);
+        this.quoteEngine.putCustomer(customer);
+        return customer;
     }
 
     @Override
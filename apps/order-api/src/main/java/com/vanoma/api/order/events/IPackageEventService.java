@@ -2,8 +2,12 @@ package com.vanoma.api.order.events;
 
 import com.vanoma.api.order.packages.Package;
 
+import java.util.List;
+
 public interface IPackageEventService {
     PackageEvent createPackageEvent(String packageId, PackageEventJson eventJson);
 
     PackageEvent createPackageEvent(Package pkg, EventName eventName, String assignmentId);
+
+    List<PackageEvent> createPackageEvents(List<Package> packages, EventName eventName);
 }
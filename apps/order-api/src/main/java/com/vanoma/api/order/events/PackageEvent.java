@@ -3,12 +3,13 @@ package com.vanoma.api.order.events;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.vanoma.api.order.orders.DeliveryOrder;
 import com.vanoma.api.order.packages.Package;
+import com.vanoma.api.order.utils.TimeOrderedId;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.*;
 import java.time.OffsetDateTime;
-import java.util.UUID;
 
 
 @Entity
@@ -18,7 +19,7 @@ import java.util.UUID;
                 @Index(name = "package_event_delivery_order_id_idx", columnList = "delivery_order_id", unique = false),
                 @Index(name = "package_event_package_id_idx", columnList = "package_id", unique = false)
         })
-public class PackageEvent {
+public class PackageEvent implements Persistable<String> {
 
     @Id
     @Column(name = "package_event_id", nullable = false)
@@ -58,13 +59,35 @@ public class PackageEvent {
     @Column(name = "updated_at")
     private OffsetDateTime updatedAt;
 
+    @Transient
+    private boolean isNew = false;
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
     public PackageEvent() {
     }
 
     public PackageEvent(Package pkg) {
-        this.packageEventId = UUID.randomUUID().toString();
+        this.packageEventId = TimeOrderedId.next();
         this.pkg = pkg;
         this.deliveryOrder = pkg.getDeliveryOrder();
+        this.isNew = true;
+    }
+
+    @Override
+    @JsonIgnore
+    public String getId() {
+        return packageEventId;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
     }
 
     public String getPackageEventId() {
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,4 +18,6 @@ public interface PackageEventRepository extends JpaRepository<PackageEvent, Stri
     PackageEvent findFirstByPkgAndEventName(Package pkg, EventName eventName);
 
     PackageEvent findFirstByPkgAndEventNameAndAssignmentId(Package pkg, EventName eventName, String assignmentId);
+
+    List<PackageEvent> findByPkgInAndEventNameAndAssignmentIdIsNull(Collection<Package> packages, EventName eventName);
 }
@@ -4,12 +4,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vanoma.api.order.customers.Customer;
 import com.vanoma.api.order.customers.CustomerRepository;
 import com.vanoma.api.order.external.IAuthApiCaller;
-import com.vanoma.api.order.external.ICommunicationApiCaller;
 import com.vanoma.api.order.external.CallbackParams;
 import com.vanoma.api.order.external.WebPushParams;
 import com.vanoma.api.order.orders.DeliveryOrder;
 import com.vanoma.api.order.orders.OrderRepository;
 import com.vanoma.api.order.orders.OrderStatus;
+import com.vanoma.api.order.outbox.Outbox;
 import com.vanoma.api.order.packages.Package;
 import com.vanoma.api.order.packages.PackageContacts;
 import com.vanoma.api.order.packages.PackageRepository;
@@ -52,7 +52,7 @@ public class PackageEventService implements IPackageEventService {
     @Autowired
     private CustomerRepository customerRepository;
     @Autowired
-    private ICommunicationApiCaller communicationApiCaller;
+    private Outbox outbox;
     @Autowired
     private IAuthApiCaller authApiCaller;
 
@@ -68,15 +68,37 @@ public class PackageEventService implements IPackageEventService {
     @Override
     public PackageEvent createPackageEvent(Package pkg, EventName eventName, String assignmentId) {
         PackageEvent packageEvent = createEvent(pkg, eventName, assignmentId);
+        this.handleCreatedEvent(pkg, packageEvent);
+        return packageEvent;
+    }
 
-        if (eventName == EventName.PACKAGE_DELIVERED) {
+    @Override
+    public List<PackageEvent> createPackageEvents(List<Package> packages, EventName eventName) {
+        // Same as createPackageEvent (without assignment) for each package, with one query for the events being
+        // replaced and the new ones saved together.
+        List<PackageEvent> existingEvents = this.packageEventRepository
+                .findByPkgInAndEventNameAndAssignmentIdIsNull(packages, eventName);
+        this.packageEventRepository.deleteAll(existingEvents);
+
+        List<PackageEvent> packageEvents = new ArrayList<>();
+        for (Package pkg : packages) {
+            packageEvents.add(buildEvent(pkg, eventName, null));
+        }
+        packageEvents = this.packageEventRepository.saveAll(packageEvents);
+        for (int i = 0; i < packages.size(); i++) {
+            this.handleCreatedEvent(packages.get(i), packageEvents.get(i));
+        }
+        return packageEvents;
+    }
+
+    private void handleCreatedEvent(Package pkg, PackageEvent packageEvent) {
+        if (packageEvent.getEventName() == EventName.PACKAGE_DELIVERED) {
             pkg.setStatus(PackageStatus.COMPLETE);
             this.packageRepository.save(pkg);
             this.completeDeliveryOrder(pkg.getDeliveryOrder());
         }
 
         this.sendSMSNotification(pkg, packageEvent);
-        return packageEvent;
     }
 
     private PackageEvent createEvent(Package pkg, EventName eventName, String assignmentId) {
@@ -85,14 +107,16 @@ public class PackageEventService implements IPackageEventService {
             this.packageEventRepository.delete(existingEvent);
         }
 
-        PackageEvent packageEvent = new PackageEvent(pkg)
+        return this.packageEventRepository.save(buildEvent(pkg, eventName, assignmentId));
+    }
+
+    private static PackageEvent buildEvent(Package pkg, EventName eventName, String assignmentId) {
+        return new PackageEvent(pkg)
                 .setEventName(eventName)
                 .setAssignmentId(assignmentId)
                 .setTextEN(EventDescription.getTemplateEN(eventName))
                 .setTextFR(EventDescription.getTemplateFR(eventName))
                 .setTextRW(EventDescription.getTemplateRW(eventName));
-
-        return this.packageEventRepository.save(packageEvent);
     }
 
     private void completeDeliveryOrder(DeliveryOrder deliveryOrder) {
@@ -127,7 +151,7 @@ public class PackageEventService implements IPackageEventService {
 
                         ))
                         .build();
-                this.communicationApiCaller.sendCallback(params);
+                this.outbox.sendCallback(params);
             } else {
                 WebPushParams params = WebPushParams.builder()
                         .heading("Check new delivery event!")
@@ -151,7 +175,7 @@ public class PackageEventService implements IPackageEventService {
                                 .build()
                         )
                         .build();
-                this.communicationApiCaller.sendWebPush(params);
+                this.outbox.sendWebPush(params);
             }
         }
     }
@@ -169,7 +193,7 @@ public class PackageEventService implements IPackageEventService {
                             "You have a delivery from %s (%s). Track the progress at %s",
                             customer.getBusinessName(), PhoneNumberUtils.localize(pkg.getFromContact().getPhoneNumberOne()), pkg.getTrackingLink()
                     );
-                    this.communicationApiCaller.sendSMS(message, pkg.getToContact().getPhoneNumberOne());
+                    this.outbox.sendSMS(message, pkg.getToContact().getPhoneNumberOne());
                 }
 
                 if (packageEvent.getEventName() == EventName.PACKAGE_DELIVERED) {
@@ -177,7 +201,7 @@ public class PackageEventService implements IPackageEventService {
                             "Your package from %s (%s) is now delivered. Thank you!",
                             customer.getBusinessName(), PhoneNumberUtils.localize(pkg.getFromContact().getPhoneNumberOne())
                     );
-                    this.communicationApiCaller.sendSMS(message, pkg.getToContact().getPhoneNumberOne());
+                    this.outbox.sendSMS(message, pkg.getToContact().getPhoneNumberOne());
                 }
 
                 if (packageEvent.getEventName() == EventName.PACKAGE_CANCELLED) {
@@ -189,7 +213,7 @@ public class PackageEventService implements IPackageEventService {
                                 "Your package from %s (%s) is cancelled.",
                                 customer.getBusinessName(), PhoneNumberUtils.localize(pkg.getFromContact().getPhoneNumberOne())
                         );
-                        this.communicationApiCaller.sendSMS(message, pkg.getToContact().getPhoneNumberOne());
+                        this.outbox.sendSMS(message, pkg.getToContact().getPhoneNumberOne());
                     }
                 }
             }
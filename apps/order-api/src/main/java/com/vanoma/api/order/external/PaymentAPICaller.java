@@ -20,9 +20,9 @@ public class PaymentAPICaller implements IPaymentAPICaller {
         String fullUrl = String.format("%s/payment-requests", paymentApiUrl);
         Map<String, Object> requestBody = Map.of(
                 "paymentRequestId", params.getPaymentRequestId(),
-                "totalAmount", params.getTransactionBreakdown().getTotalAmount().doubleValue(),
-                "transactionAmount", params.getTransactionBreakdown().getTransactionAmount().doubleValue(),
-                "transactionFee", params.getTransactionBreakdown().getTransactionFee().doubleValue(),
+                "totalAmount", params.getTransactionBreakdown().getTotalAmount().toBigDecimal().doubleValue(),
+                "transactionAmount", params.getTransactionBreakdown().getTransactionAmount().toBigDecimal().doubleValue(),
+                "transactionFee", params.getTransactionBreakdown().getTransactionFee().toBigDecimal().doubleValue(),
                 "paymentMethod", Map.of(
                         "paymentMethodId", params.getPaymentMethodId()
                 ),
@@ -37,9 +37,9 @@ public class PaymentAPICaller implements IPaymentAPICaller {
         String fullUrl = String.format("%s/payment-records", paymentApiUrl);
         Map<String, Object> requestBody = Map.of(
                 "paymentRequestId", params.getPaymentRequestId(),
-                "totalAmount", params.getTransactionBreakdown().getTotalAmount().doubleValue(),
-                "transactionAmount", params.getTransactionBreakdown().getTransactionAmount().doubleValue(),
-                "transactionFee", params.getTransactionBreakdown().getTransactionFee().doubleValue(),
+                "totalAmount", params.getTransactionBreakdown().getTotalAmount().toBigDecimal().doubleValue(),
+                "transactionAmount", params.getTransactionBreakdown().getTransactionAmount().toBigDecimal().doubleValue(),
+                "transactionFee", params.getTransactionBreakdown().getTransactionFee().toBigDecimal().doubleValue(),
                 "paymentMethod", Map.of(
                         "paymentMethodId", params.getPaymentMethodId()
                 ),
@@ -0,0 +1,196 @@
+package com.vanoma.api.order.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vanoma.api.order.utils.LanguageUtils;
+import com.vanoma.api.utils.error.ErrorResponse;
+import com.vanoma.api.utils.error.ErrorResponseType;
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+// Makes order creation and payment callbacks safe to retry: requests with an Idempotency-Key header go through the
+// IdempotencyStore, and retries get the stored response without reaching the controllers. The payment provider
+// doesn't send the header, so its callbacks are keyed on their body.
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final Pattern DELIVERY_ORDERS_PATH = Pattern.compile("/customers/[^/]+/delivery-orders(/batch)?/?");
+    private static final Pattern PAYMENT_CALLBACK_PATH = Pattern.compile("/delivery-payment-requests/[^/]+/callbacks/?");
+
+    private final IdempotencyStore store;
+    private final LanguageUtils languageUtils;
+    private final ObjectMapper objectMapper;
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    public IdempotencyFilter(IdempotencyStore store, LanguageUtils languageUtils, ObjectMapper objectMapper) {
+        this.store = store;
+        this.languageUtils = languageUtils;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) return true;
+        String path = this.urlPathHelper.getPathWithinApplication(request);
+        return !DELIVERY_ORDERS_PATH.matcher(path).matches() && !PAYMENT_CALLBACK_PATH.matcher(path).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = this.urlPathHelper.getPathWithinApplication(request);
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey == null && !PAYMENT_CALLBACK_PATH.matcher(path).matches()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH)) {
+            this.writeError(response, HttpStatus.BAD_REQUEST, "crud.idempotencyKey.invalid");
+            return;
+        }
+
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+        HttpServletRequest cachedRequest = new CachedBodyRequest(request, body);
+        String fingerprint = sha256(request.getMethod(), path, body);
+        String key = idempotencyKey == null
+                ? fingerprint
+                : sha256("KEY", path, idempotencyKey.getBytes(StandardCharsets.UTF_8));
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        AtomicBoolean executed = new AtomicBoolean(false);
+        IdempotentResponse stored;
+        try {
+            stored = this.store.execute(key, fingerprint, () -> {
+                executed.set(true);
+                try {
+                    chain.doFilter(cachedRequest, wrapper);
+                } catch (IOException | ServletException ex) {
+                    throw new FilterChainException(ex);
+                }
+                return new IdempotentResponse(wrapper.getStatus(), wrapper.getContentType(), wrapper.getContentAsByteArray());
+            });
+        } catch (FilterChainException ex) {
+            if (ex.getCause() instanceof IOException) throw (IOException) ex.getCause();
+            throw (ServletException) ex.getCause();
+        } catch (IdempotencyKeyInProgressException ex) {
+            this.writeError(response, HttpStatus.CONFLICT, ex.getMessage());
+            return;
+        } catch (InvalidParameterException ex) {
+            if (executed.get()) throw ex;
+            this.writeError(response, HttpStatus.BAD_REQUEST, ex.getMessage());
+            return;
+        }
+
+        if (executed.get()) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        response.setStatus(stored.getStatus());
+        if (stored.getContentType() != null) response.setContentType(stored.getContentType());
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.getBody().length);
+        response.getOutputStream().write(stored.getBody());
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String messageKey) throws IOException {
+        ErrorResponse error = new ErrorResponse(
+                ErrorResponseType.INVALID_REQUEST.name(),
+                this.languageUtils.getLocalizedMessage(messageKey)
+        );
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(this.objectMapper.writeValueAsBytes(error));
+    }
+
+    // Hex SHA-256 of "<scope> <path>\n" followed by the value
+    static String sha256(String scope, String path, byte[] value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((scope + " " + path + "\n").getBytes(StandardCharsets.UTF_8));
+            byte[] hash = digest.digest(value);
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static class FilterChainException extends RuntimeException {
+        private FilterChainException(Exception cause) {
+            super(cause);
+        }
+    }
+
+    // The request body is read once for the fingerprint, then served again to the controllers
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(this.body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is in memory, so it is available, and then all read, right away
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!this.isFinished()) listener.onDataAvailable();
+                        if (this.isFinished()) listener.onAllDataRead();
+                    } catch (IOException ex) {
+                        listener.onError(ex);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(this.getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
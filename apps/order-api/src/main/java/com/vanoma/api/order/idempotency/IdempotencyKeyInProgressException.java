@@ -0,0 +1,10 @@
+package com.vanoma.api.order.idempotency;
+
+// The request with the same Idempotency-Key is still running, on this node or another one. Answered with 409 Conflict
+// rather than 400, since the same request can be retried as is once the first one completes.
+public class IdempotencyKeyInProgressException extends RuntimeException {
+
+    public IdempotencyKeyInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,112 @@
+package com.vanoma.api.order.idempotency;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+
+// A request made with an Idempotency-Key, see IdempotencyStore. The row is PENDING (no response yet) while the first
+// request runs on some node, then holds its response until expiresAt.
+@Entity
+@Table(name = "idempotency_record",
+        indexes = @Index(name = "idempotency_record_expires_at_idx", columnList = "expires_at", unique = false))
+public class IdempotencyRecord implements Persistable<String> {
+
+    @Id
+    @Column(name = "record_key", length = 64, nullable = false)
+    private String recordKey;
+
+    @Column(name = "fingerprint", length = 64, nullable = false, updatable = false)
+    private String fingerprint;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "response_content_type")
+    private String responseContentType;
+
+    @Lob
+    @Column(name = "response_body")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private OffsetDateTime expiresAt;
+
+    @Transient
+    private boolean isNew = false;
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public IdempotencyRecord() {
+    }
+
+    private IdempotencyRecord(String recordKey, String fingerprint, OffsetDateTime createdAt, OffsetDateTime expiresAt) {
+        this.recordKey = recordKey;
+        this.fingerprint = fingerprint;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+        this.isNew = true;
+    }
+
+    public static IdempotencyRecord pending(String recordKey, String fingerprint, OffsetDateTime now, OffsetDateTime expiresAt) {
+        return new IdempotencyRecord(recordKey, fingerprint, now, expiresAt);
+    }
+
+    public IdempotencyRecord complete(IdempotentResponse response, OffsetDateTime expiresAt) {
+        this.responseStatus = response.getStatus();
+        this.responseContentType = response.getContentType();
+        this.responseBody = new String(response.getBody(), StandardCharsets.UTF_8);
+        this.expiresAt = expiresAt;
+        return this;
+    }
+
+    public boolean isCompleted() {
+        return this.responseStatus != null;
+    }
+
+    public boolean isExpired(OffsetDateTime now) {
+        return !this.expiresAt.isAfter(now);
+    }
+
+    public IdempotentResponse toResponse() {
+        String body = this.responseBody == null ? "" : this.responseBody;
+        return new IdempotentResponse(this.responseStatus, this.responseContentType, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    @JsonIgnore
+    public String getId() {
+        return recordKey;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
+    }
+
+    public String getRecordKey() {
+        return recordKey;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public OffsetDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
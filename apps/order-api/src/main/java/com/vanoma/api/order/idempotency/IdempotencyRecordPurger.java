@@ -0,0 +1,26 @@
+package com.vanoma.api.order.idempotency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class IdempotencyRecordPurger {
+    Logger logger = LoggerFactory.getLogger(IdempotencyRecordPurger.class);
+
+    @Autowired
+    IdempotencyStore idempotencyStore;
+
+    // Expired records are ignored on read, this only keeps the table small
+    @Scheduled(fixedDelay = 15 * 60_000, initialDelay = 60_000)
+    public void purge() {
+        try {
+            int deleted = this.idempotencyStore.purgeExpired();
+            if (deleted > 0) logger.info(String.format("Purged %d expired idempotency records", deleted));
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to purge expired idempotency records", ex);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.vanoma.api.order.idempotency;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Conditional, so that a node never deletes a record another node has just claimed again
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.recordKey = :recordKey AND r.expiresAt <= :now")
+    int deleteExpiredByRecordKey(@Param("recordKey") String recordKey, @Param("now") OffsetDateTime now);
+
+    // Only while PENDING, so that the expiry of a stored response is never changed
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.expiresAt = :expiresAt WHERE r.recordKey = :recordKey AND r.responseStatus IS NULL")
+    int renewPending(@Param("recordKey") String recordKey, @Param("expiresAt") OffsetDateTime expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") OffsetDateTime now);
+}
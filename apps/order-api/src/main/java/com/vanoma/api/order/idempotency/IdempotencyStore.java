@@ -0,0 +1,246 @@
+package com.vanoma.api.order.idempotency;
+
+import com.vanoma.api.order.utils.ExpiringLruCache;
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import com.vanoma.api.utils.input.TimeUtils;
+import lombok.Builder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Runs a request at most once per key and replays its response to retries. Completed responses live in a bounded
+// in-memory tier and in the idempotency_record table until the TTL passes. Concurrent duplicates on the same node
+// wait on the first request; across nodes the first one to insert the PENDING row runs the request and the others
+// poll that row. Only successful responses are kept, so a failed request can be retried with the same key. The
+// PENDING row is renewed while the request runs, so that a long request (e.g. a batch of orders) is not run again by
+// another node once claimTtl has passed; claimTtl only bounds how long the claim of a node that died survives.
+public class IdempotencyStore implements Closeable {
+    Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private final IdempotencyRecordRepository repository;
+    private final Duration ttl;
+    private final Duration claimTtl;
+    private final Duration maxWait;
+    private final Duration pollInterval;
+    private final ExpiringLruCache<String, Entry> cache;
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService renewals = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "idempotency-claim-renewal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    @Builder
+    public IdempotencyStore(IdempotencyRecordRepository repository,
+                            int maxSize,
+                            Duration ttl,
+                            Duration claimTtl,
+                            Duration maxWait,
+                            Duration pollInterval) {
+        this.repository = repository;
+        this.ttl = ttl;
+        this.claimTtl = claimTtl;
+        this.maxWait = maxWait;
+        this.pollInterval = pollInterval;
+        this.cache = new ExpiringLruCache<>(maxSize, ttl);
+    }
+
+    public IdempotentResponse execute(String key, String fingerprint, Supplier<IdempotentResponse> call) {
+        Entry cached = this.cache.get(key);
+        if (cached != null) {
+            checkFingerprint(cached.fingerprint, fingerprint);
+            this.replayed.increment();
+            return cached.response;
+        }
+
+        InFlight current = new InFlight(fingerprint);
+        InFlight existing = this.inFlight.putIfAbsent(key, current);
+        if (existing != null) {
+            checkFingerprint(existing.fingerprint, fingerprint);
+            this.coalesced.increment();
+            return this.await(existing.future);
+        }
+
+        try {
+            IdempotentResponse response = this.claimAndExecute(key, fingerprint, call);
+            current.future.complete(response);
+            return response;
+        } catch (RuntimeException | Error ex) {
+            current.future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            this.inFlight.remove(key, current);
+        }
+    }
+
+    private IdempotentResponse claimAndExecute(String key, String fingerprint, Supplier<IdempotentResponse> call) {
+        long deadline = System.nanoTime() + this.maxWait.toNanos();
+        while (true) {
+            OffsetDateTime now = TimeUtils.getUtcNow();
+            IdempotencyRecord record = this.repository.findById(key).orElse(null);
+            if (record != null && !record.isExpired(now)) {
+                checkFingerprint(record.getFingerprint(), fingerprint);
+                if (record.isCompleted()) {
+                    IdempotentResponse response = record.toResponse();
+                    this.cache.put(key, new Entry(fingerprint, response));
+                    this.replayed.increment();
+                    return response;
+                }
+                // Another node is running the request
+                if (System.nanoTime() >= deadline) {
+                    throw new IdempotencyKeyInProgressException("crud.idempotencyKey.inProgress");
+                }
+                sleep(this.pollInterval);
+                continue;
+            }
+
+            if (record != null) this.repository.deleteExpiredByRecordKey(key, now);
+            IdempotencyRecord claim = IdempotencyRecord.pending(key, fingerprint, now, now.plus(this.claimTtl));
+            try {
+                this.repository.saveAndFlush(claim);
+            } catch (DataIntegrityViolationException ex) {
+                // Claimed by another node in the meantime
+                if (System.nanoTime() >= deadline) throw ex;
+                continue;
+            }
+            return this.executeClaimed(claim, call);
+        }
+    }
+
+    private IdempotentResponse executeClaimed(IdempotencyRecord claim, Supplier<IdempotentResponse> call) {
+        this.executed.increment();
+        ScheduledFuture<?> renewal = this.scheduleRenewal(claim.getRecordKey());
+        IdempotentResponse response;
+        try {
+            response = call.get();
+        } catch (RuntimeException | Error ex) {
+            renewal.cancel(false);
+            this.release(claim);
+            throw ex;
+        }
+        renewal.cancel(false);
+        if (!response.isSuccessful()) {
+            this.release(claim);
+            return response;
+        }
+
+        this.cache.put(claim.getRecordKey(), new Entry(claim.getFingerprint(), response));
+        try {
+            this.repository.save(claim.complete(response, TimeUtils.getUtcNow().plus(this.ttl)));
+        } catch (RuntimeException ex) {
+            // The response is still replayed by this node, and the claim expires for the others.
+            logger.warn("Unable to save the response of idempotency record " + claim.getRecordKey(), ex);
+        }
+        return response;
+    }
+
+    // Pushes the expiry of the PENDING row every third of claimTtl while the request runs on this node
+    private ScheduledFuture<?> scheduleRenewal(String key) {
+        long period = Math.max(this.claimTtl.toMillis() / 3, 1);
+        return this.renewals.scheduleAtFixedRate(() -> {
+            try {
+                this.repository.renewPending(key, TimeUtils.getUtcNow().plus(this.claimTtl));
+            } catch (RuntimeException ex) {
+                logger.warn("Unable to renew idempotency record " + key, ex);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private void release(IdempotencyRecord claim) {
+        try {
+            this.repository.deleteById(claim.getRecordKey());
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to release idempotency record " + claim.getRecordKey(), ex);
+        }
+    }
+
+    private IdempotentResponse await(CompletableFuture<IdempotentResponse> future) {
+        try {
+            return future.get(this.maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            throw new IdempotencyKeyInProgressException("crud.idempotencyKey.inProgress");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInProgressException("crud.idempotencyKey.inProgress");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    // Deletes the records whose TTL has passed, returns how many
+    public int purgeExpired() {
+        return this.repository.deleteExpired(TimeUtils.getUtcNow());
+    }
+
+    private static void checkFingerprint(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new InvalidParameterException("crud.idempotencyKey.reused");
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInProgressException("crud.idempotencyKey.inProgress");
+        }
+    }
+
+    // Requests actually run
+    public long getExecutedCount() {
+        return this.executed.sum();
+    }
+
+    // Retries answered with a stored response
+    public long getReplayedCount() {
+        return this.replayed.sum();
+    }
+
+    // Duplicates that waited on a request in flight on this node
+    public long getCoalescedCount() {
+        return this.coalesced.sum();
+    }
+
+    public int getSize() {
+        return this.cache.size();
+    }
+
+    @Override
+    public void close() {
+        this.renewals.shutdownNow();
+    }
+
+    private static class Entry {
+        private final String fingerprint;
+        private final IdempotentResponse response;
+
+        private Entry(String fingerprint, IdempotentResponse response) {
+            this.fingerprint = fingerprint;
+            this.response = response;
+        }
+    }
+
+    private static class InFlight {
+        private final String fingerprint;
+        private final CompletableFuture<IdempotentResponse> future = new CompletableFuture<>();
+
+        private InFlight(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.vanoma.api.order.idempotency;
+
+// The status, content type and body of a response, as stored and replayed by the IdempotencyStore
+public class IdempotentResponse {
+    private final int status;
+    private final String contentType;
+    private final byte[] body;
+
+    public IdempotentResponse(int status, String contentType, byte[] body) {
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+    }
+
+    public boolean isSuccessful() {
+        return this.status >= 200 && this.status < 300;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+}
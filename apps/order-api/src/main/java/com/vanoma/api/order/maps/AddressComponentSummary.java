@@ -0,0 +1,118 @@
+package com.vanoma.api.order.maps;
+
+import com.google.maps.model.AddressComponent;
+import com.google.maps.model.AddressComponentType;
+
+import java.util.EnumSet;
+
+// What GoogleMapsAPIWrapper needs from the address components of one geocoding result, read in a single pass.
+// Instances are reused (read() clears the previous result), so parsing a response doesn't allocate per component.
+class AddressComponentSummary {
+    private static final String KIGALI = "kigali";
+    private static final String UNNAMED_ROAD = "Unnamed Road";
+
+    private final EnumSet<AddressComponentType> types = EnumSet.noneOf(AddressComponentType.class);
+    private String houseNumber;
+    private String streetName;
+    private boolean hasRoute;
+    private String district;
+    private boolean isKigali;
+    private String lastName;
+
+    AddressComponentSummary read(AddressComponent[] components) {
+        this.types.clear();
+        this.houseNumber = null;
+        this.streetName = null;
+        this.hasRoute = false;
+        this.district = null;
+        this.isKigali = false;
+        this.lastName = null;
+
+        for (AddressComponent component : components) {
+            boolean isLocality = false;
+            boolean isProvince = false;
+            boolean isDistrict = false;
+            boolean isRoute = false;
+            boolean isStreetNumber = false;
+            for (AddressComponentType type : component.types) {
+                if (type == null) continue;
+                this.types.add(type);
+                switch (type) {
+                    case LOCALITY:
+                        isLocality = true;
+                        break;
+                    case ADMINISTRATIVE_AREA_LEVEL_1:
+                        isProvince = true;
+                        break;
+                    case ADMINISTRATIVE_AREA_LEVEL_2:
+                        isDistrict = true;
+                        break;
+                    case ROUTE:
+                        isRoute = true;
+                        break;
+                    case STREET_NUMBER:
+                        isStreetNumber = true;
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            if (isStreetNumber && this.houseNumber == null) this.houseNumber = component.shortName;
+            if (isRoute && !this.hasRoute) {
+                this.hasRoute = true;
+                this.streetName = UNNAMED_ROAD.equalsIgnoreCase(component.shortName) ? null : component.shortName;
+            }
+            if (isDistrict && this.district == null && RwandaDistricts.isValid(component.longName)) {
+                this.district = component.longName;
+            }
+            if (!this.isKigali) {
+                this.isKigali = (isLocality && KIGALI.equalsIgnoreCase(component.longName))
+                        || (isProvince && containsIgnoreCase(component.longName, KIGALI));
+            }
+            this.lastName = component.longName;
+        }
+        return this;
+    }
+
+    static boolean hasType(AddressComponent component, AddressComponentType type) {
+        for (AddressComponentType componentType : component.types) {
+            if (componentType == type) return true;
+        }
+        return false;
+    }
+
+    private static boolean containsIgnoreCase(String value, String part) {
+        if (value == null) return false;
+        for (int i = 0; i + part.length() <= value.length(); i++) {
+            if (value.regionMatches(true, i, part, 0, part.length())) return true;
+        }
+        return false;
+    }
+
+    boolean hasType(AddressComponentType type) {
+        return this.types.contains(type);
+    }
+
+    String getHouseNumber() {
+        return this.houseNumber;
+    }
+
+    String getStreetName() {
+        return this.streetName;
+    }
+
+    String getDistrict() {
+        return this.district;
+    }
+
+    boolean isKigali() {
+        return this.isKigali;
+    }
+
+    // Some results don't have the country component and stop at ADMINISTRATIVE_AREA_LEVEL_1 (e.g. Kigali City).
+    boolean isRwanda() {
+        if (this.lastName == null) return false;
+        return "rwanda".equalsIgnoreCase(this.lastName) || this.lastName.regionMatches(true, 0, KIGALI, 0, KIGALI.length());
+    }
+}
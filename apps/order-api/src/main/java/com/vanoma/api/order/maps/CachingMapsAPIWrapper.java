@@ -0,0 +1,134 @@
+package com.vanoma.api.order.maps;
+
+import com.vanoma.api.order.utils.ExpiringLruCache;
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import com.vanoma.api.utils.httpwrapper.HttpResult;
+import com.vanoma.api.utils.input.TimeUtils;
+import lombok.Builder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+// Reverse-geocoding results only depend on where a point is, so points falling in the same GridCell share
+// one maps API call. Hot cells live in memory; when a repository is given, cells are also persisted so the
+// cache survives restarts. Geocoding (address line -> coordinates) is passed through untouched.
+public class CachingMapsAPIWrapper implements IMapsAPI {
+    Logger logger = LoggerFactory.getLogger(CachingMapsAPIWrapper.class);
+
+    // Coverage verdicts are as stable as street names, so they are cached as well. Any other error
+    // (e.g. reverseGeocodingFailure after a network error) is not.
+    private static final Set<String> CACHEABLE_VERDICTS = Set.of(
+            "crud.address.outOfRwanda",
+            "crud.address.outOfKigali"
+    );
+
+    private final IMapsAPI mapsClient;
+    private final int cellSizeMeters;
+    private final Duration persistentTtl;
+    private final ReverseGeocodeCellRepository repository;
+    private final ExpiringLruCache<GridCell, ReverseGeocodeCell> cache;
+
+    private final LongAdder persistentHits = new LongAdder();
+    private final LongAdder upstreamCalls = new LongAdder();
+
+    @Builder
+    public CachingMapsAPIWrapper(IMapsAPI mapsClient,
+                                 int cellSizeMeters,
+                                 int maxSize,
+                                 Duration ttl,
+                                 Duration persistentTtl,
+                                 ReverseGeocodeCellRepository repository) {
+        this.mapsClient = mapsClient;
+        this.cellSizeMeters = cellSizeMeters;
+        this.persistentTtl = persistentTtl;
+        this.repository = repository;
+        this.cache = new ExpiringLruCache<>(maxSize, ttl);
+    }
+
+    @Override
+    public HttpResult geocode(AddressLine addressLine) {
+        return this.mapsClient.geocode(addressLine);
+    }
+
+    @Override
+    public HttpResult reverseGeocode(Coordinates coordinates) {
+        GridCell cell = GridCell.of(coordinates, this.cellSizeMeters);
+        ReverseGeocodeCell cached = this.findCell(cell);
+        if (cached != null) {
+            return cached.toHttpResult(coordinates);
+        }
+
+        this.upstreamCalls.increment();
+        try {
+            HttpResult result = this.mapsClient.reverseGeocode(coordinates);
+            if (result.isSuccess()) {
+                this.saveCell(cell, ReverseGeocodeCell.fromResult(cell, result.getBody()));
+            }
+            return result;
+        } catch (InvalidParameterException ex) {
+            if (CACHEABLE_VERDICTS.contains(ex.getMessage())) {
+                this.saveCell(cell, ReverseGeocodeCell.fromVerdict(cell, ex.getMessage()));
+            }
+            throw ex;
+        }
+    }
+
+    private ReverseGeocodeCell findCell(GridCell cell) {
+        ReverseGeocodeCell cached = this.cache.get(cell);
+        if (cached != null || this.repository == null) {
+            return cached;
+        }
+
+        try {
+            ReverseGeocodeCell persisted = this.repository.findById(cell.getKey()).orElse(null);
+            if (persisted == null || !persisted.isCreatedAfter(TimeUtils.getUtcNow().minus(this.persistentTtl))) {
+                return null;
+            }
+            this.persistentHits.increment();
+            this.cache.put(cell, persisted);
+            return persisted;
+        } catch (RuntimeException ex) {
+            // The persisted cache is an optimization; never fail a lookup because of it.
+            logger.warn("Unable to read reverse geocode cell " + cell.getKey(), ex);
+            return null;
+        }
+    }
+
+    private void saveCell(GridCell cell, ReverseGeocodeCell reverseGeocodeCell) {
+        this.cache.put(cell, reverseGeocodeCell);
+        if (this.repository == null) return;
+
+        try {
+            this.repository.save(reverseGeocodeCell);
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to persist reverse geocode cell " + cell.getKey(), ex);
+        }
+    }
+
+    public long getHitCount() {
+        return this.cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return this.cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return this.cache.getEvictionCount();
+    }
+
+    public long getPersistentHitCount() {
+        return this.persistentHits.sum();
+    }
+
+    public long getUpstreamCallCount() {
+        return this.upstreamCalls.sum();
+    }
+
+    public int getSize() {
+        return this.cache.size();
+    }
+}
@@ -0,0 +1,279 @@
+package com.vanoma.api.order.maps;
+
+import com.vanoma.api.order.utils.ExpiringLruCache;
+import com.vanoma.api.utils.input.TimeUtils;
+import lombok.Builder;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Navigation distances keyed on the pair of GridCells the origin and destination fall in, so that repeated
+// trips between the same shops and neighbourhoods cost a single distance matrix element. With symmetric=true
+// A->B and B->A share an entry (road distances in town differ little by direction). Hot pairs live in memory;
+// when a repository is given, pairs are also persisted so the cache survives restarts.
+public class CachingNavigationDistanceApi implements INavigationDistanceApi, Closeable {
+    Logger logger = LoggerFactory.getLogger(CachingNavigationDistanceApi.class);
+
+    private final INavigationDistanceApi distanceApi;
+    private final int cellSizeMeters;
+    private final boolean symmetric;
+    private final Duration persistentTtl;
+    private final NavigationDistanceCellRepository repository;
+    private final ExpiringLruCache<String, Long> cache;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder persistentHits = new LongAdder();
+    private final LongAdder upstreamCalls = new LongAdder();
+
+    @Builder
+    public CachingNavigationDistanceApi(INavigationDistanceApi distanceApi,
+                                        int cellSizeMeters,
+                                        boolean symmetric,
+                                        int maxSize,
+                                        Duration ttl,
+                                        Duration persistentTtl,
+                                        NavigationDistanceCellRepository repository) {
+        this.distanceApi = distanceApi;
+        this.cellSizeMeters = cellSizeMeters;
+        this.symmetric = symmetric;
+        this.persistentTtl = persistentTtl;
+        this.repository = repository;
+        this.cache = new ExpiringLruCache<>(maxSize, ttl);
+    }
+
+    @Override
+    public long getNavigationDistance(Coordinates origin, Coordinates destination) {
+        String key = getPairKey(origin, destination);
+        this.lookups.increment();
+
+        Long distance = this.cache.get(key);
+        if (distance != null) {
+            this.hits.increment();
+            return distance;
+        }
+        distance = this.findPersisted(List.of(key)).get(key);
+        if (distance != null) {
+            this.persistentHits.increment();
+            return distance;
+        }
+
+        this.upstreamCalls.increment();
+        long navigationDistance = this.distanceApi.getNavigationDistance(origin, destination);
+        if (navigationDistance > 0) {
+            this.save(Map.of(key, navigationDistance));
+        }
+        return navigationDistance;
+    }
+
+    @Override
+    public long[][] getNavigationDistances(List<Coordinates> origins, List<Coordinates> destinations) {
+        long[][] distances = new long[origins.size()][destinations.size()];
+        String[][] keys = new String[origins.size()][destinations.size()];
+        Set<String> missingKeys = new HashSet<>();
+
+        for (int i = 0; i < origins.size(); i++) {
+            for (int j = 0; j < destinations.size(); j++) {
+                keys[i][j] = getPairKey(origins.get(i), destinations.get(j));
+                this.lookups.increment();
+                Long distance = this.cache.get(keys[i][j]);
+                if (distance != null) {
+                    this.hits.increment();
+                    distances[i][j] = distance;
+                } else {
+                    missingKeys.add(keys[i][j]);
+                }
+            }
+        }
+        if (missingKeys.isEmpty()) return distances;
+
+        // One query for all pairs missing in memory, then one upstream request per origin with only the destinations
+        // that origin is missing, so known pairs are never fetched again.
+        Map<String, Long> persisted = this.findPersisted(missingKeys);
+        Map<Integer, List<Integer>> missingByOrigin = new LinkedHashMap<>();
+        Set<String> requestedKeys = new HashSet<>();
+        for (int i = 0; i < origins.size(); i++) {
+            for (int j = 0; j < destinations.size(); j++) {
+                if (!missingKeys.contains(keys[i][j])) continue;
+                Long distance = persisted.get(keys[i][j]);
+                if (distance != null) {
+                    this.persistentHits.increment();
+                    distances[i][j] = distance;
+                } else if (requestedKeys.add(keys[i][j])) {
+                    missingByOrigin.computeIfAbsent(i, row -> new ArrayList<>()).add(j);
+                }
+            }
+        }
+        if (missingByOrigin.isEmpty()) return distances;
+
+        Map<String, Long> fetched = new HashMap<>();
+        for (Map.Entry<Integer, List<Integer>> row : missingByOrigin.entrySet()) {
+            List<Coordinates> missingDestinations = new ArrayList<>();
+            row.getValue().forEach(j -> missingDestinations.add(destinations.get(j)));
+
+            this.upstreamCalls.increment();
+            long[][] rowDistances = this.distanceApi.getNavigationDistances(List.of(origins.get(row.getKey())), missingDestinations);
+            Map<String, Long> fresh = new HashMap<>();
+            for (int c = 0; c < row.getValue().size(); c++) {
+                String key = keys[row.getKey()][row.getValue().get(c)];
+                fetched.put(key, rowDistances[0][c]);
+                if (rowDistances[0][c] > 0) fresh.put(key, rowDistances[0][c]);
+            }
+            this.save(fresh);
+        }
+        // Pairs requested once on behalf of several (origin, destination) pairs in the same cells
+        for (int i = 0; i < origins.size(); i++) {
+            for (int j = 0; j < destinations.size(); j++) {
+                Long distance = fetched.get(keys[i][j]);
+                if (distance != null) distances[i][j] = distance;
+            }
+        }
+        return distances;
+    }
+
+    // Distances of the (origin, destination) pairs, in order, as far as they are known in memory or persisted
+    // (whatever their age), or DISTANCE_NOT_FOUND. Never calls the distance API and adds nothing to the cache.
+    public long[] findKnownDistances(List<Pair<Coordinates, Coordinates>> pairs) {
+        long[] distances = new long[pairs.size()];
+        String[] keys = new String[pairs.size()];
+        Set<String> missingKeys = new HashSet<>();
+        for (int i = 0; i < pairs.size(); i++) {
+            keys[i] = getPairKey(pairs.get(i).getLeft(), pairs.get(i).getRight());
+            Long distance = this.cache.get(keys[i]);
+            distances[i] = distance == null ? DISTANCE_NOT_FOUND : distance;
+            if (distance == null) missingKeys.add(keys[i]);
+        }
+        if (missingKeys.isEmpty() || this.repository == null) return distances;
+
+        Map<String, Long> persisted = new HashMap<>();
+        for (NavigationDistanceCell cell : this.repository.findByPairKeyIn(missingKeys)) {
+            persisted.put(cell.getPairKey(), cell.getDistanceMeters());
+        }
+        for (int i = 0; i < pairs.size(); i++) {
+            Long distance = persisted.get(keys[i]);
+            if (distance != null) distances[i] = distance;
+        }
+        return distances;
+    }
+
+    // Loads the given pairs into memory, from the repository when persisted or from the distance API otherwise
+    // (one matrix request per distinct origin). Returns the number of pairs that are now cached.
+    public int prewarm(List<Pair<Coordinates, Coordinates>> pairs, boolean fetchMissing) {
+        Map<String, Pair<Coordinates, Coordinates>> byKey = new LinkedHashMap<>();
+        for (Pair<Coordinates, Coordinates> pair : pairs) {
+            byKey.putIfAbsent(getPairKey(pair.getLeft(), pair.getRight()), pair);
+        }
+
+        Map<String, Long> persisted = this.findPersisted(byKey.keySet());
+        int warmed = persisted.size();
+        if (!fetchMissing) return warmed;
+
+        Map<String, List<Coordinates>> destinationsByOrigin = new LinkedHashMap<>();
+        Map<String, Coordinates> origins = new HashMap<>();
+        byKey.forEach((key, pair) -> {
+            if (persisted.containsKey(key)) return;
+            String originKey = GridCell.of(pair.getLeft(), this.cellSizeMeters).getKey();
+            origins.putIfAbsent(originKey, pair.getLeft());
+            destinationsByOrigin.computeIfAbsent(originKey, k -> new ArrayList<>()).add(pair.getRight());
+        });
+        for (Map.Entry<String, List<Coordinates>> entry : destinationsByOrigin.entrySet()) {
+            long[][] distances = this.getNavigationDistances(List.of(origins.get(entry.getKey())), entry.getValue());
+            for (long distance : distances[0]) {
+                if (distance > 0) warmed++;
+            }
+        }
+        return warmed;
+    }
+
+    String getPairKey(Coordinates origin, Coordinates destination) {
+        String originKey = GridCell.of(origin, this.cellSizeMeters).getKey();
+        String destinationKey = GridCell.of(destination, this.cellSizeMeters).getKey();
+        if (!this.symmetric) return originKey + ">" + destinationKey;
+        return originKey.compareTo(destinationKey) <= 0
+                ? originKey + "=" + destinationKey
+                : destinationKey + "=" + originKey;
+    }
+
+    // Centers of the origin and destination cells of a pair key (in the key's order), e.g. to learn from
+    // persisted distances without the original coordinates.
+    public static Pair<Coordinates, Coordinates> getPairCenters(String pairKey) {
+        String[] cells = pairKey.split("[>=]");
+        if (cells.length != 2) throw new IllegalArgumentException("Invalid pair key " + pairKey);
+        return Pair.of(GridCell.fromKey(cells[0]).getCenter(), GridCell.fromKey(cells[1]).getCenter());
+    }
+
+    private Map<String, Long> findPersisted(Collection<String> keys) {
+        if (this.repository == null || keys.isEmpty()) return Map.of();
+
+        try {
+            OffsetDateTime createdAfter = TimeUtils.getUtcNow().minus(this.persistentTtl);
+            Map<String, Long> persisted = new HashMap<>();
+            for (NavigationDistanceCell cell : this.repository.findByPairKeyIn(keys)) {
+                if (!cell.isCreatedAfter(createdAfter)) continue;
+                persisted.put(cell.getPairKey(), cell.getDistanceMeters());
+                this.cache.put(cell.getPairKey(), cell.getDistanceMeters());
+            }
+            return persisted;
+        } catch (RuntimeException ex) {
+            // The persisted cache is an optimization; never fail a lookup because of it.
+            logger.warn("Unable to read navigation distance cells", ex);
+            return Map.of();
+        }
+    }
+
+    private void save(Map<String, Long> distances) {
+        if (distances.isEmpty()) return;
+        distances.forEach(this.cache::put);
+        if (this.repository == null) return;
+
+        try {
+            List<NavigationDistanceCell> cells = new ArrayList<>();
+            distances.forEach((key, distance) -> cells.add(new NavigationDistanceCell(key, distance)));
+            this.repository.saveAll(cells);
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to persist navigation distance cells", ex);
+        }
+    }
+
+    public long getLookupCount() {
+        return this.lookups.sum();
+    }
+
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    public long getPersistentHitCount() {
+        return this.persistentHits.sum();
+    }
+
+    public long getUpstreamCallCount() {
+        return this.upstreamCalls.sum();
+    }
+
+    // Distance matrix elements (the unit Google bills) served without calling the API.
+    public long getSavedApiCallCount() {
+        return this.getHitCount() + this.getPersistentHitCount();
+    }
+
+    public double getHitRatio() {
+        long lookups = this.getLookupCount();
+        return lookups == 0 ? 0.0 : (double) this.getSavedApiCallCount() / lookups;
+    }
+
+    public int getSize() {
+        return this.cache.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.distanceApi instanceof Closeable) ((Closeable) this.distanceApi).close();
+    }
+}
@@ -0,0 +1,67 @@
+package com.vanoma.api.order.maps;
+
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import com.vanoma.api.utils.httpwrapper.HttpResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+// Answers geocoding calls the provider could not (MapsUnavailableException). Reverse geocoding falls back to the
+// local KigaliDistrictResolver, which gives the district but no street name. Anything else fails with the same
+// geocodingFailure/reverseGeocodingFailure errors as an empty provider response. Sits outside the cache so that
+// fallback answers are never cached.
+public class FallbackMapsAPIWrapper implements IMapsAPI {
+    Logger logger = LoggerFactory.getLogger(FallbackMapsAPIWrapper.class);
+
+    private final IMapsAPI mapsClient;
+    private final KigaliDistrictResolver districtResolver;
+
+    private final LongAdder fallbacks = new LongAdder();
+
+    public FallbackMapsAPIWrapper(IMapsAPI mapsClient, KigaliDistrictResolver districtResolver) {
+        this.mapsClient = mapsClient;
+        this.districtResolver = districtResolver;
+    }
+
+    @Override
+    public HttpResult geocode(AddressLine addressLine) {
+        try {
+            return this.mapsClient.geocode(addressLine);
+        } catch (MapsUnavailableException ex) {
+            logger.warn("Geocoding unavailable: " + ex.getMessage());
+            this.fallbacks.increment();
+            throw new InvalidParameterException("crud.address.geocodingFailure");
+        }
+    }
+
+    @Override
+    public HttpResult reverseGeocode(Coordinates coordinates) {
+        try {
+            return this.mapsClient.reverseGeocode(coordinates);
+        } catch (MapsUnavailableException ex) {
+            logger.warn("Reverse geocoding unavailable, using local districts: " + ex.getMessage());
+            this.fallbacks.increment();
+            Optional<KigaliDistrict> district = this.districtResolver == null
+                    ? Optional.empty()
+                    : this.districtResolver.resolve(coordinates);
+            if (district.isEmpty()) throw new InvalidParameterException("crud.address.reverseGeocodingFailure");
+
+            Map<String, Object> address = new HashMap<>();
+            address.put("houseNumber", null);
+            address.put("streetName", null);
+            address.put("district", district.get().name());
+            address.put("latitude", coordinates.getLat());
+            address.put("longitude", coordinates.getLng());
+            return new HttpResult(address, HttpStatus.OK.value());
+        }
+    }
+
+    public long getFallbackCount() {
+        return this.fallbacks.sum();
+    }
+}
@@ -0,0 +1,51 @@
+package com.vanoma.api.order.maps;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+// Uses the navigation distance API and falls back to a local HaversineDistanceEstimator when the provider can't
+// answer (MapsUnavailableException, e.g. timeout or open circuit), so distance pricing keeps working during
+// provider outages. A pair without a route is not an outage: DISTANCE_NOT_FOUND and navigationDistanceNotFound
+// pass through unchanged. The estimator learns from fresh responses only, see LearningNavigationDistanceApi.
+public class FallbackNavigationDistanceApi implements INavigationDistanceApi {
+    Logger logger = LoggerFactory.getLogger(FallbackNavigationDistanceApi.class);
+
+    private final INavigationDistanceApi distanceApi;
+    private final HaversineDistanceEstimator estimator;
+
+    private final LongAdder fallbacks = new LongAdder();
+
+    public FallbackNavigationDistanceApi(INavigationDistanceApi distanceApi, HaversineDistanceEstimator estimator) {
+        this.distanceApi = distanceApi;
+        this.estimator = estimator;
+    }
+
+    @Override
+    public long getNavigationDistance(Coordinates origin, Coordinates destination) {
+        try {
+            return this.distanceApi.getNavigationDistance(origin, destination);
+        } catch (MapsUnavailableException ex) {
+            logger.warn("Navigation distance lookup failed, using estimate: " + ex.getMessage());
+        }
+        this.fallbacks.increment();
+        return this.estimator.getNavigationDistance(origin, destination);
+    }
+
+    @Override
+    public long[][] getNavigationDistances(List<Coordinates> origins, List<Coordinates> destinations) {
+        try {
+            return this.distanceApi.getNavigationDistances(origins, destinations);
+        } catch (MapsUnavailableException ex) {
+            logger.warn("Navigation distance lookup failed, using estimates: " + ex.getMessage());
+        }
+        this.fallbacks.add((long) origins.size() * destinations.size());
+        return this.estimator.getNavigationDistances(origins, destinations);
+    }
+
+    public long getFallbackCount() {
+        return this.fallbacks.sum();
+    }
+}
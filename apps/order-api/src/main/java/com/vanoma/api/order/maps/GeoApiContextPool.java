@@ -0,0 +1,85 @@
+package com.vanoma.api.order.maps;
+
+import com.google.maps.GeoApiContext;
+import com.google.maps.OkHttpRequestHandler;
+import lombok.Builder;
+import okhttp3.ConnectionPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Long-lived GeoApiContexts shared by the Google wrappers. A GeoApiContext is thread-safe and owns an OkHttp
+// client, a dispatcher and a rate limiter thread, so it must be built once (not per request) and shut down
+// once when the application stops. Requests are spread over the contexts round-robin.
+public class GeoApiContextPool implements Closeable {
+    Logger logger = LoggerFactory.getLogger(GeoApiContextPool.class);
+
+    private final List<GeoApiContext> contexts;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    @Builder
+    public GeoApiContextPool(String apiKey,
+                             int size,
+                             int maxIdleConnections,
+                             Duration keepAlive,
+                             Duration connectTimeout,
+                             Duration readTimeout,
+                             Duration retryTimeout,
+                             int maxRetries,
+                             int queryRateLimit) {
+        int poolSize = Math.max(size, 1);
+        // Connections are shared by all contexts; the query rate limit is split among them.
+        ConnectionPool connectionPool = new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS);
+        int queriesPerSecond = Math.max(queryRateLimit / poolSize, 1);
+
+        List<GeoApiContext> contexts = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            OkHttpRequestHandler.Builder requestHandlerBuilder = new OkHttpRequestHandler.Builder();
+            requestHandlerBuilder.okHttpClientBuilder().connectionPool(connectionPool);
+            contexts.add(new GeoApiContext.Builder(requestHandlerBuilder)
+                    .apiKey(apiKey)
+                    .connectTimeout(connectTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .readTimeout(readTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .retryTimeout(retryTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .maxRetries(maxRetries)
+                    .queryRateLimit(queriesPerSecond)
+                    .build());
+        }
+        this.contexts = Collections.unmodifiableList(contexts);
+    }
+
+    public GeoApiContext getContext() {
+        if (this.closed) throw new IllegalStateException("GeoApiContextPool is closed");
+        return this.contexts.get(Math.floorMod(this.next.getAndIncrement(), this.contexts.size()));
+    }
+
+    public int getSize() {
+        return this.contexts.size();
+    }
+
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.closed) return;
+        this.closed = true;
+        // From docs: Call the shutdown() method of GeoApiContext, otherwise the thread will remain instantiated in memory
+        for (GeoApiContext context : this.contexts) {
+            try {
+                context.shutdown();
+            } catch (RuntimeException ex) {
+                logger.warn("Unable to shutdown GeoApiContext", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.vanoma.api.order.maps;
+
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import com.vanoma.api.utils.httpwrapper.HttpResult;
+import lombok.Builder;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// Resolves many address lines/coordinates at once: duplicates are resolved once and distinct ones concurrently
+// on a bounded executor, within a deadline for the whole batch. Results are returned in input order, each
+// either a HttpResult or the exception the geocoding service threw for it, so callers can report errors in
+// the same order as a sequential loop would. The executor is owned (and shut down) by the fan-out.
+public class GeocodingFanOut implements Closeable {
+
+    private final IGeocodingService geocodingService;
+    private final ExecutorService executor;
+    private final Duration deadline;
+
+    @Builder
+    public GeocodingFanOut(IGeocodingService geocodingService, ExecutorService executor, Duration deadline) {
+        this.geocodingService = geocodingService;
+        this.executor = executor;
+        this.deadline = deadline;
+    }
+
+    public List<Result> geocodeAll(List<AddressLine> addressLines) {
+        return resolveAll(addressLines,
+                line -> line.getHouseNumber() + "|" + line.getStreetName(),
+                this.geocodingService::geocode,
+                "crud.address.geocodingFailure");
+    }
+
+    public List<Result> reverseGeocodeAll(List<Coordinates> coordinates) {
+        return resolveAll(coordinates,
+                c -> c.getLat() + "," + c.getLng(),
+                this.geocodingService::reverseGeocode,
+                "crud.address.reverseGeocodingFailure");
+    }
+
+    // Streaming variants for large batches: onResult(index, result) is called once per input as soon as its lookup
+    // completes, from executor threads but never concurrently. Inputs still unresolved at the deadline get a
+    // timeout error; the call returns once every input has had its result.
+    public void geocodeEach(List<AddressLine> addressLines, Duration deadline, BiConsumer<Integer, Result> onResult) {
+        resolveEach(addressLines,
+                line -> line.getHouseNumber() + "|" + line.getStreetName(),
+                this.geocodingService::geocode,
+                "crud.address.geocodingFailure",
+                deadline,
+                onResult);
+    }
+
+    public void reverseGeocodeEach(List<Coordinates> coordinates, Duration deadline, BiConsumer<Integer, Result> onResult) {
+        resolveEach(coordinates,
+                c -> c.getLat() + "," + c.getLng(),
+                this.geocodingService::reverseGeocode,
+                "crud.address.reverseGeocodingFailure",
+                deadline,
+                onResult);
+    }
+
+    private <T> List<Result> resolveAll(List<T> inputs,
+                                        Function<T, String> keyFunction,
+                                        Function<T, HttpResult> resolver,
+                                        String timeoutErrorKey) {
+        Map<String, Future<HttpResult>> futures = new LinkedHashMap<>();
+        for (T input : inputs) {
+            futures.computeIfAbsent(keyFunction.apply(input), key -> this.executor.submit(() -> resolver.apply(input)));
+        }
+
+        long deadlineNanos = System.nanoTime() + this.deadline.toNanos();
+        Map<String, Result> results = new HashMap<>();
+        for (Map.Entry<String, Future<HttpResult>> entry : futures.entrySet()) {
+            results.put(entry.getKey(), await(entry.getValue(), deadlineNanos, timeoutErrorKey));
+        }
+
+        List<Result> ordered = new ArrayList<>(inputs.size());
+        for (T input : inputs) {
+            ordered.add(results.get(keyFunction.apply(input)));
+        }
+        return ordered;
+    }
+
+    private <T> void resolveEach(List<T> inputs,
+                                 Function<T, String> keyFunction,
+                                 Function<T, HttpResult> resolver,
+                                 String timeoutErrorKey,
+                                 Duration deadline,
+                                 BiConsumer<Integer, Result> onResult) {
+        Map<String, List<Integer>> indexesByKey = new LinkedHashMap<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            indexesByKey.computeIfAbsent(keyFunction.apply(inputs.get(i)), key -> new ArrayList<>()).add(i);
+        }
+
+        boolean[] delivered = new boolean[inputs.size()];
+        Object lock = new Object();
+        BiConsumer<List<Integer>, Result> deliver = (indexes, result) -> {
+            synchronized (lock) {
+                for (int index : indexes) {
+                    if (delivered[index]) continue;
+                    delivered[index] = true;
+                    onResult.accept(index, result);
+                }
+            }
+        };
+
+        CountDownLatch remaining = new CountDownLatch(indexesByKey.size());
+        List<Future<?>> futures = new ArrayList<>();
+        for (List<Integer> indexes : indexesByKey.values()) {
+            T input = inputs.get(indexes.get(0));
+            Runnable task = () -> {
+                try {
+                    deliver.accept(indexes, Result.of(resolver.apply(input)));
+                } catch (RuntimeException ex) {
+                    deliver.accept(indexes, Result.of(ex));
+                } finally {
+                    remaining.countDown();
+                }
+            };
+            try {
+                futures.add(this.executor.submit(task));
+            } catch (RejectedExecutionException ex) {
+                deliver.accept(indexes, Result.of(new InvalidParameterException(timeoutErrorKey)));
+                remaining.countDown();
+            }
+        }
+
+        try {
+            remaining.await(deadline.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        futures.forEach(future -> future.cancel(true));
+        Result timeout = Result.of(new InvalidParameterException(timeoutErrorKey));
+        synchronized (lock) {
+            for (int i = 0; i < inputs.size(); i++) {
+                if (delivered[i]) continue;
+                delivered[i] = true;
+                onResult.accept(i, timeout);
+            }
+        }
+    }
+
+    private static Result await(Future<HttpResult> future, long deadlineNanos, String timeoutErrorKey) {
+        try {
+            long remaining = Math.max(deadlineNanos - System.nanoTime(), 0);
+            return Result.of(future.get(remaining, TimeUnit.NANOSECONDS));
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) return Result.of((RuntimeException) cause);
+            return Result.of(new InvalidParameterException(timeoutErrorKey));
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            return Result.of(new InvalidParameterException(timeoutErrorKey));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return Result.of(new InvalidParameterException(timeoutErrorKey));
+        }
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+
+    public static class Result {
+        private final HttpResult httpResult;
+        private final RuntimeException error;
+
+        private Result(HttpResult httpResult, RuntimeException error) {
+            this.httpResult = httpResult;
+            this.error = error;
+        }
+
+        private static Result of(HttpResult httpResult) {
+            return new Result(httpResult, null);
+        }
+
+        private static Result of(RuntimeException error) {
+            return new Result(null, error);
+        }
+
+        public boolean isSuccess() {
+            return this.error == null && this.httpResult != null && this.httpResult.isSuccess();
+        }
+
+        // Returns the result or throws the error of the lookup
+        public HttpResult get() {
+            if (this.error != null) throw this.error;
+            return this.httpResult;
+        }
+    }
+}
@@ -1,15 +1,21 @@
 package com.vanoma.api.order.maps;
 
+import com.vanoma.api.order.utils.SingleFlight;
 import com.vanoma.api.utils.httpwrapper.HttpResult;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.util.Locale;
 import java.util.Map;
 
 @Service
 public class GeocodingService implements IGeocodingService {
     private IMapsAPI mapsClient;
 
+    // Concurrent identical lookups (e.g. a burst of orders from one pickup address) share one upstream call.
+    private final SingleFlight<String, HttpResult> geocodeFlights = new SingleFlight<>();
+    private final SingleFlight<String, HttpResult> reverseGeocodeFlights = new SingleFlight<>();
+
     public GeocodingService(IMapsAPI mapsClient) {
         this.mapsClient = mapsClient;
     }
@@ -25,7 +31,7 @@ public class GeocodingService implements IGeocodingService {
 
     @Override
     public HttpResult geocode(AddressLine addressLine) {
-        return this.mapsClient.geocode(addressLine);
+        return this.geocodeFlights.execute(getKey(addressLine), () -> this.mapsClient.geocode(addressLine));
     }
 
     @Override
@@ -39,6 +45,23 @@ public class GeocodingService implements IGeocodingService {
 
     @Override
     public HttpResult reverseGeocode(Coordinates coordinates) {
-        return this.mapsClient.reverseGeocode(coordinates);
+        return this.reverseGeocodeFlights.execute(getKey(coordinates), () -> this.mapsClient.reverseGeocode(coordinates));
+    }
+
+    public long getCoalescedRequestCount() {
+        return this.geocodeFlights.getCoalescedCount() + this.reverseGeocodeFlights.getCoalescedCount();
+    }
+
+    static String getKey(AddressLine addressLine) {
+        return normalize(addressLine.getHouseNumber()) + "|" + normalize(addressLine.getStreetName());
+    }
+
+    static String getKey(Coordinates coordinates) {
+        return coordinates.getLat() + "," + coordinates.getLng();
+    }
+
+    private static String normalize(String value) {
+        if (value == null) return "";
+        return value.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
     }
 }
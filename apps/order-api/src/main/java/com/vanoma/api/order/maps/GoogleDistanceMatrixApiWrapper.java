@@ -1,72 +1,138 @@
 package com.vanoma.api.order.maps;
 
 import com.google.maps.DistanceMatrixApi;
-import com.google.maps.DistanceMatrixApiRequest;
 import com.google.maps.GeoApiContext;
 import com.google.maps.errors.ApiException;
 import com.google.maps.model.DistanceMatrix;
 import com.google.maps.model.DistanceMatrixElement;
+import com.google.maps.model.DistanceMatrixElementStatus;
 import com.google.maps.model.LatLng;
 import com.vanoma.api.utils.exceptions.InvalidParameterException;
 
-import java.util.Arrays;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-public class GoogleDistanceMatrixApiWrapper implements INavigationDistanceApi {
+public class GoogleDistanceMatrixApiWrapper implements INavigationDistanceApi, Closeable {
+    // Standard usage limits of the distance matrix API, per request.
+    public static final int MAX_ORIGINS_PER_REQUEST = 25;
+    public static final int MAX_DESTINATIONS_PER_REQUEST = 25;
+    public static final int MAX_ELEMENTS_PER_REQUEST = 100;
 
-    private GeoApiContext context;
-    private String apiKey;
+    private final GeoApiContextPool contextPool;
+    // Fixed number of threads, i.e. permits for concurrent matrix requests across all callers.
+    private final ExecutorService executor;
 
-    public GoogleDistanceMatrixApiWrapper(String apiKey) {
-        this.apiKey = apiKey;
+    public GoogleDistanceMatrixApiWrapper(GeoApiContextPool contextPool) {
+        this(contextPool, 4);
+    }
+
+    public GoogleDistanceMatrixApiWrapper(GeoApiContextPool contextPool, int maxConcurrentRequests) {
+        this.contextPool = contextPool;
+        this.executor = Executors.newFixedThreadPool(Math.max(maxConcurrentRequests, 1), runnable -> {
+            Thread thread = new Thread(runnable, "distance-matrix");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     private GeoApiContext getContext() {
-        this.context = new GeoApiContext.Builder()
-                .apiKey(this.apiKey)
-                .build();
-        return this.context;
+        return this.contextPool.getContext();
     }
 
     @Override
     public long getNavigationDistance(Coordinates origin, Coordinates destination) {
+        DistanceMatrix matrix = this.requestMatrixOrThrow(toLatLngs(List.of(origin)), toLatLngs(List.of(destination)));
+        long distance = getDistance(matrix, 0, 0);
+        if (distance == DISTANCE_NOT_FOUND || distance == 0) {
+            throw new InvalidParameterException("utils.matrixApi.navigationDistanceNotFound");
+        }
+        return distance;
+    }
+
+    @Override
+    public long[][] getNavigationDistances(List<Coordinates> origins, List<Coordinates> destinations) {
+        long[][] distances = new long[origins.size()][destinations.size()];
+        if (origins.isEmpty() || destinations.isEmpty()) return distances;
+
+        // Split the N x M matrix into blocks that satisfy every per-request limit, e.g. 4 x 25 for large inputs.
+        int destinationBlock = Math.min(destinations.size(), MAX_DESTINATIONS_PER_REQUEST);
+        int originBlock = Math.min(MAX_ORIGINS_PER_REQUEST, Math.max(MAX_ELEMENTS_PER_REQUEST / destinationBlock, 1));
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int row = 0; row < origins.size(); row += originBlock) {
+            for (int col = 0; col < destinations.size(); col += destinationBlock) {
+                int fromRow = row;
+                int fromCol = col;
+                int toRow = Math.min(row + originBlock, origins.size());
+                int toCol = Math.min(col + destinationBlock, destinations.size());
+                futures.add(CompletableFuture.runAsync(() -> fillBlock(distances,
+                        origins.subList(fromRow, toRow), fromRow,
+                        destinations.subList(fromCol, toCol), fromCol), this.executor));
+            }
+        }
         try {
-            DistanceMatrixApiRequest request = DistanceMatrixApi.newRequest(this.getContext());
-            DistanceMatrix matrix = request.origins(new LatLng(origin.getLat(), origin.getLng()))
-                    .destinations(new LatLng(destination.getLat(), destination.getLng()))
-                    .await();
-            return getDistance(matrix);
-
-        } catch (ApiException e) {
-            e.printStackTrace();
-        } catch (Exception e) {
-            e.printStackTrace();
-            ;
-        } finally {
-            this.shutdownContextThread();
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException ex) {
+            // A failed block fails the whole matrix, rather than passing the outage off as missing routes.
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            throw ex;
         }
-        return 0;
+        return distances;
     }
 
-    private long getDistance(DistanceMatrix matrix) {
-        List<List<DistanceMatrixElement>> elements = Arrays.asList(matrix.rows)
-                .stream()
-                .map(r -> Arrays.asList(r.elements))
-                .collect(Collectors.toList());
-        long distance = 0;
-        for (List<DistanceMatrixElement> elementList : elements) {
-            for (DistanceMatrixElement element : elementList) {
-                distance = element.distance.inMeters;
-                break;
+    private void fillBlock(long[][] distances, List<Coordinates> origins, int fromRow, List<Coordinates> destinations, int fromCol) {
+        DistanceMatrix matrix = this.requestMatrixOrThrow(toLatLngs(origins), toLatLngs(destinations));
+
+        // Each block writes a disjoint region of the array, so no synchronization is needed.
+        for (int i = 0; i < origins.size(); i++) {
+            for (int j = 0; j < destinations.size(); j++) {
+                distances[fromRow + i][fromCol + j] = getDistance(matrix, i, j);
             }
         }
-        if (distance == 0) throw new InvalidParameterException("utils.matrixApi.navigationDistanceNotFound");
-        return distance;
     }
 
-    private void shutdownContextThread() {
-        // From docs: Call the shutdown() method of GeoApiContext, otherwise the thread will remain instantiated in memory
-        this.context.shutdown();
+    private DistanceMatrix requestMatrixOrThrow(LatLng[] origins, LatLng[] destinations) {
+        try {
+            return this.requestMatrix(origins, destinations);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MapsUnavailableException("Distance matrix request interrupted", e);
+        } catch (ApiException | IOException | RuntimeException e) {
+            throw new MapsUnavailableException("Distance matrix request failed", e);
+        }
+    }
+
+    protected DistanceMatrix requestMatrix(LatLng[] origins, LatLng[] destinations) throws ApiException, InterruptedException, IOException {
+        return DistanceMatrixApi.newRequest(this.getContext())
+                .origins(origins)
+                .destinations(destinations)
+                .await();
+    }
+
+    private long getDistance(DistanceMatrix matrix, int row, int col) {
+        if (matrix.rows == null || row >= matrix.rows.length) return DISTANCE_NOT_FOUND;
+        DistanceMatrixElement[] elements = matrix.rows[row].elements;
+        if (elements == null || col >= elements.length) return DISTANCE_NOT_FOUND;
+
+        DistanceMatrixElement element = elements[col];
+        if (element.status != DistanceMatrixElementStatus.OK || element.distance == null) return DISTANCE_NOT_FOUND;
+        return element.distance.inMeters;
+    }
+
+    private static LatLng[] toLatLngs(List<Coordinates> coordinates) {
+        return coordinates.stream()
+                .map(c -> new LatLng(c.getLat(), c.getLng()))
+                .toArray(LatLng[]::new);
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdown();
     }
 }
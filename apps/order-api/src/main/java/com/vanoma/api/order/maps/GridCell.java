@@ -0,0 +1,89 @@
+package com.vanoma.api.order.maps;
+
+import java.util.Objects;
+
+// Square-ish cell of a fixed size (in meters) that a coordinate falls in. Used as a cache key so that
+// nearby lookups (e.g. the same shop pinned a few meters apart) share a single maps API call.
+public class GridCell {
+    private static final double METERS_PER_DEGREE_OF_LATITUDE = 111_320.0;
+
+    private final int sizeMeters;
+    private final long latIndex;
+    private final long lngIndex;
+
+    private GridCell(int sizeMeters, long latIndex, long lngIndex) {
+        this.sizeMeters = sizeMeters;
+        this.latIndex = latIndex;
+        this.lngIndex = lngIndex;
+    }
+
+    public static GridCell of(Coordinates coordinates, int sizeMeters) {
+        return of(coordinates.getLat(), coordinates.getLng(), sizeMeters);
+    }
+
+    public static GridCell of(double lat, double lng, int sizeMeters) {
+        if (sizeMeters <= 0) throw new IllegalArgumentException("sizeMeters must be positive");
+        double latStep = getLatitudeStep(sizeMeters);
+        long latIndex = (long) Math.floor(lat / latStep);
+        long lngIndex = (long) Math.floor(lng / getLongitudeStep(sizeMeters, latIndex));
+        return new GridCell(sizeMeters, latIndex, lngIndex);
+    }
+
+    // Inverse of getKey()
+    public static GridCell fromKey(String key) {
+        String[] parts = key.split(":");
+        if (parts.length != 3) throw new IllegalArgumentException("Invalid cell key " + key);
+        return new GridCell(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+    }
+
+    private static double getLatitudeStep(int sizeMeters) {
+        return sizeMeters / METERS_PER_DEGREE_OF_LATITUDE;
+    }
+
+    private static double getLongitudeStep(int sizeMeters, long latIndex) {
+        // A degree of longitude shrinks away from the equator. Use the latitude of the cell's row (rather than
+        // the point's) so every point in the row is bucketed with the same step.
+        double rowLatitude = (latIndex + 0.5) * getLatitudeStep(sizeMeters);
+        double cos = Math.max(Math.cos(Math.toRadians(rowLatitude)), 0.01);
+        return getLatitudeStep(sizeMeters) / cos;
+    }
+
+    public int getSizeMeters() {
+        return sizeMeters;
+    }
+
+    public long getLatIndex() {
+        return latIndex;
+    }
+
+    public long getLngIndex() {
+        return lngIndex;
+    }
+
+    public Coordinates getCenter() {
+        return new Coordinates()
+                .setLat((latIndex + 0.5) * getLatitudeStep(sizeMeters))
+                .setLng((lngIndex + 0.5) * getLongitudeStep(sizeMeters, latIndex));
+    }
+
+    public String getKey() {
+        return sizeMeters + ":" + latIndex + ":" + lngIndex;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof GridCell)) return false;
+        GridCell cell = (GridCell) other;
+        return sizeMeters == cell.sizeMeters && latIndex == cell.latIndex && lngIndex == cell.lngIndex;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sizeMeters, latIndex, lngIndex);
+    }
+
+    @Override
+    public String toString() {
+        return "GridCell(" + getKey() + ")";
+    }
+}
@@ -0,0 +1,37 @@
+package com.vanoma.api.order.maps;
+
+import com.vanoma.api.utils.httpwrapper.HttpResult;
+import lombok.Builder;
+
+import java.time.Duration;
+
+// Runs geocoding calls through a MapsCallGuard, see FallbackMapsAPIWrapper for what callers get when the provider
+// is unavailable.
+public class GuardedMapsAPIWrapper implements IMapsAPI {
+
+    private final IMapsAPI mapsClient;
+    private final MapsCallGuard guard;
+    private final Duration geocodeTimeout;
+    private final Duration reverseGeocodeTimeout;
+
+    @Builder
+    public GuardedMapsAPIWrapper(IMapsAPI mapsClient,
+                                 MapsCallGuard guard,
+                                 Duration geocodeTimeout,
+                                 Duration reverseGeocodeTimeout) {
+        this.mapsClient = mapsClient;
+        this.guard = guard;
+        this.geocodeTimeout = geocodeTimeout;
+        this.reverseGeocodeTimeout = reverseGeocodeTimeout;
+    }
+
+    @Override
+    public HttpResult geocode(AddressLine addressLine) {
+        return this.guard.call("geocode", this.geocodeTimeout, () -> this.mapsClient.geocode(addressLine));
+    }
+
+    @Override
+    public HttpResult reverseGeocode(Coordinates coordinates) {
+        return this.guard.call("reverse-geocode", this.reverseGeocodeTimeout, () -> this.mapsClient.reverseGeocode(coordinates));
+    }
+}
@@ -0,0 +1,50 @@
+package com.vanoma.api.order.maps;
+
+import lombok.Builder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+// Runs distance calls through a MapsCallGuard. Only exceptions and timeouts count as provider failures: a pair
+// without a route is an answer, not an outage. FallbackNavigationDistanceApi turns MapsUnavailableException into
+// local estimates.
+public class GuardedNavigationDistanceApi implements INavigationDistanceApi, Closeable {
+
+    private final INavigationDistanceApi distanceApi;
+    private final MapsCallGuard guard;
+    private final Duration timeout;
+    private final Duration matrixTimeout;
+
+    @Builder
+    public GuardedNavigationDistanceApi(INavigationDistanceApi distanceApi,
+                                        MapsCallGuard guard,
+                                        Duration timeout,
+                                        Duration matrixTimeout) {
+        this.distanceApi = distanceApi;
+        this.guard = guard;
+        this.timeout = timeout;
+        this.matrixTimeout = matrixTimeout;
+    }
+
+    @Override
+    public long getNavigationDistance(Coordinates origin, Coordinates destination) {
+        return this.guard.call("distance", this.timeout,
+                () -> this.distanceApi.getNavigationDistance(origin, destination));
+    }
+
+    @Override
+    public long[][] getNavigationDistances(List<Coordinates> origins, List<Coordinates> destinations) {
+        if (origins.isEmpty() || destinations.isEmpty()) {
+            return this.distanceApi.getNavigationDistances(origins, destinations);
+        }
+        return this.guard.call("distance-matrix", this.matrixTimeout,
+                () -> this.distanceApi.getNavigationDistances(origins, destinations));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.distanceApi instanceof Closeable) ((Closeable) this.distanceApi).close();
+    }
+}
@@ -0,0 +1,121 @@
+package com.vanoma.api.order.maps;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+// Estimates road distance locally as the great-circle (haversine) distance times a detour factor. The factor is
+// learned per (origin district, destination district) from real distances, falling back to the factor over all
+// pairs and then to DEFAULT_DETOUR_FACTOR while there are too few samples. Used when the distance matrix API is
+// unavailable, see FallbackNavigationDistanceApi.
+public class HaversineDistanceEstimator implements INavigationDistanceApi {
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+    private static final String UNKNOWN_DISTRICT = "UNKNOWN";
+    private static final String ALL_PAIRS = "*";
+
+    // Typical ratio of road to straight-line distance in town.
+    public static final double DEFAULT_DETOUR_FACTOR = 1.4;
+
+    private final KigaliDistrictResolver districtResolver;
+    private final int minSamples;
+    private final Map<String, DetourStats> detours = new ConcurrentHashMap<>();
+
+    private final LongAdder errorSamples = new LongAdder();
+    private final DoubleAdder absolutePercentageError = new DoubleAdder();
+
+    public HaversineDistanceEstimator(KigaliDistrictResolver districtResolver, int minSamples) {
+        this.districtResolver = districtResolver;
+        this.minSamples = Math.max(minSamples, 1);
+    }
+
+    @Override
+    public long getNavigationDistance(Coordinates origin, Coordinates destination) {
+        double straightLine = getHaversineDistance(origin, destination);
+        return Math.max(Math.round(straightLine * this.getDetourFactor(origin, destination)), 1);
+    }
+
+    @Override
+    public long[][] getNavigationDistances(List<Coordinates> origins, List<Coordinates> destinations) {
+        long[][] distances = new long[origins.size()][destinations.size()];
+        for (int i = 0; i < origins.size(); i++) {
+            for (int j = 0; j < destinations.size(); j++) {
+                distances[i][j] = this.getNavigationDistance(origins.get(i), destinations.get(j));
+            }
+        }
+        return distances;
+    }
+
+    // Records a real navigation distance: tracks the error the current estimate would have had, then updates
+    // the detour factors.
+    public void learn(Coordinates origin, Coordinates destination, long navigationDistanceMeters) {
+        double straightLine = getHaversineDistance(origin, destination);
+        // Too short to say anything meaningful about detours (e.g. same building).
+        if (navigationDistanceMeters <= 0 || straightLine < 100) return;
+
+        long estimate = this.getNavigationDistance(origin, destination);
+        this.absolutePercentageError.add(Math.abs(estimate - navigationDistanceMeters) / (double) navigationDistanceMeters);
+        this.errorSamples.increment();
+
+        double ratio = navigationDistanceMeters / straightLine;
+        this.detours.computeIfAbsent(getDistrictPair(origin, destination), k -> new DetourStats()).add(ratio);
+        this.detours.computeIfAbsent(ALL_PAIRS, k -> new DetourStats()).add(ratio);
+    }
+
+    public double getDetourFactor(Coordinates origin, Coordinates destination) {
+        DetourStats pairStats = this.detours.get(getDistrictPair(origin, destination));
+        if (pairStats != null && pairStats.getCount() >= this.minSamples) return pairStats.getMean();
+
+        DetourStats allStats = this.detours.get(ALL_PAIRS);
+        if (allStats != null && allStats.getCount() >= this.minSamples) return allStats.getMean();
+        return DEFAULT_DETOUR_FACTOR;
+    }
+
+    public static double getHaversineDistance(Coordinates origin, Coordinates destination) {
+        double lat1 = Math.toRadians(origin.getLat());
+        double lat2 = Math.toRadians(destination.getLat());
+        double dLat = lat2 - lat1;
+        double dLng = Math.toRadians(destination.getLng() - origin.getLng());
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(Math.sqrt(a), 1.0));
+    }
+
+    // Mean absolute percentage error of estimates against the real distances seen by learn()
+    public double getMeanAbsolutePercentageError() {
+        long samples = this.errorSamples.sum();
+        return samples == 0 ? 0.0 : this.absolutePercentageError.sum() / samples;
+    }
+
+    public long getSampleCount() {
+        return this.errorSamples.sum();
+    }
+
+    private String getDistrictPair(Coordinates origin, Coordinates destination) {
+        return getDistrict(origin) + ">" + getDistrict(destination);
+    }
+
+    private String getDistrict(Coordinates coordinates) {
+        if (this.districtResolver == null) return UNKNOWN_DISTRICT;
+        return this.districtResolver.resolve(coordinates).map(Enum::name).orElse(UNKNOWN_DISTRICT);
+    }
+
+    private static class DetourStats {
+        private final DoubleAdder sum = new DoubleAdder();
+        private final LongAdder count = new LongAdder();
+
+        private void add(double ratio) {
+            this.sum.add(ratio);
+            this.count.increment();
+        }
+
+        private long getCount() {
+            return this.count.sum();
+        }
+
+        private double getMean() {
+            return this.sum.sum() / this.count.sum();
+        }
+    }
+}
@@ -1,5 +1,13 @@
 package com.vanoma.api.order.maps;
 
+import java.util.List;
+
 public interface INavigationDistanceApi {
+    // Marks an origin/destination pair without a route (or whose lookup failed) in getNavigationDistances.
+    long DISTANCE_NOT_FOUND = -1;
+
     long getNavigationDistance(Coordinates origin, Coordinates destination);
+
+    // Distances in meters between every origin (rows) and every destination (columns).
+    long[][] getNavigationDistances(List<Coordinates> origins, List<Coordinates> destinations);
 }
@@ -0,0 +1,99 @@
+package com.vanoma.api.order.maps;
+
+import com.bedatadriven.jackson.datatype.jts.parsers.GenericGeometryParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+
+// Resolves the KigaliDistrict of a point from district boundary polygons (GeoJSON FeatureCollection whose
+// features carry a "district" property), without calling the maps API. Polygons are indexed in an STRtree so
+// a lookup is an envelope query plus a point-in-polygon test on the few candidates.
+//
+// An empty result means "unknown" rather than "out of Kigali": callers fall back to the maps API, which also
+// tells outOfRwanda and outOfKigali apart. Callers trust a resolved district as much as the maps API's, so only
+// official boundaries should be loaded; without them, use empty().
+public class KigaliDistrictResolver {
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+    private final STRtree index = new STRtree();
+    private final int size;
+
+    private KigaliDistrictResolver() {
+        this.index.build();
+        this.size = 0;
+    }
+
+    public KigaliDistrictResolver(InputStream geoJson) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(geoJson);
+        GenericGeometryParser parser = new GenericGeometryParser(this.geometryFactory);
+
+        int size = 0;
+        for (JsonNode feature : root.path("features")) {
+            KigaliDistrict district = KigaliDistrict.create(feature.path("properties").path("district").asText(null));
+            if (district == null || feature.path("geometry").isMissingNode()) continue;
+
+            Geometry geometry = parser.geometryFromJson(feature.get("geometry"));
+            this.index.insert(geometry.getEnvelopeInternal(), new DistrictPolygon(district, geometry));
+            size++;
+        }
+        this.index.build();
+        this.size = size;
+    }
+
+    // Resolves nothing, so every caller asks the maps API
+    public static KigaliDistrictResolver empty() {
+        return new KigaliDistrictResolver();
+    }
+
+    public static KigaliDistrictResolver fromClasspath(String resource) {
+        try (InputStream geoJson = KigaliDistrictResolver.class.getClassLoader().getResourceAsStream(resource)) {
+            if (geoJson == null) throw new IOException("Resource not found");
+            return new KigaliDistrictResolver(geoJson);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Unable to load district boundaries from " + resource, ex);
+        }
+    }
+
+    public Optional<KigaliDistrict> resolve(Coordinates coordinates) {
+        if (this.size == 0 || coordinates.getLat() == null || coordinates.getLng() == null) {
+            return Optional.empty();
+        }
+
+        // GeoJSON positions are [longitude, latitude]
+        Coordinate coordinate = new Coordinate(coordinates.getLng(), coordinates.getLat());
+        Point point = this.geometryFactory.createPoint(coordinate);
+
+        @SuppressWarnings("unchecked")
+        List<DistrictPolygon> candidates = this.index.query(new Envelope(coordinate));
+        for (DistrictPolygon candidate : candidates) {
+            if (candidate.polygon.covers(point)) return Optional.of(candidate.district);
+        }
+        return Optional.empty();
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    private static class DistrictPolygon {
+        private final KigaliDistrict district;
+        private final PreparedGeometry polygon;
+
+        private DistrictPolygon(KigaliDistrict district, Geometry geometry) {
+            this.district = district;
+            this.polygon = PreparedGeometryFactory.prepare(geometry);
+        }
+    }
+}
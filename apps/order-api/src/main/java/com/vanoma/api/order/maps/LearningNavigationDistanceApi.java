@@ -0,0 +1,42 @@
+package com.vanoma.api.order.maps;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+// Feeds the distances answered by the navigation distance API to a HaversineDistanceEstimator, so that it learns
+// its detour factors. Meant to sit right above the provider (below any cache), so each real distance is learned
+// once rather than on every cache hit.
+public class LearningNavigationDistanceApi implements INavigationDistanceApi, Closeable {
+
+    private final INavigationDistanceApi distanceApi;
+    private final HaversineDistanceEstimator estimator;
+
+    public LearningNavigationDistanceApi(INavigationDistanceApi distanceApi, HaversineDistanceEstimator estimator) {
+        this.distanceApi = distanceApi;
+        this.estimator = estimator;
+    }
+
+    @Override
+    public long getNavigationDistance(Coordinates origin, Coordinates destination) {
+        long distance = this.distanceApi.getNavigationDistance(origin, destination);
+        if (distance > 0) this.estimator.learn(origin, destination, distance);
+        return distance;
+    }
+
+    @Override
+    public long[][] getNavigationDistances(List<Coordinates> origins, List<Coordinates> destinations) {
+        long[][] distances = this.distanceApi.getNavigationDistances(origins, destinations);
+        for (int i = 0; i < origins.size(); i++) {
+            for (int j = 0; j < destinations.size(); j++) {
+                if (distances[i][j] > 0) this.estimator.learn(origins.get(i), destinations.get(j), distances[i][j]);
+            }
+        }
+        return distances;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.distanceApi instanceof Closeable) ((Closeable) this.distanceApi).close();
+    }
+}
@@ -0,0 +1,146 @@
+package com.vanoma.api.order.maps;
+
+import com.vanoma.api.order.utils.CircuitBreaker;
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Builder;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+
+// Guards calls to one maps provider API: at most maxConcurrentCalls in flight (a caller waits up to maxWait for a
+// slot), a timeout per call, and a circuit breaker that fails fast while the provider keeps failing. Anything that
+// prevents an answer surfaces as MapsUnavailableException; InvalidParameterException (a verdict on the input, e.g.
+// outOfKigali) passes through and counts as a healthy call. Calls are timed in the "maps.requests" histogram by
+// api, operation and outcome.
+public class MapsCallGuard implements Closeable {
+    public static final String METRIC_NAME = "maps.requests";
+
+    private final String name;
+    private final Semaphore bulkhead;
+    private final long maxWaitNanos;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Builder
+    public MapsCallGuard(String name,
+                         int maxConcurrentCalls,
+                         Duration maxWait,
+                         CircuitBreaker circuitBreaker,
+                         MeterRegistry meterRegistry) {
+        this.name = name;
+        this.bulkhead = new Semaphore(Math.max(maxConcurrentCalls, 1));
+        this.maxWaitNanos = maxWait.toNanos();
+        this.circuitBreaker = circuitBreaker;
+        this.meterRegistry = meterRegistry;
+        // Unbounded on its own; the bulkhead bounds the number of running calls.
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "maps-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (meterRegistry != null) {
+            Gauge.builder("maps.circuit.open", circuitBreaker, b -> b.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                    .tag("api", name)
+                    .register(meterRegistry);
+            Gauge.builder("maps.bulkhead.available", this.bulkhead, Semaphore::availablePermits)
+                    .tag("api", name)
+                    .register(meterRegistry);
+        }
+    }
+
+    public <T> T call(String operation, Duration timeout, Callable<T> call) {
+        long start = System.nanoTime();
+        if (!this.acquireSlot()) {
+            this.record(operation, "rejected", start);
+            throw new MapsUnavailableException(this.name + " " + operation + " rejected, too many calls in flight");
+        }
+        if (!this.circuitBreaker.tryAcquire()) {
+            this.bulkhead.release();
+            this.record(operation, "open", start);
+            throw new MapsUnavailableException(this.name + " " + operation + " rejected, circuit open");
+        }
+
+        Future<T> future;
+        try {
+            future = this.executor.submit(() -> {
+                try {
+                    return call.call();
+                } finally {
+                    // Released when the provider call actually ends, not when the caller gives up on it.
+                    this.bulkhead.release();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            this.bulkhead.release();
+            this.circuitBreaker.onFailure();
+            throw new MapsUnavailableException(this.name + " is shut down", ex);
+        }
+
+        try {
+            T result = future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            this.circuitBreaker.onSuccess();
+            this.record(operation, "success", start);
+            return result;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof InvalidParameterException) {
+                this.circuitBreaker.onSuccess();
+                this.record(operation, "success", start);
+                throw (InvalidParameterException) cause;
+            }
+            this.circuitBreaker.onFailure();
+            this.record(operation, "failure", start);
+            throw new MapsUnavailableException(this.name + " " + operation + " failed", cause);
+        } catch (TimeoutException ex) {
+            this.circuitBreaker.onFailure();
+            this.record(operation, "timeout", start);
+            throw new MapsUnavailableException(this.name + " " + operation + " timed out after " + timeout.toMillis() + "ms");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            this.circuitBreaker.onFailure();
+            this.record(operation, "interrupted", start);
+            throw new MapsUnavailableException(this.name + " " + operation + " interrupted", ex);
+        }
+    }
+
+    private boolean acquireSlot() {
+        try {
+            return this.bulkhead.tryAcquire(this.maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void record(String operation, String outcome, long startNanos) {
+        if (this.meterRegistry == null) return;
+        this.timers.computeIfAbsent(operation + ":" + outcome, key -> Timer.builder(METRIC_NAME)
+                        .tag("api", this.name)
+                        .tag("operation", operation)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(this.meterRegistry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return this.circuitBreaker.getState();
+    }
+
+    public int getAvailableSlots() {
+        return this.bulkhead.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+}
@@ -1,20 +1,49 @@
 package com.vanoma.api.order.maps;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vanoma.api.order.utils.EnvironmentUtils;
 import com.vanoma.api.order.utils.annotations.RequestMappingJson;
 import com.vanoma.api.order.utils.annotations.PostMappingJson;
+import com.vanoma.api.utils.error.ErrorResponseType;
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.MessageSource;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMappingJson("/maps")
 public class MapsController {
+    Logger logger = LoggerFactory.getLogger(MapsController.class);
 
     @Autowired
     private IGeocodingService geocodingService;
+    @Autowired
+    @Qualifier("batchGeocodingFanOut")
+    private GeocodingFanOut batchGeocodingFanOut;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MessageSource messageSource;
 
     @PostMappingJson(value = "/geocode")
     public ResponseEntity<Map<String, Object>> geocode(@RequestBody GeocodeRequestJson json) {
@@ -25,4 +54,106 @@ public class MapsController {
     public ResponseEntity<Map<String, Object>> reverseGeocode(@RequestBody ReverseGeocodeRequestJson json) {
         return this.geocodingService.reverseGeocode(json);
     }
+
+    // Batch endpoints stream one NDJSON line per item as soon as it is resolved, i.e. not in request order:
+    // {"index": <position in the request>, "status": <HTTP status>, "body": <same body as the single endpoint>}
+    @PostMapping(value = "/geocode/batch",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> geocodeBatch(@RequestBody List<GeocodeRequestJson> items) {
+        validateBatchSize(items);
+        List<AddressLine> addressLines = items.stream()
+                .map(json -> new AddressLine()
+                        .setHouseNumber(json.getHouseNumber())
+                        .setStreetName(json.getStreetName()))
+                .collect(Collectors.toList());
+        return this.streamResults(writer -> this.batchGeocodingFanOut.geocodeEach(addressLines, getBatchDeadline(), writer::write));
+    }
+
+    @PostMapping(value = "/reverse-geocode/batch",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> reverseGeocodeBatch(@RequestBody List<ReverseGeocodeRequestJson> items) {
+        validateBatchSize(items);
+        for (ReverseGeocodeRequestJson json : items) {
+            if (json.getLatitude() == null || json.getLongitude() == null) {
+                throw new InvalidParameterException("crud.address.coordinates.required");
+            }
+        }
+        List<Coordinates> coordinates = items.stream()
+                .map(json -> new Coordinates()
+                        .setLat(json.getLatitude())
+                        .setLng(json.getLongitude()))
+                .collect(Collectors.toList());
+        return this.streamResults(writer -> this.batchGeocodingFanOut.reverseGeocodeEach(coordinates, getBatchDeadline(), writer::write));
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamResults(Consumer<ResultWriter> resolve) {
+        // Messages are localized on executor threads, so capture the request locale here.
+        Locale locale = LocaleContextHolder.getLocale();
+        StreamingResponseBody body = outputStream -> resolve.accept(new ResultWriter(outputStream, locale));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private static void validateBatchSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new InvalidParameterException("utils.maps.batch.items.required");
+        }
+        if (items.size() > EnvironmentUtils.getInt("MAPS_BATCH_MAX_ITEMS", 5_000)) {
+            throw new InvalidParameterException("utils.maps.batch.tooManyItems");
+        }
+    }
+
+    public static Duration getBatchDeadline() {
+        return Duration.ofSeconds(EnvironmentUtils.getLong("MAPS_BATCH_DEADLINE_SECONDS", 120));
+    }
+
+    private class ResultWriter {
+        private final OutputStream outputStream;
+        private final Locale locale;
+        private boolean isClosed = false;
+
+        private ResultWriter(OutputStream outputStream, Locale locale) {
+            this.outputStream = outputStream;
+            this.locale = locale;
+        }
+
+        // Called by GeocodingFanOut one result at a time
+        private void write(int index, GeocodingFanOut.Result result) {
+            if (this.isClosed) return;
+
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("index", index);
+            try {
+                line.put("status", result.get().getHttpStatus().value());
+                line.put("body", result.get().getBody());
+            } catch (InvalidParameterException ex) {
+                line.put("status", HttpStatus.BAD_REQUEST.value());
+                line.put("body", this.getError(ErrorResponseType.INVALID_REQUEST, ex.getMessage()));
+            } catch (RuntimeException ex) {
+                logger.error("Batch geocoding failed", ex);
+                line.put("status", HttpStatus.INTERNAL_SERVER_ERROR.value());
+                line.put("body", this.getError(ErrorResponseType.INTERNAL_ERROR, "global.serverError"));
+            }
+
+            try {
+                this.outputStream.write(objectMapper.writeValueAsBytes(line));
+                this.outputStream.write('\n');
+                this.outputStream.flush();
+            } catch (IOException ex) {
+                // The client went away; drop the remaining results.
+                logger.warn("Unable to stream batch geocoding result: " + ex.getMessage());
+                this.isClosed = true;
+            }
+        }
+
+        private Map<String, Object> getError(ErrorResponseType type, String messageKey) {
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("errorCode", type.name());
+            error.put("errorMessage", messageSource.getMessage(messageKey, null, messageKey, this.locale));
+            return error;
+        }
+    }
 }
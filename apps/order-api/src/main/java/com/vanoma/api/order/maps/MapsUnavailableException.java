@@ -0,0 +1,15 @@
+package com.vanoma.api.order.maps;
+
+// The maps provider could not answer: request failure, timeout, too many calls in flight or an open circuit.
+// Unlike InvalidParameterException (e.g. outOfKigali), this says nothing about the input, so callers may fall
+// back to cached or local data.
+public class MapsUnavailableException extends RuntimeException {
+
+    public MapsUnavailableException(String message) {
+        super(message);
+    }
+
+    public MapsUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
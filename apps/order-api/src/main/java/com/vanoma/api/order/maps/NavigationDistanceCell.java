@@ -0,0 +1,47 @@
+package com.vanoma.api.order.maps;
+
+import com.vanoma.api.utils.input.TimeUtils;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+
+// Navigation distance between two GridCells, see CachingNavigationDistanceApi.
+@Entity
+@Table(name = "navigation_distance_cell")
+public class NavigationDistanceCell {
+
+    @Id
+    @Column(name = "pair_key", length = 128, nullable = false)
+    private String pairKey;
+
+    @Column(name = "distance_meters", nullable = false)
+    private long distanceMeters;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    public NavigationDistanceCell() {
+    }
+
+    public NavigationDistanceCell(String pairKey, long distanceMeters) {
+        this.pairKey = pairKey;
+        this.distanceMeters = distanceMeters;
+        this.createdAt = TimeUtils.getUtcNow();
+    }
+
+    public boolean isCreatedAfter(OffsetDateTime dateTime) {
+        return this.createdAt != null && this.createdAt.isAfter(dateTime);
+    }
+
+    public String getPairKey() {
+        return pairKey;
+    }
+
+    public long getDistanceMeters() {
+        return distanceMeters;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
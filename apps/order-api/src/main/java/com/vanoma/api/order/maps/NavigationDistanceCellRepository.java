@@ -0,0 +1,12 @@
+package com.vanoma.api.order.maps;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NavigationDistanceCellRepository extends JpaRepository<NavigationDistanceCell, String> {
+    List<NavigationDistanceCell> findByPairKeyIn(Collection<String> pairKeys);
+}
@@ -0,0 +1,94 @@
+package com.vanoma.api.order.maps;
+
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import com.vanoma.api.utils.httpwrapper.HttpResult;
+import com.vanoma.api.utils.input.TimeUtils;
+import org.springframework.http.HttpStatus;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+// Reverse-geocoding outcome of a whole GridCell. Either carries the street/district found by the maps API
+// or the coverage verdict (i.e. outOfRwanda/outOfKigali message key) that the maps API rejected it with.
+@Entity
+@Table(name = "reverse_geocode_cell")
+public class ReverseGeocodeCell {
+
+    @Id
+    @Column(name = "cell_key", length = 64, nullable = false)
+    private String cellKey;
+
+    @Column(name = "street_name", nullable = true)
+    private String streetName;
+
+    @Column(name = "district", length = 32, nullable = true)
+    private String district;
+
+    @Column(name = "verdict", length = 64, nullable = true)
+    private String verdict;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    public ReverseGeocodeCell() {
+    }
+
+    private ReverseGeocodeCell(GridCell cell) {
+        this.cellKey = cell.getKey();
+        this.createdAt = TimeUtils.getUtcNow();
+    }
+
+    public static ReverseGeocodeCell fromResult(GridCell cell, Map<String, Object> body) {
+        ReverseGeocodeCell reverseGeocodeCell = new ReverseGeocodeCell(cell);
+        reverseGeocodeCell.streetName = (String) body.get("streetName");
+        reverseGeocodeCell.district = (String) body.get("district");
+        return reverseGeocodeCell;
+    }
+
+    public static ReverseGeocodeCell fromVerdict(GridCell cell, String verdict) {
+        ReverseGeocodeCell reverseGeocodeCell = new ReverseGeocodeCell(cell);
+        reverseGeocodeCell.verdict = verdict;
+        return reverseGeocodeCell;
+    }
+
+    public HttpResult toHttpResult(Coordinates coordinates) {
+        if (this.verdict != null) {
+            throw new InvalidParameterException(this.verdict);
+        }
+
+        // Same shape as GoogleMapsAPIWrapper.reverseGeocode
+        Map<String, Object> address = new HashMap<>();
+        address.put("houseNumber", null);
+        address.put("streetName", this.streetName);
+        address.put("district", this.district);
+        address.put("latitude", coordinates.getLat());
+        address.put("longitude", coordinates.getLng());
+        return new HttpResult(address, HttpStatus.OK.value());
+    }
+
+    public boolean isCreatedAfter(OffsetDateTime dateTime) {
+        return this.createdAt != null && this.createdAt.isAfter(dateTime);
+    }
+
+    public String getCellKey() {
+        return cellKey;
+    }
+
+    public String getStreetName() {
+        return streetName;
+    }
+
+    public String getDistrict() {
+        return district;
+    }
+
+    public String getVerdict() {
+        return verdict;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,8 @@
+package com.vanoma.api.order.maps;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReverseGeocodeCellRepository extends JpaRepository<ReverseGeocodeCell, String> {
+}
@@ -32,10 +32,12 @@ public enum RwandaDistricts {
     RUSIZI,
     RUTSIRO;
 
+    private static final RwandaDistricts[] DISTRICTS = values();
+
     public static boolean isValid(String district) {
         if (district == null) return false;
-        for (RwandaDistricts p : RwandaDistricts.values()) {
-            if (district.toUpperCase().equals(p.name())) return true;
+        for (RwandaDistricts p : DISTRICTS) {
+            if (district.equalsIgnoreCase(p.name())) return true;
         }
         return false;
     }
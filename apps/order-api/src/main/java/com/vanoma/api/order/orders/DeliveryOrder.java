@@ -9,9 +9,11 @@ import com.vanoma.api.order.customers.Customer;
 import com.vanoma.api.order.packages.Package;
 import com.vanoma.api.order.payment.PaymentStatus;
 import com.vanoma.api.order.payment.RefundStatus;
+import com.vanoma.api.order.utils.TimeOrderedId;
 import com.vanoma.api.utils.input.TimeUtils;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.*;
 import java.math.BigDecimal;
@@ -19,7 +21,6 @@ import java.time.OffsetDateTime;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Entity
@@ -31,7 +32,7 @@ import java.util.stream.Collectors;
                 @Index(name = "delivery_order_placed_at_idx", columnList = "placed_at", unique = false),
         })
 @JsonIgnoreProperties({"hibernateLazyInitializer"})
-public class DeliveryOrder {
+public class DeliveryOrder implements Persistable<String> {
 
     @Id
     @Column(name = "delivery_order_id", nullable = false)
@@ -100,14 +101,36 @@ public class DeliveryOrder {
         if (this.refundStatus == null) this.refundStatus = RefundStatus.NO_REFUND;
     }
 
+    @Transient
+    private boolean isNew = false;
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
     public DeliveryOrder() {
     }
 
     public DeliveryOrder(Customer customer) {
         this.customer = customer;
-        this.deliveryOrderId = UUID.randomUUID().toString();
+        this.deliveryOrderId = TimeOrderedId.next();
         this.packages = new HashSet<>();
         this.discounts = new HashSet<>();
+        this.isNew = true;
+    }
+
+    @Override
+    @JsonIgnore
+    public String getId() {
+        return deliveryOrderId;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
     }
 
     public DeliveryOrder(Agent agent) {
@@ -0,0 +1,28 @@
+package com.vanoma.api.order.orders;
+
+import com.vanoma.api.order.utils.EnvironmentUtils;
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class DeliveryOrderBatchJson implements Serializable {
+    private List<DeliveryOrderJson> deliveryOrders;
+
+    public DeliveryOrderBatchJson() {
+    }
+
+    public List<DeliveryOrderJson> getDeliveryOrders() {
+        return deliveryOrders;
+    }
+
+    // Only the batch itself is validated here. Invalid orders are reported one by one in the results.
+    public void validate() {
+        if (deliveryOrders == null || deliveryOrders.isEmpty()) {
+            throw new InvalidParameterException("crud.deliveryOrderBatch.deliveryOrders.required");
+        }
+        if (deliveryOrders.size() > EnvironmentUtils.getInt("DELIVERY_ORDER_BATCH_MAX_SIZE", 500)) {
+            throw new InvalidParameterException("crud.deliveryOrderBatch.tooManyDeliveryOrders");
+        }
+    }
+}
@@ -10,6 +10,7 @@ import java.util.List;
 public class DeliveryOrderJson implements Serializable {
     private String agentId;
     private List<PackageJson> packages = new ArrayList<>();
+    private String quoteToken;
 
     public DeliveryOrderJson() {
     }
@@ -22,6 +23,10 @@ public class DeliveryOrderJson implements Serializable {
         return packages;
     }
 
+    public String getQuoteToken() {
+        return quoteToken;
+    }
+
     public void validate() {
         if (packages == null || packages.size() == 0) {
             throw new InvalidParameterException("crud.package.notFound");
@@ -9,30 +9,37 @@ import com.vanoma.api.order.contacts.*;
 import com.vanoma.api.order.customers.*;
 import com.vanoma.api.order.events.PackageEventRepository;
 import com.vanoma.api.order.external.IAuthApiCaller;
-import com.vanoma.api.order.external.ICommunicationApiCaller;
 import com.vanoma.api.order.external.WebPushParams;
+import com.vanoma.api.order.maps.Coordinates;
+import com.vanoma.api.order.outbox.Outbox;
 import com.vanoma.api.order.packages.Package;
 import com.vanoma.api.order.packages.*;
 import com.vanoma.api.order.pricing.CustomPricingRepository;
 import com.vanoma.api.order.pricing.IPricingService;
+import com.vanoma.api.order.pricing.Quote;
+import com.vanoma.api.order.pricing.QuoteTokenCodec;
 import com.vanoma.api.order.utils.Dates;
+import com.vanoma.api.order.utils.EnvironmentUtils;
 import com.vanoma.api.order.utils.LanguageUtils;
 import com.vanoma.api.utils.NullableValueMapBuilder;
+import com.vanoma.api.utils.error.ErrorResponse;
 import com.vanoma.api.utils.exceptions.InvalidParameterException;
 import com.vanoma.api.utils.exceptions.ResourceNotFoundException;
 import com.vanoma.api.utils.exceptions.UnauthorizedAccessException;
-import com.vanoma.api.utils.httpwrapper.HttpResult;
 import com.vanoma.api.utils.input.TimeUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.net.URI;
 import java.time.OffsetDateTime;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static com.vanoma.api.order.utils.AccessValidationUtils.isStaffOrService;
@@ -70,7 +77,11 @@ public class DeliveryOrderService implements IDeliveryOrderService {
     @Autowired
     private OrderPlacementWorkflow orderPlacementWorkflow;
     @Autowired
+    private OrderPlacementQueue orderPlacementQueue;
+    @Autowired
     private IPricingService pricingService;
+    @Autowired
+    private QuoteTokenCodec quoteTokenCodec;
 
     @Autowired
     private ContactAddressRepository contactAddressRepository;
@@ -82,7 +93,9 @@ public class DeliveryOrderService implements IDeliveryOrderService {
     @Autowired
     private ContactRepository contactRepository;
     @Autowired
-    private ICommunicationApiCaller communicationApiCaller;
+    private Outbox outbox;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     @Override
     public ResponseEntity<DeliveryOrder> createWebUserDeliveryOrder(String customerId, DeliveryOrderJson deliveryOrderJson) {
@@ -117,20 +130,172 @@ public class DeliveryOrderService implements IDeliveryOrderService {
 
         deliveryOrderJson.validate();
         Customer customer = this.customerRepository.getById(customerId);
-        DeliveryOrder order = this.orderRepository.save(
-                new DeliveryOrder(customer)
-                        .setStatus(OrderStatus.STARTED)
-                        .setClientType(ClientType.API));
+        List<Quote> quotes = this.prepareApiUserDeliveryOrders(customerId, List.of(deliveryOrderJson));
+        Map<String, Object> payload = this.createApiUserDeliveryOrders(customer, List.of(deliveryOrderJson), quotes).get(0);
+        return new ResponseEntity<>(payload, HttpStatus.CREATED);
+    }
 
-        List<Package> packages = deliveryOrderJson.getPackages()
-                .stream()
-                .map(json -> this.packageService.createPackage(order, json, PackageStatus.STARTED))
-                .collect(Collectors.toList());
-        this.pricingService.createDeliveryFees(order);
-        this.orderPlacementWorkflow.placeDeliveryOrder(order);
+    @Override
+    public Map<String, Object> createApiUserDeliveryOrders(String customerId, DeliveryOrderBatchJson batchJson) {
+        // Orders are validated up front and the valid ones are created in chunks, one transaction per chunk, so that
+        // their inserts are flushed in JDBC batches. When a chunk fails, its orders are created again one per
+        // transaction to tell which of them failed. Every order of the request gets a result, in the same order.
+        batchJson.validate();
+        Customer customer = this.customerRepository.findById(customerId)
+                .orElseThrow(() -> new ResourceNotFoundException("crud.customer.notFound"));
+        List<DeliveryOrderJson> orderJsons = batchJson.getDeliveryOrders();
+        List<Map<String, Object>> results = new ArrayList<>(Collections.nCopies(orderJsons.size(), null));
+
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < orderJsons.size(); i++) {
+            try {
+                if (orderJsons.get(i) == null) throw new InvalidParameterException("crud.deliveryOrder.packages.required");
+                orderJsons.get(i).validate();
+                validIndexes.add(i);
+            } catch (RuntimeException ex) {
+                results.set(i, getFailedOrderResult(i, ex));
+            }
+        }
 
-        Map<String, Object> payload = getCreatedOrderPayload(order, packages);
-        return new ResponseEntity<>(payload, HttpStatus.CREATED);
+        List<DeliveryOrderJson> validJsons = validIndexes.stream().map(orderJsons::get).collect(Collectors.toList());
+        List<Quote> quotes = this.prepareApiUserDeliveryOrders(customerId, validJsons);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+        int chunkSize = EnvironmentUtils.getInt("DELIVERY_ORDER_BATCH_CHUNK_SIZE", 50);
+        for (int start = 0; start < validIndexes.size(); start += chunkSize) {
+            int end = Math.min(start + chunkSize, validIndexes.size());
+            List<DeliveryOrderJson> chunkJsons = validJsons.subList(start, end);
+            List<Quote> chunkQuotes = quotes.subList(start, end);
+            try {
+                List<Map<String, Object>> payloads = transactionTemplate.execute(status ->
+                        this.createApiUserDeliveryOrders(customer, chunkJsons, chunkQuotes));
+                for (int i = start; i < end; i++) {
+                    results.set(validIndexes.get(i), getCreatedOrderResult(validIndexes.get(i), payloads.get(i - start)));
+                }
+            } catch (RuntimeException chunkEx) {
+                for (int i = start; i < end; i++) {
+                    int index = validIndexes.get(i);
+                    List<DeliveryOrderJson> orderJson = List.of(validJsons.get(i));
+                    List<Quote> orderQuote = quotes.subList(i, i + 1);
+                    try {
+                        Map<String, Object> payload = transactionTemplate.execute(status ->
+                                this.createApiUserDeliveryOrders(customer, orderJson, orderQuote).get(0));
+                        results.set(index, getCreatedOrderResult(index, payload));
+                    } catch (RuntimeException ex) {
+                        results.set(index, getFailedOrderResult(index, ex));
+                    }
+                }
+            }
+        }
+
+        long createdCount = results.stream().filter(result -> "CREATED".equals(result.get("status"))).count();
+        return Map.of(
+                "createdCount", createdCount,
+                "failedCount", results.size() - createdCount,
+                "results", results
+        );
+    }
+
+    private List<Quote> prepareApiUserDeliveryOrders(String customerId, List<DeliveryOrderJson> orderJsons) {
+        // Districts resolved when the orders were quoted don't need to be looked up again. Then geocode all new
+        // addresses of the orders at once rather than package by package.
+        List<Quote> quotes = new ArrayList<>();
+        List<AddressJson> newAddresses = new ArrayList<>();
+        for (DeliveryOrderJson orderJson : orderJsons) {
+            Quote quote = this.quoteTokenCodec.decode(orderJson.getQuoteToken())
+                    .filter(q -> q.isUsableBy(customerId))
+                    .orElse(null);
+            if (quote != null) useDistrictsFromQuote(orderJson.getPackages(), quote);
+            quotes.add(quote);
+            newAddresses.addAll(getNewAddresses(orderJson.getPackages()));
+        }
+        this.contactAddressService.addMissingFields(newAddresses);
+        return quotes;
+    }
+
+    private List<Map<String, Object>> createApiUserDeliveryOrders(Customer customer, List<DeliveryOrderJson> orderJsons,
+                                                                  List<Quote> quotes) {
+        // Orders, contacts, addresses and packages of all orders are saved together, then priced and placed one by one.
+        List<DeliveryOrder> orders = new ArrayList<>();
+        List<Pair<DeliveryOrder, PackageJson>> orderPackages = new ArrayList<>();
+        for (DeliveryOrderJson orderJson : orderJsons) {
+            DeliveryOrder order = new DeliveryOrder(customer)
+                    .setStatus(OrderStatus.STARTED)
+                    .setClientType(ClientType.API);
+            orders.add(order);
+            orderJson.getPackages().forEach(packageJson -> orderPackages.add(Pair.of(order, packageJson)));
+        }
+        this.orderRepository.saveAll(orders);
+        List<Package> packages = this.packageService.createPackages(orderPackages, PackageStatus.STARTED);
+
+        List<Map<String, Object>> payloads = new ArrayList<>();
+        int packageIndex = 0;
+        for (int i = 0; i < orders.size(); i++) {
+            DeliveryOrder order = orders.get(i);
+            int packageCount = orderJsons.get(i).getPackages().size();
+            List<Package> orderPackageList = packages.subList(packageIndex, packageIndex + packageCount);
+            packageIndex += packageCount;
+
+            this.pricingService.createDeliveryFees(order, quotes.get(i));
+            this.orderPlacementWorkflow.placeDeliveryOrder(order);
+            payloads.add(getCreatedOrderPayload(order, orderPackageList));
+        }
+        return payloads;
+    }
+
+    private static Map<String, Object> getCreatedOrderResult(int index, Map<String, Object> payload) {
+        return Map.of(
+                "index", index,
+                "status", "CREATED",
+                "deliveryOrder", payload
+        );
+    }
+
+    private Map<String, Object> getFailedOrderResult(int index, RuntimeException ex) {
+        ErrorResponse error = OrderErrors.toErrorResponse(ex, this.languageUtils);
+        return Map.of(
+                "index", index,
+                "status", "FAILED",
+                "errorCode", error.getErrorCode(),
+                "errorMessage", error.getErrorMessage()
+        );
+    }
+
+    private static void useDistrictsFromQuote(List<PackageJson> packages, Quote quote) {
+        for (PackageJson json : packages) {
+            if (!json.hasPickUp() || !json.hasDropOffAddress()) continue;
+            AddressJson fromAddress = json.getFromAddress();
+            AddressJson toAddress = json.getToAddress();
+            quote.findPackage(getCoordinates(fromAddress), getCoordinates(toAddress), json.getSize()).ifPresent(quoted -> {
+                useDistrictFromQuote(fromAddress, quoted.getOriginDistrict());
+                useDistrictFromQuote(toAddress, quoted.getDestinationDistrict());
+            });
+        }
+    }
+
+    private static void useDistrictFromQuote(AddressJson addressJson, String district) {
+        // Only the district is taken; addresses without a street name still get it from reverse geocoding.
+        if (district == null || addressJson.hasDistrict() || StringUtils.isEmpty(addressJson.getStreetName())) return;
+        addressJson.setDistrict(district);
+    }
+
+    private static Coordinates getCoordinates(AddressJson addressJson) {
+        if (addressJson.getLatitude() == null || addressJson.getLongitude() == null) return null;
+        return new Coordinates()
+                .setLat(addressJson.getLatitude())
+                .setLng(addressJson.getLongitude());
+    }
+
+    private static List<AddressJson> getNewAddresses(List<PackageJson> packages) {
+        List<AddressJson> addresses = new ArrayList<>();
+        for (PackageJson json : packages) {
+            if (json.hasPickUp() && StringUtils.isEmpty(json.getFromAddress().getAddressId())) {
+                addresses.add(json.getFromAddress());
+            }
+            if (json.hasDropOffAddress() && StringUtils.isEmpty(json.getToAddress().getAddressId())) {
+                addresses.add(json.getToAddress());
+            }
+        }
+        return addresses;
     }
 
     @Override
@@ -179,14 +344,24 @@ public class DeliveryOrderService implements IDeliveryOrderService {
     }
 
     @Override
-    public void placeDeliveryOrder(String deliveryOrderId, String authHeader) {
+    public ResponseEntity<OrderPlacement> placeDeliveryOrder(String deliveryOrderId, String authHeader, Boolean async) {
         DeliveryOrder order = this.orderRepository.getById(deliveryOrderId);
 
         if (!isStaffOrService(authHeader) && order.getCustomer().getIsPrepaid()) {
             throw new UnauthorizedAccessException("crud.deliveryOrder.placement.notAuthorized");
         }
 
-        this.orderPlacementWorkflow.placeDeliveryOrder(order);
+        if (async == null ? this.orderPlacementQueue.isAsyncByDefault() : async) {
+            OrderPlacement placement = this.orderPlacementQueue.placeOrEnqueue(order);
+            if (placement != null) {
+                return ResponseEntity.accepted()
+                        .location(URI.create("/delivery-order-placements/" + placement.getOrderPlacementId()))
+                        .body(placement);
+            }
+        } else {
+            this.orderPlacementWorkflow.placeDeliveryOrder(order);
+        }
+        return ResponseEntity.noContent().build();
     }
 
     @Override
@@ -250,11 +425,7 @@ public class DeliveryOrderService implements IDeliveryOrderService {
                 ") sent a delivery request. " +
                 "Share your location here: " + deliveryOrder.getDeliveryLink() + smsChannelQueryParam +
                 ". Call 8080 (Toll-Free) for questions.";
-        CompletableFuture<HttpResult> futureResult = this.communicationApiCaller.sendSMS(smsText, contactPhoneNumber);
-        HttpResult smsResult = futureResult.join();
-        if (!smsResult.isSuccess()) {
-            throw new InvalidParameterException("apis.communication.smsNotSent");
-        }
+        this.outbox.sendSMS(smsText, contactPhoneNumber);
 
         // Send web push to operator
         WebPushParams params = WebPushParams.builder()
@@ -275,16 +446,15 @@ public class DeliveryOrderService implements IDeliveryOrderService {
                         .build()
                 )
                 .build();
-        this.communicationApiCaller.sendWebPush(params);
+        this.outbox.sendWebPush(params);
     }
 
-    @Async
     private void sendCustomerSMSforPendingOrder(DeliveryOrder order) {
         Customer customer = order.getCustomer();
         String dashboardAppUrl = System.getenv("VANOMA_DASHBOARD_APP_URL");
         String message = "A customer just provided their address. Please pay for the delivery here: " +
                 dashboardAppUrl + "/deliveries/request. Call 8080 (Toll-Free) for any questions.";
-        this.communicationApiCaller.sendSMS(message, customer.getPhoneNumber());
+        this.outbox.sendSMS(message, customer.getPhoneNumber());
     }
 
     private Map<String, Object> getCreatedOrderPayload(DeliveryOrder order, List<Package> packages) {
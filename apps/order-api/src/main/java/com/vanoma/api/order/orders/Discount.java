@@ -1,6 +1,8 @@
 package com.vanoma.api.order.orders;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.vanoma.api.order.charges.Money;
+import com.vanoma.api.order.charges.MoneyConverter;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -35,7 +37,8 @@ public class Discount {
 
     @Column(name = "amount", nullable = false,
             precision = 10, scale = 2)
-    private BigDecimal amount;
+    @Convert(converter = MoneyConverter.class)
+    private Money amount;
 
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
@@ -81,11 +84,21 @@ public class Discount {
     }
 
     public Discount setAmount(BigDecimal amount) {
+        this.amount = Money.of(amount);
+        return this;
+    }
+
+    public Discount setAmount(Money amount) {
         this.amount = amount;
         return this;
     }
 
     public BigDecimal getAmount() {
+        return amount == null ? null : amount.toBigDecimal();
+    }
+
+    @JsonIgnore
+    public Money getAmountAsMoney() {
         return amount;
     }
 
@@ -13,13 +13,15 @@ public interface IDeliveryOrderService {
     // TODO: Move ResponseEntity to controller as it's an http-level semantic.
     ResponseEntity<Map<String, Object>> createApiUserDeliveryOrder(String customerId, DeliveryOrderJson deliveryOrderJson);
 
+    Map<String, Object> createApiUserDeliveryOrders(String customerId, DeliveryOrderBatchJson batchJson);
+
     // TODO: Move ResponseEntity to controller as it's an http-level semantic.
     ResponseEntity<Map<String, Object>> createDeliveryRequest(String customerId, DeliveryRequestJson deliveryRequestJson);
 
     // TODO: Return void here
     ResponseEntity<Map<String, Object>> createLinkOpeningActions(String deliveryOrderId);
 
-    void placeDeliveryOrder(String deliveryOrderId, String authHeader);
+    ResponseEntity<OrderPlacement> placeDeliveryOrder(String deliveryOrderId, String authHeader, Boolean async);
 
     // TODO: Return void here
     ResponseEntity<Map<String, Object>> prePlaceDeliveryOrder(String deliveryOrderId);
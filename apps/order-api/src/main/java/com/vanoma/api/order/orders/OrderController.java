@@ -2,6 +2,7 @@ package com.vanoma.api.order.orders;
 
 import com.vanoma.api.order.utils.annotations.PostMappingJson;
 import com.vanoma.api.order.utils.annotations.RequestMappingJson;
+import com.vanoma.api.utils.exceptions.UnauthorizedAccessException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,6 +16,8 @@ public class OrderController {
     private OrderRepository orderRepository;
     @Autowired
     private IDeliveryOrderService orderService;
+    @Autowired
+    private OrderPlacementQueue orderPlacementQueue;
 
     @PostMappingJson(value = "/customers/{customerId}/delivery-orders")
     public ResponseEntity<?> createDeliveryOrder(@PathVariable String customerId,
@@ -28,6 +31,17 @@ public class OrderController {
         }
     }
 
+    @PostMappingJson(value = "/customers/{customerId}/delivery-orders/batch")
+    public ResponseEntity<Map<String, Object>> createDeliveryOrders(@PathVariable String customerId,
+                                                                    @RequestBody DeliveryOrderBatchJson batchJson,
+                                                                    @RequestHeader(value = "X-Access-Key", required = false) String apiAccessKey) {
+        // Only API users create orders in batches
+        if (apiAccessKey == null || apiAccessKey.length() < 64) {
+            throw new UnauthorizedAccessException("crud.deliveryOrderBatch.apiAccessKey.required");
+        }
+        return ResponseEntity.ok(this.orderService.createApiUserDeliveryOrders(customerId, batchJson));
+    }
+
     @GetMapping(value = "/delivery-orders/{deliveryOrderId}")
     public ResponseEntity<DeliveryOrder> getDeliveryOrder(@PathVariable String deliveryOrderId) {
         return ResponseEntity.ok(this.orderRepository.getById(deliveryOrderId));
@@ -44,10 +58,15 @@ public class OrderController {
     }
 
     @PostMapping(value = "/delivery-orders/{deliveryOrderId}/placement")
-    public ResponseEntity<Void> placeDeliveryOrder(@PathVariable String deliveryOrderId,
-                                                   @RequestHeader(value = "Authorization", required = false) String authHeader) {
-        this.orderService.placeDeliveryOrder(deliveryOrderId, authHeader);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<OrderPlacement> placeDeliveryOrder(@PathVariable String deliveryOrderId,
+                                                             @RequestHeader(value = "Authorization", required = false) String authHeader,
+                                                             @RequestParam(required = false) Boolean async) {
+        return this.orderService.placeDeliveryOrder(deliveryOrderId, authHeader, async);
+    }
+
+    @GetMapping(value = "/delivery-order-placements/{orderPlacementId}")
+    public ResponseEntity<OrderPlacement> getOrderPlacement(@PathVariable String orderPlacementId) {
+        return ResponseEntity.ok(this.orderPlacementQueue.getOrderPlacement(orderPlacementId));
     }
 
     @PostMapping(value = "/delivery-orders/{deliveryOrderId}/duplication")
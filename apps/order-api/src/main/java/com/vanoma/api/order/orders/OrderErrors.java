@@ -0,0 +1,45 @@
+package com.vanoma.api.order.orders;
+
+import com.vanoma.api.order.utils.LanguageUtils;
+import com.vanoma.api.utils.error.ErrorResponse;
+import com.vanoma.api.utils.error.ErrorResponseType;
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import com.vanoma.api.utils.exceptions.ResourceNotFoundException;
+import com.vanoma.api.utils.exceptions.UnauthorizedAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.orm.jpa.JpaObjectRetrievalFailureException;
+
+import javax.persistence.EntityNotFoundException;
+
+// The error code and message RestExceptionHandler would return for an exception, for orders processed outside of
+// a request of their own (batches, queued placements).
+class OrderErrors {
+    private static final Logger logger = LoggerFactory.getLogger(OrderErrors.class);
+
+    private OrderErrors() {
+    }
+
+    static ErrorResponse toErrorResponse(RuntimeException ex, LanguageUtils languageUtils) {
+        if (ex instanceof InvalidParameterException) {
+            return error(ErrorResponseType.INVALID_REQUEST, languageUtils.getLocalizedMessage(ex.getMessage()));
+        } else if (ex instanceof ResourceNotFoundException) {
+            return error(ErrorResponseType.RESOURCE_NOT_FOUND, languageUtils.getLocalizedMessage(ex.getMessage()));
+        } else if (ex instanceof UnauthorizedAccessException) {
+            return error(ErrorResponseType.AUTHORIZATION_ERROR, languageUtils.getLocalizedMessage(ex.getMessage()));
+        } else if (ex instanceof EntityNotFoundException || ex instanceof JpaObjectRetrievalFailureException) {
+            return error(ErrorResponseType.RESOURCE_NOT_FOUND, ex.getMessage());
+        } else {
+            logger.error(ex.getMessage(), ex);
+            return error(ErrorResponseType.INTERNAL_ERROR, languageUtils.getLocalizedMessage("global.serverError"));
+        }
+    }
+
+    static boolean isInternalError(ErrorResponse error) {
+        return ErrorResponseType.INTERNAL_ERROR.name().equals(error.getErrorCode());
+    }
+
+    private static ErrorResponse error(ErrorResponseType type, String message) {
+        return new ErrorResponse(type.name(), message);
+    }
+}
@@ -0,0 +1,160 @@
+package com.vanoma.api.order.orders;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.vanoma.api.utils.error.ErrorResponse;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+// A delivery order waiting in or processed by the OrderPlacementQueue. Also the status resource of an asynchronous
+// placement.
+@Entity
+@Table(name = "order_placement",
+        indexes = {
+                @Index(name = "order_placement_status_next_attempt_at_idx", columnList = "status, next_attempt_at", unique = false),
+                @Index(name = "order_placement_delivery_order_id_idx", columnList = "delivery_order_id", unique = false)
+        })
+public class OrderPlacement implements Persistable<String> {
+
+    @Id
+    @Column(name = "order_placement_id", nullable = false)
+    private String orderPlacementId;
+
+    @Column(name = "delivery_order_id", nullable = false, updatable = false)
+    private String deliveryOrderId;
+
+    @Column(name = "status", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private OrderPlacementStatus status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "error_code")
+    private String errorCode;
+
+    @Column(name = "error_message", length = 1024)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private OffsetDateTime nextAttemptAt;
+
+    @Column(name = "started_at")
+    private OffsetDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private OffsetDateTime completedAt;
+
+    @Transient
+    private boolean isNew = false;
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public OrderPlacement() {
+    }
+
+    public OrderPlacement(DeliveryOrder order, OffsetDateTime now) {
+        this.orderPlacementId = UUID.randomUUID().toString();
+        this.deliveryOrderId = order.getDeliveryOrderId();
+        this.status = OrderPlacementStatus.QUEUED;
+        this.createdAt = now;
+        this.nextAttemptAt = now;
+        this.isNew = true;
+    }
+
+    public OrderPlacement start(OffsetDateTime now) {
+        this.status = OrderPlacementStatus.RUNNING;
+        this.attempts++;
+        this.startedAt = now;
+        return this;
+    }
+
+    public OrderPlacement succeed(OffsetDateTime now) {
+        this.status = OrderPlacementStatus.SUCCEEDED;
+        this.errorCode = null;
+        this.errorMessage = null;
+        this.completedAt = now;
+        return this;
+    }
+
+    public OrderPlacement retry(ErrorResponse error, OffsetDateTime nextAttemptAt) {
+        this.status = OrderPlacementStatus.QUEUED;
+        this.setError(error);
+        this.nextAttemptAt = nextAttemptAt;
+        return this;
+    }
+
+    public OrderPlacement fail(ErrorResponse error, OffsetDateTime now) {
+        this.status = OrderPlacementStatus.FAILED;
+        this.setError(error);
+        this.completedAt = now;
+        return this;
+    }
+
+    private void setError(ErrorResponse error) {
+        this.errorCode = error.getErrorCode();
+        String message = error.getErrorMessage();
+        this.errorMessage = message != null && message.length() > 1024 ? message.substring(0, 1024) : message;
+    }
+
+    @Override
+    @JsonIgnore
+    public String getId() {
+        return orderPlacementId;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
+    }
+
+    public String getOrderPlacementId() {
+        return orderPlacementId;
+    }
+
+    public String getDeliveryOrderId() {
+        return deliveryOrderId;
+    }
+
+    public OrderPlacementStatus getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public OffsetDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public OffsetDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public OffsetDateTime getCompletedAt() {
+        return completedAt;
+    }
+}
@@ -0,0 +1,213 @@
+package com.vanoma.api.order.orders;
+
+import com.vanoma.api.order.utils.EnvironmentUtils;
+import com.vanoma.api.order.utils.LanguageUtils;
+import com.vanoma.api.utils.error.ErrorResponse;
+import com.vanoma.api.utils.exceptions.ResourceNotFoundException;
+import com.vanoma.api.utils.input.TimeUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.*;
+
+// Places delivery orders off the request thread. Placements are rows of order_placement, so the queue survives
+// restarts and is shared by all nodes: each node claims due rows and runs them on its own worker pool, one transaction
+// per placement. Unexpected failures are retried with exponential backoff; validation errors fail the placement right
+// away, and are logged as errors for the operations team since nobody may be polling the placement. When the queue is
+// full, orders are placed in the request as before. Completed placements are kept for ORDER_PLACEMENT_RETENTION_HOURS.
+@Service
+public class OrderPlacementQueue {
+    Logger logger = LoggerFactory.getLogger(OrderPlacementQueue.class);
+
+    @Autowired
+    private OrderPlacementRepository orderPlacementRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderPlacementWorkflow orderPlacementWorkflow;
+    @Autowired
+    private LanguageUtils languageUtils;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private boolean asyncByDefault;
+    private int capacity;
+    private int maxAttempts;
+    private Duration retryBackoff;
+    private Duration lease;
+    private Duration retention;
+    private ThreadPoolExecutor executor;
+    private TransactionTemplate transactionTemplate;
+
+    private volatile long queuedCount;
+    private Timer waitTimer;
+    private Timer placementTimer;
+    private Counter succeededCounter;
+    private Counter retriedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void start() {
+        this.asyncByDefault = EnvironmentUtils.getBoolean("ORDER_PLACEMENT_ASYNC", false);
+        this.capacity = EnvironmentUtils.getInt("ORDER_PLACEMENT_QUEUE_CAPACITY", 10_000);
+        this.maxAttempts = EnvironmentUtils.getInt("ORDER_PLACEMENT_MAX_ATTEMPTS", 5);
+        this.retryBackoff = Duration.ofMillis(EnvironmentUtils.getLong("ORDER_PLACEMENT_RETRY_BACKOFF_MILLIS", 2_000));
+        this.lease = Duration.ofSeconds(EnvironmentUtils.getLong("ORDER_PLACEMENT_LEASE_SECONDS", 300));
+        this.retention = Duration.ofHours(EnvironmentUtils.getLong("ORDER_PLACEMENT_RETENTION_HOURS", 72));
+        this.transactionTemplate = new TransactionTemplate(this.transactionManager);
+
+        int threads = EnvironmentUtils.getInt("ORDER_PLACEMENT_THREADS", 4);
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 8), runnable -> {
+                    Thread thread = new Thread(runnable, "order-placement");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("orders.placement.queue.depth", this, queue -> queue.queuedCount)
+                .register(this.meterRegistry);
+        Gauge.builder("orders.placement.running", this.executor, ThreadPoolExecutor::getActiveCount)
+                .register(this.meterRegistry);
+        this.waitTimer = Timer.builder("orders.placement.queue.stage").tag("stage", "wait").register(this.meterRegistry);
+        this.placementTimer = Timer.builder("orders.placement.queue.stage").tag("stage", "placement").register(this.meterRegistry);
+        this.succeededCounter = Counter.builder("orders.placement.queue.jobs").tag("result", "succeeded").register(this.meterRegistry);
+        this.retriedCounter = Counter.builder("orders.placement.queue.jobs").tag("result", "retried").register(this.meterRegistry);
+        this.failedCounter = Counter.builder("orders.placement.queue.jobs").tag("result", "failed").register(this.meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Placements cut short are rolled back and picked up again once their lease expires
+        this.executor.shutdownNow();
+    }
+
+    public boolean isAsyncByDefault() {
+        return this.asyncByDefault;
+    }
+
+    // Queues the placement of the order, or places it right away and returns null when the queue is full
+    public OrderPlacement placeOrEnqueue(DeliveryOrder order) {
+        long pendingCount = this.orderPlacementRepository.countByStatusIn(
+                List.of(OrderPlacementStatus.QUEUED, OrderPlacementStatus.RUNNING));
+        if (pendingCount >= this.capacity) {
+            logger.warn(String.format("Order placement queue is full (%d), placing %s synchronously",
+                    pendingCount, order.getDeliveryOrderId()));
+            this.orderPlacementWorkflow.placeDeliveryOrder(order);
+            return null;
+        }
+
+        OrderPlacement placement = this.orderPlacementRepository.save(new OrderPlacement(order, TimeUtils.getUtcNow()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(placement.getOrderPlacementId());
+                }
+            });
+        } else {
+            this.submit(placement.getOrderPlacementId());
+        }
+        return placement;
+    }
+
+    public OrderPlacement getOrderPlacement(String orderPlacementId) {
+        return this.orderPlacementRepository.findById(orderPlacementId)
+                .orElseThrow(() -> new ResourceNotFoundException("crud.orderPlacement.notFound"));
+    }
+
+    // Picks up placements that are due: retries, placements queued while all workers were busy, and placements
+    // of nodes that stopped.
+    @Scheduled(fixedDelay = 1_000, initialDelay = 10_000)
+    public void dispatch() {
+        try {
+            OffsetDateTime now = TimeUtils.getUtcNow();
+            this.orderPlacementRepository.requeueStale(now.minus(this.lease));
+
+            int room = this.executor.getQueue().remainingCapacity();
+            if (room > 0) {
+                List<OrderPlacement> due = this.orderPlacementRepository
+                        .findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(
+                                OrderPlacementStatus.QUEUED, now, PageRequest.of(0, room));
+                due.forEach(placement -> this.submit(placement.getOrderPlacementId()));
+            }
+            this.queuedCount = this.orderPlacementRepository.countByStatus(OrderPlacementStatus.QUEUED);
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to dispatch order placements", ex);
+        }
+    }
+
+    // Succeeded and failed placements are only kept for their status resource, this keeps the table small
+    @Scheduled(fixedDelay = 3_600_000, initialDelay = 60_000)
+    public void purgeCompleted() {
+        try {
+            int purged = this.orderPlacementRepository.deleteCompletedBefore(TimeUtils.getUtcNow().minus(this.retention));
+            if (purged > 0) logger.info(String.format("Purged %d completed order placements", purged));
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to purge completed order placements", ex);
+        }
+    }
+
+    private void submit(String orderPlacementId) {
+        if (this.orderPlacementRepository.claim(orderPlacementId, TimeUtils.getUtcNow()) == 0) return;
+        try {
+            this.executor.execute(() -> this.process(orderPlacementId));
+        } catch (RejectedExecutionException ex) {
+            // Every worker is busy, the dispatcher tries again later
+            this.orderPlacementRepository.release(orderPlacementId);
+        }
+    }
+
+    private void process(String orderPlacementId) {
+        OrderPlacement placement = this.orderPlacementRepository.findById(orderPlacementId).orElse(null);
+        if (placement == null || placement.getStatus() != OrderPlacementStatus.RUNNING) return;
+
+        OffsetDateTime startedAt = TimeUtils.getUtcNow();
+        this.waitTimer.record(Duration.between(placement.getNextAttemptAt(), startedAt));
+        placement.start(startedAt);
+        long start = System.nanoTime();
+        try {
+            this.transactionTemplate.executeWithoutResult(status -> {
+                DeliveryOrder order = this.orderRepository.getById(placement.getDeliveryOrderId());
+                if (order.getStatus() != OrderStatus.PLACED) this.orderPlacementWorkflow.placeDeliveryOrder(order);
+            });
+            placement.succeed(TimeUtils.getUtcNow());
+            this.succeededCounter.increment();
+        } catch (RuntimeException ex) {
+            ErrorResponse error = OrderErrors.toErrorResponse(ex, this.languageUtils);
+            if (OrderErrors.isInternalError(error) && placement.getAttempts() < this.maxAttempts) {
+                long backoffMillis = this.retryBackoff.toMillis() << Math.min(placement.getAttempts() - 1, 16);
+                placement.retry(error, TimeUtils.getUtcNow().plus(Duration.ofMillis(backoffMillis)));
+                this.retriedCounter.increment();
+            } else {
+                placement.fail(error, TimeUtils.getUtcNow());
+                this.failedCounter.increment();
+                logger.error(String.format("Order placement %s of delivery order %s failed after %d attempts: %s %s",
+                        orderPlacementId, placement.getDeliveryOrderId(), placement.getAttempts(),
+                        error.getErrorCode(), error.getErrorMessage()), ex);
+            }
+        } finally {
+            this.placementTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        this.orderPlacementRepository.save(placement);
+    }
+}
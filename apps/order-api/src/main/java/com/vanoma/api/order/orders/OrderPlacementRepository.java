@@ -0,0 +1,48 @@
+package com.vanoma.api.order.orders;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderPlacementRepository extends JpaRepository<OrderPlacement, String> {
+    List<OrderPlacement> findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(OrderPlacementStatus status,
+                                                                                      OffsetDateTime now,
+                                                                                      Pageable pageable);
+
+    long countByStatusIn(Collection<OrderPlacementStatus> statuses);
+
+    long countByStatus(OrderPlacementStatus status);
+
+    // Only one node gets 1 for a given queued placement
+    @Transactional
+    @Modifying
+    @Query("UPDATE OrderPlacement p SET p.status = 'RUNNING', p.startedAt = :now " +
+            "WHERE p.orderPlacementId = :orderPlacementId AND p.status = 'QUEUED'")
+    int claim(@Param("orderPlacementId") String orderPlacementId, @Param("now") OffsetDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OrderPlacement p SET p.status = 'QUEUED' " +
+            "WHERE p.orderPlacementId = :orderPlacementId AND p.status = 'RUNNING'")
+    int release(@Param("orderPlacementId") String orderPlacementId);
+
+    // Placements left running by a node that stopped
+    @Transactional
+    @Modifying
+    @Query("UPDATE OrderPlacement p SET p.status = 'QUEUED' WHERE p.status = 'RUNNING' AND p.startedAt < :startedBefore")
+    int requeueStale(@Param("startedBefore") OffsetDateTime startedBefore);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OrderPlacement p WHERE p.status IN ('SUCCEEDED', 'FAILED') AND p.completedAt < :completedBefore")
+    int deleteCompletedBefore(@Param("completedBefore") OffsetDateTime completedBefore);
+}
@@ -0,0 +1,8 @@
+package com.vanoma.api.order.orders;
+
+public enum OrderPlacementStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
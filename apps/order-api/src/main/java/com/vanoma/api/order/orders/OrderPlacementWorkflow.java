@@ -4,19 +4,19 @@ import com.vanoma.api.order.businesshours.IBusinessHourService;
 import com.vanoma.api.order.charges.Charge;
 import com.vanoma.api.order.charges.ChargeRepository;
 import com.vanoma.api.order.charges.ChargeType;
-import com.vanoma.api.order.contacts.ContactAddress;
-import com.vanoma.api.order.contacts.IContactAddressService;
+import com.vanoma.api.order.contacts.*;
 import com.vanoma.api.order.events.*;
 import com.vanoma.api.order.packages.*;
 import com.vanoma.api.order.packages.Package;
 import com.vanoma.api.order.pricing.CustomPricingRepository;
 import com.vanoma.api.utils.input.TimeUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.OffsetDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 @Service
 public class OrderPlacementWorkflow {
@@ -34,6 +34,12 @@ public class OrderPlacementWorkflow {
     private PackageRepository packageRepository;
     @Autowired
     private ChargeRepository chargeRepository;
+    @Autowired
+    private ContactRepository contactRepository;
+    @Autowired
+    private AddressRepository addressRepository;
+    @Autowired
+    private ContactAddressRepository contactAddressRepository;
 
     @Autowired
     private IPackageService packageService;
@@ -41,32 +47,41 @@ public class OrderPlacementWorkflow {
     private CurrentTimeWrapper currentTimeWrapper;
     @Autowired
     private CustomPricingRepository customPricingRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
 
     /* Public methods section for easier code reading. */
 
     public DeliveryOrder placeDeliveryOrder(DeliveryOrder order) {
-        List<Package> packages = this.packageRepository.findByDeliveryOrder(order);
-        List<Charge> charges = this.chargeRepository.findByDeliveryOrderAndType(order, ChargeType.DELIVERY_FEE);
-        PackageUtils.validateDeliveryOrderPackages(packages, charges);
+        List<Package> packages = this.getStageTimer("validation").record(() -> {
+            List<Package> orderPackages = this.packageRepository.findWithStopsByDeliveryOrder(order);
+            List<Charge> charges = this.chargeRepository.findByDeliveryOrderAndType(order, ChargeType.DELIVERY_FEE);
+            PackageUtils.validateDeliveryOrderPackages(orderPackages, charges);
+            return orderPackages;
+        });
 
         this.setDeliveryTime(packages);
-        this.businessHourService.validateBusinessHours(packages, order.getCustomerId());
-        // Saving notes should happen before creating copies of contacts/addresses
-        this.saveDeliveryNotesOnContactAddresses(packages);
-        this.createCopiesOfContacts(packages);
-        this.createCopiesOfAddresses(packages);
-        this.savePackageChanges(packages);
-        this.orderRepository.save(order);
-
-        this.setPackageStatusToPlaced(packages);
-        this.createOrderPlacedEvents(packages);
-        return this.setOrderStatusToPlaced(order);
+        this.getStageTimer("businessHours").record(() ->
+                this.businessHourService.validateBusinessHours(packages, order.getCustomerId()));
+        this.getStageTimer("stops").record(() -> {
+            // Saving notes should happen before creating copies of contacts/addresses
+            this.saveDeliveryNotesOnContactAddresses(packages);
+            this.createCopiesOfContacts(packages);
+            this.createCopiesOfAddresses(packages);
+        });
+        this.getStageTimer("packages").record(() -> this.setPackageStatusToPlaced(packages));
+        this.getStageTimer("events").record(() -> this.createOrderPlacedEvents(packages));
+        return this.getStageTimer("order").record(() -> this.setOrderStatusToPlaced(order));
     }
 
 
     /* Private methods section for easier code reading. */
 
+    private Timer getStageTimer(String stage) {
+        return Timer.builder("orders.placement.stage").tag("stage", stage).register(this.meterRegistry);
+    }
+
     private void setDeliveryTime(List<Package> packages) {
         for (Package pkg : packages) {
             OffsetDateTime pickUpStart = PackageUtils.getPickUpStart(this.currentTimeWrapper, pkg.getPickUpStart());
@@ -75,48 +90,58 @@ public class OrderPlacementWorkflow {
     }
 
     private void saveDeliveryNotesOnContactAddresses(List<Package> packages) {
-        List<ContactAddress> updatedContactAddresses = new ArrayList<>();
+        // The contact addresses of all stops are fetched with one query, whatever the number of packages.
+        Set<Contact> contacts = new HashSet<>();
+        Set<Address> addresses = new HashSet<>();
         for (Package p : packages) {
-            updatedContactAddresses.add(getUpdatedPickUpContactAddress(p));
-            updatedContactAddresses.add(getUpdatedDropOffContactAddress(p));
+            contacts.add(p.getFromContact());
+            contacts.add(p.getToContact());
+            addresses.add(p.getFromAddress());
+            addresses.add(p.getToAddress());
+        }
+        Map<String, ContactAddress> contactAddresses = new HashMap<>();
+        for (ContactAddress contactAddress : this.contactAddressRepository.findByContactInAndAddressIn(contacts, addresses)) {
+            contactAddresses.putIfAbsent(getStopKey(contactAddress.getContact(), contactAddress.getAddress()), contactAddress);
         }
-        this.contactAddressService.saveContactAddressAll(updatedContactAddresses);
-    }
 
-    private ContactAddress getUpdatedPickUpContactAddress(Package p) {
-        ContactAddress fromContactAddress = this.contactAddressService
-                .getFirstContactAddressByContactAndAddress(
-                        p.getFromContact(), p.getFromAddress()
-                );
-        fromContactAddress.setLastNote(p.getFromNote());
-        return fromContactAddress;
+        Set<ContactAddress> updatedContactAddresses = new LinkedHashSet<>();
+        for (Package p : packages) {
+            ContactAddress fromContactAddress = contactAddresses.get(getStopKey(p.getFromContact(), p.getFromAddress()));
+            fromContactAddress.setLastNote(p.getFromNote());
+            updatedContactAddresses.add(fromContactAddress);
+
+            ContactAddress toContactAddress = contactAddresses.get(getStopKey(p.getToContact(), p.getToAddress()));
+            toContactAddress.setLastNote(p.getToNote());
+            updatedContactAddresses.add(toContactAddress);
+        }
+        this.contactAddressService.saveContactAddressAll(new ArrayList<>(updatedContactAddresses));
     }
 
-    private ContactAddress getUpdatedDropOffContactAddress(Package p) {
-        ContactAddress toContactAddress = this.contactAddressService
-                .getFirstContactAddressByContactAndAddress(
-                        p.getToContact(), p.getToAddress()
-                );
-        toContactAddress.setLastNote(p.getToNote());
-        return toContactAddress;
+    private static String getStopKey(Contact contact, Address address) {
+        return contact.getContactId() + ":" + address.getAddressId();
     }
 
     private void createCopiesOfContacts(List<Package> packages) {
+        List<Contact> copies = new ArrayList<>();
         for (Package p : packages) {
             p.setFromContact(p.getFromContact().buildUnsavedCopy());
             p.setToContact(p.getToContact().buildUnsavedCopy());
+            copies.add(p.getFromContact());
+            copies.add(p.getToContact());
         }
+        // Inserted up front so that saving the packages doesn't look them up before inserting them one by one
+        this.contactRepository.saveAll(copies);
     }
 
     private void createCopiesOfAddresses(List<Package> packages) {
+        List<Address> copies = new ArrayList<>();
         for (Package p : packages) {
             p.setFromAddress(p.getFromAddress().buildCopy(false));
             p.setToAddress(p.getToAddress().buildCopy(false));
+            copies.add(p.getFromAddress());
+            copies.add(p.getToAddress());
         }
-    }
-
-    private void savePackageChanges(List<Package> packages) {
-        packages.forEach(p -> this.packageRepository.save(p));
+        this.addressRepository.saveAll(copies);
     }
 
     private DeliveryOrder setOrderStatusToPlaced(DeliveryOrder order) {
@@ -126,13 +151,12 @@ public class OrderPlacementWorkflow {
     }
 
     private void setPackageStatusToPlaced(List<Package> packages) {
+        // Packages are saved once, with their copied stops and delivery time
         packages.forEach(pkg -> pkg.setStatus(PackageStatus.PLACED));
         this.packageRepository.saveAll(packages);
     }
 
     private void createOrderPlacedEvents(List<Package> packages) {
-        for (Package pkg : packages) {
-            this.packageEventService.createPackageEvent(pkg, EventName.ORDER_PLACED, null);
-        }
+        this.packageEventService.createPackageEvents(packages, EventName.ORDER_PLACED);
     }
 }
@@ -0,0 +1,99 @@
+package com.vanoma.api.order.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vanoma.api.order.external.CallbackParams;
+import com.vanoma.api.order.external.WebPushParams;
+import com.vanoma.api.utils.input.TimeUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Notifications go through here instead of the ICommunicationApiCaller: they are saved in the caller's transaction
+// and only handed to the OutboxRelay once it commits, so a rollback sends nothing and no request waits on the
+// communication-api or on API users' callback URLs.
+@Service
+public class Outbox {
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+    @Autowired
+    private OutboxRelay outboxRelay;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public OutboxMessage sendSMS(String text, String phoneNumber) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("text", text);
+        payload.put("phoneNumber", phoneNumber);
+        return this.enqueue(OutboxDestination.SMS, null, payload);
+    }
+
+    public OutboxMessage sendWebPush(WebPushParams params) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("heading", params.getHeading());
+        payload.put("message", params.getMessage());
+        payload.put("receiverIds", params.getReceiverIds());
+        payload.put("jsonData", params.getJsonData());
+        payload.put("metadata", params.getMetadata());
+        return this.enqueue(OutboxDestination.WEB_PUSH, null, payload);
+    }
+
+    public OutboxMessage sendCallback(CallbackParams params) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("callbackUrl", params.getCallbackUrl());
+        payload.put("payload", params.getPayload());
+        return this.enqueue(OutboxDestination.CALLBACK, getHost(params.getCallbackUrl()), payload);
+    }
+
+    private OutboxMessage enqueue(OutboxDestination destination, String destinationHost, Map<String, Object> payload) {
+        OutboxMessage message;
+        try {
+            message = new OutboxMessage(destination, destinationHost,
+                    this.objectMapper.writeValueAsString(payload), TimeUtils.getUtcNow());
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+        message = this.outboxMessageRepository.save(message);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.outboxRelay.relay(List.of(message));
+            return message;
+        }
+        // Messages of the same transaction are relayed together after it commits
+        @SuppressWarnings("unchecked")
+        List<OutboxMessage> committed = (List<OutboxMessage>) TransactionSynchronizationManager.getResource(this);
+        if (committed == null) {
+            List<OutboxMessage> batch = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    outboxRelay.relay(batch);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(Outbox.this);
+                }
+            });
+            committed = batch;
+        }
+        committed.add(message);
+        return message;
+    }
+
+    private static String getHost(String url) {
+        try {
+            return URI.create(url).getHost();
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            return null;
+        }
+    }
+}
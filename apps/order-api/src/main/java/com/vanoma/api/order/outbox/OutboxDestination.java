@@ -0,0 +1,7 @@
+package com.vanoma.api.order.outbox;
+
+public enum OutboxDestination {
+    SMS,
+    WEB_PUSH,
+    CALLBACK
+}
@@ -0,0 +1,135 @@
+package com.vanoma.api.order.outbox;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+// An SMS, web push or callback written in the transaction that caused it, and sent by the OutboxRelay once that
+// transaction commits.
+@Entity
+@Table(name = "outbox_message",
+        indexes = {
+                @Index(name = "outbox_message_status_next_attempt_at_idx", columnList = "status, next_attempt_at", unique = false)
+        })
+public class OutboxMessage implements Persistable<String> {
+
+    @Id
+    @Column(name = "outbox_message_id", nullable = false)
+    private String outboxMessageId;
+
+    @Column(name = "destination", nullable = false, updatable = false)
+    @Enumerated(EnumType.STRING)
+    private OutboxDestination destination;
+
+    // Host of the callback URL, callbacks to the same host share a concurrency limit
+    @Column(name = "destination_host", updatable = false)
+    private String destinationHost;
+
+    @Lob
+    @Column(name = "payload", nullable = false, updatable = false)
+    private String payload;
+
+    @Column(name = "status", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private OutboxMessageStatus status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", length = 1024)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private OffsetDateTime nextAttemptAt;
+
+    @Column(name = "claimed_at")
+    private OffsetDateTime claimedAt;
+
+    @Column(name = "sent_at")
+    private OffsetDateTime sentAt;
+
+    @Transient
+    private boolean isNew = false;
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public OutboxMessage() {
+    }
+
+    public OutboxMessage(OutboxDestination destination, String destinationHost, String payload, OffsetDateTime now) {
+        this.outboxMessageId = UUID.randomUUID().toString();
+        this.destination = destination;
+        this.destinationHost = destinationHost;
+        this.payload = payload;
+        this.status = OutboxMessageStatus.PENDING;
+        this.createdAt = now;
+        this.nextAttemptAt = now;
+        this.isNew = true;
+    }
+
+    @Override
+    @JsonIgnore
+    public String getId() {
+        return outboxMessageId;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
+    }
+
+    public String getOutboxMessageId() {
+        return outboxMessageId;
+    }
+
+    public OutboxDestination getDestination() {
+        return destination;
+    }
+
+    public String getDestinationHost() {
+        return destinationHost;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public OutboxMessageStatus getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public OffsetDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public OffsetDateTime getClaimedAt() {
+        return claimedAt;
+    }
+
+    public OffsetDateTime getSentAt() {
+        return sentAt;
+    }
+}
@@ -0,0 +1,68 @@
+package com.vanoma.api.order.outbox;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, String> {
+    List<OutboxMessage> findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(OutboxMessageStatus status,
+                                                                                     OffsetDateTime now,
+                                                                                     Pageable pageable);
+
+    long countByStatus(OutboxMessageStatus status);
+
+    @Query("SELECT MIN(m.createdAt) FROM OutboxMessage m WHERE m.status IN ('PENDING', 'SENDING')")
+    OffsetDateTime findOldestUnsentCreatedAt();
+
+    // Only one node gets 1 for a given pending message
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = 'SENDING', m.claimedAt = :now, m.attempts = m.attempts + 1 " +
+            "WHERE m.outboxMessageId = :outboxMessageId AND m.status = 'PENDING'")
+    int claim(@Param("outboxMessageId") String outboxMessageId, @Param("now") OffsetDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = 'PENDING', m.attempts = m.attempts - 1 " +
+            "WHERE m.outboxMessageId = :outboxMessageId AND m.status = 'SENDING'")
+    int release(@Param("outboxMessageId") String outboxMessageId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = 'SENT', m.sentAt = :now, m.lastError = NULL " +
+            "WHERE m.outboxMessageId = :outboxMessageId AND m.status = 'SENDING'")
+    int markSent(@Param("outboxMessageId") String outboxMessageId, @Param("now") OffsetDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = 'PENDING', m.lastError = :error, m.nextAttemptAt = :nextAttemptAt " +
+            "WHERE m.outboxMessageId = :outboxMessageId AND m.status = 'SENDING'")
+    int reschedule(@Param("outboxMessageId") String outboxMessageId,
+                   @Param("error") String error,
+                   @Param("nextAttemptAt") OffsetDateTime nextAttemptAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = 'FAILED', m.lastError = :error " +
+            "WHERE m.outboxMessageId = :outboxMessageId AND m.status = 'SENDING'")
+    int markFailed(@Param("outboxMessageId") String outboxMessageId, @Param("error") String error);
+
+    // Messages left sending by a node that stopped
+    @Transactional
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.status = 'PENDING' WHERE m.status = 'SENDING' AND m.claimedAt < :claimedBefore")
+    int requeueStale(@Param("claimedBefore") OffsetDateTime claimedBefore);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OutboxMessage m WHERE m.status = 'SENT' AND m.sentAt < :sentBefore")
+    int deleteSentBefore(@Param("sentBefore") OffsetDateTime sentBefore);
+}
@@ -0,0 +1,8 @@
+package com.vanoma.api.order.outbox;
+
+public enum OutboxMessageStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED
+}
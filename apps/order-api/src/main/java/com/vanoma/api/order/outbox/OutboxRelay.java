@@ -0,0 +1,281 @@
+package com.vanoma.api.order.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vanoma.api.order.external.CallbackParams;
+import com.vanoma.api.order.external.ICommunicationApiCaller;
+import com.vanoma.api.order.external.WebPushParams;
+import com.vanoma.api.order.utils.EnvironmentUtils;
+import com.vanoma.api.utils.httpwrapper.HttpResult;
+import com.vanoma.api.utils.input.TimeUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Sends outbox messages. Messages are handed over as soon as their transaction commits, and the dispatcher picks up
+// the rest in batches: retries, messages of nodes that stopped, and messages whose destination was busy. Each
+// destination has its own concurrency limit (callbacks per host) so a slow API user can't hold up SMS. Failures are
+// retried with exponential backoff until OUTBOX_MAX_ATTEMPTS, except client errors which won't get better.
+@Service
+public class OutboxRelay {
+    Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private static final int MAX_ERROR_LENGTH = 1024;
+
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+    @Autowired
+    private ICommunicationApiCaller communicationApiCaller;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private int batchSize;
+    private int maxAttempts;
+    private Duration retryBackoff;
+    private Duration maxBackoff;
+    private Duration lease;
+    private Duration retention;
+    private Map<OutboxDestination, Integer> concurrencyLimits;
+    private final ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+    private TransactionTemplate claimTransaction;
+
+    private volatile long pendingCount;
+    private volatile long lagMillis;
+    private final Map<OutboxDestination, Timer> deliveryTimers = new EnumMap<>(OutboxDestination.class);
+    private final Map<OutboxDestination, Counter> sentCounters = new EnumMap<>(OutboxDestination.class);
+    private final Map<OutboxDestination, Counter> retriedCounters = new EnumMap<>(OutboxDestination.class);
+    private final Map<OutboxDestination, Counter> failedCounters = new EnumMap<>(OutboxDestination.class);
+
+    @PostConstruct
+    public void start() {
+        this.batchSize = EnvironmentUtils.getInt("OUTBOX_BATCH_SIZE", 100);
+        this.maxAttempts = EnvironmentUtils.getInt("OUTBOX_MAX_ATTEMPTS", 8);
+        this.retryBackoff = Duration.ofMillis(EnvironmentUtils.getLong("OUTBOX_RETRY_BACKOFF_MILLIS", 5_000));
+        this.maxBackoff = Duration.ofMillis(EnvironmentUtils.getLong("OUTBOX_MAX_BACKOFF_MILLIS", 600_000));
+        this.lease = Duration.ofSeconds(EnvironmentUtils.getLong("OUTBOX_LEASE_SECONDS", 120));
+        this.retention = Duration.ofHours(EnvironmentUtils.getLong("OUTBOX_RETENTION_HOURS", 72));
+        this.concurrencyLimits = Map.of(
+                OutboxDestination.SMS, EnvironmentUtils.getInt("OUTBOX_SMS_CONCURRENCY", 4),
+                OutboxDestination.WEB_PUSH, EnvironmentUtils.getInt("OUTBOX_WEB_PUSH_CONCURRENCY", 4),
+                OutboxDestination.CALLBACK, EnvironmentUtils.getInt("OUTBOX_CALLBACK_CONCURRENCY", 2)
+        );
+
+        // Messages are claimed from afterCommit callbacks, where the committed transaction is still bound
+        this.claimTransaction = new TransactionTemplate(this.transactionManager);
+        this.claimTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        int threads = EnvironmentUtils.getInt("OUTBOX_THREADS", 8);
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 8), runnable -> {
+                    Thread thread = new Thread(runnable, "outbox-relay");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("outbox.pending", this, relay -> relay.pendingCount)
+                .register(this.meterRegistry);
+        TimeGauge.builder("outbox.lag", this, TimeUnit.MILLISECONDS, relay -> relay.lagMillis)
+                .register(this.meterRegistry);
+        for (OutboxDestination destination : OutboxDestination.values()) {
+            String tag = destination.name();
+            this.deliveryTimers.put(destination, Timer.builder("outbox.delivery").tag("destination", tag)
+                    .register(this.meterRegistry));
+            this.sentCounters.put(destination, Counter.builder("outbox.messages").tag("destination", tag)
+                    .tag("result", "sent").register(this.meterRegistry));
+            this.retriedCounters.put(destination, Counter.builder("outbox.messages").tag("destination", tag)
+                    .tag("result", "retried").register(this.meterRegistry));
+            this.failedCounters.put(destination, Counter.builder("outbox.messages").tag("destination", tag)
+                    .tag("result", "failed").register(this.meterRegistry));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Messages cut short are sent again once their lease expires
+        this.executor.shutdownNow();
+    }
+
+    // Called with the messages of a transaction that just committed
+    public void relay(Collection<OutboxMessage> messages) {
+        try {
+            messages.forEach(this::submit);
+        } catch (RuntimeException ex) {
+            // Still pending, the dispatcher sends them
+            logger.warn("Unable to relay outbox messages", ex);
+        }
+    }
+
+    @Scheduled(fixedDelay = 1_000, initialDelay = 10_000)
+    public void dispatch() {
+        try {
+            OffsetDateTime now = TimeUtils.getUtcNow();
+            this.outboxMessageRepository.requeueStale(now.minus(this.lease));
+
+            List<OutboxMessage> due = this.outboxMessageRepository
+                    .findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAt(
+                            OutboxMessageStatus.PENDING, now, PageRequest.of(0, this.batchSize));
+            due.forEach(this::submit);
+
+            this.pendingCount = this.outboxMessageRepository.countByStatus(OutboxMessageStatus.PENDING);
+            OffsetDateTime oldest = this.outboxMessageRepository.findOldestUnsentCreatedAt();
+            this.lagMillis = oldest == null ? 0 : Math.max(0, Duration.between(oldest, now).toMillis());
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to dispatch outbox messages", ex);
+        }
+    }
+
+    @Scheduled(fixedDelay = 3_600_000, initialDelay = 60_000)
+    public void purgeSent() {
+        try {
+            int purged = this.outboxMessageRepository.deleteSentBefore(TimeUtils.getUtcNow().minus(this.retention));
+            if (purged > 0) logger.info(String.format("Purged %d sent outbox messages", purged));
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to purge sent outbox messages", ex);
+        }
+    }
+
+    private void submit(OutboxMessage message) {
+        Semaphore permit = this.getPermit(message);
+        // Destination busy, the dispatcher tries again later
+        if (!permit.tryAcquire()) return;
+
+        boolean handedOff = false;
+        try {
+            Integer claimed = this.claimTransaction.execute(status ->
+                    this.outboxMessageRepository.claim(message.getOutboxMessageId(), TimeUtils.getUtcNow()));
+            if (claimed == null || claimed == 0) return;
+            try {
+                this.executor.execute(() -> this.deliver(message, permit));
+                handedOff = true;
+            } catch (RejectedExecutionException ex) {
+                this.claimTransaction.executeWithoutResult(status ->
+                        this.outboxMessageRepository.release(message.getOutboxMessageId()));
+            }
+        } finally {
+            if (!handedOff) permit.release();
+        }
+    }
+
+    private Semaphore getPermit(OutboxMessage message) {
+        String key = message.getDestinationHost() == null
+                ? message.getDestination().name()
+                : message.getDestination().name() + " " + message.getDestinationHost();
+        return this.permits.computeIfAbsent(key, k -> new Semaphore(this.concurrencyLimits.get(message.getDestination())));
+    }
+
+    private void deliver(OutboxMessage message, Semaphore permit) {
+        OutboxDestination destination = message.getDestination();
+        int attempt = message.getAttempts() + 1; // Counted by the claim
+        try {
+            HttpResult result;
+            try {
+                result = this.send(message);
+            } catch (RuntimeException ex) {
+                this.handleFailure(message, attempt, ex.toString(), false);
+                return;
+            }
+            if (result != null && result.isSuccess()) {
+                OffsetDateTime now = TimeUtils.getUtcNow();
+                this.outboxMessageRepository.markSent(message.getOutboxMessageId(), now);
+                this.deliveryTimers.get(destination).record(Duration.between(message.getCreatedAt(), now));
+                this.sentCounters.get(destination).increment();
+            } else if (result == null) {
+                this.handleFailure(message, attempt, "No response", false);
+            } else {
+                this.handleFailure(message, attempt, "HTTP " + result.getStatus() + " " + result.getBody(), isClientError(result));
+            }
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to update outbox message " + message.getOutboxMessageId(), ex);
+        } finally {
+            permit.release();
+        }
+    }
+
+    private void handleFailure(OutboxMessage message, int attempt, String error, boolean permanent) {
+        OutboxDestination destination = message.getDestination();
+        String lastError = error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        if (permanent || attempt >= this.maxAttempts) {
+            logger.warn(String.format("Giving up on outbox message %s (%s) after %d attempts: %s",
+                    message.getOutboxMessageId(), destination, attempt, lastError));
+            this.outboxMessageRepository.markFailed(message.getOutboxMessageId(), lastError);
+            this.failedCounters.get(destination).increment();
+            return;
+        }
+        long backoffMillis = Math.min(this.retryBackoff.toMillis() << Math.min(attempt - 1, 16), this.maxBackoff.toMillis());
+        this.outboxMessageRepository.reschedule(message.getOutboxMessageId(), lastError,
+                TimeUtils.getUtcNow().plus(Duration.ofMillis(backoffMillis)));
+        this.retriedCounters.get(destination).increment();
+    }
+
+    private HttpResult send(OutboxMessage message) {
+        Map<String, Object> payload;
+        try {
+            payload = this.objectMapper.readValue(message.getPayload(), new TypeReference<Map<String, Object>>() {});
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+
+        switch (message.getDestination()) {
+            case SMS:
+                return this.communicationApiCaller
+                        .sendSMS((String) payload.get("text"), (String) payload.get("phoneNumber"))
+                        .join();
+            case WEB_PUSH:
+                return this.communicationApiCaller.sendWebPush(this.toWebPushParams(payload)).join();
+            case CALLBACK:
+                return this.communicationApiCaller.sendCallback(this.toCallbackParams(payload)).join();
+            default:
+                throw new IllegalStateException("Unknown outbox destination " + message.getDestination());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private WebPushParams toWebPushParams(Map<String, Object> payload) {
+        return WebPushParams.builder()
+                .heading((String) payload.get("heading"))
+                .message((String) payload.get("message"))
+                .receiverIds((List<String>) payload.get("receiverIds"))
+                .jsonData((Map<String, Object>) payload.get("jsonData"))
+                .metadata((Map<String, String>) payload.get("metadata"))
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private CallbackParams toCallbackParams(Map<String, Object> payload) {
+        return CallbackParams.builder()
+                .callbackUrl((String) payload.get("callbackUrl"))
+                .payload((Map<String, Object>) payload.get("payload"))
+                .build();
+    }
+
+    // Rejected requests are failed right away, timeouts and rate limits are retried
+    private static boolean isClientError(HttpResult result) {
+        int status = result.getStatus();
+        return status >= 400 && status < 500 && status != 408 && status != 429;
+    }
+}
@@ -1,10 +1,12 @@
 package com.vanoma.api.order.packages;
 
 import com.vanoma.api.order.orders.DeliveryOrder;
+import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.time.OffsetDateTime;
+import java.util.List;
 
 public interface IPackageService {
     Page<Package> getPackages(PackageFilter filter, Pageable pageable);
@@ -13,6 +15,8 @@ public interface IPackageService {
 
     Package createPackage(DeliveryOrder order, PackageJson json, PackageStatus status);
 
+    List<Package> createPackages(List<Pair<DeliveryOrder, PackageJson>> orderPackages, PackageStatus status);
+
     Package updatePackage(String packageId, PackageJson packageJson, String authHeader);
 
     Package getPackageByTrackingNumber(String trackingNumber);
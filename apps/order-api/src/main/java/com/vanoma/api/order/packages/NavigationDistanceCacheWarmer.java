@@ -0,0 +1,99 @@
+package com.vanoma.api.order.packages;
+
+import com.vanoma.api.order.contacts.Address;
+import com.vanoma.api.order.contacts.AddressRepository;
+import com.vanoma.api.order.maps.CachingNavigationDistanceApi;
+import com.vanoma.api.order.maps.Coordinates;
+import com.vanoma.api.order.maps.HaversineDistanceEstimator;
+import com.vanoma.api.order.maps.NavigationDistanceCell;
+import com.vanoma.api.order.maps.NavigationDistanceCellRepository;
+import com.vanoma.api.order.utils.EnvironmentUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+public class NavigationDistanceCacheWarmer {
+    Logger logger = LoggerFactory.getLogger(NavigationDistanceCacheWarmer.class);
+
+    @Autowired
+    PackageRepository packageRepository;
+    @Autowired
+    AddressRepository addressRepository;
+    @Autowired
+    NavigationDistanceCellRepository navigationDistanceCellRepository;
+    @Autowired
+    CachingNavigationDistanceApi navigationDistanceCache;
+    @Autowired
+    HaversineDistanceEstimator navigationDistanceEstimator;
+
+    // Loads distances of the most frequent pick-up/drop-off address pairs into the distance cache, and teaches
+    // the fallback estimator from persisted distances, at startup
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        int size = EnvironmentUtils.getInt("MAPS_DISTANCE_CACHE_PREWARM_SIZE", 500);
+        if (size <= 0) return;
+
+        try {
+            List<Pair<Coordinates, Coordinates>> pairs = getMostFrequentPairs(size);
+            boolean fetchMissing = EnvironmentUtils.getBoolean("MAPS_DISTANCE_CACHE_PREWARM_FETCH_MISSING", false);
+            int warmed = this.navigationDistanceCache.prewarm(pairs, fetchMissing);
+            logger.info(String.format("Pre-warmed %d of %d frequent navigation distances", warmed, pairs.size()));
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to pre-warm navigation distances", ex);
+        }
+
+        try {
+            int trainingSize = EnvironmentUtils.getInt("MAPS_DISTANCE_ESTIMATOR_TRAINING_SIZE", 5_000);
+            List<NavigationDistanceCell> cells = this.navigationDistanceCellRepository
+                    .findAll(PageRequest.of(0, trainingSize)).getContent();
+            for (NavigationDistanceCell cell : cells) {
+                Pair<Coordinates, Coordinates> centers = CachingNavigationDistanceApi.getPairCenters(cell.getPairKey());
+                this.navigationDistanceEstimator.learn(centers.getLeft(), centers.getRight(), cell.getDistanceMeters());
+            }
+            logger.info(String.format("Trained distance estimator on %d distances, error %.3f",
+                    cells.size(), this.navigationDistanceEstimator.getMeanAbsolutePercentageError()));
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to train distance estimator", ex);
+        }
+    }
+
+    private List<Pair<Coordinates, Coordinates>> getMostFrequentPairs(int size) {
+        List<Object[]> rows = this.packageRepository.findMostFrequentAddressPairs(PageRequest.of(0, size));
+        Set<String> addressIds = rows.stream()
+                .flatMap(row -> List.of((String) row[0], (String) row[1]).stream())
+                .collect(Collectors.toSet());
+        Map<String, Address> addresses = this.addressRepository.findAllById(addressIds).stream()
+                .collect(Collectors.toMap(Address::getAddressId, Function.identity()));
+
+        List<Pair<Coordinates, Coordinates>> pairs = new ArrayList<>();
+        for (Object[] row : rows) {
+            Address from = addresses.get((String) row[0]);
+            Address to = addresses.get((String) row[1]);
+            if (from == null || to == null || from.getCoordinates() == null || to.getCoordinates() == null) continue;
+            pairs.add(new ImmutablePair<>(getCoordinates(from), getCoordinates(to)));
+        }
+        return pairs;
+    }
+
+    private static Coordinates getCoordinates(Address address) {
+        return new Coordinates()
+                .setLat(address.getLatitude())
+                .setLng(address.getLongitude());
+    }
+}
@@ -5,15 +5,16 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.vanoma.api.order.charges.Charge;
 import com.vanoma.api.order.charges.ChargeStatus;
 import com.vanoma.api.order.charges.ChargeUtils;
+import com.vanoma.api.order.charges.Money;
 import com.vanoma.api.order.contacts.Address;
 import com.vanoma.api.order.contacts.Contact;
 import com.vanoma.api.order.events.EventName;
 import com.vanoma.api.order.events.PackageEvent;
 import com.vanoma.api.order.orders.DeliveryOrder;
 import com.vanoma.api.order.payment.PaymentStatus;
+import com.vanoma.api.order.utils.TimeOrderedId;
 import com.vanoma.api.utils.exceptions.ExpectedServerError;
 import com.vanoma.api.utils.exceptions.InvalidParameterException;
-import com.vanoma.api.utils.input.NumberUtils;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -145,10 +146,10 @@ public class Package {
     public Package() {
     }
 
-    public Package(DeliveryOrder deliveryOrder) {
-        this.packageId = UUID.randomUUID().toString();
+    public Package(DeliveryOrder deliveryOrder, String trackingNumber) {
+        this.packageId = TimeOrderedId.next();
         this.deliveryOrder = deliveryOrder;
-        this.trackingNumber = String.valueOf(NumberUtils.getRandomLongInRange((long) 1e12, (long) 1e13));
+        this.trackingNumber = trackingNumber;
         this.isAssignable = true;
         this.enableNotifications = true;
     }
@@ -407,10 +408,7 @@ public class Package {
             return null;
         }
 
-        return charges
-                .stream()
-                .map(Charge::getTransactionAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return getTransactionMoney().toBigDecimal();
     }
 
     public BigDecimal getTransactionFee() {
@@ -418,7 +416,7 @@ public class Package {
             return null;
         }
 
-        return ChargeUtils.computeTransactionFeeGivenTransactionAmount(getTransactionAmount());
+        return getTransactionMoney().getTransactionFee().toBigDecimal();
     }
 
     public BigDecimal getTotalAmount() {
@@ -426,9 +424,11 @@ public class Package {
             return null;
         }
 
-        BigDecimal transactionAmount = getTransactionAmount();
-        BigDecimal transactionFee = ChargeUtils.computeTransactionFeeGivenTransactionAmount(transactionAmount);
-        return transactionAmount.add(transactionFee);
+        return getTransactionMoney().plusTransactionFee().toBigDecimal();
+    }
+
+    private Money getTransactionMoney() {
+        return ChargeUtils.getTransactionAmount(charges, Set.of());
     }
 
     @JsonIgnore
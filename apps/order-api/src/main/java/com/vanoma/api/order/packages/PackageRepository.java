@@ -3,8 +3,10 @@ package com.vanoma.api.order.packages;
 import com.vanoma.api.order.orders.DeliveryOrder;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,5 +19,17 @@ public interface PackageRepository extends JpaRepository<Package, String>, JpaSp
 
     List<Package> findByDeliveryOrder(DeliveryOrder deliveryOrder);
 
+    // Same as findByDeliveryOrder, with the contacts and addresses fetched in the same query
+    @EntityGraph(attributePaths = {"fromContact", "toContact", "fromAddress", "toAddress"})
+    List<Package> findWithStopsByDeliveryOrder(DeliveryOrder deliveryOrder);
+
     List<Package> findByStatusIn(List<PackageStatus> statuses);
+
+    // Rows of [fromAddressId, toAddressId, count], most frequent first. Placing an order copies its addresses, so
+    // copies are counted under the address they were copied from.
+    @Query(value = "select coalesce(f.parentAddressId, f.addressId), coalesce(t.parentAddressId, t.addressId), count(p) " +
+            "from Package p join p.fromAddress f join p.toAddress t " +
+            "group by coalesce(f.parentAddressId, f.addressId), coalesce(t.parentAddressId, t.addressId) " +
+            "order by count(p) desc")
+    List<Object[]> findMostFrequentAddressPairs(Pageable pageable);
 }
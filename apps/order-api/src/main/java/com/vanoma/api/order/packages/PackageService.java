@@ -20,18 +20,20 @@ import com.vanoma.api.utils.exceptions.ResourceNotFoundException;
 import com.vanoma.api.utils.exceptions.UnauthorizedAccessException;
 import com.vanoma.api.utils.httpwrapper.HttpResult;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Persistable;
 import org.springframework.data.domain.Sort;
 import org.springframework.orm.jpa.JpaObjectRetrievalFailureException;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.EntityNotFoundException;
 import java.time.OffsetDateTime;
-import java.util.List;
-import java.util.Objects;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.vanoma.api.order.utils.AccessValidationUtils.isStaffOrService;
@@ -50,6 +52,8 @@ public class PackageService implements IPackageService {
     private ContactRepository contactRepository;
     @Autowired
     private ContactAddressRepository contactAddressRepository;
+    @Autowired
+    private AddressRepository addressRepository;
 
     @Autowired
     private IContactAddressService contactAddressService;
@@ -57,6 +61,8 @@ public class PackageService implements IPackageService {
     private IBusinessHourService businessHourService;
     @Autowired
     private IPackageEventService packageEventService;
+    @Autowired
+    private TrackingNumberGenerator trackingNumberGenerator;
 
     @Autowired
     private ICommunicationApiCaller communicationApiCaller;
@@ -97,26 +103,108 @@ public class PackageService implements IPackageService {
 
     @Override
     public Package createPackage(DeliveryOrder order, PackageJson json, PackageStatus status) {
-        json.validate();
-        Package pkg = getPackageFromJson(order, json, status);
-        this.businessHourService.validateBusinessHours(pkg, order.getCustomerId());
+        return this.createPackages(List.of(Pair.of(order, json)), status).get(0);
+    }
 
-        if (!OrderUtils.isOrderUpdatable(order.getStatus())) {
-            throw new UnauthorizedAccessException("crud.deliveryOrder.notUpdatable");
+    @Override
+    public List<Package> createPackages(List<Pair<DeliveryOrder, PackageJson>> orderPackages, PackageStatus status) {
+        // All lookups are done before anything is written, so that the inserts of all packages are flushed together
+        // (and batched) rather than on every query. New contacts are shared by packages with the same phone number,
+        // as they would be if the packages were saved one by one.
+        Map<String, Contact> contacts = this.findSavedContactsByPhoneNumber(orderPackages);
+        List<Package> packages = new ArrayList<>();
+        for (Pair<DeliveryOrder, PackageJson> orderPackage : orderPackages) {
+            DeliveryOrder order = orderPackage.getLeft();
+            PackageJson json = orderPackage.getRight();
+            json.validate();
+            Package pkg = getPackageFromJson(order, json, status, contacts);
+            this.businessHourService.validateBusinessHours(pkg, order.getCustomerId());
+
+            if (!OrderUtils.isOrderUpdatable(order.getStatus())) {
+                throw new UnauthorizedAccessException("crud.deliveryOrder.notUpdatable");
+            }
+            packages.add(pkg);
         }
 
         try {
-            pkg = this.packageRepository.save(pkg);
-            this.createContactAddresses(pkg, order.getCustomerId());
-            return pkg;
-        } catch (JpaObjectRetrievalFailureException ex) {
+            List<ContactAddress> contactAddresses = this.getMissingContactAddresses(packages);
+            this.contactRepository.saveAll(getNewEntities(packages, Package::getFromContact, Package::getToContact));
+            this.addressRepository.saveAll(getNewEntities(packages, Package::getFromAddress, Package::getToAddress));
+            List<Package> savedPackages = this.packageRepository.saveAll(packages);
+            this.contactAddressRepository.saveAll(contactAddresses);
+            return savedPackages;
+        } catch (JpaObjectRetrievalFailureException | EntityNotFoundException ex) {
+            // Contacts and addresses referenced by id are lazy, so an unknown id can also surface here
             String entityName = ExceptionUtils.getEntityNameFromEntityNotFoundException(ex.getMessage());
             throw new ResourceNotFoundException("crud." + entityName.toLowerCase() + ".notFound");
         }
     }
 
-    private Package getPackageFromJson(DeliveryOrder order, PackageJson packageJson, PackageStatus status) {
-        Package orderPackage = new Package(order)
+    private Map<String, Contact> findSavedContactsByPhoneNumber(List<Pair<DeliveryOrder, PackageJson>> orderPackages) {
+        Map<String, Set<String>> phoneNumbersByCustomer = new HashMap<>();
+        for (Pair<DeliveryOrder, PackageJson> orderPackage : orderPackages) {
+            Set<String> phoneNumbers = phoneNumbersByCustomer
+                    .computeIfAbsent(orderPackage.getLeft().getCustomerId(), customerId -> new HashSet<>());
+            PackageJson json = orderPackage.getRight();
+            if (json.hasPickUp()) addPhoneNumber(phoneNumbers, json.getFromContact());
+            if (json.hasDropOffContact()) addPhoneNumber(phoneNumbers, json.getToContact());
+        }
+
+        Map<String, Contact> contacts = new HashMap<>();
+        phoneNumbersByCustomer.forEach((customerId, phoneNumbers) -> {
+            if (phoneNumbers.isEmpty()) return;
+            this.contactRepository.findByCustomerIdAndPhoneNumberOneInAndIsSaved(customerId, phoneNumbers, true)
+                    .forEach(contact -> contacts.putIfAbsent(getContactKey(customerId, contact.getPhoneNumberOne()), contact));
+        });
+        return contacts;
+    }
+
+    private static void addPhoneNumber(Set<String> phoneNumbers, ContactJson contactJson) {
+        if (StringUtils.isEmpty(contactJson.getContactId()) && contactJson.getPhoneNumberOne() != null) {
+            phoneNumbers.add(contactJson.getPhoneNumberOne());
+        }
+    }
+
+    private static String getContactKey(String customerId, String phoneNumber) {
+        return customerId + ":" + phoneNumber;
+    }
+
+    private List<ContactAddress> getMissingContactAddresses(List<Package> packages) {
+        Map<String, ContactAddress> contactAddresses = new LinkedHashMap<>();
+        for (Package pkg : packages) {
+            String customerId = pkg.getDeliveryOrder().getCustomerId();
+            this.addMissingContactAddress(contactAddresses, customerId, pkg.getFromContact(), pkg.getFromAddress());
+            this.addMissingContactAddress(contactAddresses, customerId, pkg.getToContact(), pkg.getToAddress());
+        }
+        return new ArrayList<>(contactAddresses.values());
+    }
+
+    private void addMissingContactAddress(Map<String, ContactAddress> contactAddresses, String customerId,
+                                          Contact contact, Address address) {
+        if (contact == null || address == null) return;
+        String key = contact.getContactId() + ":" + address.getAddressId();
+        if (contactAddresses.containsKey(key)) return;
+        // A contact or an address that is not saved yet can't have a ContactAddress either
+        if (!contact.isNew() && !address.isNew()
+                && this.contactAddressService.getFirstContactAddressByContactAndAddress(contact, address) != null) return;
+        contactAddresses.put(key, new ContactAddress(customerId, contact, address));
+    }
+
+    @SafeVarargs
+    private static <T extends Persistable<String>> List<T> getNewEntities(List<Package> packages, Function<Package, T>... getters) {
+        Map<String, T> entities = new LinkedHashMap<>();
+        for (Package pkg : packages) {
+            for (Function<Package, T> getter : getters) {
+                T entity = getter.apply(pkg);
+                if (entity != null && entity.isNew()) entities.putIfAbsent(entity.getId(), entity);
+            }
+        }
+        return new ArrayList<>(entities.values());
+    }
+
+    private Package getPackageFromJson(DeliveryOrder order, PackageJson packageJson, PackageStatus status,
+                                       Map<String, Contact> contacts) {
+        Package orderPackage = new Package(order, this.trackingNumberGenerator.next())
                 .setSize(packageJson.getSize())
                 .setStatus(status)
                 .setPriority(packageJson.getPriority())
@@ -124,8 +212,8 @@ public class PackageService implements IPackageService {
                 .setEventCallback(packageJson.getEventCallback())
                 .setPickUpStart(packageJson.getPickUpStart());
         try {
-            addPickUpStop(order, orderPackage, packageJson);
-            addDropOffStop(order, orderPackage, packageJson);
+            addPickUpStop(order, orderPackage, packageJson, contacts);
+            addDropOffStop(order, orderPackage, packageJson, contacts);
         } catch (JpaObjectRetrievalFailureException ex) {
             String entityName = ExceptionUtils.getEntityNameFromEntityNotFoundException(ex.getMessage());
             throw new ResourceNotFoundException("crud." + entityName.toLowerCase() + ".notFound");
@@ -134,9 +222,10 @@ public class PackageService implements IPackageService {
         return orderPackage;
     }
 
-    private void addPickUpStop(DeliveryOrder order, Package orderPackage, PackageJson packageJson) {
+    private void addPickUpStop(DeliveryOrder order, Package orderPackage, PackageJson packageJson,
+                               Map<String, Contact> contacts) {
         if (packageJson.hasPickUp()) {
-            Contact contact = this.getContactFromContactJson(order.getCustomerId(), packageJson.getFromContact());
+            Contact contact = this.getContactFromContactJson(order.getCustomerId(), packageJson.getFromContact(), contacts);
             orderPackage.setFromContact(contact);
 
             Address address = this.getAddressFromAddressJson(order.getCustomerId(), packageJson.getFromAddress());
@@ -156,6 +245,14 @@ public class PackageService implements IPackageService {
         return Contact.create(customerId, contactJson);
     }
 
+    private Contact getContactFromContactJson(String customerId, ContactJson contactJson, Map<String, Contact> contacts) {
+        if (StringUtils.isNotEmpty(contactJson.getContactId())) {
+            return this.contactRepository.getById(contactJson.getContactId());
+        }
+        return contacts.computeIfAbsent(getContactKey(customerId, contactJson.getPhoneNumberOne()),
+                key -> Contact.create(customerId, contactJson));
+    }
+
     private Address getAddressFromAddressJson(String customerId, AddressJson addressJson) {
         if (StringUtils.isEmpty(addressJson.getAddressId())) {
             return this.contactAddressService.buildAddress(customerId, addressJson);
@@ -163,9 +260,10 @@ public class PackageService implements IPackageService {
         return this.contactAddressService.getAddressById(addressJson.getAddressId());
     }
 
-    private void addDropOffStop(DeliveryOrder order, Package orderPackage, PackageJson packageJson) {
+    private void addDropOffStop(DeliveryOrder order, Package orderPackage, PackageJson packageJson,
+                                Map<String, Contact> contacts) {
         if (packageJson.hasDropOffContact()) {
-            Contact contact = this.getContactFromContactJson(order.getCustomerId(), packageJson.getToContact());
+            Contact contact = this.getContactFromContactJson(order.getCustomerId(), packageJson.getToContact(), contacts);
             orderPackage.setToContact(contact);
         }
         if (packageJson.hasDropOffAddress()) {
@@ -175,25 +273,6 @@ public class PackageService implements IPackageService {
         }
     }
 
-    private void createContactAddresses(Package pkg, String customerId) {
-        if (pkg.getFromContact() != null && pkg.getFromAddress() != null) {
-            ContactAddress contactAddress = this.contactAddressService
-                    .getFirstContactAddressByContactAndAddress(pkg.getFromContact(), pkg.getFromAddress());
-            if (contactAddress == null) {
-                contactAddress = new ContactAddress(customerId, pkg.getFromContact(), pkg.getFromAddress());
-                this.contactAddressRepository.save(contactAddress);
-            }
-        }
-        if (pkg.getToContact() != null && pkg.getToAddress() != null) {
-            ContactAddress contactAddress = this.contactAddressService
-                    .getFirstContactAddressByContactAndAddress(pkg.getToContact(), pkg.getToAddress());
-            if (contactAddress == null) {
-                contactAddress = new ContactAddress(customerId, pkg.getToContact(), pkg.getToAddress());
-                this.contactAddressRepository.save(contactAddress);
-            }
-        }
-    }
-
     @Override
     public Package updatePackage(String packageId, PackageJson packageJson, String authHeader) {
         Package pkg = this.packageRepository.getById(packageId);
@@ -270,7 +349,7 @@ public class PackageService implements IPackageService {
 
     @Override
     public Package duplicatePackage(Package oldPackage, DeliveryOrder newOrder, OffsetDateTime pickUpStart) {
-        Package newPkg = new Package(newOrder)
+        Package newPkg = new Package(newOrder, this.trackingNumberGenerator.next())
                 .setSize(oldPackage.getSize())
                 .setStatus(PackageStatus.STARTED)
                 .setPriority(oldPackage.getPriority())
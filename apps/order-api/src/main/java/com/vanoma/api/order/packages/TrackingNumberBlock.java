@@ -0,0 +1,33 @@
+package com.vanoma.api.order.packages;
+
+import javax.persistence.*;
+import java.time.OffsetDateTime;
+
+// A block of tracking numbers reserved by a node, see TrackingNumberGenerator. The database numbers the blocks.
+@Entity
+@Table(name = "tracking_number_block")
+public class TrackingNumberBlock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "block_number", nullable = false)
+    private Long blockNumber;
+
+    @Column(name = "reserved_at", nullable = false, updatable = false)
+    private OffsetDateTime reservedAt;
+
+    public TrackingNumberBlock() {
+    }
+
+    public TrackingNumberBlock(OffsetDateTime reservedAt) {
+        this.reservedAt = reservedAt;
+    }
+
+    public Long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public OffsetDateTime getReservedAt() {
+        return reservedAt;
+    }
+}
@@ -0,0 +1,8 @@
+package com.vanoma.api.order.packages;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TrackingNumberBlockRepository extends JpaRepository<TrackingNumberBlock, Long> {
+}
@@ -0,0 +1,131 @@
+package com.vanoma.api.order.packages;
+
+import com.vanoma.api.order.utils.KeyedPermutation;
+import com.vanoma.api.utils.input.TimeUtils;
+import lombok.Builder;
+
+import java.io.Closeable;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hands out tracking numbers from blocks of counters reserved in tracking_number_block. The database numbers the
+// blocks, so no two nodes share one and a package can be inserted without first looking up its tracking number.
+// Taking a number from the current block is a single atomic increment. Blocks are reserved ahead of time on a
+// dedicated thread, once the current block is RESERVE_AHEAD_AT used, so callers don't wait on (or need a second
+// database connection for) the reservation, and a reserved block stays reserved when the caller's transaction rolls
+// back.
+//
+// Counters go through a KeyedPermutation so that the numbers of consecutive packages look unrelated. Numbers are
+// 12 digits, which keeps them apart from the random 13 digit numbers of older packages. The key must stay the same
+// across restarts and nodes: changing it (or BLOCK_SIZE) once numbers have been handed out can produce duplicates.
+public class TrackingNumberGenerator implements Closeable {
+    static final long BLOCK_SIZE = 1_000;
+    static final double RESERVE_AHEAD_AT = 0.8;
+    private static final long FIRST_NUMBER = 100_000_000_000L;
+    private static final long NUMBER_COUNT = 900_000_000_000L;
+    private static final long RESERVE_TIMEOUT_SECONDS = 30;
+
+    private final TrackingNumberBlockRepository repository;
+    private final KeyedPermutation permutation;
+    private final ExecutorService reserver = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tracking-number-blocks");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Block block;
+    private CompletableFuture<Block> nextBlock;
+
+    private final AtomicLong reservedBlocks = new AtomicLong();
+
+    @Builder
+    public TrackingNumberGenerator(TrackingNumberBlockRepository repository, String key) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalArgumentException("A tracking number key is required, set TRACKING_NUMBER_KEY");
+        }
+        this.repository = repository;
+        this.permutation = new KeyedPermutation(NUMBER_COUNT, key);
+        this.nextBlock = this.reserveAhead();
+    }
+
+    public String next() {
+        while (true) {
+            Block current = this.block;
+            if (current != null) {
+                long counter = current.next.getAndIncrement();
+                if (counter == current.reserveAheadAt) this.reserveNextBlock(current);
+                if (counter < current.end) {
+                    return String.valueOf(FIRST_NUMBER + this.permutation.apply(counter));
+                }
+            }
+            this.switchBlock(current);
+        }
+    }
+
+    public long getReservedBlockCount() {
+        return this.reservedBlocks.get();
+    }
+
+    @Override
+    public void close() {
+        this.reserver.shutdown();
+        try {
+            this.reserver.awaitTermination(RESERVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void reserveNextBlock(Block from) {
+        // Requested already, or the block was used up before this thread got here
+        if (this.block != from || this.nextBlock != null) return;
+        this.nextBlock = this.reserveAhead();
+    }
+
+    private synchronized void switchBlock(Block usedUp) {
+        // Another thread got here first
+        if (this.block != usedUp) return;
+
+        CompletableFuture<Block> reserved = this.nextBlock != null ? this.nextBlock : this.reserveAhead();
+        // Taken either way, so that a failed reservation is tried again by the next call
+        this.nextBlock = null;
+        try {
+            this.block = reserved.get(RESERVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException ex) {
+            throw new IllegalStateException("Timed out reserving a tracking number block", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reserving a tracking number block", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private CompletableFuture<Block> reserveAhead() {
+        return CompletableFuture.supplyAsync(this::reserve, this.reserver);
+    }
+
+    // Runs on the reserver thread, outside of any caller's transaction
+    private Block reserve() {
+        TrackingNumberBlock reserved = this.repository.save(new TrackingNumberBlock(TimeUtils.getUtcNow()));
+        long start = reserved.getBlockNumber() * BLOCK_SIZE;
+        if (start + BLOCK_SIZE > NUMBER_COUNT) {
+            throw new IllegalStateException("No tracking numbers left, reserved block " + reserved.getBlockNumber());
+        }
+        this.reservedBlocks.incrementAndGet();
+        return new Block(start, start + BLOCK_SIZE);
+    }
+
+    private static class Block {
+        private final AtomicLong next;
+        private final long reserveAheadAt;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.reserveAheadAt = start + (long) ((end - start) * RESERVE_AHEAD_AT);
+            this.end = end;
+        }
+    }
+}
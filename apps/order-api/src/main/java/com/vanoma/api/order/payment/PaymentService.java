@@ -111,6 +111,8 @@ public class PaymentService implements IPaymentService {
                     .collect(Collectors.toList());
             this.discountRepository.saveAll(discounts);
 
+            // Always in the callback, so that a placement failure is returned to the payment provider
+            // rather than left in the order placement queue
             this.orderPlacementWorkflow.placeDeliveryOrder(charges.get(0).getDeliveryOrder());
         }
 
@@ -191,15 +193,15 @@ public class PaymentService implements IPaymentService {
 
         Set<Charge> unpaidCharges = ChargeUtils.getUnpaidCharges(deliveryOrders);
         Set<Discount> pendingDiscounts = DiscountUtils.getPendingDiscount(deliveryOrders);
-        BigDecimal transactionAmount = ChargeUtils.getTransactionAmount(unpaidCharges, pendingDiscounts);
-        BigDecimal transactionFee = ChargeUtils.computeTransactionFeeGivenTransactionAmount(transactionAmount);
+        Money transactionAmount = ChargeUtils.getTransactionAmount(unpaidCharges, pendingDiscounts);
+        Money transactionFee = transactionAmount.getTransactionFee();
 
         return Map.of(
                 "deliveryOrders", deliveryOrders,
                 "totalCount", deliveryOrders.size(),
-                "totalAmount", transactionAmount.add(transactionFee),
-                "transactionAmount", transactionAmount,
-                "transactionFee", transactionFee
+                "totalAmount", transactionAmount.plus(transactionFee).toBigDecimal(),
+                "transactionAmount", transactionAmount.toBigDecimal(),
+                "transactionFee", transactionFee.toBigDecimal()
         );
     }
 
@@ -1,39 +1,39 @@
 package com.vanoma.api.order.payment;
 
-import java.math.BigDecimal;
+import com.vanoma.api.order.charges.Money;
 
 public class TransactionBreakdown {
 
-    private BigDecimal totalAmount;
-    private BigDecimal transactionAmount;
-    private BigDecimal transactionFee;
+    private Money totalAmount;
+    private Money transactionAmount;
+    private Money transactionFee;
 
     public TransactionBreakdown() {
     }
 
-    public BigDecimal getTotalAmount() {
+    public Money getTotalAmount() {
         return totalAmount;
     }
 
-    public TransactionBreakdown setTotalAmount(BigDecimal totalAmount) {
+    public TransactionBreakdown setTotalAmount(Money totalAmount) {
         this.totalAmount = totalAmount;
         return this;
     }
 
-    public BigDecimal getTransactionAmount() {
+    public Money getTransactionAmount() {
         return transactionAmount;
     }
 
-    public TransactionBreakdown setTransactionAmount(BigDecimal transactionAmount) {
+    public TransactionBreakdown setTransactionAmount(Money transactionAmount) {
         this.transactionAmount = transactionAmount;
         return this;
     }
 
-    public BigDecimal getTransactionFee() {
+    public Money getTransactionFee() {
         return transactionFee;
     }
 
-    public TransactionBreakdown setTransactionFee(BigDecimal transactionFee) {
+    public TransactionBreakdown setTransactionFee(Money transactionFee) {
         this.transactionFee = transactionFee;
         return this;
     }
@@ -0,0 +1,68 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.maps.Coordinates;
+import com.vanoma.api.order.maps.KigaliDistrict;
+import com.vanoma.api.order.packages.PackageSize;
+import org.locationtech.jts.geom.Geometry;
+
+import java.time.OffsetDateTime;
+
+// What a PricingBacktest needs of a completed package, read without loading the entities
+public class BacktestPackage {
+    private final String packageId;
+    private final PackageSize size;
+    private final String customerId;
+    private final OffsetDateTime createdAt;
+    private final Coordinates origin;
+    private final KigaliDistrict originDistrict;
+    private final Coordinates destination;
+
+    public BacktestPackage(String packageId, PackageSize size, String customerId, OffsetDateTime createdAt,
+                           Geometry origin, KigaliDistrict originDistrict, Geometry destination) {
+        this.packageId = packageId;
+        this.size = size;
+        this.customerId = customerId;
+        this.createdAt = createdAt;
+        this.origin = getCoordinates(origin);
+        this.originDistrict = originDistrict;
+        this.destination = getCoordinates(destination);
+    }
+
+    // Addresses keep the latitude as x and the longitude as y
+    private static Coordinates getCoordinates(Geometry point) {
+        if (point == null) return null;
+        return new Coordinates().setLat(point.getCoordinate().getX()).setLng(point.getCoordinate().getY());
+    }
+
+    public boolean hasTrip() {
+        return this.origin != null && this.destination != null;
+    }
+
+    public String getPackageId() {
+        return packageId;
+    }
+
+    public PackageSize getSize() {
+        return size;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Coordinates getOrigin() {
+        return origin;
+    }
+
+    public KigaliDistrict getOriginDistrict() {
+        return originDistrict;
+    }
+
+    public Coordinates getDestination() {
+        return destination;
+    }
+}
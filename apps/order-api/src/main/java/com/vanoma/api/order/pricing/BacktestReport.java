@@ -0,0 +1,94 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.charges.Money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Current and repriced delivery fees of a PricingBacktest, in total, per customer and per origin district. Each
+// chunk of packages is repriced into its own report; the reports are then merged. Not thread-safe.
+public class BacktestReport {
+    private final Totals total = new Totals();
+    private final Map<String, Totals> customers = new HashMap<>();
+    private final Map<String, Totals> districts = new HashMap<>();
+    private long skippedPackageCount;
+    private long estimatedDistanceCount;
+
+    public void add(String customerId, String district, Money currentAmount, Money repricedAmount) {
+        this.total.add(1, currentAmount.getMinorUnits(), repricedAmount.getMinorUnits());
+        this.customers.computeIfAbsent(customerId, k -> new Totals())
+                .add(1, currentAmount.getMinorUnits(), repricedAmount.getMinorUnits());
+        this.districts.computeIfAbsent(district, k -> new Totals())
+                .add(1, currentAmount.getMinorUnits(), repricedAmount.getMinorUnits());
+    }
+
+    // Packages without a delivery fee, or without a destination when pricing by distance
+    public void skip() {
+        this.skippedPackageCount++;
+    }
+
+    public void addEstimatedDistances(long count) {
+        this.estimatedDistanceCount += count;
+    }
+
+    public void merge(BacktestReport other) {
+        this.total.merge(other.total);
+        other.customers.forEach((key, totals) -> this.customers.computeIfAbsent(key, k -> new Totals()).merge(totals));
+        other.districts.forEach((key, totals) -> this.districts.computeIfAbsent(key, k -> new Totals()).merge(totals));
+        this.skippedPackageCount += other.skippedPackageCount;
+        this.estimatedDistanceCount += other.estimatedDistanceCount;
+    }
+
+    public long getPackageCount() {
+        return this.total.packageCount;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> customers = new TreeMap<>();
+        this.customers.forEach((key, totals) -> customers.put(key, totals.toMap()));
+        Map<String, Object> districts = new TreeMap<>();
+        this.districts.forEach((key, totals) -> districts.put(key, totals.toMap()));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("total", this.total.toMap());
+        report.put("customers", customers);
+        report.put("districts", districts);
+        report.put("skippedPackageCount", this.skippedPackageCount);
+        report.put("estimatedDistanceCount", this.estimatedDistanceCount);
+        return report;
+    }
+
+    private static class Totals {
+        private long packageCount;
+        private long currentAmount;
+        private long repricedAmount;
+
+        private void add(long packageCount, long currentAmount, long repricedAmount) {
+            this.packageCount += packageCount;
+            this.currentAmount = Math.addExact(this.currentAmount, currentAmount);
+            this.repricedAmount = Math.addExact(this.repricedAmount, repricedAmount);
+        }
+
+        private void merge(Totals other) {
+            this.add(other.packageCount, other.currentAmount, other.repricedAmount);
+        }
+
+        private Map<String, Object> toMap() {
+            Money current = Money.ofMinorUnits(this.currentAmount);
+            Money delta = Money.ofMinorUnits(this.repricedAmount).minus(current);
+            Map<String, Object> totals = new LinkedHashMap<>();
+            totals.put("packageCount", this.packageCount);
+            totals.put("currentAmount", current.toBigDecimal());
+            totals.put("repricedAmount", Money.ofMinorUnits(this.repricedAmount).toBigDecimal());
+            totals.put("delta", delta.toBigDecimal());
+            totals.put("deltaPercentage", current.isZero() ? null : delta.toBigDecimal()
+                    .multiply(BigDecimal.valueOf(100))
+                    .divide(current.toBigDecimal(), 2, RoundingMode.HALF_UP));
+            return totals;
+        }
+    }
+}
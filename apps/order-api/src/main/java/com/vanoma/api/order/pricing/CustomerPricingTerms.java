@@ -0,0 +1,59 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.charges.ChargeUtils;
+import com.vanoma.api.order.customers.Customer;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+// What a customer's delivery fees depend on: prices are multiplied by the weighting factor, unless the customer
+// has a fixed price that hasn't expired.
+public class CustomerPricingTerms {
+    private final String customerId;
+    private final BigDecimal weightingFactor;
+    private final BigDecimal fixedTransactionAmount;
+    private final OffsetDateTime fixedPriceExpiry;
+    private final OffsetDateTime updatedAt;
+
+    private CustomerPricingTerms(Customer customer) {
+        this.customerId = customer.getCustomerId();
+        this.weightingFactor = customer.getWeightingFactor();
+        this.fixedPriceExpiry = customer.getFixedPriceExpiry();
+        this.fixedTransactionAmount = customer.getFixedPriceAmount() == null || customer.getFixedPriceExpiry() == null
+                ? null
+                : ChargeUtils.computeTransactionAmountGivenTotalAmount(customer.getFixedPriceAmount());
+        this.updatedAt = customer.getUpdatedAt();
+    }
+
+    private CustomerPricingTerms(CustomerPricingTerms terms, BigDecimal weightingFactor) {
+        this.customerId = terms.customerId;
+        this.weightingFactor = weightingFactor;
+        this.fixedTransactionAmount = terms.fixedTransactionAmount;
+        this.fixedPriceExpiry = terms.fixedPriceExpiry;
+        this.updatedAt = terms.updatedAt;
+    }
+
+    public static CustomerPricingTerms of(Customer customer) {
+        return new CustomerPricingTerms(customer);
+    }
+
+    // The same terms with another weighting factor, e.g. a candidate one in a PricingBacktest
+    public CustomerPricingTerms withWeightingFactor(BigDecimal weightingFactor) {
+        return new CustomerPricingTerms(this, weightingFactor);
+    }
+
+    public BigDecimal getTransactionAmount(BigDecimal price, OffsetDateTime now) {
+        if (this.fixedTransactionAmount != null && this.fixedPriceExpiry.isAfter(now)) {
+            return this.fixedTransactionAmount;
+        }
+        return price.multiply(this.weightingFactor);
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public OffsetDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,54 @@
+package com.vanoma.api.order.pricing;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+// The distance pricing constants at one point in time. TariffMatrix compares snapshots to notice that
+// PricingConstants changed.
+public class DistanceTariff {
+    private static final double METERS_IN_KILOMETER = 1000.0;
+
+    private final int baselineDeliveryCost;
+    private final int pricePerKilometer;
+    private final int minPrice;
+
+    public DistanceTariff(int baselineDeliveryCost, int pricePerKilometer, int minPrice) {
+        this.baselineDeliveryCost = baselineDeliveryCost;
+        this.pricePerKilometer = pricePerKilometer;
+        this.minPrice = minPrice;
+    }
+
+    public static DistanceTariff current() {
+        return new DistanceTariff(PricingConstants.BASELINE_DELIVERY_COST,
+                PricingConstants.PRICE_PER_KILOMETER,
+                PricingConstants.MIN_PRICE);
+    }
+
+    public BigDecimal getPrice(long navigationDistanceMeters) {
+        double price = this.baselineDeliveryCost +
+                this.pricePerKilometer * (navigationDistanceMeters / METERS_IN_KILOMETER);
+        if (price < this.minPrice) {
+            price = this.minPrice;
+        }
+        return new BigDecimal(price);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof DistanceTariff)) return false;
+        DistanceTariff tariff = (DistanceTariff) other;
+        return baselineDeliveryCost == tariff.baselineDeliveryCost
+                && pricePerKilometer == tariff.pricePerKilometer
+                && minPrice == tariff.minPrice;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(baselineDeliveryCost, pricePerKilometer, minPrice);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DistanceTariff(baseline=%d, perKm=%d, min=%d)", baselineDeliveryCost, pricePerKilometer, minPrice);
+    }
+}
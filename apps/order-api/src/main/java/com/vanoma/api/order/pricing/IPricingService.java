@@ -8,8 +8,12 @@ public interface IPricingService {
 
     Map<String, Object> createDeliveryFees(DeliveryOrder order);
 
+    Map<String, Object> createDeliveryFees(DeliveryOrder order, Quote quote);
+
     Map<String, Object> createDeliveryFees(String deliveryOrderId);
 
+    Map<String, Object> createDeliveryFees(String deliveryOrderId, String quoteToken);
+
     Map<String, Object> getDeliveryPricing(PricingJson pricingJson);
 
     CustomPricing createCustomPricing(String customerId, CustomPricingJson customPricingJson);
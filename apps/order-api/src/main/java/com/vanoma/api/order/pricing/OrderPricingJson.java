@@ -0,0 +1,20 @@
+package com.vanoma.api.order.pricing;
+
+import java.io.Serializable;
+
+public class OrderPricingJson implements Serializable {
+    private String quoteToken;
+
+    public OrderPricingJson() {
+    }
+
+    public String getQuoteToken() {
+        return quoteToken;
+    }
+
+    // Setters for testing
+    public OrderPricingJson setQuoteToken(String quoteToken) {
+        this.quoteToken = quoteToken;
+        return this;
+    }
+}
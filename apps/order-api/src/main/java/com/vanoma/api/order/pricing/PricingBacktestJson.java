@@ -0,0 +1,101 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import com.vanoma.api.utils.input.TimeUtils;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+// A candidate rule set to reprice past orders with. Anything left out keeps its current value: PricingConstants,
+// the pricing mode and the customers' weighting factors. The period defaults to the last year.
+public class PricingBacktestJson implements Serializable {
+    private String from;
+    private String to;
+    // Optional; only the orders of these customers
+    private List<String> customerIds;
+
+    private String pricingMode;
+    private BigDecimal smallPackagePrice;
+    private BigDecimal mediumPackagePrice;
+    private BigDecimal largePackagePrice;
+    private Integer baselineDeliveryCost;
+    private Integer pricePerKilometer;
+    private Integer minPrice;
+    // Weighting factors by customerId
+    private Map<String, BigDecimal> weightingFactors;
+
+    public OffsetDateTime getFrom() {
+        return from == null ? getTo().minusYears(1) : TimeUtils.parseISOString(from);
+    }
+
+    public OffsetDateTime getTo() {
+        return to == null ? TimeUtils.getUtcNow() : TimeUtils.parseISOString(to);
+    }
+
+    public List<String> getCustomerIds() {
+        return customerIds;
+    }
+
+    public String getPricingMode() {
+        return pricingMode;
+    }
+
+    public BigDecimal getSmallPackagePrice() {
+        return smallPackagePrice;
+    }
+
+    public BigDecimal getMediumPackagePrice() {
+        return mediumPackagePrice;
+    }
+
+    public BigDecimal getLargePackagePrice() {
+        return largePackagePrice;
+    }
+
+    public Integer getBaselineDeliveryCost() {
+        return baselineDeliveryCost;
+    }
+
+    public Integer getPricePerKilometer() {
+        return pricePerKilometer;
+    }
+
+    public Integer getMinPrice() {
+        return minPrice;
+    }
+
+    public Map<String, BigDecimal> getWeightingFactors() {
+        return weightingFactors == null ? Map.of() : weightingFactors;
+    }
+
+    public void validate() {
+        if (!this.getFrom().isBefore(this.getTo())) {
+            throw new InvalidParameterException("crud.pricingBacktest.period.invalid");
+        }
+        if (this.pricingMode != null) {
+            try {
+                PricingMode.create(this.pricingMode);
+            } catch (IllegalArgumentException ex) {
+                throw new InvalidParameterException("crud.pricingBacktest.pricingMode.invalid");
+            }
+        }
+        for (BigDecimal price : new BigDecimal[]{smallPackagePrice, mediumPackagePrice, largePackagePrice}) {
+            if (price != null && price.signum() < 0) {
+                throw new InvalidParameterException("crud.pricingBacktest.price.invalid");
+            }
+        }
+        for (Integer price : new Integer[]{baselineDeliveryCost, pricePerKilometer, minPrice}) {
+            if (price != null && price < 0) {
+                throw new InvalidParameterException("crud.pricingBacktest.price.invalid");
+            }
+        }
+        for (BigDecimal weightingFactor : this.getWeightingFactors().values()) {
+            if (weightingFactor == null || weightingFactor.signum() <= 0) {
+                throw new InvalidParameterException("crud.pricingBacktest.weightingFactor.invalid");
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.packages.Package;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+// Read-only queries of PricingBacktestService. Completed packages are read in packageId order, a chunk at a time,
+// each chunk starting after the last packageId of the previous one.
+@Repository
+public interface PricingBacktestRepository extends org.springframework.data.repository.Repository<Package, String> {
+    String SELECT_COMPLETED_PACKAGES = "select new com.vanoma.api.order.pricing.BacktestPackage(" +
+            "p.packageId, p.size, o.customer.customerId, p.createdAt, " +
+            "fa.coordinates, fa.district, ta.coordinates) " +
+            "from Package p join p.deliveryOrder o join p.fromAddress fa left join p.toAddress ta " +
+            "where p.status = com.vanoma.api.order.packages.PackageStatus.COMPLETE " +
+            "and p.createdAt >= :from and p.createdAt < :to and p.packageId > :after ";
+
+    @Query(SELECT_COMPLETED_PACKAGES + "order by p.packageId")
+    List<BacktestPackage> findCompletedPackages(@Param("from") OffsetDateTime from,
+                                                @Param("to") OffsetDateTime to,
+                                                @Param("after") String after,
+                                                Pageable pageable);
+
+    @Query(SELECT_COMPLETED_PACKAGES + "and o.customer.customerId in :customerIds order by p.packageId")
+    List<BacktestPackage> findCompletedPackages(@Param("from") OffsetDateTime from,
+                                                @Param("to") OffsetDateTime to,
+                                                @Param("customerIds") Collection<String> customerIds,
+                                                @Param("after") String after,
+                                                Pageable pageable);
+
+    // Rows of [packageId, transactionAmount] of the delivery fees of the packages
+    @Query("select c.pkg.packageId, c.transactionAmount from Charge c " +
+            "where c.type = com.vanoma.api.order.charges.ChargeType.DELIVERY_FEE and c.pkg.packageId in :packageIds")
+    List<Object[]> findDeliveryFees(@Param("packageIds") Collection<String> packageIds);
+}
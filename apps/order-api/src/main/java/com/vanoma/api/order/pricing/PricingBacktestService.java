@@ -0,0 +1,190 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.charges.Money;
+import com.vanoma.api.order.customers.Customer;
+import com.vanoma.api.order.customers.CustomerRepository;
+import com.vanoma.api.order.maps.CachingNavigationDistanceApi;
+import com.vanoma.api.order.maps.Coordinates;
+import com.vanoma.api.order.maps.HaversineDistanceEstimator;
+import com.vanoma.api.order.maps.INavigationDistanceApi;
+import com.vanoma.api.order.maps.KigaliDistrict;
+import com.vanoma.api.order.maps.KigaliDistrictResolver;
+import com.vanoma.api.order.utils.EnvironmentUtils;
+import com.vanoma.api.utils.exceptions.ExpectedServerError;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+// Reprices completed orders under a candidate rule set, to tell the revenue impact of a PricingConstants or
+// weighting factor change before making it. Packages are read in chunks and every chunk is repriced on a fork-join
+// pool while the next one is read; at most two chunks per thread are in memory at once, whatever the period. Only
+// the database is used: distances come from the navigation distance cache (in memory or persisted) and are
+// estimated locally where unknown, so that a backtest can run against a database snapshot.
+@Repository
+public class PricingBacktestService {
+    Logger logger = LoggerFactory.getLogger(PricingBacktestService.class);
+
+    private static final String UNKNOWN_DISTRICT = "UNKNOWN";
+
+    @Autowired
+    private PricingBacktestRepository backtestRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private CachingNavigationDistanceApi navigationDistanceCache;
+    @Autowired
+    private HaversineDistanceEstimator navigationDistanceEstimator;
+    @Autowired
+    private KigaliDistrictResolver districtResolver;
+    @Autowired
+    private PricingMode pricingMode;
+
+    public Map<String, Object> run(PricingBacktestJson backtestJson) {
+        backtestJson.validate();
+        RepricingRules rules = RepricingRules.of(backtestJson, this.pricingMode);
+        OffsetDateTime from = backtestJson.getFrom();
+        OffsetDateTime to = backtestJson.getTo();
+        List<String> customerIds = backtestJson.getCustomerIds();
+        int chunkSize = EnvironmentUtils.getInt("PRICING_BACKTEST_CHUNK_SIZE", 2_000);
+        int parallelism = EnvironmentUtils.getInt("PRICING_BACKTEST_PARALLELISM", Runtime.getRuntime().availableProcessors());
+        long startedAt = System.currentTimeMillis();
+
+        BacktestReport report = new BacktestReport();
+        Map<String, CustomerPricingTerms> customers = new ConcurrentHashMap<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        int maxInFlight = parallelism * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        // Chunks are not kept once submitted, so a failed chunk is only known through this.
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        try {
+            String after = "";
+            List<BacktestPackage> chunk;
+            do {
+                PageRequest page = PageRequest.of(0, chunkSize);
+                chunk = customerIds == null || customerIds.isEmpty()
+                        ? this.backtestRepository.findCompletedPackages(from, to, after, page)
+                        : this.backtestRepository.findCompletedPackages(from, to, customerIds, after, page);
+                if (chunk.isEmpty()) break;
+                after = chunk.get(chunk.size() - 1).getPackageId();
+
+                inFlight.acquire();
+                List<BacktestPackage> packages = chunk;
+                pool.execute(() -> {
+                    try {
+                        BacktestReport chunkReport = this.reprice(packages, rules, customers);
+                        synchronized (report) {
+                            report.merge(chunkReport);
+                        }
+                    } catch (RuntimeException ex) {
+                        if (!failure.compareAndSet(null, ex)) failure.get().addSuppressed(ex);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } while (chunk.size() == chunkSize && failure.get() == null);
+            // Every permit is back once the last chunk is repriced
+            inFlight.acquire(maxInFlight);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ExpectedServerError("crud.pricingBacktest.interrupted");
+        } finally {
+            pool.shutdownNow();
+        }
+        if (failure.get() != null) throw failure.get();
+
+        long elapsedMillis = System.currentTimeMillis() - startedAt;
+        logger.info(String.format("Repriced %d packages in %d ms", report.getPackageCount(), elapsedMillis));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("from", from.toString());
+        result.put("to", to.toString());
+        result.putAll(report.toMap());
+        result.put("elapsedMillis", elapsedMillis);
+        return result;
+    }
+
+    private BacktestReport reprice(List<BacktestPackage> packages, RepricingRules rules,
+                                   Map<String, CustomerPricingTerms> customers) {
+        BacktestReport report = new BacktestReport();
+        Map<String, Money> deliveryFees = this.getDeliveryFees(packages);
+        this.loadCustomers(packages, customers);
+        long[] distances = rules.isDistancePricing() ? this.getDistances(packages, report) : null;
+
+        for (int i = 0; i < packages.size(); i++) {
+            BacktestPackage pkg = packages.get(i);
+            Money currentAmount = deliveryFees.get(pkg.getPackageId());
+            CustomerPricingTerms terms = customers.get(pkg.getCustomerId());
+            long distance = distances == null ? 0 : distances[i];
+            if (currentAmount == null || terms == null || distance == INavigationDistanceApi.DISTANCE_NOT_FOUND) {
+                report.skip();
+                continue;
+            }
+            BigDecimal price = rules.getPrice(pkg.getSize(), distance);
+            Money repricedAmount = Money.of(rules.getTerms(terms).getTransactionAmount(price, pkg.getCreatedAt()));
+            report.add(pkg.getCustomerId(), this.getDistrict(pkg), currentAmount, repricedAmount);
+        }
+        return report;
+    }
+
+    private Map<String, Money> getDeliveryFees(List<BacktestPackage> packages) {
+        List<String> packageIds = packages.stream().map(BacktestPackage::getPackageId).collect(Collectors.toList());
+        Map<String, Money> deliveryFees = new HashMap<>();
+        for (Object[] row : this.backtestRepository.findDeliveryFees(packageIds)) {
+            deliveryFees.merge((String) row[0], (Money) row[1], Money::plus);
+        }
+        return deliveryFees;
+    }
+
+    private void loadCustomers(List<BacktestPackage> packages, Map<String, CustomerPricingTerms> customers) {
+        Set<String> missing = packages.stream()
+                .map(BacktestPackage::getCustomerId)
+                .filter(customerId -> !customers.containsKey(customerId))
+                .collect(Collectors.toSet());
+        if (missing.isEmpty()) return;
+        for (Customer customer : this.customerRepository.findAllById(missing)) {
+            customers.putIfAbsent(customer.getCustomerId(), CustomerPricingTerms.of(customer));
+        }
+    }
+
+    // Known navigation distances of the packages, in order, estimated where unknown. DISTANCE_NOT_FOUND for
+    // packages without a destination.
+    private long[] getDistances(List<BacktestPackage> packages, BacktestReport report) {
+        List<Integer> indexes = new ArrayList<>();
+        List<Pair<Coordinates, Coordinates>> trips = new ArrayList<>();
+        for (int i = 0; i < packages.size(); i++) {
+            if (!packages.get(i).hasTrip()) continue;
+            indexes.add(i);
+            trips.add(Pair.of(packages.get(i).getOrigin(), packages.get(i).getDestination()));
+        }
+
+        long[] distances = new long[packages.size()];
+        Arrays.fill(distances, INavigationDistanceApi.DISTANCE_NOT_FOUND);
+        long[] known = this.navigationDistanceCache.findKnownDistances(trips);
+        long estimated = 0;
+        for (int i = 0; i < known.length; i++) {
+            if (known[i] == INavigationDistanceApi.DISTANCE_NOT_FOUND) {
+                known[i] = this.navigationDistanceEstimator.getNavigationDistance(trips.get(i).getLeft(), trips.get(i).getRight());
+                estimated++;
+            }
+            distances[indexes.get(i)] = known[i];
+        }
+        report.addEstimatedDistances(estimated);
+        return distances;
+    }
+
+    private String getDistrict(BacktestPackage pkg) {
+        if (pkg.getOriginDistrict() != null) return pkg.getOriginDistrict().name();
+        return this.districtResolver.resolve(pkg.getOrigin()).map(KigaliDistrict::name).orElse(UNKNOWN_DISTRICT);
+    }
+}
@@ -16,6 +16,8 @@ public class PricingController {
     private CustomPricingRepository customPricingRepository;
     @Autowired
     private IPricingService pricingService;
+    @Autowired
+    private PricingBacktestService pricingBacktestService;
 
     @PostMappingJson(value = "/delivery-pricing")
     public ResponseEntity<Map<String, Object>> getDeliveryPricing(@RequestBody PricingJson pricingJson) {
@@ -23,7 +25,14 @@ public class PricingController {
     }
 
     @PostMapping(value = "/delivery-orders/{deliveryOrderId}/pricing")
-    public ResponseEntity<Map<String, Object>> getPricingForOrder(@PathVariable String deliveryOrderId) {
-        return ResponseEntity.ok(this.pricingService.createDeliveryFees(deliveryOrderId));
+    public ResponseEntity<Map<String, Object>> getPricingForOrder(@PathVariable String deliveryOrderId,
+                                                                  @RequestBody(required = false) OrderPricingJson orderPricingJson) {
+        String quoteToken = orderPricingJson == null ? null : orderPricingJson.getQuoteToken();
+        return ResponseEntity.ok(this.pricingService.createDeliveryFees(deliveryOrderId, quoteToken));
+    }
+
+    @PostMappingJson(value = "/pricing-backtests")
+    public ResponseEntity<Map<String, Object>> runPricingBacktest(@RequestBody PricingBacktestJson pricingBacktestJson) {
+        return ResponseEntity.ok(this.pricingBacktestService.run(pricingBacktestJson));
     }
 }
@@ -5,12 +5,18 @@ import java.util.List;
 
 public class PricingJson implements Serializable {
     private String deliveryOrderId;
+    // Optional; quotes with the customer's weighting factor or fixed price when given
+    private String customerId;
     private List<PricingItemJson> packages;
 
     public String getDeliveryOrderId() {
         return deliveryOrderId;
     }
 
+    public String getCustomerId() {
+        return customerId;
+    }
+
     public List<PricingItemJson> getPackages() {
         return packages;
     }
@@ -21,6 +27,11 @@ public class PricingJson implements Serializable {
         return this;
     }
 
+    public PricingJson setCustomerId(String customerId) {
+        this.customerId = customerId;
+        return this;
+    }
+
     public PricingJson setPackages(List<PricingItemJson> packages) {
         this.packages = packages;
         return this;
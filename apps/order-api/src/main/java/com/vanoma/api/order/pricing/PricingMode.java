@@ -0,0 +1,13 @@
+package com.vanoma.api.order.pricing;
+
+public enum PricingMode {
+    // Fixed price per package size
+    FLAT,
+    // Baseline plus a price per navigation kilometer, see DistanceTariff
+    DISTANCE;
+
+    public static PricingMode create(String mode) {
+        if (mode == null) return FLAT;
+        return PricingMode.valueOf(mode.trim().toUpperCase());
+    }
+}
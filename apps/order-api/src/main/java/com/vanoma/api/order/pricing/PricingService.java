@@ -4,9 +4,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vanoma.api.order.charges.*;
 import com.vanoma.api.order.contacts.Address;
 import com.vanoma.api.order.customers.Customer;
+import com.vanoma.api.order.customers.CustomerRepository;
 import com.vanoma.api.order.maps.Coordinates;
-import com.vanoma.api.order.maps.IGeocodingService;
-import com.vanoma.api.order.maps.INavigationDistanceApi;
+import com.vanoma.api.order.maps.GeocodingFanOut;
+import com.vanoma.api.order.maps.KigaliDistrict;
+import com.vanoma.api.order.maps.KigaliDistrictResolver;
 import com.vanoma.api.order.orders.*;
 import com.vanoma.api.order.packages.Package;
 import com.vanoma.api.order.packages.PackageRepository;
@@ -14,13 +16,19 @@ import com.vanoma.api.order.packages.PackageSize;
 import com.vanoma.api.order.packages.PackageUtils;
 import com.vanoma.api.order.payment.IPaymentService;
 import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import com.vanoma.api.utils.exceptions.ResourceNotFoundException;
+import com.vanoma.api.utils.httpwrapper.HttpResult;
 import com.vanoma.api.utils.input.CoordinatesJson;
+import com.vanoma.api.utils.input.TimeUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -44,9 +52,19 @@ public class PricingService implements IPricingService {
     @Autowired
     private ObjectMapper objectMapper;
     @Autowired
-    private IGeocodingService geocodingService;
+    private TariffMatrix tariffMatrix;
     @Autowired
-    private INavigationDistanceApi distanceApi;
+    private PricingMode pricingMode;
+    @Autowired
+    private QuoteEngine quoteEngine;
+    @Autowired
+    private QuoteTokenCodec quoteTokenCodec;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private KigaliDistrictResolver districtResolver;
+    @Autowired
+    private GeocodingFanOut geocodingFanOut;
 
     @Override
     public CustomPricing createCustomPricing(String customerId, CustomPricingJson customPricingJson) {
@@ -59,21 +77,68 @@ public class PricingService implements IPricingService {
     }
 
     @Override
+    @Transactional
     public Map<String, Object> createDeliveryFees(String deliveryOrderId) {
         return createDeliveryFees(this.orderRepository.getById(deliveryOrderId));
     }
 
     @Override
+    @Transactional
+    public Map<String, Object> createDeliveryFees(String deliveryOrderId, String quoteToken) {
+        return createDeliveryFees(this.orderRepository.getById(deliveryOrderId), this.quoteTokenCodec.decode(quoteToken).orElse(null));
+    }
+
+    @Override
+    @Transactional
     public Map<String, Object> createDeliveryFees(DeliveryOrder order) {
-        List<Package> packages = this.packageRepository.findByDeliveryOrder(order);
+        return createDeliveryFees(order, null);
+    }
+
+    // A fixed number of statements whatever the number of packages: one query for the packages, one for their
+    // delivery fees and a batch for each of the created and updated fees. Packages found in the quote, if any, keep
+    // their quoted price; customer terms are applied as they are now.
+    @Override
+    @Transactional
+    public Map<String, Object> createDeliveryFees(DeliveryOrder order, Quote quote) {
+        List<Package> packages = this.packageRepository.findWithStopsByDeliveryOrder(order);
         PackageUtils.validateDeliveryOrderPackages(packages);
 
         BigDecimal weightingFactor = order.getCustomer().getWeightingFactor();
         BigDecimal customDeliveryPrice = this.getCustomDeliveryPrice(order.getCustomer());
 
-        BigDecimal transactionAmount = packages.stream()
-                .map(pkg -> createDeliveryFee(pkg, customDeliveryPrice, weightingFactor))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        List<BigDecimal> prices = quote != null && quote.isUsableBy(order.getCustomerId())
+                ? this.getPricesForPackages(packages, quote)
+                : this.getPricesForPackages(packages);
+        Map<String, Charge> deliveryFees = new HashMap<>();
+        for (Charge charge : this.chargeRepository.findByDeliveryOrderAndType(order, ChargeType.DELIVERY_FEE)) {
+            deliveryFees.putIfAbsent(charge.getPackageId(), charge);
+        }
+
+        BigDecimal transactionAmount = BigDecimal.ZERO;
+        List<Charge> changedFees = new ArrayList<>();
+        for (int i = 0; i < packages.size(); i++) {
+            Package pkg = packages.get(i);
+            BigDecimal actualTransactionAmount = prices.get(i).multiply(weightingFactor);
+            BigDecimal packageAmount = customDeliveryPrice == null ? actualTransactionAmount : customDeliveryPrice;
+            transactionAmount = transactionAmount.add(packageAmount);
+
+            Charge charge = deliveryFees.get(pkg.getPackageId());
+            if (charge == null) {
+                charge = new Charge(pkg)
+                        .setType(ChargeType.DELIVERY_FEE)
+                        .setStatus(ChargeStatus.UNPAID)
+                        .setDescription("Delivery fee");
+            } else if (isSameAmount(charge.getTransactionAmount(), packageAmount)
+                    && isSameAmount(charge.getActualTransactionAmount(), actualTransactionAmount)) {
+                continue;
+            }
+            charge
+                    .setTransactionAmount(packageAmount)
+                    .setActualTransactionAmount(actualTransactionAmount);
+            changedFees.add(charge);
+        }
+        this.chargeRepository.saveAll(changedFees);
+
         BigDecimal transactionFee = ChargeUtils.computeTransactionFeeGivenTransactionAmount(transactionAmount);
         BigDecimal totalAmount = transactionAmount.add(transactionFee);
 
@@ -87,61 +152,116 @@ public class PricingService implements IPricingService {
 
     @Override
     public Map<String, Object> getDeliveryPricing(PricingJson pricingJson) {
-        this.validateLocationsAreValid(pricingJson);
+        Quote quote = this.quoteEngine.quote(pricingJson).orElseGet(() -> this.computeQuote(pricingJson));
+        Map<String, Object> pricing = new HashMap<>(quote.getAmounts());
+        pricing.put("quoteToken", this.quoteTokenCodec.encode(quote));
+        return pricing;
+    }
+
+    private Quote computeQuote(PricingJson pricingJson) {
+        List<String> districts = this.validateLocationsAreValid(pricingJson);
 
-        BigDecimal transactionAmount = BigDecimal.ZERO;
         for (PricingItemJson item : pricingJson.getPackages()) {
             if (!item.hasSize()) throw new InvalidParameterException("crud.pricingJson.size.required");
+        }
 
-            BigDecimal deliveryPrice = getPriceForPackage(item.getSize());
-            transactionAmount = transactionAmount.add(deliveryPrice);
+        List<BigDecimal> deliveryPrices = this.pricingMode == PricingMode.DISTANCE
+                ? computeDeliveryPrices(pricingJson.getPackages())
+                : pricingJson.getPackages().stream().map(item -> getPriceForPackage(item.getSize())).collect(Collectors.toList());
+        List<BigDecimal> transactionAmounts = deliveryPrices;
+        if (pricingJson.getCustomerId() != null) {
+            Customer customer = this.customerRepository.findById(pricingJson.getCustomerId())
+                    .orElseThrow(() -> new ResourceNotFoundException("crud.customer.notFound"));
+            CustomerPricingTerms terms = CustomerPricingTerms.of(customer);
+            this.quoteEngine.putCustomer(terms);
+            OffsetDateTime now = TimeUtils.getUtcNow();
+            transactionAmounts = deliveryPrices.stream()
+                    .map(price -> terms.getTransactionAmount(price, now))
+                    .collect(Collectors.toList());
         }
+        BigDecimal transactionAmount = transactionAmounts.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
 
-        BigDecimal transactionFee = ChargeUtils.computeTransactionFeeGivenTransactionAmount(transactionAmount);
-        return Map.of(
-                "transactionFee", ChargeUtils.roundBigDecimal(transactionFee),
-                "transactionAmount", ChargeUtils.roundBigDecimal(transactionAmount),
-                "totalAmount", ChargeUtils.roundBigDecimal(transactionAmount.add(transactionFee))
-        );
+        List<QuotedPackage> packages = new ArrayList<>();
+        for (int i = 0; i < pricingJson.getPackages().size(); i++) {
+            PricingItemJson item = pricingJson.getPackages().get(i);
+            packages.add(new QuotedPackage(getCoordinates(item.getOrigin()), districts.get(2 * i),
+                    getCoordinates(item.getDestination()), districts.get(2 * i + 1), item.getSize(), deliveryPrices.get(i)));
+        }
+        return new Quote(pricingJson.getCustomerId(), packages, transactionAmount);
     }
 
-    private BigDecimal getPriceForPackage(PackageSize size) {
+    static BigDecimal getPriceForPackage(PackageSize size) {
         if (size == PackageSize.SMALL) return PricingConstants.SMALL_PACKAGE_PRICE;
         if (size == PackageSize.MEDIUM) return PricingConstants.MEDIUM_PACKAGE_PRICE;
         return PricingConstants.LARGE_PACKAGE_PRICE;
     }
 
-    private BigDecimal createDeliveryFee(Package pkg, BigDecimal customDeliveryPrice, BigDecimal weightingFactor) {
-        BigDecimal rawTransactionAmount = getPriceForPackage(pkg.getSize());
-        BigDecimal actualTransactionAmount = rawTransactionAmount.multiply(weightingFactor);
-
-        BigDecimal transactionAmount = customDeliveryPrice == null ? actualTransactionAmount : customDeliveryPrice;
+    private List<BigDecimal> getPricesForPackages(List<Package> packages) {
+        if (this.pricingMode != PricingMode.DISTANCE) {
+            return packages.stream().map(pkg -> getPriceForPackage(pkg.getSize())).collect(Collectors.toList());
+        }
+        List<Pair<Coordinates, Coordinates>> trips = packages.stream()
+                .map(pkg -> Pair.of(getCoordinates(pkg.getFromAddress()), getCoordinates(pkg.getToAddress())))
+                .collect(Collectors.toList());
+        return this.tariffMatrix.getPrices(trips);
+    }
 
-        Charge charge = this.chargeRepository.findFirstByPkgAndType(pkg, ChargeType.DELIVERY_FEE);
-        if (charge == null) {
-            charge = new Charge(pkg)
-                    .setType(ChargeType.DELIVERY_FEE)
-                    .setStatus(ChargeStatus.UNPAID)
-                    .setDescription("Delivery fee");
+    private List<BigDecimal> getPricesForPackages(List<Package> packages, Quote quote) {
+        // Only the packages missing from the quote are priced
+        List<BigDecimal> prices = new ArrayList<>(Collections.nCopies(packages.size(), null));
+        List<Integer> unquoted = new ArrayList<>();
+        for (int i = 0; i < packages.size(); i++) {
+            Package pkg = packages.get(i);
+            Optional<QuotedPackage> quoted = quote.findPackage(getCoordinates(pkg.getFromAddress()),
+                    getCoordinates(pkg.getToAddress()), pkg.getSize());
+            if (quoted.isPresent()) {
+                prices.set(i, quoted.get().getPrice());
+            } else {
+                unquoted.add(i);
+            }
         }
+        if (unquoted.isEmpty()) return prices;
 
-        charge
-                .setTransactionAmount(transactionAmount)
-                .setActualTransactionAmount(actualTransactionAmount);
+        List<BigDecimal> unquotedPrices = this.getPricesForPackages(unquoted.stream()
+                .map(packages::get)
+                .collect(Collectors.toList()));
+        for (int i = 0; i < unquoted.size(); i++) {
+            prices.set(unquoted.get(i), unquotedPrices.get(i));
+        }
+        return prices;
+    }
 
-        this.chargeRepository.save(charge);
-        return transactionAmount;
+    private static boolean isSameAmount(BigDecimal current, BigDecimal computed) {
+        // Amounts are stored with 2 decimals
+        return current != null && current.compareTo(computed.setScale(2, RoundingMode.HALF_UP)) == 0;
     }
 
-    private void validateLocationsAreValid(PricingJson pricingJson) {
-        // throws InvalidDataParameter if coordinates are outside covered areas
+    private List<String> validateLocationsAreValid(PricingJson pricingJson) {
+        // throws InvalidDataParameter if coordinates are outside covered areas. Points inside a known district are
+        // covered. Anything else goes to the maps API (concurrently), which throws the appropriate
+        // outOfRwanda/outOfKigali error. Returns the district of the origin and destination of every package, in
+        // order, or null where the maps API didn't tell.
+        List<String> districts = new ArrayList<>();
+        List<Integer> unresolvedIndexes = new ArrayList<>();
+        List<Coordinates> unresolved = new ArrayList<>();
         for (PricingItemJson item : pricingJson.getPackages()) {
-            Coordinates origin = getCoordinates(item.getOrigin());
-            this.geocodingService.reverseGeocode(origin);
-
-            Coordinates destination = getCoordinates(item.getDestination());
-            this.geocodingService.reverseGeocode(destination);
+            for (Coordinates coordinates : List.of(getCoordinates(item.getOrigin()), getCoordinates(item.getDestination()))) {
+                Optional<KigaliDistrict> district = this.districtResolver.resolve(coordinates);
+                if (district.isEmpty()) {
+                    unresolvedIndexes.add(districts.size());
+                    unresolved.add(coordinates);
+                }
+                districts.add(district.map(KigaliDistrict::name).orElse(null));
+            }
         }
+        List<GeocodingFanOut.Result> results = this.geocodingFanOut.reverseGeocodeAll(unresolved);
+        for (int i = 0; i < results.size(); i++) {
+            HttpResult result = results.get(i).get();
+            if (result != null && result.isSuccess() && result.getBody() != null) {
+                districts.set(unresolvedIndexes.get(i), (String) result.getBody().get("district"));
+            }
+        }
+        return districts;
     }
 
     private BigDecimal getCustomDeliveryPrice(Customer customer) {
@@ -152,20 +272,23 @@ public class PricingService implements IPricingService {
         return ChargeUtils.computeTransactionAmountGivenTotalAmount(customer.getFixedPriceAmount());
     }
 
-    private BigDecimal computeDeliveryPrice(Coordinates origin, Coordinates destination) {
-        long navigationDistanceMeters = this.distanceApi.getNavigationDistance(origin, destination);
-        double metersInKilometer = 1000.0;
-        double price = PricingConstants.BASELINE_DELIVERY_COST +
-                PricingConstants.PRICE_PER_KILOMETER * (navigationDistanceMeters / metersInKilometer);
-        if (price < PricingConstants.MIN_PRICE) {
-            price = PricingConstants.MIN_PRICE;
-        }
-        return new BigDecimal(price);
+    private List<BigDecimal> computeDeliveryPrices(List<PricingItemJson> items) {
+        // Known trips are priced from the tariff matrix; the rest in a single distance matrix request.
+        List<Pair<Coordinates, Coordinates>> trips = items.stream()
+                .map(item -> Pair.of(getCoordinates(item.getOrigin()), getCoordinates(item.getDestination())))
+                .collect(Collectors.toList());
+        return this.tariffMatrix.getPrices(trips);
     }
-    
+
     private Coordinates getCoordinates(CoordinatesJson json) {
         return new Coordinates()
                 .setLat(json.getLatitude())
                 .setLng(json.getLongitude());
     }
+
+    private static Coordinates getCoordinates(Address address) {
+        return new Coordinates()
+                .setLat(address.getLatitude())
+                .setLng(address.getLongitude());
+    }
 }
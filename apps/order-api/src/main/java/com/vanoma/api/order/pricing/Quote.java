@@ -0,0 +1,60 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.charges.ChargeUtils;
+import com.vanoma.api.order.maps.Coordinates;
+import com.vanoma.api.order.packages.PackageSize;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// A delivery pricing quote: the quoted packages and the amount to pay for them, customer terms included. Quotes are
+// handed out as signed tokens (see QuoteTokenCodec) so that order creation can reuse them.
+public class Quote {
+
+    private final String customerId;
+    private final List<QuotedPackage> packages;
+    private final BigDecimal transactionAmount;
+
+    private final Map<String, QuotedPackage> packagesByKey = new HashMap<>();
+
+    public Quote(String customerId, List<QuotedPackage> packages, BigDecimal transactionAmount) {
+        this.customerId = customerId;
+        this.packages = packages;
+        this.transactionAmount = transactionAmount;
+        packages.forEach(pkg -> this.packagesByKey.putIfAbsent(pkg.getKey(), pkg));
+    }
+
+    // Whether the quote can be used for an order of the customer. Quotes without a customer hold no customer terms.
+    public boolean isUsableBy(String customerId) {
+        return this.customerId == null || this.customerId.equals(customerId);
+    }
+
+    public Optional<QuotedPackage> findPackage(Coordinates origin, Coordinates destination, PackageSize size) {
+        if (origin == null || destination == null || size == null) return Optional.empty();
+        return Optional.ofNullable(this.packagesByKey.get(QuotedPackage.getKey(origin, destination, size)));
+    }
+
+    public Map<String, Object> getAmounts() {
+        BigDecimal transactionFee = ChargeUtils.computeTransactionFeeGivenTransactionAmount(this.transactionAmount);
+        return Map.of(
+                "transactionFee", ChargeUtils.roundBigDecimal(transactionFee),
+                "transactionAmount", ChargeUtils.roundBigDecimal(this.transactionAmount),
+                "totalAmount", ChargeUtils.roundBigDecimal(this.transactionAmount.add(transactionFee))
+        );
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public List<QuotedPackage> getPackages() {
+        return packages;
+    }
+
+    public BigDecimal getTransactionAmount() {
+        return transactionAmount;
+    }
+}
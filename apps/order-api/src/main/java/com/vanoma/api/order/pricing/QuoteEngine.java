@@ -0,0 +1,131 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.customers.Customer;
+import com.vanoma.api.order.maps.Coordinates;
+import com.vanoma.api.order.maps.KigaliDistrict;
+import com.vanoma.api.order.maps.KigaliDistrictResolver;
+import com.vanoma.api.order.packages.PackageSize;
+import com.vanoma.api.utils.input.CoordinatesJson;
+import com.vanoma.api.utils.input.TimeUtils;
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Answers delivery pricing quotes from memory: package prices and customer terms are snapshots refreshed in the
+// background (see QuoteEngineRefresher), coverage comes from the district boundaries and distance prices from the
+// tariff matrix. A quote that needs anything else (a point outside the known districts, an unknown customer, a
+// trip missing from the matrix, an invalid request) is declined with an empty result, and PricingService prices it
+// the regular way, with the same result.
+public class QuoteEngine {
+
+    private final KigaliDistrictResolver districtResolver;
+    private final TariffMatrix tariffMatrix;
+    private final PricingMode pricingMode;
+
+    private volatile Map<PackageSize, BigDecimal> packagePrices;
+    private final Map<String, CustomerPricingTerms> customers = new ConcurrentHashMap<>();
+
+    private final LongAdder quotes = new LongAdder();
+    private final LongAdder declined = new LongAdder();
+
+    @Builder
+    public QuoteEngine(KigaliDistrictResolver districtResolver, TariffMatrix tariffMatrix, PricingMode pricingMode) {
+        this.districtResolver = districtResolver;
+        this.tariffMatrix = tariffMatrix;
+        this.pricingMode = pricingMode;
+        this.packagePrices = getCurrentPackagePrices();
+    }
+
+    public Optional<Quote> quote(PricingJson pricingJson) {
+        Quote quote = this.tryQuote(pricingJson);
+        if (quote == null) {
+            this.declined.increment();
+            return Optional.empty();
+        }
+        this.quotes.increment();
+        return Optional.of(quote);
+    }
+
+    private Quote tryQuote(PricingJson pricingJson) {
+        if (pricingJson.getPackages() == null || pricingJson.getPackages().isEmpty()) return null;
+
+        CustomerPricingTerms terms = null;
+        if (pricingJson.getCustomerId() != null) {
+            terms = this.customers.get(pricingJson.getCustomerId());
+            if (terms == null) return null;
+        }
+
+        Map<PackageSize, BigDecimal> packagePrices = this.packagePrices;
+        OffsetDateTime now = terms == null ? null : TimeUtils.getUtcNow();
+        List<QuotedPackage> packages = new ArrayList<>(pricingJson.getPackages().size());
+        BigDecimal transactionAmount = BigDecimal.ZERO;
+        for (PricingItemJson item : pricingJson.getPackages()) {
+            Coordinates origin = getCoordinates(item.getOrigin());
+            Coordinates destination = getCoordinates(item.getDestination());
+            if (origin == null || destination == null || !item.hasSize()) return null;
+            KigaliDistrict originDistrict = this.districtResolver.resolve(origin).orElse(null);
+            KigaliDistrict destinationDistrict = this.districtResolver.resolve(destination).orElse(null);
+            if (originDistrict == null || destinationDistrict == null) return null;
+
+            BigDecimal price = this.pricingMode == PricingMode.DISTANCE
+                    ? this.tariffMatrix.findPrice(origin, destination)
+                    : packagePrices.get(item.getSize());
+            if (price == null) return null;
+            packages.add(new QuotedPackage(origin, originDistrict.name(), destination, destinationDistrict.name(),
+                    item.getSize(), price));
+            transactionAmount = transactionAmount.add(terms == null ? price : terms.getTransactionAmount(price, now));
+        }
+        return new Quote(pricingJson.getCustomerId(), packages, transactionAmount);
+    }
+
+    // Takes PricingConstants changes into account. Returns whether the prices changed.
+    public boolean refreshPackagePrices() {
+        Map<PackageSize, BigDecimal> current = getCurrentPackagePrices();
+        if (current.equals(this.packagePrices)) return false;
+        this.packagePrices = current;
+        return true;
+    }
+
+    public void putCustomer(Customer customer) {
+        this.customers.put(customer.getCustomerId(), CustomerPricingTerms.of(customer));
+    }
+
+    public void putCustomer(CustomerPricingTerms terms) {
+        this.customers.put(terms.getCustomerId(), terms);
+    }
+
+    private static Map<PackageSize, BigDecimal> getCurrentPackagePrices() {
+        Map<PackageSize, BigDecimal> prices = new EnumMap<>(PackageSize.class);
+        for (PackageSize size : PackageSize.values()) {
+            prices.put(size, PricingService.getPriceForPackage(size));
+        }
+        return prices;
+    }
+
+    private static Coordinates getCoordinates(CoordinatesJson json) {
+        if (json == null || json.getLatitude() == null || json.getLongitude() == null) return null;
+        return new Coordinates()
+                .setLat(json.getLatitude())
+                .setLng(json.getLongitude());
+    }
+
+    public int getCustomerCount() {
+        return this.customers.size();
+    }
+
+    public long getQuoteCount() {
+        return this.quotes.sum();
+    }
+
+    public long getDeclinedCount() {
+        return this.declined.sum();
+    }
+}
@@ -0,0 +1,77 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.customers.Customer;
+import com.vanoma.api.order.customers.CustomerRepository;
+import com.vanoma.api.order.utils.EnvironmentUtils;
+import com.vanoma.api.utils.input.TimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Component
+public class QuoteEngineRefresher {
+    Logger logger = LoggerFactory.getLogger(QuoteEngineRefresher.class);
+
+    @Autowired
+    QuoteEngine quoteEngine;
+    @Autowired
+    CustomerRepository customerRepository;
+
+    // Customers updated at or after this time still need to be (re)loaded
+    private volatile OffsetDateTime updatedSince;
+
+    // Loads the pricing terms of every customer at startup
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        int pageSize = EnvironmentUtils.getInt("PRICING_QUOTE_CUSTOMERS_PAGE_SIZE", 1_000);
+        OffsetDateTime startedAt = TimeUtils.getUtcNow();
+        try {
+            Page<Customer> page;
+            int pageNumber = 0;
+            do {
+                page = this.customerRepository.findAll(PageRequest.of(pageNumber++, pageSize));
+                this.putCustomers(page.getContent());
+            } while (page.hasNext());
+            if (this.updatedSince == null) this.updatedSince = startedAt;
+            logger.info(String.format("Loaded pricing terms of %d customers", this.quoteEngine.getCustomerCount()));
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to load customer pricing terms", ex);
+        }
+    }
+
+    // Picks up PricingConstants changes and customers updated by other instances
+    @Scheduled(fixedDelay = 30_000, initialDelay = 30_000)
+    public void refresh() {
+        if (this.quoteEngine.refreshPackagePrices()) {
+            logger.info("Refreshed quote package prices");
+        }
+        if (this.updatedSince == null) return;
+
+        try {
+            this.putCustomers(this.customerRepository.findByUpdatedAtGreaterThanEqual(this.updatedSince));
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to refresh customer pricing terms", ex);
+        }
+    }
+
+    private void putCustomers(List<Customer> customers) {
+        for (Customer customer : customers) {
+            this.quoteEngine.putCustomer(customer);
+            OffsetDateTime updatedAt = customer.getUpdatedAt();
+            if (updatedAt != null && (this.updatedSince == null || updatedAt.isAfter(this.updatedSince))) {
+                this.updatedSince = updatedAt;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.maps.Coordinates;
+import com.vanoma.api.order.packages.PackageSize;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+// Turns quotes into short-lived HS256-signed tokens and back. Without a configured secret, a random one is used,
+// so that tokens are only accepted by the instance that issued them, which merely means other instances price
+// orders the regular way.
+public class QuoteTokenCodec {
+
+    private final byte[] secret;
+    private final long ttlSeconds;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @Builder
+    public QuoteTokenCodec(String secret, long ttlSeconds) {
+        if (secret == null || secret.isEmpty()) {
+            this.secret = new byte[32];
+            new SecureRandom().nextBytes(this.secret);
+        } else {
+            this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public String encode(Quote quote) {
+        List<Map<String, Object>> packages = quote.getPackages().stream()
+                .map(QuoteTokenCodec::toClaim)
+                .collect(Collectors.toList());
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("customerId", quote.getCustomerId());
+        claims.put("transactionAmount", quote.getTransactionAmount().toPlainString());
+        claims.put("packages", packages);
+
+        return Jwts.builder()
+                .setClaims(claims)
+                .setExpiration(new Date(System.currentTimeMillis() + this.ttlSeconds * 1000))
+                .signWith(SignatureAlgorithm.HS256, this.secret)
+                .compact();
+    }
+
+    // The quote of a valid and unexpired token. Anything else, including no token, gives an empty result.
+    public Optional<Quote> decode(String token) {
+        if (token == null || token.isEmpty()) return Optional.empty();
+        try {
+            Claims claims = Jwts.parser()
+                    .setSigningKey(this.secret)
+                    .parseClaimsJws(token)
+                    .getBody();
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> packages = (List<Map<String, Object>>) claims.get("packages");
+            Quote quote = new Quote(
+                    claims.get("customerId", String.class),
+                    packages.stream().map(QuoteTokenCodec::fromClaim).collect(Collectors.toList()),
+                    new BigDecimal(claims.get("transactionAmount", String.class)));
+            this.accepted.increment();
+            return Optional.of(quote);
+        } catch (JwtException | IllegalArgumentException | ClassCastException | NullPointerException ex) {
+            this.rejected.increment();
+            return Optional.empty();
+        }
+    }
+
+    private static Map<String, Object> toClaim(QuotedPackage pkg) {
+        Map<String, Object> claim = new HashMap<>();
+        claim.put("origin", List.of(pkg.getOrigin().getLat(), pkg.getOrigin().getLng()));
+        claim.put("originDistrict", pkg.getOriginDistrict());
+        claim.put("destination", List.of(pkg.getDestination().getLat(), pkg.getDestination().getLng()));
+        claim.put("destinationDistrict", pkg.getDestinationDistrict());
+        claim.put("size", pkg.getSize().name());
+        claim.put("price", pkg.getPrice().toPlainString());
+        return claim;
+    }
+
+    private static QuotedPackage fromClaim(Map<String, Object> claim) {
+        return new QuotedPackage(
+                toCoordinates(claim.get("origin")),
+                (String) claim.get("originDistrict"),
+                toCoordinates(claim.get("destination")),
+                (String) claim.get("destinationDistrict"),
+                PackageSize.valueOf((String) claim.get("size")),
+                new BigDecimal((String) claim.get("price")));
+    }
+
+    private static Coordinates toCoordinates(Object claim) {
+        List<?> values = (List<?>) claim;
+        return new Coordinates()
+                .setLat(((Number) values.get(0)).doubleValue())
+                .setLng(((Number) values.get(1)).doubleValue());
+    }
+
+    public long getAcceptedCount() {
+        return this.accepted.sum();
+    }
+
+    public long getRejectedCount() {
+        return this.rejected.sum();
+    }
+}
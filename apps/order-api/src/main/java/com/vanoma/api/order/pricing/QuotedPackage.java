@@ -0,0 +1,77 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.maps.Coordinates;
+import com.vanoma.api.order.packages.PackageSize;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+// A package of a delivery pricing quote: its validated trip, the districts of both ends (null when unknown) and the
+// delivery price before customer terms.
+public class QuotedPackage {
+
+    private final Coordinates origin;
+    private final String originDistrict;
+    private final Coordinates destination;
+    private final String destinationDistrict;
+    private final PackageSize size;
+    private final BigDecimal price;
+
+    public QuotedPackage(Coordinates origin, String originDistrict, Coordinates destination, String destinationDistrict,
+                         PackageSize size, BigDecimal price) {
+        this.origin = origin;
+        this.originDistrict = originDistrict;
+        this.destination = destination;
+        this.destinationDistrict = destinationDistrict;
+        this.size = size;
+        this.price = price;
+    }
+
+    static String getKey(Coordinates origin, Coordinates destination, PackageSize size) {
+        return origin.getLat() + "," + origin.getLng() + "=" + destination.getLat() + "," + destination.getLng() + "=" + size;
+    }
+
+    String getKey() {
+        return getKey(this.origin, this.destination, this.size);
+    }
+
+    public Coordinates getOrigin() {
+        return origin;
+    }
+
+    public String getOriginDistrict() {
+        return originDistrict;
+    }
+
+    public Coordinates getDestination() {
+        return destination;
+    }
+
+    public String getDestinationDistrict() {
+        return destinationDistrict;
+    }
+
+    public PackageSize getSize() {
+        return size;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        QuotedPackage that = (QuotedPackage) o;
+        return this.getKey().equals(that.getKey())
+                && Objects.equals(this.originDistrict, that.originDistrict)
+                && Objects.equals(this.destinationDistrict, that.destinationDistrict)
+                && this.price.compareTo(that.price) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.getKey().hashCode();
+    }
+}
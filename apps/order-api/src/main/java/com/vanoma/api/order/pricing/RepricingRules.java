@@ -0,0 +1,50 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.packages.PackageSize;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+
+// The candidate rule set of a PricingBacktestJson, with the current values for what it leaves out
+public class RepricingRules {
+    private final PricingMode pricingMode;
+    private final Map<PackageSize, BigDecimal> packagePrices = new EnumMap<>(PackageSize.class);
+    private final DistanceTariff tariff;
+    private final Map<String, BigDecimal> weightingFactors;
+
+    private RepricingRules(PricingBacktestJson json, PricingMode currentPricingMode) {
+        this.pricingMode = json.getPricingMode() == null ? currentPricingMode : PricingMode.create(json.getPricingMode());
+        this.packagePrices.put(PackageSize.SMALL, getOrDefault(json.getSmallPackagePrice(), PricingConstants.SMALL_PACKAGE_PRICE));
+        this.packagePrices.put(PackageSize.MEDIUM, getOrDefault(json.getMediumPackagePrice(), PricingConstants.MEDIUM_PACKAGE_PRICE));
+        this.packagePrices.put(PackageSize.LARGE, getOrDefault(json.getLargePackagePrice(), PricingConstants.LARGE_PACKAGE_PRICE));
+        this.tariff = new DistanceTariff(
+                getOrDefault(json.getBaselineDeliveryCost(), PricingConstants.BASELINE_DELIVERY_COST),
+                getOrDefault(json.getPricePerKilometer(), PricingConstants.PRICE_PER_KILOMETER),
+                getOrDefault(json.getMinPrice(), PricingConstants.MIN_PRICE));
+        this.weightingFactors = Map.copyOf(json.getWeightingFactors());
+    }
+
+    public static RepricingRules of(PricingBacktestJson json, PricingMode currentPricingMode) {
+        return new RepricingRules(json, currentPricingMode);
+    }
+
+    public boolean isDistancePricing() {
+        return this.pricingMode == PricingMode.DISTANCE;
+    }
+
+    // Packages without a size are priced as large ones, like PricingService does
+    public BigDecimal getPrice(PackageSize size, long navigationDistanceMeters) {
+        if (this.isDistancePricing()) return this.tariff.getPrice(navigationDistanceMeters);
+        return this.packagePrices.get(size == null ? PackageSize.LARGE : size);
+    }
+
+    public CustomerPricingTerms getTerms(CustomerPricingTerms terms) {
+        BigDecimal weightingFactor = this.weightingFactors.get(terms.getCustomerId());
+        return weightingFactor == null ? terms : terms.withWeightingFactor(weightingFactor);
+    }
+
+    private static <T> T getOrDefault(T value, T defaultValue) {
+        return value == null ? defaultValue : value;
+    }
+}
@@ -0,0 +1,223 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.maps.Coordinates;
+import com.vanoma.api.order.maps.GridCell;
+import com.vanoma.api.order.maps.HaversineDistanceEstimator;
+import com.vanoma.api.order.maps.INavigationDistanceApi;
+import com.vanoma.api.order.maps.MapsUnavailableException;
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import lombok.Builder;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// In-memory cell-to-cell price matrix for distance pricing. Trips are priced on the navigation distance between
+// the centers of the GridCells their ends fall in (both directions share an entry), so a quote for a known pair
+// is a map lookup. Pairs missing from the matrix are fetched (one request per distinct origin) and kept. Entries
+// hold the distance as well as the price, so that a change of PricingConstants only needs the prices recomputed
+// (see rebuildIfTariffChanged); until that is done, lookups price the stored distances with the new tariff.
+// While the distance API is unavailable, missing pairs are priced on local estimates when an estimator is given.
+// Estimates are never kept, so the matrix only ever holds real distances.
+public class TariffMatrix {
+
+    private final INavigationDistanceApi distanceApi;
+    private final HaversineDistanceEstimator estimator;
+    private final int cellSizeMeters;
+    private final int maxSize;
+
+    private volatile Snapshot snapshot;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder estimates = new LongAdder();
+
+    @Builder
+    public TariffMatrix(INavigationDistanceApi distanceApi, HaversineDistanceEstimator estimator, int cellSizeMeters, int maxSize) {
+        this.distanceApi = distanceApi;
+        this.estimator = estimator;
+        this.cellSizeMeters = cellSizeMeters;
+        this.maxSize = maxSize;
+        this.snapshot = new Snapshot(DistanceTariff.current());
+    }
+
+    public BigDecimal getPrice(Coordinates origin, Coordinates destination) {
+        return this.getPrices(List.of(Pair.of(origin, destination))).get(0);
+    }
+
+    // Price of a trip already in the matrix, or null. Never calls the distance API.
+    public BigDecimal findPrice(Coordinates origin, Coordinates destination) {
+        Snapshot snapshot = this.snapshot;
+        Entry entry = snapshot.entries.get(this.getPairKey(origin, destination));
+        if (entry == null) return null;
+        this.hits.increment();
+        DistanceTariff tariff = DistanceTariff.current();
+        return snapshot.tariff.equals(tariff) ? entry.price : tariff.getPrice(entry.distanceMeters);
+    }
+
+    // Prices of the (origin, destination) trips, in order
+    public List<BigDecimal> getPrices(List<Pair<Coordinates, Coordinates>> trips) {
+        Snapshot snapshot = this.snapshot;
+        DistanceTariff tariff = DistanceTariff.current();
+        boolean isCurrent = snapshot.tariff.equals(tariff);
+
+        BigDecimal[] prices = new BigDecimal[trips.size()];
+        Map<String, List<Integer>> missing = new LinkedHashMap<>();
+        for (int i = 0; i < trips.size(); i++) {
+            String key = this.getPairKey(trips.get(i).getLeft(), trips.get(i).getRight());
+            Entry entry = snapshot.entries.get(key);
+            if (entry == null) {
+                missing.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+                continue;
+            }
+            this.hits.increment();
+            prices[i] = isCurrent ? entry.price : tariff.getPrice(entry.distanceMeters);
+        }
+        if (missing.isEmpty()) return Arrays.asList(prices);
+
+        this.misses.add(missing.size());
+        // Cells of each missing pair, in the direction of its first trip
+        Map<String, Pair<GridCell, GridCell>> missingCells = new LinkedHashMap<>();
+        missing.forEach((key, indexes) -> {
+            Pair<Coordinates, Coordinates> trip = trips.get(indexes.get(0));
+            missingCells.put(key, Pair.of(GridCell.of(trip.getLeft(), this.cellSizeMeters),
+                    GridCell.of(trip.getRight(), this.cellSizeMeters)));
+        });
+        Map<String, Long> distances;
+        boolean isEstimate = false;
+        try {
+            distances = this.fetchDistances(missingCells);
+        } catch (MapsUnavailableException ex) {
+            if (this.estimator == null) throw ex;
+            distances = this.estimateDistances(missingCells);
+            isEstimate = true;
+            this.estimates.add(missing.size());
+        }
+        for (Map.Entry<String, List<Integer>> pair : missing.entrySet()) {
+            long distance = distances.get(pair.getKey());
+            if (distance == INavigationDistanceApi.DISTANCE_NOT_FOUND) {
+                throw new InvalidParameterException("utils.matrixApi.navigationDistanceNotFound");
+            }
+            Entry entry = new Entry(distance, tariff.getPrice(distance));
+            if (!isEstimate) this.put(snapshot, pair.getKey(), entry);
+            pair.getValue().forEach(i -> prices[i] = entry.price);
+        }
+        return Arrays.asList(prices);
+    }
+
+    // Adds a known distance, e.g. a persisted navigation distance at startup. Existing entries are kept.
+    public void put(Coordinates origin, Coordinates destination, long distanceMeters) {
+        if (distanceMeters < 0) return;
+        Snapshot snapshot = this.snapshot;
+        this.put(snapshot, this.getPairKey(origin, destination),
+                new Entry(distanceMeters, snapshot.tariff.getPrice(distanceMeters)));
+    }
+
+    private void put(Snapshot snapshot, String key, Entry entry) {
+        if (snapshot.entries.size() >= this.maxSize) return;
+        snapshot.entries.putIfAbsent(key, entry);
+    }
+
+    // Recomputes every price when PricingConstants changed since the matrix was built. Returns whether it did.
+    public synchronized boolean rebuildIfTariffChanged() {
+        Snapshot previous = this.snapshot;
+        DistanceTariff tariff = DistanceTariff.current();
+        if (previous.tariff.equals(tariff)) return false;
+
+        Snapshot rebuilt = new Snapshot(tariff);
+        previous.entries.forEach((key, entry) ->
+                rebuilt.entries.put(key, new Entry(entry.distanceMeters, tariff.getPrice(entry.distanceMeters))));
+        this.snapshot = rebuilt;
+        // Pairs added to the previous snapshot while the prices were recomputed
+        previous.entries.forEach((key, entry) ->
+                rebuilt.entries.computeIfAbsent(key, k -> new Entry(entry.distanceMeters, tariff.getPrice(entry.distanceMeters))));
+        this.rebuilds.increment();
+        return true;
+    }
+
+    // One row per distinct origin cell with only the destinations it misses, so each pair is billed once
+    private Map<String, Long> fetchDistances(Map<String, Pair<GridCell, GridCell>> cellsByKey) {
+        Map<String, Long> distances = new HashMap<>();
+        Map<GridCell, Map<String, Coordinates>> destinationsByOrigin = new LinkedHashMap<>();
+        cellsByKey.forEach((pairKey, cells) -> {
+            if (cells.getLeft().equals(cells.getRight())) {
+                distances.put(pairKey, 0L);
+            } else {
+                destinationsByOrigin.computeIfAbsent(cells.getLeft(), origin -> new LinkedHashMap<>())
+                        .put(pairKey, cells.getRight().getCenter());
+            }
+        });
+
+        for (Map.Entry<GridCell, Map<String, Coordinates>> row : destinationsByOrigin.entrySet()) {
+            List<String> pairKeys = new ArrayList<>(row.getValue().keySet());
+            long[][] fetched = this.distanceApi.getNavigationDistances(List.of(row.getKey().getCenter()),
+                    new ArrayList<>(row.getValue().values()));
+            for (int j = 0; j < pairKeys.size(); j++) {
+                distances.put(pairKeys.get(j), fetched[0][j]);
+            }
+        }
+        return distances;
+    }
+
+    private Map<String, Long> estimateDistances(Map<String, Pair<GridCell, GridCell>> cellsByKey) {
+        Map<String, Long> distances = new HashMap<>();
+        cellsByKey.forEach((pairKey, cells) -> distances.put(pairKey, cells.getLeft().equals(cells.getRight())
+                ? 0L
+                : this.estimator.getNavigationDistance(cells.getLeft().getCenter(), cells.getRight().getCenter())));
+        return distances;
+    }
+
+    String getPairKey(Coordinates origin, Coordinates destination) {
+        String originKey = GridCell.of(origin, this.cellSizeMeters).getKey();
+        String destinationKey = GridCell.of(destination, this.cellSizeMeters).getKey();
+        return originKey.compareTo(destinationKey) <= 0
+                ? originKey + "=" + destinationKey
+                : destinationKey + "=" + originKey;
+    }
+
+    public DistanceTariff getTariff() {
+        return this.snapshot.tariff;
+    }
+
+    public int getSize() {
+        return this.snapshot.entries.size();
+    }
+
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    public long getRebuildCount() {
+        return this.rebuilds.sum();
+    }
+
+    public long getEstimateCount() {
+        return this.estimates.sum();
+    }
+
+    private static class Snapshot {
+        private final DistanceTariff tariff;
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+        private Snapshot(DistanceTariff tariff) {
+            this.tariff = tariff;
+        }
+    }
+
+    private static class Entry {
+        private final long distanceMeters;
+        private final BigDecimal price;
+
+        private Entry(long distanceMeters, BigDecimal price) {
+            this.distanceMeters = distanceMeters;
+            this.price = price;
+        }
+    }
+}
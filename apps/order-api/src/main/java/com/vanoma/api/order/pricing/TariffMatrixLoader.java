@@ -0,0 +1,67 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.maps.CachingNavigationDistanceApi;
+import com.vanoma.api.order.maps.Coordinates;
+import com.vanoma.api.order.maps.NavigationDistanceCell;
+import com.vanoma.api.order.maps.NavigationDistanceCellRepository;
+import com.vanoma.api.order.utils.EnvironmentUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TariffMatrixLoader {
+    Logger logger = LoggerFactory.getLogger(TariffMatrixLoader.class);
+
+    @Autowired
+    TariffMatrix tariffMatrix;
+    @Autowired
+    PricingMode pricingMode;
+    @Autowired
+    NavigationDistanceCellRepository navigationDistanceCellRepository;
+
+    // Precomputes prices of the persisted navigation distances at startup, so known trips never wait on the
+    // distance API
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (this.pricingMode != PricingMode.DISTANCE) return;
+
+        int maxSize = EnvironmentUtils.getInt("PRICING_MATRIX_PRELOAD_SIZE", 50_000);
+        int pageSize = EnvironmentUtils.getInt("PRICING_MATRIX_PRELOAD_PAGE_SIZE", 1_000);
+        try {
+            int loaded = 0;
+            Page<NavigationDistanceCell> page;
+            int pageNumber = 0;
+            do {
+                page = this.navigationDistanceCellRepository.findAll(PageRequest.of(pageNumber++, pageSize));
+                for (NavigationDistanceCell cell : page.getContent()) {
+                    Pair<Coordinates, Coordinates> centers = CachingNavigationDistanceApi.getPairCenters(cell.getPairKey());
+                    this.tariffMatrix.put(centers.getLeft(), centers.getRight(), cell.getDistanceMeters());
+                }
+                loaded += page.getNumberOfElements();
+            } while (page.hasNext() && loaded < maxSize);
+            logger.info(String.format("Loaded %d navigation distances into a tariff matrix of %d pairs",
+                    loaded, this.tariffMatrix.getSize()));
+        } catch (RuntimeException ex) {
+            logger.warn("Unable to load the tariff matrix", ex);
+        }
+    }
+
+    // PricingConstants may be changed at runtime; recompute the matrix prices off the request path when they do
+    @Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
+    public void rebuildIfTariffChanged() {
+        if (this.tariffMatrix.rebuildIfTariffChanged()) {
+            logger.info(String.format("Rebuilt tariff matrix of %d pairs for %s",
+                    this.tariffMatrix.getSize(), this.tariffMatrix.getTariff()));
+        }
+    }
+}
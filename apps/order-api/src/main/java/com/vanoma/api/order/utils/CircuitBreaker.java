@@ -0,0 +1,74 @@
+package com.vanoma.api.order.utils;
+
+import java.time.Clock;
+import java.time.Duration;
+
+// Stops calls to an unhealthy dependency: after failureThreshold consecutive failures the breaker opens and
+// rejects calls for openDuration, then lets a single trial call through (half-open). The trial closes the breaker
+// on success or opens it again on failure.
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAtMillis = 0;
+    private boolean trialInFlight = false;
+    private long openCount = 0;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, Clock.systemUTC());
+    }
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+        if (failureThreshold <= 0) throw new IllegalArgumentException("failureThreshold must be positive");
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openDuration.toMillis();
+        this.clock = clock;
+    }
+
+    // Whether a call may go through now. Every permitted call must be followed by onSuccess or onFailure.
+    public synchronized boolean tryAcquire() {
+        if (this.state == State.OPEN) {
+            if (this.clock.millis() - this.openedAtMillis < this.openMillis) return false;
+            this.state = State.HALF_OPEN;
+            this.trialInFlight = false;
+        }
+        if (this.state == State.HALF_OPEN) {
+            if (this.trialInFlight) return false;
+            this.trialInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        this.state = State.CLOSED;
+        this.consecutiveFailures = 0;
+        this.trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        this.consecutiveFailures++;
+        if (this.state == State.HALF_OPEN || this.consecutiveFailures >= this.failureThreshold) {
+            this.state = State.OPEN;
+            this.openedAtMillis = this.clock.millis();
+            this.trialInFlight = false;
+            this.openCount++;
+        }
+    }
+
+    public synchronized State getState() {
+        return this.state;
+    }
+
+    // Number of times the breaker opened
+    public synchronized long getOpenCount() {
+        return this.openCount;
+    }
+}
@@ -0,0 +1,94 @@
+package com.vanoma.api.order.utils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Small bounded cache for hot lookups (e.g. geocoding cells). Entries are dropped once they are older than
+// the TTL or when the cache is full, in which case the least recently used entry goes first.
+public class ExpiringLruCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringLruCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, Clock.systemUTC());
+    }
+
+    public ExpiringLruCache(int maxSize, Duration ttl, Clock clock) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive");
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                boolean isFull = size() > ExpiringLruCache.this.maxSize;
+                if (isFull) evictions.increment();
+                return isFull;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = this.entries.get(key);
+        if (entry == null) {
+            this.misses.increment();
+            return null;
+        }
+        if (entry.expireAt <= this.clock.millis()) {
+            this.entries.remove(key);
+            this.evictions.increment();
+            this.misses.increment();
+            return null;
+        }
+        this.hits.increment();
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        this.entries.put(key, new Entry<>(value, this.clock.millis() + this.ttlMillis));
+    }
+
+    public synchronized void remove(K key) {
+        this.entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long expireAt;
+
+        private Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.vanoma.api.order.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// A permutation of [0, size) that depends on a key: a balanced Feistel network over the smallest even number of bits
+// that holds size, applied again while the result is out of range (cycle walking). Distinct inputs always give
+// distinct outputs, and consecutive inputs give unrelated ones to anyone without the key. It hides the order of
+// things, it is not encryption.
+public final class KeyedPermutation {
+    private static final int ROUNDS = 8;
+
+    private final long size;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    public KeyedPermutation(long size, String key) {
+        if (size < 2) throw new IllegalArgumentException("Permutation size must be at least 2");
+        this.size = size;
+        int bits = 64 - Long.numberOfLeadingZeros(size - 1);
+        this.halfBits = (bits + 1) / 2;
+        if (this.halfBits > 31) throw new IllegalArgumentException("Permutation size is too large: " + size);
+        this.halfMask = (1L << this.halfBits) - 1;
+
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update(key.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) round);
+                this.roundKeys[round] = ByteBuffer.wrap(digest.digest()).getLong();
+            }
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public long apply(long value) {
+        if (value < 0 || value >= this.size) {
+            throw new IllegalArgumentException(String.format("%d is out of [0, %d)", value, this.size));
+        }
+        long result = value;
+        do {
+            result = this.feistel(result);
+        } while (result >= this.size);
+        return result;
+    }
+
+    private long feistel(long value) {
+        long left = value >>> this.halfBits;
+        long right = value & this.halfMask;
+        for (int round = 0; round < ROUNDS; round++) {
+            long next = left ^ this.roundFunction(right, this.roundKeys[round]);
+            left = right;
+            right = next;
+        }
+        return (left << this.halfBits) | right;
+    }
+
+    // SplitMix64 finalizer of the half block mixed with the round key
+    private long roundFunction(long half, long roundKey) {
+        long z = (half ^ roundKey) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return (z ^ (z >>> 31)) & this.halfMask;
+    }
+}
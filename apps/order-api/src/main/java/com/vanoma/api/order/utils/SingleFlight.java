@@ -0,0 +1,65 @@
+package com.vanoma.api.order.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Coalesces concurrent calls for the same key: the first caller runs the call and later callers wait for its
+// result (or its exception) instead of running their own. The entry is dropped as soon as the call completes,
+// so nothing is cached; callers arriving afterwards start a new call.
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = this.inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            this.coalesced.increment();
+            return join(existing);
+        }
+
+        this.calls.increment();
+        try {
+            V value = call.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            this.inFlight.remove(key, future);
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw ex;
+        }
+    }
+
+    // Calls actually executed
+    public long getCallCount() {
+        return this.calls.sum();
+    }
+
+    // Calls that joined an in-flight call instead of executing
+    public long getCoalescedCount() {
+        return this.coalesced.sum();
+    }
+
+    public int getInFlightCount() {
+        return this.inFlight.size();
+    }
+}
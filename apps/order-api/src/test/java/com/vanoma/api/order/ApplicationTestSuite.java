@@ -2,20 +2,46 @@ package com.vanoma.api.order;
 
 import com.vanoma.api.order.charges.ChargeControllerTest;
 import com.vanoma.api.order.charges.ChargeUtilsTest;
+import com.vanoma.api.order.charges.MoneyTest;
 import com.vanoma.api.order.contacts.AddressTest;
 import com.vanoma.api.order.contacts.ContactAddressServiceTest;
 import com.vanoma.api.order.contacts.ContactControllerTest;
 import com.vanoma.api.order.contacts.ContactTest;
+import com.vanoma.api.order.contacts.StreetAddressIndexTest;
 import com.vanoma.api.order.customers.CustomerControllerTest;
 import com.vanoma.api.order.events.PackageEventControllerTest;
+import com.vanoma.api.order.idempotency.IdempotencyStoreTest;
 import com.vanoma.api.order.invoices.InvoiceControllerTest;
+import com.vanoma.api.order.maps.CachingMapsAPIWrapperTest;
+import com.vanoma.api.order.maps.CachingNavigationDistanceApiTest;
+import com.vanoma.api.order.maps.FallbackNavigationDistanceApiTest;
+import com.vanoma.api.order.maps.GeocodingFanOutTest;
+import com.vanoma.api.order.maps.GeocodingServiceTest;
+import com.vanoma.api.order.maps.GeoApiContextPoolTest;
+import com.vanoma.api.order.maps.GoogleDistanceMatrixApiWrapperTest;
+import com.vanoma.api.order.maps.GoogleMapsAPIWrapperTest;
+import com.vanoma.api.order.maps.HaversineDistanceEstimatorTest;
+import com.vanoma.api.order.maps.KigaliDistrictResolverTest;
+import com.vanoma.api.order.maps.LearningNavigationDistanceApiTest;
+import com.vanoma.api.order.maps.MapsCallGuardTest;
+import com.vanoma.api.order.maps.MapsControllerTest;
 import com.vanoma.api.order.orders.BusinessHourServiceTest;
 import com.vanoma.api.order.orders.DeliveryOrderControllerTest;
+import com.vanoma.api.order.orders.OrderPlacementQueueTest;
 import com.vanoma.api.order.orders.OrderPlacementWorkflowTest;
+import com.vanoma.api.order.outbox.OutboxRelayTest;
 import com.vanoma.api.order.packages.BackgroundTaskTest;
 import com.vanoma.api.order.packages.PackageControllerTest;
+import com.vanoma.api.order.packages.PackageRepositoryTest;
+import com.vanoma.api.order.packages.TrackingNumberGeneratorTest;
 import com.vanoma.api.order.payment.PaymentControllerTest;
 import com.vanoma.api.order.pricing.PricingControllerTest;
+import com.vanoma.api.order.pricing.PricingServiceTest;
+import com.vanoma.api.order.pricing.QuoteEngineTest;
+import com.vanoma.api.order.pricing.QuoteTokenCodecTest;
+import com.vanoma.api.order.pricing.TariffMatrixTest;
+import com.vanoma.api.order.utils.KeyedPermutationTest;
+import com.vanoma.api.order.utils.TimeOrderedIdTest;
 import org.junit.platform.runner.JUnitPlatform;
 import org.junit.platform.suite.api.SelectClasses;
 import org.junit.runner.RunWith;
@@ -33,11 +59,37 @@ import org.junit.runner.RunWith;
         ContactControllerTest.class,
         InvoiceControllerTest.class,
         ChargeUtilsTest.class,
+        MoneyTest.class,
         ChargeControllerTest.class,
         PackageEventControllerTest.class,
         OrderPlacementWorkflowTest.class,
         CustomerControllerTest.class,
-        BackgroundTaskTest.class
+        BackgroundTaskTest.class,
+        PackageRepositoryTest.class,
+        CachingMapsAPIWrapperTest.class,
+        GeoApiContextPoolTest.class,
+        KigaliDistrictResolverTest.class,
+        GoogleDistanceMatrixApiWrapperTest.class,
+        CachingNavigationDistanceApiTest.class,
+        HaversineDistanceEstimatorTest.class,
+        LearningNavigationDistanceApiTest.class,
+        FallbackNavigationDistanceApiTest.class,
+        GeocodingFanOutTest.class,
+        GeocodingServiceTest.class,
+        StreetAddressIndexTest.class,
+        MapsCallGuardTest.class,
+        MapsControllerTest.class,
+        GoogleMapsAPIWrapperTest.class,
+        TariffMatrixTest.class,
+        PricingServiceTest.class,
+        QuoteEngineTest.class,
+        QuoteTokenCodecTest.class,
+        IdempotencyStoreTest.class,
+        OrderPlacementQueueTest.class,
+        OutboxRelayTest.class,
+        TimeOrderedIdTest.class,
+        KeyedPermutationTest.class,
+        TrackingNumberGeneratorTest.class
 })
 public class ApplicationTestSuite {
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.vanoma.api.order.charges;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class MoneyTest {
+    @Test
+    public void testOf_roundsHalfUpToTheCentime() {
+        assertThat(Money.of(new BigDecimal("12.345")).getMinorUnits()).isEqualTo(1235L);
+        assertThat(Money.of(new BigDecimal("12.344")).getMinorUnits()).isEqualTo(1234L);
+        assertThat(Money.of(new BigDecimal("975")).toBigDecimal()).isEqualTo(new BigDecimal("975.00"));
+        assertThat(Money.of(null)).isNull();
+    }
+
+    @Test
+    public void testPlusAndMinus_areExact() {
+        Money sum = Money.ZERO;
+        for (int i = 0; i < 1000; i++) {
+            sum = sum.plus(Money.of(new BigDecimal("0.10")));
+        }
+
+        assertThat(sum).isEqualTo(Money.ofFrancs(100));
+        assertThat(sum.minus(Money.ofFrancs(100)).isZero()).isTrue();
+    }
+
+    @Test
+    public void testGetTransactionFee_returns25WhenTransactionAmountIs975() {
+        assertThat(Money.ofFrancs(975).getTransactionFee()).isEqualTo(Money.ofFrancs(25));
+    }
+
+    @Test
+    public void testGetTransactionFee_roundsUpToTheCentime() {
+        assertThat(Money.ofFrancs(487).getTransactionFee().toBigDecimal()).isEqualTo(new BigDecimal("12.49"));
+    }
+
+    @Test
+    public void testGetTransactionFee_reproducesTheRoundingOfTheDoubleFormula() {
+        // Exact fees of 3, 6 and 29 centimes that the double formula rounds up by one more centime, and exact fees
+        // it keeps
+        Map<String, String> fees = new LinkedHashMap<>();
+        fees.put("1.17", "0.04");
+        fees.put("2.34", "0.07");
+        fees.put("11.31", "0.30");
+        fees.put("-1.17", "-0.04");
+        fees.put("0.39", "0.01");
+        fees.put("3.90", "0.10");
+        fees.put("39", "1.00");
+        fees.put("0.01", "0.01");
+        fees.put("1000000", "25641.03");
+        fees.put("999999.99", "25641.03");
+        fees.forEach((amount, fee) ->
+                assertThat(Money.of(new BigDecimal(amount)).getTransactionFee().toBigDecimal()).isEqualTo(new BigDecimal(fee)));
+    }
+
+    @Test
+    public void testGetTransactionFee_matchesTheFeeOfTheSameBigDecimalAmount() {
+        for (long minorUnits = -10_000; minorUnits <= 1_000_000; minorUnits++) {
+            Money amount = Money.ofMinorUnits(minorUnits);
+            Money expected = Money.of(ChargeUtils.computeTransactionFeeGivenTransactionAmount(amount.toBigDecimal()));
+            assertThat(amount.getTransactionFee()).as("Transaction fee of %s", amount).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void testGetTransactionFee_roundsNegativeAmountsAwayFromZero() {
+        assertThat(Money.ofFrancs(-487).getTransactionFee().toBigDecimal()).isEqualTo(new BigDecimal("-12.49"));
+    }
+
+    @Test
+    public void testGetTransactionFee_usesTheCurrentFeePercentage() {
+        BigDecimal percentage = ChargeUtils.TRANSACTION_FEE_PERCENTAGE;
+        try {
+            ChargeUtils.TRANSACTION_FEE_PERCENTAGE = new BigDecimal("0.05");
+            assertThat(Money.ofFrancs(950).getTransactionFee()).isEqualTo(Money.ofFrancs(50));
+        } finally {
+            ChargeUtils.TRANSACTION_FEE_PERCENTAGE = percentage;
+        }
+        assertThat(Money.ofFrancs(975).getTransactionFee()).isEqualTo(Money.ofFrancs(25));
+    }
+
+    @Test
+    public void testToRoundedFrancs_roundsAwayFromZero() {
+        assertThat(Money.of(new BigDecimal("499.49")).toRoundedFrancs()).isEqualTo(500);
+        assertThat(Money.ofFrancs(500).toRoundedFrancs()).isEqualTo(500);
+        assertThat(Money.of(new BigDecimal("-0.01")).toRoundedFrancs()).isEqualTo(-1);
+    }
+}
@@ -1,5 +1,6 @@
 package com.vanoma.api.order.contacts;
 
+import com.vanoma.api.order.maps.AddressLine;
 import com.vanoma.api.order.tests.ObjectFactory;
 import com.vanoma.api.utils.exceptions.InvalidParameterException;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,6 +28,9 @@ public class ContactAddressServiceTest {
     @Autowired
     private IContactAddressService contactAddressService;
 
+    @Autowired
+    private StreetAddressIndex streetAddressIndex;
+
     private String customerId;
 
     @BeforeEach
@@ -59,4 +63,19 @@ public class ContactAddressServiceTest {
                 .getFirstContactAddressByContactAndAddress(contact, addressTwo);
         assertThat(withAddressTwo).isNotNull();
     }
+
+    @Test
+    public void testSaveAddress_indexesStreetAddressOnlyOnceCommitted() {
+        String houseNumber = String.valueOf(System.nanoTime() % 100_000);
+        Address address = ObjectFactory.createAddress(this.customerId)
+                .setStreetName("KG 987 St")
+                .setHouseNumber(houseNumber)
+                .setIsConfirmed(true);
+
+        this.contactAddressService.saveAddress(address);
+
+        // The test transaction is rolled back, never committed
+        AddressLine addressLine = new AddressLine().setHouseNumber(houseNumber).setStreetName("KG 987 St");
+        assertThat(this.streetAddressIndex.find(addressLine).isPresent()).isFalse();
+    }
 }
@@ -0,0 +1,86 @@
+package com.vanoma.api.order.contacts;
+
+import com.vanoma.api.order.maps.AddressLine;
+import com.vanoma.api.order.maps.KigaliDistrict;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class StreetAddressIndexTest {
+
+    private StreetAddressIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        this.index = new StreetAddressIndex();
+    }
+
+    @Test
+    public void testFind_matchesSpellingVariantsOfStreetCodes() {
+        this.index.update(createAddress("10", "KG 5 Ave", -1.9441, 30.0619, true));
+
+        for (String streetName : new String[]{"KG 5 Ave", "kg5 avenue", "K.G-05 Av", "GK 5 AVE", " KG  5  ave "}) {
+            Optional<StreetAddressIndex.Match> match = this.index.find(line("10", streetName));
+            assertThat(match.isPresent()).isTrue();
+            assertThat(match.get().getCoordinates().getLat()).isEqualTo(-1.9441);
+            assertThat(match.get().getDistrict()).isEqualTo(KigaliDistrict.GASABO);
+        }
+        assertThat(this.index.find(line("010", "KG 5 Ave")).isPresent()).isTrue();
+        assertThat(this.index.find(line("10", "KN 5 Ave")).isPresent()).isFalse();
+        assertThat(this.index.find(line("10", "KG 15 Ave")).isPresent()).isFalse();
+        assertThat(this.index.find(line("11", "KG 5 Ave")).isPresent()).isFalse();
+    }
+
+    @Test
+    public void testFind_matchesMissingSuffixOnlyWhenUnambiguous() {
+        this.index.update(createAddress("10", "KN 3 Rd", -1.9536, 30.0925, true));
+        assertThat(this.index.find(line("10", "KN 3")).isPresent()).isTrue();
+
+        this.index.update(createAddress("10", "KN 3 St", -1.9500, 30.0600, true));
+        assertThat(this.index.find(line("10", "KN 3")).isPresent()).isFalse();
+        assertThat(this.index.find(line("10", "KN 3 Road")).get().getCoordinates().getLat()).isEqualTo(-1.9536);
+    }
+
+    @Test
+    public void testUpdate_indexesOnlyConfirmedAddresses() {
+        Address address = createAddress("10", "KK 15 St", -1.9706, 30.1044, false);
+        this.index.update(address);
+        assertThat(this.index.find(line("10", "KK 15 St")).isPresent()).isFalse();
+
+        this.index.update(address.setIsConfirmed(true));
+        assertThat(this.index.find(line("10", "KK 15 St")).isPresent()).isTrue();
+
+        this.index.update(address.setIsConfirmed(false));
+        assertThat(this.index.find(line("10", "KK 15 St")).isPresent()).isFalse();
+        assertThat(this.index.getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void testUpdate_movesAddressWhenItsLineChanges() {
+        Address address = createAddress("10", "KK 15 St", -1.9706, 30.1044, true);
+        this.index.update(address);
+        this.index.update(address.setHouseNumber("12"));
+
+        assertThat(this.index.find(line("10", "KK 15 St")).isPresent()).isFalse();
+        assertThat(this.index.find(line("12", "KK 15 St")).isPresent()).isTrue();
+        assertThat(this.index.getHitCount()).isEqualTo(1L);
+        assertThat(this.index.getMissCount()).isEqualTo(1L);
+    }
+
+    private static Address createAddress(String houseNumber, String streetName, double lat, double lng, boolean isConfirmed) {
+        return new Address(UUID.randomUUID().toString())
+                .setHouseNumber(houseNumber)
+                .setStreetName(streetName)
+                .setDistrict(KigaliDistrict.create(Address.getDistrictFromStreetName(streetName)))
+                .setCoordinates(lat, lng)
+                .setIsConfirmed(isConfirmed);
+    }
+
+    private static AddressLine line(String houseNumber, String streetName) {
+        return new AddressLine().setHouseNumber(houseNumber).setStreetName(streetName);
+    }
+}
@@ -118,7 +118,7 @@ public class PackageEventControllerTest {
 
             // Validate sent SMS
             ArgumentCaptor<Map<String, Object>> smsPayloadCaptor = ArgumentCaptor.forClass(Map.class);
-            verify(this.httpClientWrapper, times(index + 1)).post(eq("null/sms"), smsPayloadCaptor.capture());
+            verify(this.httpClientWrapper, timeout(5_000).times(index + 1)).post(eq("null/sms"), smsPayloadCaptor.capture());
             Map<String, Object> actualSMSPayload = smsPayloadCaptor.getValue();
             Map<String, Object> expectedSMSPayload = Map.of(
                     "message", messages.get(index),
@@ -157,7 +157,7 @@ public class PackageEventControllerTest {
 
             // Validate sent web push
             ArgumentCaptor<Map<String, Object>> webPushPayloadCaptor = ArgumentCaptor.forClass(Map.class);
-            verify(this.httpClientWrapper, times(index + 1)).post(eq("null/push"), webPushPayloadCaptor.capture());
+            verify(this.httpClientWrapper, timeout(5_000).times(index + 1)).post(eq("null/push"), webPushPayloadCaptor.capture());
             Map<String, Object> actualWebPushPayload = webPushPayloadCaptor.getValue();
             Map<String, Object> expectedWebPushPayload = Map.of(
                     "heading", "Check new delivery event!",
@@ -212,7 +212,7 @@ public class PackageEventControllerTest {
 
             // Validate sent callback
             ArgumentCaptor<Map> mapCaptor = ArgumentCaptor.forClass(Map.class);
-            verify(this.httpClientWrapper, times(index + 1)).post(eq(eventCallbackUrl), mapCaptor.capture());
+            verify(this.httpClientWrapper, timeout(5_000).times(index + 1)).post(eq(eventCallbackUrl), mapCaptor.capture());
             Map<String, Object> actualCallbackPayload = mapCaptor.getValue();
             Map<String, Object> expectedCallbackPayload = Map.of(
                     "eventName", eventName.name(),
@@ -0,0 +1,198 @@
+package com.vanoma.api.order.idempotency;
+
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import com.vanoma.api.utils.input.TimeUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+@ActiveProfiles("test")
+@SpringBootTest
+public class IdempotencyStoreTest {
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    public void testExecute_replaysStoredResponse() {
+        IdempotencyStore store = createStore();
+        String key = UUID.randomUUID().toString();
+
+        IdempotentResponse first = store.execute(key, "fingerprint", () -> this.respond(201));
+        IdempotentResponse retry = store.execute(key, "fingerprint", () -> this.respond(201));
+
+        assertThat(retry).isSameAs(first);
+        assertThat(this.calls.get()).isEqualTo(1);
+        assertThat(store.getExecutedCount()).isEqualTo(1);
+        assertThat(store.getReplayedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testExecute_replaysResponseStoredByAnotherNode() {
+        String key = UUID.randomUUID().toString();
+        createStore().execute(key, "fingerprint", () -> this.respond(201));
+
+        IdempotentResponse retry = createStore().execute(key, "fingerprint", () -> this.respond(201));
+
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(new String(retry.getBody(), StandardCharsets.UTF_8)).isEqualTo("{\"call\":1}");
+        assertThat(this.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testExecute_rejectsKeyReusedForAnotherRequest() {
+        IdempotencyStore store = createStore();
+        String key = UUID.randomUUID().toString();
+        store.execute(key, "fingerprint", () -> this.respond(201));
+
+        assertThatThrownBy(() -> store.execute(key, "other-fingerprint", () -> this.respond(201)))
+                .isInstanceOf(InvalidParameterException.class)
+                .hasMessage("crud.idempotencyKey.reused");
+        assertThat(this.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testExecute_doesNotStoreFailedResponses() {
+        IdempotencyStore store = createStore();
+        String key = UUID.randomUUID().toString();
+
+        store.execute(key, "fingerprint", () -> this.respond(500));
+        IdempotentResponse retry = store.execute(key, "fingerprint", () -> this.respond(201));
+
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(this.calls.get()).isEqualTo(2);
+        assertThat(this.repository.findById(key).get().isCompleted()).isEqualTo(true);
+    }
+
+    @Test
+    public void testExecute_releasesKeyWhenRequestThrows() {
+        IdempotencyStore store = createStore();
+        String key = UUID.randomUUID().toString();
+
+        assertThatThrownBy(() -> store.execute(key, "fingerprint", () -> {
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(this.repository.findById(key).isPresent()).isEqualTo(false);
+    }
+
+    @Test
+    public void testExecute_makesConcurrentDuplicatesWaitOnFirstRequest() throws Exception {
+        IdempotencyStore store = createStore();
+        String key = UUID.randomUUID().toString();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<IdempotentResponse> first = executor.submit(() -> store.execute(key, "fingerprint", () -> {
+                started.countDown();
+                await(release);
+                return this.respond(201);
+            }));
+            started.await(5, TimeUnit.SECONDS);
+            Future<IdempotentResponse> duplicate = executor.submit(() -> store.execute(key, "fingerprint", () -> this.respond(201)));
+            while (store.getCoalescedCount() == 0) Thread.sleep(5);
+            release.countDown();
+
+            assertThat(duplicate.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+            assertThat(this.calls.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExecute_waitsOnRequestClaimedByAnotherNode() {
+        IdempotencyStore store = createStore();
+        String key = UUID.randomUUID().toString();
+        this.repository.saveAndFlush(IdempotencyRecord.pending(key, "fingerprint",
+                TimeUtils.getUtcNow(), TimeUtils.getUtcNow().plusMinutes(5)));
+
+        assertThatThrownBy(() -> store.execute(key, "fingerprint", () -> this.respond(201)))
+                .isInstanceOf(IdempotencyKeyInProgressException.class)
+                .hasMessage("crud.idempotencyKey.inProgress");
+        assertThat(this.calls.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testExecute_renewsClaimWhileRequestRuns() {
+        IdempotencyStore store = IdempotencyStore.builder()
+                .repository(this.repository)
+                .maxSize(100)
+                .ttl(Duration.ofHours(1))
+                .claimTtl(Duration.ofMillis(300))
+                .maxWait(Duration.ofMillis(300))
+                .pollInterval(Duration.ofMillis(50))
+                .build();
+        String key = UUID.randomUUID().toString();
+
+        store.execute(key, "fingerprint", () -> {
+            sleep(1_000);
+            // Still claimed by this node after more than three times the claim TTL
+            assertThat(this.repository.findById(key).get().isExpired(TimeUtils.getUtcNow())).isEqualTo(false);
+            return this.respond(201);
+        });
+
+        assertThat(this.repository.findById(key).get().isCompleted()).isEqualTo(true);
+        store.close();
+    }
+
+    @Test
+    public void testExecute_replacesExpiredRecord() {
+        IdempotencyStore store = createStore();
+        String key = UUID.randomUUID().toString();
+        this.repository.saveAndFlush(IdempotencyRecord.pending(key, "old-fingerprint",
+                TimeUtils.getUtcNow().minusDays(2), TimeUtils.getUtcNow().minusDays(1)));
+
+        IdempotentResponse response = store.execute(key, "fingerprint", () -> this.respond(201));
+
+        assertThat(response.getStatus()).isEqualTo(201);
+        assertThat(this.calls.get()).isEqualTo(1);
+        assertThat(this.repository.findById(key).get().getFingerprint()).isEqualTo("fingerprint");
+    }
+
+    private IdempotencyStore createStore() {
+        return IdempotencyStore.builder()
+                .repository(this.repository)
+                .maxSize(100)
+                .ttl(Duration.ofHours(1))
+                .claimTtl(Duration.ofMinutes(1))
+                .maxWait(Duration.ofMillis(300))
+                .pollInterval(Duration.ofMillis(50))
+                .build();
+    }
+
+    private IdempotentResponse respond(int status) {
+        int call = this.calls.incrementAndGet();
+        byte[] body = String.format("{\"call\":%d}", call).getBytes(StandardCharsets.UTF_8);
+        return new IdempotentResponse(status, "application/json", body);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
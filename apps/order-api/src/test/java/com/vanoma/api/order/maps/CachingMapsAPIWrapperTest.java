@@ -0,0 +1,149 @@
+package com.vanoma.api.order.maps;
+
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import com.vanoma.api.utils.httpwrapper.HttpResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CachingMapsAPIWrapperTest {
+
+    private StubMapsAPI stubMapsAPI;
+    private CachingMapsAPIWrapper mapsAPI;
+
+    @BeforeEach
+    public void setUp() {
+        this.stubMapsAPI = new StubMapsAPI();
+        this.mapsAPI = createMapsAPI(100);
+    }
+
+    @Test
+    public void testReverseGeocode_reusesResultForPointsInSameCell() {
+        Coordinates first = new Coordinates().setLat(-1.9393080).setLng(30.1312124);
+        Coordinates second = new Coordinates().setLat(-1.9393085).setLng(30.1312129);
+
+        HttpResult firstResult = this.mapsAPI.reverseGeocode(first);
+        HttpResult secondResult = this.mapsAPI.reverseGeocode(second);
+
+        assertThat(this.stubMapsAPI.reverseGeocodeCalls).isEqualTo(1);
+        assertThat(secondResult.getBody().get("district")).isEqualTo(firstResult.getBody().get("district"));
+        assertThat(secondResult.getBody().get("streetName")).isEqualTo(firstResult.getBody().get("streetName"));
+        assertThat(secondResult.getBody().get("houseNumber")).isNull();
+        assertThat(secondResult.getBody().get("latitude")).isEqualTo(second.getLat());
+        assertThat(secondResult.getBody().get("longitude")).isEqualTo(second.getLng());
+        assertThat(this.mapsAPI.getHitCount()).isEqualTo(1);
+        assertThat(this.mapsAPI.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReverseGeocode_callsMapsApiForPointsInDifferentCells() {
+        this.mapsAPI.reverseGeocode(new Coordinates().setLat(-1.939308).setLng(30.1312124));
+        this.mapsAPI.reverseGeocode(new Coordinates().setLat(-1.9518833).setLng(30.1369548));
+
+        assertThat(this.stubMapsAPI.reverseGeocodeCalls).isEqualTo(2);
+    }
+
+    @Test
+    public void testReverseGeocode_cachesCoverageVerdict() {
+        this.stubMapsAPI.error = "crud.address.outOfKigali";
+        Coordinates coordinates = new Coordinates().setLat(-1.5).setLng(29.6);
+
+        Exception first = assertThrows(InvalidParameterException.class, () -> this.mapsAPI.reverseGeocode(coordinates));
+        Exception second = assertThrows(InvalidParameterException.class, () -> this.mapsAPI.reverseGeocode(coordinates));
+
+        assertThat(first.getMessage()).isEqualTo("crud.address.outOfKigali");
+        assertThat(second.getMessage()).isEqualTo("crud.address.outOfKigali");
+        assertThat(this.stubMapsAPI.reverseGeocodeCalls).isEqualTo(1);
+    }
+
+    @Test
+    public void testReverseGeocode_doesNotCacheFailures() {
+        this.stubMapsAPI.error = "crud.address.reverseGeocodingFailure";
+        Coordinates coordinates = new Coordinates().setLat(-1.939308).setLng(30.1312124);
+
+        assertThrows(InvalidParameterException.class, () -> this.mapsAPI.reverseGeocode(coordinates));
+        assertThrows(InvalidParameterException.class, () -> this.mapsAPI.reverseGeocode(coordinates));
+
+        assertThat(this.stubMapsAPI.reverseGeocodeCalls).isEqualTo(2);
+    }
+
+    @Test
+    public void testReverseGeocode_evictsLeastRecentlyUsedCells() {
+        CachingMapsAPIWrapper smallMapsAPI = createMapsAPI(2);
+
+        for (int i = 0; i < 3; i++) {
+            smallMapsAPI.reverseGeocode(new Coordinates().setLat(-1.93 - i * 0.01).setLng(30.13));
+        }
+
+        assertThat(smallMapsAPI.getSize()).isEqualTo(2);
+        assertThat(smallMapsAPI.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReverseGeocode_replayOfPricingPathHitsMapsApiOncePerLocation() {
+        // A 10-package quote from one shop to a handful of customers. Pricing validates both stops of every
+        // package, i.e. 20 lookups.
+        Coordinates shop = new Coordinates().setLat(-1.9441).setLng(30.0619);
+        Coordinates[] customers = {
+                new Coordinates().setLat(-1.9536).setLng(30.0925),
+                new Coordinates().setLat(-1.9706).setLng(30.1044),
+                new Coordinates().setLat(-1.9355).setLng(30.0820),
+        };
+
+        for (int i = 0; i < 10; i++) {
+            this.mapsAPI.reverseGeocode(jitter(shop, i));
+            this.mapsAPI.reverseGeocode(jitter(customers[i % customers.length], i));
+        }
+
+        assertThat(this.stubMapsAPI.reverseGeocodeCalls).isEqualTo(4);
+        assertThat(this.mapsAPI.getHitCount()).isEqualTo(16);
+    }
+
+    private CachingMapsAPIWrapper createMapsAPI(int maxSize) {
+        return CachingMapsAPIWrapper.builder()
+                .mapsClient(this.stubMapsAPI)
+                .cellSizeMeters(20)
+                .maxSize(maxSize)
+                .ttl(Duration.ofHours(1))
+                .persistentTtl(Duration.ofDays(1))
+                .build();
+    }
+
+    private static Coordinates jitter(Coordinates coordinates, int i) {
+        // Same pin, a few centimeters apart, as produced by different devices/apps.
+        return new Coordinates()
+                .setLat(coordinates.getLat() + (i % 3) * 0.0000001)
+                .setLng(coordinates.getLng() - (i % 3) * 0.0000001);
+    }
+
+    private static class StubMapsAPI implements IMapsAPI {
+        private int reverseGeocodeCalls = 0;
+        private String error = null;
+
+        @Override
+        public HttpResult geocode(AddressLine addressLine) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public HttpResult reverseGeocode(Coordinates coordinates) {
+            this.reverseGeocodeCalls++;
+            if (this.error != null) throw new InvalidParameterException(this.error);
+
+            Map<String, Object> address = new HashMap<>();
+            address.put("houseNumber", null);
+            address.put("streetName", "KG 7 AVE");
+            address.put("district", KigaliDistrict.GASABO.name());
+            address.put("latitude", coordinates.getLat());
+            address.put("longitude", coordinates.getLng());
+            return new HttpResult(address, HttpStatus.OK.value());
+        }
+    }
+}
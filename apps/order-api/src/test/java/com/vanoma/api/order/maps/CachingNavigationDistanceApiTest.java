@@ -0,0 +1,181 @@
+package com.vanoma.api.order.maps;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class CachingNavigationDistanceApiTest {
+
+    // Cell centers, so that nudged points stay in the same cell
+    private static final Coordinates SHOP = GridCell.of(-1.9441, 30.0619, 50).getCenter();
+    private static final Coordinates CUSTOMER_ONE = GridCell.of(-1.9536, 30.0925, 50).getCenter();
+    private static final Coordinates CUSTOMER_TWO = GridCell.of(-1.9706, 30.1044, 50).getCenter();
+    private static final Coordinates OFFICE = GridCell.of(-1.9500, 30.0600, 50).getCenter();
+
+    private StubDistanceApi stubDistanceApi;
+
+    @BeforeEach
+    public void setUp() {
+        this.stubDistanceApi = new StubDistanceApi();
+    }
+
+    @Test
+    public void testGetNavigationDistance_reusesDistanceForPointsInSameCells() {
+        CachingNavigationDistanceApi distanceApi = createDistanceApi(true, null);
+
+        long first = distanceApi.getNavigationDistance(SHOP, CUSTOMER_ONE);
+        long second = distanceApi.getNavigationDistance(nudge(SHOP), nudge(CUSTOMER_ONE));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(this.stubDistanceApi.elements).isEqualTo(1);
+        assertThat(distanceApi.getSavedApiCallCount()).isEqualTo(1);
+        assertThat(distanceApi.getHitRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    public void testGetNavigationDistance_sharesReverseTripWhenSymmetric() {
+        CachingNavigationDistanceApi distanceApi = createDistanceApi(true, null);
+
+        distanceApi.getNavigationDistance(SHOP, CUSTOMER_ONE);
+        distanceApi.getNavigationDistance(CUSTOMER_ONE, SHOP);
+
+        assertThat(this.stubDistanceApi.elements).isEqualTo(1);
+    }
+
+    @Test
+    public void testGetNavigationDistance_keepsDirectionsApartWhenNotSymmetric() {
+        CachingNavigationDistanceApi distanceApi = createDistanceApi(false, null);
+
+        distanceApi.getNavigationDistance(SHOP, CUSTOMER_ONE);
+        distanceApi.getNavigationDistance(CUSTOMER_ONE, SHOP);
+
+        assertThat(this.stubDistanceApi.elements).isEqualTo(2);
+    }
+
+    @Test
+    public void testGetNavigationDistance_doesNotCacheFailures() {
+        CachingNavigationDistanceApi distanceApi = createDistanceApi(true, null);
+        this.stubDistanceApi.fail = true;
+
+        distanceApi.getNavigationDistance(SHOP, CUSTOMER_ONE);
+        distanceApi.getNavigationDistance(SHOP, CUSTOMER_ONE);
+
+        assertThat(this.stubDistanceApi.elements).isEqualTo(2);
+    }
+
+    @Test
+    public void testGetNavigationDistances_fetchesOnlyMissingPairs() {
+        CachingNavigationDistanceApi distanceApi = createDistanceApi(true, null);
+        distanceApi.getNavigationDistance(SHOP, CUSTOMER_ONE);
+
+        long[][] distances = distanceApi.getNavigationDistances(List.of(SHOP), List.of(CUSTOMER_ONE, CUSTOMER_TWO));
+
+        assertThat(distances[0][0]).isEqualTo(StubDistanceApi.distance(SHOP, CUSTOMER_ONE));
+        assertThat(distances[0][1]).isEqualTo(StubDistanceApi.distance(SHOP, CUSTOMER_TWO));
+        assertThat(this.stubDistanceApi.batchCalls).isEqualTo(1);
+        assertThat(this.stubDistanceApi.elements).isEqualTo(2); // 1 single + 1 batch element
+    }
+
+    @Test
+    public void testGetNavigationDistances_requestsOnlyTheMissingDestinationsOfEachOrigin() {
+        CachingNavigationDistanceApi distanceApi = createDistanceApi(false, null);
+        distanceApi.getNavigationDistance(SHOP, CUSTOMER_ONE);
+        distanceApi.getNavigationDistance(CUSTOMER_TWO, OFFICE);
+
+        long[][] distances = distanceApi.getNavigationDistances(List.of(SHOP, CUSTOMER_TWO), List.of(CUSTOMER_ONE, OFFICE));
+
+        assertThat(distances[0][1]).isEqualTo(StubDistanceApi.distance(SHOP, OFFICE));
+        assertThat(distances[1][0]).isEqualTo(StubDistanceApi.distance(CUSTOMER_TWO, CUSTOMER_ONE));
+        // One request per origin, one element each, rather than the 2 x 2 rectangle of missing rows and columns
+        assertThat(this.stubDistanceApi.batchCalls).isEqualTo(2);
+        assertThat(this.stubDistanceApi.elements).isEqualTo(4); // 2 single + 2 batch elements
+    }
+
+    @Test
+    public void testGetNavigationDistances_readsPersistedPairsAndPersistsNewOnes() {
+        NavigationDistanceCellRepository repository = mock(NavigationDistanceCellRepository.class);
+        CachingNavigationDistanceApi distanceApi = createDistanceApi(true, repository);
+        String pairKey = distanceApi.getPairKey(SHOP, CUSTOMER_ONE);
+        when(repository.findByPairKeyIn(anyCollection()))
+                .thenReturn(List.of(new NavigationDistanceCell(pairKey, 4321)));
+
+        long[][] distances = distanceApi.getNavigationDistances(List.of(SHOP), List.of(CUSTOMER_ONE, CUSTOMER_TWO));
+
+        assertThat(distances[0][0]).isEqualTo(4321L);
+        assertThat(distanceApi.getPersistentHitCount()).isEqualTo(1);
+        assertThat(this.stubDistanceApi.elements).isEqualTo(1);
+        verify(repository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    public void testPrewarm_fetchesMissingPairsOncePerOrigin() {
+        CachingNavigationDistanceApi distanceApi = createDistanceApi(true, null);
+        List<Pair<Coordinates, Coordinates>> pairs = List.of(
+                new ImmutablePair<>(SHOP, CUSTOMER_ONE),
+                new ImmutablePair<>(SHOP, CUSTOMER_TWO),
+                new ImmutablePair<>(nudge(SHOP), nudge(CUSTOMER_TWO))
+        );
+
+        int warmed = distanceApi.prewarm(pairs, true);
+        distanceApi.getNavigationDistance(SHOP, CUSTOMER_TWO);
+
+        assertThat(warmed).isEqualTo(2);
+        assertThat(this.stubDistanceApi.batchCalls).isEqualTo(1);
+        assertThat(this.stubDistanceApi.elements).isEqualTo(2);
+    }
+
+    private CachingNavigationDistanceApi createDistanceApi(boolean symmetric, NavigationDistanceCellRepository repository) {
+        return CachingNavigationDistanceApi.builder()
+                .distanceApi(this.stubDistanceApi)
+                .cellSizeMeters(50)
+                .symmetric(symmetric)
+                .maxSize(100)
+                .ttl(Duration.ofHours(1))
+                .persistentTtl(Duration.ofDays(1))
+                .repository(repository)
+                .build();
+    }
+
+    private static Coordinates nudge(Coordinates coordinates) {
+        return new Coordinates().setLat(coordinates.getLat() + 0.00005).setLng(coordinates.getLng() - 0.00005);
+    }
+
+    private static class StubDistanceApi implements INavigationDistanceApi {
+        private int elements = 0;
+        private int batchCalls = 0;
+        private boolean fail = false;
+
+        private static long distance(Coordinates origin, Coordinates destination) {
+            return 1000 + Math.round((Math.abs(origin.getLat() - destination.getLat())
+                    + Math.abs(origin.getLng() - destination.getLng())) * 100_000);
+        }
+
+        @Override
+        public long getNavigationDistance(Coordinates origin, Coordinates destination) {
+            this.elements++;
+            return this.fail ? 0 : distance(origin, destination);
+        }
+
+        @Override
+        public long[][] getNavigationDistances(List<Coordinates> origins, List<Coordinates> destinations) {
+            this.batchCalls++;
+            long[][] distances = new long[origins.size()][destinations.size()];
+            for (int i = 0; i < origins.size(); i++) {
+                for (int j = 0; j < destinations.size(); j++) {
+                    this.elements++;
+                    distances[i][j] = this.fail ? DISTANCE_NOT_FOUND : distance(origins.get(i), destinations.get(j));
+                }
+            }
+            return distances;
+        }
+    }
+}
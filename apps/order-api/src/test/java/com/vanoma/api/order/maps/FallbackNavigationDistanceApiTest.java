@@ -0,0 +1,93 @@
+package com.vanoma.api.order.maps;
+
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FallbackNavigationDistanceApiTest {
+
+    private static final Coordinates ORIGIN = new Coordinates().setLat(-1.9441).setLng(30.0619);
+    private static final Coordinates DESTINATION = new Coordinates().setLat(-1.9536).setLng(30.0925);
+
+    private INavigationDistanceApi distanceApi;
+    private HaversineDistanceEstimator estimator;
+    private FallbackNavigationDistanceApi fallbackApi;
+
+    @BeforeEach
+    public void setUp() {
+        this.distanceApi = mock(INavigationDistanceApi.class);
+        this.estimator = new HaversineDistanceEstimator(null, 1);
+        this.fallbackApi = new FallbackNavigationDistanceApi(this.distanceApi, this.estimator);
+    }
+
+    @Test
+    public void testGetNavigationDistance_returnsRealDistanceWithoutLearningFromIt() {
+        when(this.distanceApi.getNavigationDistance(any(), any())).thenReturn(5000L);
+
+        assertThat(this.fallbackApi.getNavigationDistance(ORIGIN, DESTINATION)).isEqualTo(5000L);
+        assertThat(this.estimator.getSampleCount()).isEqualTo(0);
+        assertThat(this.fallbackApi.getFallbackCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testGetNavigationDistance_estimatesWhenApiIsUnavailable() {
+        when(this.distanceApi.getNavigationDistance(any(), any()))
+                .thenThrow(new MapsUnavailableException("distance distance timed out after 3000ms"));
+
+        long distance = this.fallbackApi.getNavigationDistance(ORIGIN, DESTINATION);
+
+        assertThat(distance).isEqualTo(this.estimator.getNavigationDistance(ORIGIN, DESTINATION));
+        assertThat(this.fallbackApi.getFallbackCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testGetNavigationDistance_passesNoRouteThrough() {
+        when(this.distanceApi.getNavigationDistance(any(), any()))
+                .thenThrow(new InvalidParameterException("utils.matrixApi.navigationDistanceNotFound"));
+
+        assertThatThrownBy(() -> this.fallbackApi.getNavigationDistance(ORIGIN, DESTINATION))
+                .isInstanceOf(InvalidParameterException.class);
+        assertThat(this.fallbackApi.getFallbackCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testGetNavigationDistance_passesMissingDistanceThrough() {
+        when(this.distanceApi.getNavigationDistance(any(), any())).thenReturn(0L);
+
+        assertThat(this.fallbackApi.getNavigationDistance(ORIGIN, DESTINATION)).isEqualTo(0L);
+        assertThat(this.fallbackApi.getFallbackCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testGetNavigationDistances_passesMissingCellsThrough() {
+        when(this.distanceApi.getNavigationDistances(anyList(), anyList()))
+                .thenReturn(new long[][]{{4200L, INavigationDistanceApi.DISTANCE_NOT_FOUND}});
+
+        long[][] distances = this.fallbackApi.getNavigationDistances(List.of(ORIGIN), List.of(DESTINATION, ORIGIN));
+
+        assertThat(distances[0][0]).isEqualTo(4200L);
+        assertThat(distances[0][1]).isEqualTo(INavigationDistanceApi.DISTANCE_NOT_FOUND);
+        assertThat(this.fallbackApi.getFallbackCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testGetNavigationDistances_estimatesEverythingWhenApiIsUnavailable() {
+        when(this.distanceApi.getNavigationDistances(anyList(), anyList()))
+                .thenThrow(new MapsUnavailableException("distance distance-matrix rejected, circuit open"));
+
+        long[][] distances = this.fallbackApi.getNavigationDistances(List.of(ORIGIN), List.of(DESTINATION, ORIGIN));
+
+        assertThat(distances[0][0]).isEqualTo(this.estimator.getNavigationDistance(ORIGIN, DESTINATION));
+        assertThat(distances[0][1]).isEqualTo(this.estimator.getNavigationDistance(ORIGIN, ORIGIN));
+        assertThat(this.fallbackApi.getFallbackCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,107 @@
+package com.vanoma.api.order.maps;
+
+import com.google.maps.GeoApiContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GeoApiContextPoolTest {
+
+    private GeoApiContextPool pool;
+
+    @AfterEach
+    public void tearDown() {
+        if (this.pool != null) this.pool.close();
+    }
+
+    @Test
+    public void testGetContext_reusesContextAcrossCalls() {
+        this.pool = createPool(1);
+
+        GeoApiContext first = this.pool.getContext();
+        GeoApiContext second = this.pool.getContext();
+
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void testGetContext_spreadsCallsOverPool() {
+        this.pool = createPool(3);
+
+        Set<GeoApiContext> contexts = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 6; i++) {
+            contexts.add(this.pool.getContext());
+        }
+
+        assertThat(contexts.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void testGetContext_isSafeUnderConcurrentCallers() throws Exception {
+        this.pool = createPool(2);
+        int threads = 16;
+        int callsPerThread = 500;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<GeoApiContext> contexts = ConcurrentHashMap.newKeySet();
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                int seen = 0;
+                for (int i = 0; i < callsPerThread; i++) {
+                    GeoApiContext context = this.pool.getContext();
+                    if (context != null) seen++;
+                    contexts.add(context);
+                }
+                return seen;
+            }));
+        }
+        start.countDown();
+
+        int total = 0;
+        for (Future<Integer> future : futures) {
+            total += future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Every caller got a live context and no call built a new one.
+        assertThat(total).isEqualTo(threads * callsPerThread);
+        assertThat(contexts.size()).isEqualTo(2);
+        assertThat(this.pool.isClosed()).isFalse();
+    }
+
+    @Test
+    public void testClose_rejectsFurtherCalls() {
+        this.pool = createPool(2);
+
+        this.pool.close();
+        this.pool.close(); // Idempotent
+
+        assertThat(this.pool.isClosed()).isTrue();
+        assertThrows(IllegalStateException.class, () -> this.pool.getContext());
+    }
+
+    private static GeoApiContextPool createPool(int size) {
+        return GeoApiContextPool.builder()
+                .apiKey("AIza-test-key")
+                .size(size)
+                .maxIdleConnections(5)
+                .keepAlive(Duration.ofMinutes(1))
+                .connectTimeout(Duration.ofSeconds(1))
+                .readTimeout(Duration.ofSeconds(1))
+                .retryTimeout(Duration.ofSeconds(1))
+                .maxRetries(0)
+                .queryRateLimit(10)
+                .build();
+    }
+}
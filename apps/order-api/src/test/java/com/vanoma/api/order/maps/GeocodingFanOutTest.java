@@ -0,0 +1,131 @@
+package com.vanoma.api.order.maps;
+
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import com.vanoma.api.utils.httpwrapper.HttpResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+public class GeocodingFanOutTest {
+
+    private static final Coordinates SHOP = new Coordinates().setLat(-1.9441).setLng(30.0619);
+    private static final Coordinates CUSTOMER = new Coordinates().setLat(-1.9536).setLng(30.0925);
+    private static final Coordinates OUTSIDE = new Coordinates().setLat(-1.2921).setLng(36.8219);
+
+    private StubGeocodingService stubGeocodingService;
+    private GeocodingFanOut fanOut;
+
+    @BeforeEach
+    public void setUp() {
+        this.stubGeocodingService = new StubGeocodingService();
+        this.fanOut = createFanOut(Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.fanOut.close();
+    }
+
+    @Test
+    public void testReverseGeocodeAll_resolvesDuplicatesOnce() {
+        List<GeocodingFanOut.Result> results = this.fanOut.reverseGeocodeAll(List.of(SHOP, CUSTOMER, SHOP));
+
+        assertThat(results.size()).isEqualTo(3);
+        assertThat(results.get(0)).isSameAs(results.get(2));
+        assertThat(results.get(1).isSuccess()).isTrue();
+        assertThat(this.stubGeocodingService.calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testReverseGeocodeAll_resolvesDistinctLookupsConcurrently() {
+        this.stubGeocodingService.delayMillis = 300;
+
+        long start = System.nanoTime();
+        this.fanOut.reverseGeocodeAll(List.of(SHOP, CUSTOMER, OUTSIDE));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(elapsedMillis).isLessThan(800L);
+    }
+
+    @Test
+    public void testReverseGeocodeAll_keepsErrorsInInputOrder() {
+        List<GeocodingFanOut.Result> results = this.fanOut.reverseGeocodeAll(List.of(SHOP, OUTSIDE, CUSTOMER));
+
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(results.get(1).isSuccess()).isFalse();
+        assertThatThrownBy(() -> results.get(1).get())
+                .isInstanceOf(InvalidParameterException.class)
+                .hasMessageContaining("crud.address.outOfRwanda");
+        assertThat(results.get(2).isSuccess()).isTrue();
+    }
+
+    @Test
+    public void testGeocodeAll_failsLookupsPastTheDeadline() {
+        this.fanOut.close();
+        this.fanOut = createFanOut(Duration.ofMillis(100));
+        this.stubGeocodingService.delayMillis = 2000;
+
+        List<GeocodingFanOut.Result> results = this.fanOut.geocodeAll(List.of(
+                new AddressLine().setHouseNumber("10").setStreetName("KN 5 Rd")));
+
+        assertThatThrownBy(() -> results.get(0).get())
+                .isInstanceOf(InvalidParameterException.class)
+                .hasMessageContaining("crud.address.geocodingFailure");
+    }
+
+    private GeocodingFanOut createFanOut(Duration deadline) {
+        return GeocodingFanOut.builder()
+                .geocodingService(this.stubGeocodingService)
+                .executor(Executors.newFixedThreadPool(4))
+                .deadline(deadline)
+                .build();
+    }
+
+    private static class StubGeocodingService implements IGeocodingService {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile long delayMillis = 0;
+
+        @Override
+        public ResponseEntity<Map<String, Object>> geocode(GeocodeRequestJson json) {
+            return null;
+        }
+
+        @Override
+        public HttpResult geocode(AddressLine addressLine) {
+            return this.lookup(new Coordinates().setLat(-1.95).setLng(30.06));
+        }
+
+        @Override
+        public ResponseEntity<Map<String, Object>> reverseGeocode(ReverseGeocodeRequestJson json) {
+            return null;
+        }
+
+        @Override
+        public HttpResult reverseGeocode(Coordinates coordinates) {
+            return this.lookup(coordinates);
+        }
+
+        private HttpResult lookup(Coordinates coordinates) {
+            this.calls.incrementAndGet();
+            try {
+                Thread.sleep(this.delayMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (coordinates.getLng() > 31) throw new InvalidParameterException("crud.address.outOfRwanda");
+            Map<String, Object> address = Map.of("lat", coordinates.getLat(), "lng", coordinates.getLng());
+            return new HttpResult(address, HttpStatus.OK.value());
+        }
+    }
+}
@@ -1,5 +1,108 @@
 package com.vanoma.api.order.maps;
 
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import com.vanoma.api.utils.httpwrapper.HttpResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
 public class GeocodingServiceTest {
 
+    private static final int CALLERS = 5;
+
+    private IMapsAPI mapsClient;
+    private GeocodingService geocodingService;
+    private ExecutorService executor;
+    private CountDownLatch release;
+
+    @BeforeEach
+    public void setUp() {
+        this.mapsClient = mock(IMapsAPI.class);
+        this.geocodingService = new GeocodingService(this.mapsClient);
+        this.executor = Executors.newFixedThreadPool(CALLERS);
+        this.release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testGeocode_coalescesConcurrentIdenticalLookups() throws Exception {
+        HttpResult httpResult = new HttpResult(Map.of("lat", -1.95, "lng", 30.06), HttpStatus.OK.value());
+        when(this.mapsClient.geocode(any())).thenAnswer(invocation -> {
+            this.release.await(5, TimeUnit.SECONDS);
+            return httpResult;
+        });
+
+        List<Future<HttpResult>> futures = this.geocodeConcurrently(i -> new AddressLine()
+                .setHouseNumber("10")
+                .setStreetName(i % 2 == 0 ? "KN 5 Rd" : " kn  5 rd "));
+
+        for (Future<HttpResult> future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(httpResult);
+        }
+        verify(this.mapsClient, times(1)).geocode(any());
+        assertThat(this.geocodingService.getCoalescedRequestCount()).isEqualTo(CALLERS - 1L);
+    }
+
+    @Test
+    public void testGeocode_propagatesFailureToAllWaiters() throws Exception {
+        when(this.mapsClient.geocode(any())).thenAnswer(invocation -> {
+            this.release.await(5, TimeUnit.SECONDS);
+            throw new InvalidParameterException("crud.address.outOfKigali");
+        });
+
+        List<Future<HttpResult>> futures = this.geocodeConcurrently(i -> new AddressLine()
+                .setHouseNumber("10")
+                .setStreetName("KN 5 Rd"));
+
+        for (Future<HttpResult> future : futures) {
+            assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(InvalidParameterException.class);
+        }
+        verify(this.mapsClient, times(1)).geocode(any());
+    }
+
+    @Test
+    public void testGeocode_doesNotReuseCompletedLookups() {
+        when(this.mapsClient.geocode(any())).thenReturn(new HttpResult(Map.of(), HttpStatus.OK.value()));
+        AddressLine addressLine = new AddressLine().setHouseNumber("10").setStreetName("KN 5 Rd");
+
+        this.geocodingService.geocode(addressLine);
+        this.geocodingService.geocode(addressLine);
+
+        verify(this.mapsClient, times(2)).geocode(any());
+        assertThat(this.geocodingService.getCoalescedRequestCount()).isEqualTo(0L);
+    }
+
+    private List<Future<HttpResult>> geocodeConcurrently(IntFunction<AddressLine> addressLines) throws Exception {
+        List<Future<HttpResult>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            AddressLine addressLine = addressLines.apply(i);
+            futures.add(this.executor.submit(() -> this.geocodingService.geocode(addressLine)));
+        }
+        // Hold the upstream call until every caller has joined it.
+        long deadline = System.currentTimeMillis() + 5000;
+        while (this.geocodingService.getCoalescedRequestCount() < CALLERS - 1
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        this.release.countDown();
+        return futures;
+    }
 }
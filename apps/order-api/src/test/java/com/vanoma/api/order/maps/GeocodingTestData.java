@@ -0,0 +1,40 @@
+package com.vanoma.api.order.maps;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.google.maps.internal.SafeEnumAdapter;
+import com.google.maps.model.AddressComponentType;
+import com.google.maps.model.AddressType;
+import com.google.maps.model.GeocodingResult;
+import com.google.maps.model.LocationType;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+// Google geocoding responses recorded in maps/TestData.json, parsed the way the maps client parses them.
+public class GeocodingTestData {
+    public static final Path PATH = Path.of("src/main/java/com/vanoma/api/order/maps/TestData.json");
+
+    public static Map<String, List<GeocodingResult>> load() {
+        Gson gson = new GsonBuilder()
+                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .registerTypeAdapter(AddressComponentType.class, new SafeEnumAdapter<>(AddressComponentType.UNKNOWN))
+                .registerTypeAdapter(AddressType.class, new SafeEnumAdapter<>(AddressType.UNKNOWN))
+                .registerTypeAdapter(LocationType.class, new SafeEnumAdapter<>(LocationType.UNKNOWN))
+                .create();
+        try (Reader reader = Files.newBufferedReader(PATH, StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, new TypeToken<Map<String, List<GeocodingResult>>>() {
+            }.getType());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
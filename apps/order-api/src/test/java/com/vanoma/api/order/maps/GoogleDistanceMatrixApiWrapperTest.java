@@ -0,0 +1,167 @@
+package com.vanoma.api.order.maps;
+
+import com.google.maps.model.*;
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+public class GoogleDistanceMatrixApiWrapperTest {
+
+    private StubDistanceMatrixApiWrapper distanceApi;
+
+    @AfterEach
+    public void tearDown() {
+        if (this.distanceApi != null) this.distanceApi.close();
+    }
+
+    @Test
+    public void testGetNavigationDistances_usesSingleRequestForSmallMatrix() {
+        this.distanceApi = new StubDistanceMatrixApiWrapper(2);
+        List<Coordinates> origins = createCoordinates(1);
+        List<Coordinates> destinations = createCoordinates(10);
+
+        long[][] distances = this.distanceApi.getNavigationDistances(origins, destinations);
+
+        assertThat(this.distanceApi.requests.get()).isEqualTo(1);
+        assertDistances(distances, origins, destinations);
+    }
+
+    @Test
+    public void testGetNavigationDistances_splitsMatrixWithinRequestLimits() {
+        this.distanceApi = new StubDistanceMatrixApiWrapper(3);
+        List<Coordinates> origins = createCoordinates(30);
+        List<Coordinates> destinations = createCoordinates(30);
+
+        long[][] distances = this.distanceApi.getNavigationDistances(origins, destinations);
+
+        // 30 x 30 in blocks of 4 x 25 => 8 x 2 requests
+        assertThat(this.distanceApi.requests.get()).isEqualTo(16);
+        assertThat(this.distanceApi.maxElements.get()).isLessThanOrEqualTo(GoogleDistanceMatrixApiWrapper.MAX_ELEMENTS_PER_REQUEST);
+        assertThat(this.distanceApi.maxInFlight.get()).isLessThanOrEqualTo(3);
+        assertDistances(distances, origins, destinations);
+    }
+
+    @Test
+    public void testGetNavigationDistances_throwsWhenABlockFails() {
+        this.distanceApi = new StubDistanceMatrixApiWrapper(1);
+        this.distanceApi.fail = true;
+
+        assertThatThrownBy(() -> this.distanceApi.getNavigationDistances(createCoordinates(2), createCoordinates(2)))
+                .isInstanceOf(MapsUnavailableException.class)
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void testGetNavigationDistances_marksPairsWithoutRouteAsNotFound() {
+        this.distanceApi = new StubDistanceMatrixApiWrapper(1);
+        this.distanceApi.status = DistanceMatrixElementStatus.ZERO_RESULTS;
+
+        long[][] distances = this.distanceApi.getNavigationDistances(createCoordinates(2), createCoordinates(2));
+
+        assertThat(distances[0][0]).isEqualTo(INavigationDistanceApi.DISTANCE_NOT_FOUND);
+        assertThat(distances[1][1]).isEqualTo(INavigationDistanceApi.DISTANCE_NOT_FOUND);
+    }
+
+    @Test
+    public void testGetNavigationDistance_throwsWhenTheRequestFails() {
+        this.distanceApi = new StubDistanceMatrixApiWrapper(1);
+        this.distanceApi.fail = true;
+        List<Coordinates> coordinates = createCoordinates(2);
+
+        assertThatThrownBy(() -> this.distanceApi.getNavigationDistance(coordinates.get(0), coordinates.get(1)))
+                .isInstanceOf(MapsUnavailableException.class);
+    }
+
+    @Test
+    public void testGetNavigationDistance_rejectsPairsWithoutRoute() {
+        this.distanceApi = new StubDistanceMatrixApiWrapper(1);
+        this.distanceApi.status = DistanceMatrixElementStatus.ZERO_RESULTS;
+        List<Coordinates> coordinates = createCoordinates(2);
+
+        assertThatThrownBy(() -> this.distanceApi.getNavigationDistance(coordinates.get(0), coordinates.get(1)))
+                .isInstanceOf(InvalidParameterException.class);
+    }
+
+    @Test
+    public void testGetNavigationDistances_returnsEmptyMatrixWithoutDestinations() {
+        this.distanceApi = new StubDistanceMatrixApiWrapper(1);
+
+        long[][] distances = this.distanceApi.getNavigationDistances(createCoordinates(3), new ArrayList<>());
+
+        assertThat(distances.length).isEqualTo(3);
+        assertThat(distances[0].length).isEqualTo(0);
+        assertThat(this.distanceApi.requests.get()).isEqualTo(0);
+    }
+
+    private static List<Coordinates> createCoordinates(int count) {
+        List<Coordinates> coordinates = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            coordinates.add(new Coordinates().setLat(-1.9 - i * 0.001).setLng(30.0 + i * 0.001));
+        }
+        return coordinates;
+    }
+
+    private static void assertDistances(long[][] distances, List<Coordinates> origins, List<Coordinates> destinations) {
+        for (int i = 0; i < origins.size(); i++) {
+            for (int j = 0; j < destinations.size(); j++) {
+                assertThat(distances[i][j]).isEqualTo(fakeDistance(toLatLng(origins.get(i)), toLatLng(destinations.get(j))));
+            }
+        }
+    }
+
+    private static LatLng toLatLng(Coordinates coordinates) {
+        return new LatLng(coordinates.getLat(), coordinates.getLng());
+    }
+
+    private static long fakeDistance(LatLng origin, LatLng destination) {
+        return 1 + Math.round(Math.abs(origin.lat - destination.lat) * 1e6 + Math.abs(origin.lng - destination.lng) * 1e3);
+    }
+
+    private static class StubDistanceMatrixApiWrapper extends GoogleDistanceMatrixApiWrapper {
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private final AtomicInteger maxElements = new AtomicInteger();
+        private volatile boolean fail = false;
+        private volatile DistanceMatrixElementStatus status = DistanceMatrixElementStatus.OK;
+
+        private StubDistanceMatrixApiWrapper(int maxConcurrentRequests) {
+            super(null, maxConcurrentRequests);
+        }
+
+        @Override
+        protected DistanceMatrix requestMatrix(LatLng[] origins, LatLng[] destinations) throws InterruptedException, IOException {
+            this.requests.incrementAndGet();
+            this.maxElements.accumulateAndGet(origins.length * destinations.length, Math::max);
+            this.maxInFlight.accumulateAndGet(this.inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+                if (this.fail) throw new IOException("Network is unreachable");
+
+                DistanceMatrixRow[] rows = new DistanceMatrixRow[origins.length];
+                for (int i = 0; i < origins.length; i++) {
+                    rows[i] = new DistanceMatrixRow();
+                    rows[i].elements = new DistanceMatrixElement[destinations.length];
+                    for (int j = 0; j < destinations.length; j++) {
+                        DistanceMatrixElement element = new DistanceMatrixElement();
+                        element.status = this.status;
+                        element.distance = new Distance();
+                        element.distance.inMeters = fakeDistance(origins[i], destinations[j]);
+                        rows[i].elements[j] = element;
+                    }
+                }
+                return new DistanceMatrix(new String[0], new String[0], rows);
+            } finally {
+                this.inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.vanoma.api.order.maps;
+
+import com.google.maps.model.GeocodingResult;
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+public class GoogleMapsAPIWrapperTest {
+
+    private static Map<String, List<GeocodingResult>> testData;
+
+    @BeforeAll
+    public static void setUp() {
+        testData = GeocodingTestData.load();
+    }
+
+    @Test
+    public void testGetAddress_usesMostAccurateResult() {
+        Map<String, Object> address = GoogleMapsAPIWrapper.getAddress(testData.get("KIGALI_MARRIOTT_HOTEL"));
+
+        assertThat(address.get("streetName")).isEqualTo("KN 3 Ave");
+        assertThat(address.get("houseNumber")).isNull();
+        assertThat(address.get("district")).isEqualTo("Nyarugenge");
+        assertThat(address.get("latitude")).isEqualTo(-1.953974);
+        assertThat(address.get("longitude")).isEqualTo(30.0618491);
+    }
+
+    @Test
+    public void testGetAddress_readsSuburbanStreet() {
+        Map<String, Object> address = GoogleMapsAPIWrapper.getAddress(testData.get("KIGALI_SUBURBAN_AREA"));
+
+        assertThat(address.get("streetName")).isEqualTo("KK 102 St");
+        assertThat(address.get("district")).isEqualTo("Kicukiro");
+    }
+
+    @Test
+    public void testGetAddress_dropsUnnamedRoad() {
+        Map<String, Object> address = GoogleMapsAPIWrapper.getAddress(testData.get("UNNAMED_ROAD_KIGALI"));
+
+        assertThat(address.get("streetName")).isNull();
+        assertThat(address.get("district")).isEqualTo("Kicukiro");
+    }
+
+    @Test
+    public void testGetAddress_takesDistrictFromOtherResults() {
+        Map<String, Object> address = GoogleMapsAPIWrapper.getAddress(testData.get("MASAKA_AREA_KIGALI"));
+
+        assertThat(address.get("streetName")).isNull();
+        assertThat(address.get("district")).isEqualTo("Kicukiro");
+        assertThat(address.get("latitude")).isEqualTo(-1.9883842);
+    }
+
+    @Test
+    public void testGetAddress_rejectsAddressOutsideKigali() {
+        assertThatThrownBy(() -> GoogleMapsAPIWrapper.getAddress(testData.get("AREA_OUTSIDE_KIGALI")))
+                .isInstanceOf(InvalidParameterException.class)
+                .hasMessage("crud.address.outOfKigali");
+    }
+
+    @Test
+    public void testGetAddress_rejectsAddressOutsideRwanda() {
+        assertThatThrownBy(() -> GoogleMapsAPIWrapper.getAddress(testData.get("AREA_OUTSIDE_RWANDA")))
+                .isInstanceOf(InvalidParameterException.class)
+                .hasMessage("crud.address.outOfRwanda");
+    }
+}
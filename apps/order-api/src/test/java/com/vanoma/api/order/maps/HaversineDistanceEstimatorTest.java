@@ -0,0 +1,58 @@
+package com.vanoma.api.order.maps;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.within;
+
+public class HaversineDistanceEstimatorTest {
+
+    private static final Coordinates ORIGIN = new Coordinates().setLat(-1.9441).setLng(30.0619);
+    private static final Coordinates DESTINATION = new Coordinates().setLat(-1.9536).setLng(30.0925);
+
+    @Test
+    public void testGetHaversineDistance_matchesGreatCircleDistance() {
+        Coordinates north = new Coordinates().setLat(0.0).setLng(30.0);
+        Coordinates south = new Coordinates().setLat(-1.0).setLng(30.0);
+
+        assertThat(HaversineDistanceEstimator.getHaversineDistance(north, south)).isCloseTo(111_195.0, within(1.0));
+        assertThat(HaversineDistanceEstimator.getHaversineDistance(ORIGIN, ORIGIN)).isEqualTo(0.0);
+    }
+
+    @Test
+    public void testGetNavigationDistance_usesDefaultDetourFactorWithoutSamples() {
+        HaversineDistanceEstimator estimator = new HaversineDistanceEstimator(null, 2);
+
+        long expected = Math.round(HaversineDistanceEstimator.getHaversineDistance(ORIGIN, DESTINATION)
+                * HaversineDistanceEstimator.DEFAULT_DETOUR_FACTOR);
+        assertThat(estimator.getNavigationDistance(ORIGIN, DESTINATION)).isEqualTo(expected);
+    }
+
+    @Test
+    public void testLearn_updatesDetourFactorAndTracksError() {
+        HaversineDistanceEstimator estimator = new HaversineDistanceEstimator(null, 2);
+        double straightLine = HaversineDistanceEstimator.getHaversineDistance(ORIGIN, DESTINATION);
+
+        estimator.learn(ORIGIN, DESTINATION, Math.round(straightLine * 1.2));
+        estimator.learn(ORIGIN, DESTINATION, Math.round(straightLine * 1.2));
+
+        assertThat(estimator.getDetourFactor(ORIGIN, DESTINATION)).isCloseTo(1.2, within(0.001));
+        assertThat(estimator.getNavigationDistance(ORIGIN, DESTINATION)).isCloseTo(Math.round(straightLine * 1.2), within(2L));
+        assertThat(estimator.getSampleCount()).isEqualTo(2);
+        // First estimate used 1.4 instead of 1.2, second too (not enough samples yet)
+        assertThat(estimator.getMeanAbsolutePercentageError()).isCloseTo(0.2 / 1.2, within(0.001));
+    }
+
+    @Test
+    public void testGetNavigationDistances_estimatesEveryPair() {
+        HaversineDistanceEstimator estimator = new HaversineDistanceEstimator(null, 1);
+
+        long[][] distances = estimator.getNavigationDistances(List.of(ORIGIN, DESTINATION), List.of(ORIGIN, DESTINATION));
+
+        assertThat(distances[0][1]).isEqualTo(estimator.getNavigationDistance(ORIGIN, DESTINATION));
+        assertThat(distances[1][0]).isEqualTo(distances[0][1]);
+        assertThat(distances[0][0]).isEqualTo(1L);
+    }
+}
@@ -0,0 +1,63 @@
+package com.vanoma.api.order.maps;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class KigaliDistrictResolverTest {
+
+    // Synthetic, box-shaped districts. Not real boundaries.
+    private static KigaliDistrictResolver resolver;
+
+    @BeforeAll
+    public static void setUp() {
+        resolver = KigaliDistrictResolver.fromClasspath("maps/kigali-districts-fixture.geojson");
+    }
+
+    @Test
+    public void testResolve_returnsDistrictOfPolygonContainingPoint() {
+        assertThat(resolver.getSize()).isEqualTo(3);
+        assertThat(resolve(-1.95, 30.05)).isEqualTo(Optional.of(KigaliDistrict.NYARUGENGE));
+        assertThat(resolve(-1.90, 30.10)).isEqualTo(Optional.of(KigaliDistrict.GASABO));
+        assertThat(resolve(-2.00, 30.10)).isEqualTo(Optional.of(KigaliDistrict.KICUKIRO));
+    }
+
+    @Test
+    public void testResolve_supportsMultiPolygons() {
+        assertThat(resolve(-1.82, 30.27)).isEqualTo(Optional.of(KigaliDistrict.GASABO));
+        assertThat(resolve(-1.82, 30.22)).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    public void testResolve_returnsEmptyOutsideAllPolygons() {
+        assertThat(resolve(-1.50, 29.60)).isEqualTo(Optional.empty());
+        assertThat(resolve(-2.10, 30.10)).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    public void testResolve_returnsEmptyWithoutBoundaries() throws Exception {
+        String geoJson = "{\"type\": \"FeatureCollection\", \"features\": []}";
+        KigaliDistrictResolver emptyResolver = new KigaliDistrictResolver(
+                new ByteArrayInputStream(geoJson.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(emptyResolver.getSize()).isEqualTo(0);
+        assertThat(emptyResolver.resolve(new Coordinates().setLat(-1.95).setLng(30.05))).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    public void testEmpty_resolvesNothing() {
+        KigaliDistrictResolver emptyResolver = KigaliDistrictResolver.empty();
+
+        assertThat(emptyResolver.getSize()).isEqualTo(0);
+        assertThat(emptyResolver.resolve(new Coordinates().setLat(-1.95).setLng(30.05))).isEqualTo(Optional.empty());
+    }
+
+    private static Optional<KigaliDistrict> resolve(double lat, double lng) {
+        return resolver.resolve(new Coordinates().setLat(lat).setLng(lng));
+    }
+}
@@ -0,0 +1,49 @@
+package com.vanoma.api.order.maps;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LearningNavigationDistanceApiTest {
+
+    private static final Coordinates ORIGIN = new Coordinates().setLat(-1.9441).setLng(30.0619);
+    private static final Coordinates DESTINATION = new Coordinates().setLat(-1.9536).setLng(30.0925);
+
+    private INavigationDistanceApi distanceApi;
+    private HaversineDistanceEstimator estimator;
+    private LearningNavigationDistanceApi learningApi;
+
+    @BeforeEach
+    public void setUp() {
+        this.distanceApi = mock(INavigationDistanceApi.class);
+        this.estimator = new HaversineDistanceEstimator(null, 1);
+        this.learningApi = new LearningNavigationDistanceApi(this.distanceApi, this.estimator);
+    }
+
+    @Test
+    public void testGetNavigationDistance_learnsFromRealDistance() {
+        when(this.distanceApi.getNavigationDistance(any(), any())).thenReturn(5000L);
+
+        assertThat(this.learningApi.getNavigationDistance(ORIGIN, DESTINATION)).isEqualTo(5000L);
+        assertThat(this.estimator.getSampleCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testGetNavigationDistances_learnsOnlyFromFoundDistances() {
+        when(this.distanceApi.getNavigationDistances(anyList(), anyList()))
+                .thenReturn(new long[][]{{4200L, INavigationDistanceApi.DISTANCE_NOT_FOUND}});
+
+        long[][] distances = this.learningApi.getNavigationDistances(List.of(ORIGIN), List.of(DESTINATION, ORIGIN));
+
+        assertThat(distances[0][0]).isEqualTo(4200L);
+        assertThat(distances[0][1]).isEqualTo(INavigationDistanceApi.DISTANCE_NOT_FOUND);
+        assertThat(this.estimator.getSampleCount()).isEqualTo(1);
+    }
+}
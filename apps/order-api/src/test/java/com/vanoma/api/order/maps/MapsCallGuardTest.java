@@ -0,0 +1,141 @@
+package com.vanoma.api.order.maps;
+
+import com.vanoma.api.order.utils.CircuitBreaker;
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+public class MapsCallGuardTest {
+
+    private static final Duration TIMEOUT = Duration.ofMillis(200);
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private MapsCallGuard guard;
+
+    @BeforeEach
+    public void setUp() {
+        this.clock = new MutableClock();
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.guard = MapsCallGuard.builder()
+                .name("geocoding")
+                .maxConcurrentCalls(1)
+                .maxWait(Duration.ofMillis(10))
+                .circuitBreaker(new CircuitBreaker(2, Duration.ofSeconds(30), this.clock))
+                .meterRegistry(this.meterRegistry)
+                .build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.guard.close();
+    }
+
+    @Test
+    public void testCall_recordsLatencyPerOperationAndOutcome() {
+        String result = this.guard.call("geocode", TIMEOUT, () -> "OK");
+
+        assertThat(result).isEqualTo("OK");
+        Timer timer = this.meterRegistry.find(MapsCallGuard.METRIC_NAME)
+                .tags("api", "geocoding", "operation", "geocode", "outcome", "success")
+                .timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testCall_failsFastOnceTheCircuitOpensAndRecoversAfterATrialCall() {
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> this.guard.call("geocode", TIMEOUT, () -> {
+                calls.incrementAndGet();
+                throw new IOException("Connection reset");
+            })).isInstanceOf(MapsUnavailableException.class);
+        }
+        assertThat(this.guard.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        assertThatThrownBy(() -> this.guard.call("geocode", TIMEOUT, calls::incrementAndGet))
+                .isInstanceOf(MapsUnavailableException.class)
+                .hasMessageContaining("circuit open");
+        assertThat(calls.get()).isEqualTo(2);
+
+        this.clock.advance(Duration.ofSeconds(31));
+        assertThat(this.guard.call("geocode", TIMEOUT, calls::incrementAndGet)).isEqualTo(3);
+        assertThat(this.guard.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void testCall_treatsInvalidParameterAsHealthyAnswer() {
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> this.guard.call("reverse-geocode", TIMEOUT, () -> {
+                throw new InvalidParameterException("crud.address.outOfKigali");
+            })).isInstanceOf(InvalidParameterException.class);
+        }
+        assertThat(this.guard.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void testCall_timesOutSlowCallsAndKeepsTheirSlotUntilTheyEnd() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertThatThrownBy(() -> this.guard.call("geocode", TIMEOUT, () -> release.await(5, TimeUnit.SECONDS)))
+                .isInstanceOf(MapsUnavailableException.class)
+                .hasMessageContaining("timed out");
+        assertThatThrownBy(() -> this.guard.call("geocode", TIMEOUT, () -> "OK"))
+                .isInstanceOf(MapsUnavailableException.class)
+                .hasMessageContaining("too many calls");
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (this.guard.getAvailableSlots() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertThat(this.guard.call("geocode", TIMEOUT, () -> "OK")).isEqualTo("OK");
+    }
+
+    @Test
+    public void testCall_doesNotCountEmptyResultsTowardsTheCircuit() {
+        for (int i = 0; i < 3; i++) {
+            long distance = this.guard.call("distance", TIMEOUT, () -> INavigationDistanceApi.DISTANCE_NOT_FOUND);
+            assertThat(distance).isEqualTo(INavigationDistanceApi.DISTANCE_NOT_FOUND);
+        }
+        assertThat(this.guard.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2022-01-01T08:00:00Z");
+
+        private void advance(Duration duration) {
+            this.now = this.now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return this.now;
+        }
+    }
+}
@@ -1,12 +1,124 @@
 package com.vanoma.api.order.maps;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import com.vanoma.api.utils.httpwrapper.HttpResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
 @ActiveProfiles("test")
 @SpringBootTest
 @AutoConfigureMockMvc
 public class MapsControllerTest {
-    // TODO: Add tests here.
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private MockMvc mvc;
+    @MockBean
+    private IGeocodingService geocodingService;
+
+    @Test
+    public void testGeocodeBatch_streamsOneLinePerItemAndResolvesDuplicatesOnce() throws Exception {
+        when(this.geocodingService.geocode(any(AddressLine.class))).thenAnswer(invocation -> {
+            AddressLine addressLine = invocation.getArgument(0);
+            if (addressLine.getStreetName().startsWith("Nairobi")) {
+                throw new InvalidParameterException("crud.address.outOfRwanda");
+            }
+            return new HttpResult(new HashMap<>(Map.of("streetName", addressLine.getStreetName())), HttpStatus.OK.value());
+        });
+        List<Map<String, Object>> items = List.of(
+                Map.of("houseNumber", "10", "streetName", "KN 5 Rd"),
+                Map.of("houseNumber", "1", "streetName", "Nairobi Rd"),
+                Map.of("houseNumber", "10", "streetName", "KN 5 Rd"));
+
+        List<Map<String, Object>> lines = this.postBatch("/maps/geocode/batch", items);
+
+        assertThat(lines.size()).isEqualTo(3);
+        Map<Integer, Map<String, Object>> byIndex = new HashMap<>();
+        lines.forEach(line -> byIndex.put((Integer) line.get("index"), line));
+        assertThat(byIndex.get(0).get("status")).isEqualTo(200);
+        assertThat(((Map<?, ?>) byIndex.get(0).get("body")).get("streetName")).isEqualTo("KN 5 Rd");
+        assertThat(byIndex.get(2).get("body")).isEqualTo(byIndex.get(0).get("body"));
+        assertThat(byIndex.get(1).get("status")).isEqualTo(400);
+        assertThat(((Map<?, ?>) byIndex.get(1).get("body")).get("errorMessage"))
+                .isEqualTo("The selected location seems outside of Rwanda");
+        verify(this.geocodingService, times(2)).geocode(any(AddressLine.class));
+    }
+
+    @Test
+    public void testReverseGeocodeBatch_rejectsItemsWithoutCoordinates() throws Exception {
+        List<Map<String, Object>> items = List.of(Map.of("latitude", -1.9441));
+
+        MockHttpServletResponse response = this.mvc.perform(post("/maps/reverse-geocode/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(items))).andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        verify(this.geocodingService, never()).reverseGeocode(any(Coordinates.class));
+    }
+
+    @Test
+    public void testReverseGeocodeBatch_resolvesEveryItem() throws Exception {
+        when(this.geocodingService.reverseGeocode(any(Coordinates.class)))
+                .thenReturn(new HttpResult(new HashMap<>(Map.of("district", "GASABO")), HttpStatus.OK.value()));
+        List<Map<String, Object>> items = List.of(
+                Map.of("latitude", -1.9441, "longitude", 30.0619),
+                Map.of("latitude", -1.9536, "longitude", 30.0925));
+
+        List<Map<String, Object>> lines = this.postBatch("/maps/reverse-geocode/batch", items);
+
+        assertThat(lines.size()).isEqualTo(2);
+        for (Map<String, Object> line : lines) {
+            assertThat(line.get("status")).isEqualTo(200);
+        }
+    }
+
+    @Test
+    public void testReverseGeocodeBatch_streamsUntilTheBatchDeadline() throws Exception {
+        when(this.geocodingService.reverseGeocode(any(Coordinates.class)))
+                .thenReturn(new HttpResult(new HashMap<>(Map.of("district", "GASABO")), HttpStatus.OK.value()));
+        List<Map<String, Object>> items = List.of(Map.of("latitude", -1.9441, "longitude", 30.0619));
+
+        MvcResult started = this.mvc.perform(post("/maps/reverse-geocode/batch")
+                .contentType("application/json")
+                .accept("application/x-ndjson")
+                .content(objectMapper.writeValueAsString(items))).andReturn();
+
+        assertThat(started.getRequest().getAsyncContext().getTimeout())
+                .isGreaterThan(MapsController.getBatchDeadline().toMillis());
+        this.mvc.perform(asyncDispatch(started));
+    }
+
+    private List<Map<String, Object>> postBatch(String url, List<Map<String, Object>> items) throws Exception {
+        MvcResult started = this.mvc.perform(post(url)
+                .contentType("application/json")
+                .accept("application/x-ndjson")
+                .content(objectMapper.writeValueAsString(items))).andReturn();
+        MockHttpServletResponse response = this.mvc.perform(asyncDispatch(started)).andReturn().getResponse();
+        assertThat(response.getStatus()).isEqualTo(200);
+
+        List<Map<String, Object>> lines = new ArrayList<>();
+        for (String line : response.getContentAsString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isBlank()) lines.add(objectMapper.readValue(line, Map.class));
+        }
+        return lines;
+    }
 }
@@ -15,10 +15,15 @@ import com.vanoma.api.order.maps.Coordinates;
 import com.vanoma.api.order.maps.IGeocodingService;
 import com.vanoma.api.order.maps.INavigationDistanceApi;
 import com.vanoma.api.order.maps.KigaliDistrict;
+import com.vanoma.api.order.outbox.OutboxDestination;
+import com.vanoma.api.order.outbox.OutboxMessage;
+import com.vanoma.api.order.outbox.OutboxMessageRepository;
+import com.vanoma.api.order.outbox.OutboxMessageStatus;
 import com.vanoma.api.order.packages.*;
 import com.vanoma.api.order.packages.Package;
 import com.vanoma.api.order.pricing.CustomPricing;
 import com.vanoma.api.order.pricing.CustomPricingRepository;
+import com.vanoma.api.order.pricing.PricingConstants;
 import com.vanoma.api.order.tests.ObjectFactory;
 import com.vanoma.api.order.tests.OrderFactory;
 import com.vanoma.api.order.tests.ResourceMapper;
@@ -90,6 +95,8 @@ public class DeliveryOrderControllerTest {
     private BusinessHourRepository businessHourRepository;
     @MockBean
     private INavigationDistanceApi navigationDistanceApi;
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
 
     @Test
     public void testCreateDeliveryOrder_asWebUser_createsOrderOnly() throws Exception {
@@ -133,6 +140,47 @@ public class DeliveryOrderControllerTest {
         assertThat(actualBody).isEqualTo(expectedBody);
     }
 
+    @Test
+    public void testCreateDeliveryOrder_replaysResponseForSameIdempotencyKey() throws Exception {
+        Customer customer = this.orderFactory.createCustomer();
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        MockHttpServletResponse first = this.mvc.perform(post("/customers/" + customer.getCustomerId() + "/delivery-orders")
+                .contentType("application/json")
+                .header("Idempotency-Key", idempotencyKey)).andReturn().getResponse();
+        MockHttpServletResponse retry = this.mvc.perform(post("/customers/" + customer.getCustomerId() + "/delivery-orders")
+                .contentType("application/json")
+                .header("Idempotency-Key", idempotencyKey)).andReturn().getResponse();
+
+        assertThat(first.getStatus()).isEqualTo(HttpStatus.CREATED.value());
+        assertThat(retry.getStatus()).isEqualTo(HttpStatus.CREATED.value());
+        assertThat(retry.getHeader("Idempotent-Replayed")).isEqualTo("true");
+        assertThat(retry.getContentAsString()).isEqualTo(first.getContentAsString());
+        assertThat(this.orderRepository.findByCustomer(customer).size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCreateDeliveryOrder_returnsErrorWhenIdempotencyKeyIsReusedForAnotherRequest() throws Exception {
+        Customer customer = this.orderFactory.createCustomer();
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        this.mvc.perform(post("/customers/" + customer.getCustomerId() + "/delivery-orders")
+                .contentType("application/json")
+                .header("Idempotency-Key", idempotencyKey));
+        MockHttpServletResponse result = this.mvc.perform(post("/customers/" + customer.getCustomerId() + "/delivery-orders")
+                .contentType("application/json")
+                .content(stringifyRequestBody(Map.of("packages", List.of())))
+                .header("Idempotency-Key", idempotencyKey)).andReturn().getResponse();
+
+        assertThat(result.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+        Map<String, Object> expectedBody = Map.of(
+                "errorCode", "INVALID_REQUEST",
+                "errorMessage", "Idempotency-Key was already used for a different request"
+        );
+        assertThat(parseResponseBody(result)).isEqualTo(expectedBody);
+        assertThat(this.orderRepository.findByCustomer(customer).size()).isEqualTo(1);
+    }
+
     @Test
     public void testCreateDeliveryOrder_asApiUser_returnsErorWhenRequestBodyIsMissing() throws Exception {
         Customer customer = this.orderFactory.createCustomer();
@@ -517,6 +565,82 @@ public class DeliveryOrderControllerTest {
         assertThat(actualBody).isEqualTo(expectedBody);
     }
 
+    @Test
+    public void testCreateDeliveryOrder_asApiUser_reusesQuoteToken() throws Exception {
+        // Create business hours for today
+        this.orderFactory.createBusinessHour(TimeTestUtils.getDayOfWeek(), OffsetTime.MIN, OffsetTime.MAX);
+        Customer customer = this.orderFactory.createCustomer();
+
+        // Quote the delivery
+        Map<String, Object> origin = Map.of("latitude", -1.94995, "longitude", 30.05885);
+        Map<String, Object> destination = Map.of("latitude", -1.9518833, "longitude", 30.1369548);
+        when(this.geocodingService.reverseGeocode(any(Coordinates.class)))
+                .thenReturn(new HttpResult(Map.of("district", KigaliDistrict.GASABO.name()), HttpStatus.OK.value()));
+        Map<String, Object> pricingRequestBody = Map.of(
+                "customerId", customer.getCustomerId(),
+                "packages", List.of(Map.of("size", PackageSize.LARGE.name(), "origin", origin, "destination", destination))
+        );
+        MockHttpServletResponse pricingResult = this.mvc.perform(post("/delivery-pricing")
+                .contentType("application/json")
+                .content(stringifyRequestBody(pricingRequestBody))).andReturn().getResponse();
+        assertThat(pricingResult.getStatus()).isEqualTo(HttpStatus.OK.value());
+        String quoteToken = (String) parseResponseBody(pricingResult).get("quoteToken");
+
+        Map<String, Object> requestBody = Map.of(
+                "quoteToken", quoteToken,
+                "packages", List.of(Map.of(
+                        "size", PackageSize.LARGE.name(),
+                        "priority", PackagePriority.EXPRESS.name(),
+                        "fromContact", Map.of(
+                                "phoneNumberOne", "250788224455"
+                        ),
+                        "toContact", Map.of(
+                                "phoneNumberOne", "250788221133"
+                        ),
+                        "fromAddress", Map.of(
+                                "streetName", "KG 32 ST",
+                                "latitude", origin.get("latitude"),
+                                "longitude", origin.get("longitude"),
+                                "addressName", "Shop"
+                        ),
+                        "toAddress", Map.of(
+                                "streetName", "KK 15 RD",
+                                "latitude", destination.get("latitude"),
+                                "longitude", destination.get("longitude"),
+                                "addressName", "Customer"
+                        ),
+                        "pickUpStart", TimeUtils.getUtcNow().plusHours(1).toString()
+                ))
+        );
+        when(this.httpClientMock.post(any(String.class), any(Map.class)))
+                .thenReturn(new HttpResult(HttpStatus.OK.value()));
+        clearInvocations(this.geocodingService);
+
+        // The quoted price holds even if prices change in between
+        BigDecimal largePackagePrice = PricingConstants.LARGE_PACKAGE_PRICE;
+        PricingConstants.LARGE_PACKAGE_PRICE = BigDecimal.valueOf(5000);
+        MockHttpServletResponse result;
+        try {
+            result = this.mvc.perform(post("/customers/" + customer.getCustomerId() + "/delivery-orders")
+                    .contentType("application/json")
+                    .header("X-Access-Key", "5b2a34267dba613f7f9aef3a16e1e194f6fe4d3e8bfed24dcc2fc8c2ee2fdc9a")
+                    .content(new JSONObject(requestBody).toString())).andReturn().getResponse();
+        } finally {
+            PricingConstants.LARGE_PACKAGE_PRICE = largePackagePrice;
+        }
+        assertThat(result.getStatus()).isEqualTo(HttpStatus.CREATED.value());
+
+        // Districts come from the quote rather than the maps API
+        verify(this.geocodingService, never()).reverseGeocode(any(Coordinates.class));
+        DeliveryOrder order = this.orderRepository.findByCustomer(customer).get(0);
+        Package pkg = this.packageRepository.findByDeliveryOrder(order).get(0);
+        assertThat(pkg.getFromAddress().getDistrict()).isEqualTo(KigaliDistrict.GASABO);
+        assertThat(pkg.getToAddress().getDistrict()).isEqualTo(KigaliDistrict.GASABO);
+
+        Charge charge = this.chargeRepository.findByDeliveryOrderAndType(order, ChargeType.DELIVERY_FEE).get(0);
+        assertThat(charge.getTransactionAmount()).isEqualTo(new BigDecimal("4680.00"));
+    }
+
     @Test
     public void testCreateDeliveryOrder_asApiUser_usesClientProvidedPickUpStart() throws Exception {
         // Create business hours for today
@@ -635,6 +759,148 @@ public class DeliveryOrderControllerTest {
         assertThat(actualBody).isEqualTo(expectedBody);
     }
 
+    @Test
+    public void testCreateDeliveryOrders_createsValidOrdersAndReportsFailedOnes() throws Exception {
+        // Create business hours for today
+        this.orderFactory.createBusinessHour(TimeTestUtils.getDayOfWeek(), OffsetTime.MIN, OffsetTime.MAX);
+
+        Customer customer = this.orderFactory.createCustomer();
+        Contact fromContact = this.orderFactory.createContact(customer.getCustomerId());
+        Address fromAddress = this.orderFactory.createAddress(customer.getCustomerId());
+
+        // The second order is invalid and the third one fails while being created
+        Map<String, Object> requestBody = Map.of(
+                "deliveryOrders", List.of(
+                        Map.of("packages", List.of(createBatchPackageMap(fromContact.getContactId(), fromAddress))),
+                        Map.of("packages", List.of()),
+                        Map.of("packages", List.of(createBatchPackageMap(UUID.randomUUID().toString(), fromAddress))),
+                        Map.of("packages", List.of(createBatchPackageMap(fromContact.getContactId(), fromAddress)))
+                )
+        );
+
+        when(this.httpClientMock.post(any(String.class), any(Map.class)))
+                .thenReturn(new HttpResult(HttpStatus.OK.value()));
+
+        RequestBuilder requestBuilder = post("/customers/" + customer.getCustomerId() + "/delivery-orders/batch")
+                .contentType("application/json")
+                .header("X-Access-Key", "5b2a34267dba613f7f9aef3a16e1e194f6fe4d3e8bfed24dcc2fc8c2ee2fdc9a")
+                .content(new JSONObject(requestBody).toString());
+
+        MockHttpServletResponse result = this.mvc.perform(requestBuilder).andReturn().getResponse();
+        assertThat(result.getStatus()).isEqualTo(HttpStatus.OK.value());
+
+        Map<String, Object> actualBody = parseResponseBody(result);
+        assertThat(actualBody.get("createdCount")).isEqualTo(2);
+        assertThat(actualBody.get("failedCount")).isEqualTo(2);
+        List<Map<String, Object>> results = (List<Map<String, Object>>) actualBody.get("results");
+        assertThat(results.get(0).get("status")).isEqualTo("CREATED");
+        assertThat(results.get(1)).isEqualTo(Map.of(
+                "index", 1,
+                "status", "FAILED",
+                "errorCode", "INVALID_REQUEST",
+                "errorMessage", "Package not found"
+        ));
+        assertThat(results.get(2)).isEqualTo(Map.of(
+                "index", 2,
+                "status", "FAILED",
+                "errorCode", "RESOURCE_NOT_FOUND",
+                "errorMessage", "Contact not found"
+        ));
+        assertThat(results.get(3).get("status")).isEqualTo("CREATED");
+
+        // Only the created orders are persisted, and placed
+        List<DeliveryOrder> orders = this.orderRepository.findByCustomer(customer);
+        assertThat(orders.size()).isEqualTo(2);
+        for (DeliveryOrder order : orders) {
+            assertThat(order.getStatus()).isEqualTo(OrderStatus.PLACED);
+            assertThat(order.getClientType()).isEqualTo(ClientType.API);
+            assertThat(this.packageRepository.findByDeliveryOrder(order).get(0).getStatus()).isEqualTo(PackageStatus.PLACED);
+        }
+        Map<String, Object> createdOrder = (Map<String, Object>) results.get(0).get("deliveryOrder");
+        assertThat(orders.stream().anyMatch(order -> order.getDeliveryOrderId().equals(createdOrder.get("deliveryOrderId"))))
+                .isTrue();
+    }
+
+    @Test
+    public void testCreateDeliveryOrders_sharesNewContactsAcrossOrders() throws Exception {
+        // Create business hours for today
+        this.orderFactory.createBusinessHour(TimeTestUtils.getDayOfWeek(), OffsetTime.MIN, OffsetTime.MAX);
+
+        Customer customer = this.orderFactory.createCustomer();
+        Contact fromContact = this.orderFactory.createContact(customer.getCustomerId());
+        Address fromAddress = this.orderFactory.createAddress(customer.getCustomerId());
+
+        Map<String, Object> requestBody = Map.of(
+                "deliveryOrders", List.of(
+                        Map.of("packages", List.of(createBatchPackageMap(fromContact.getContactId(), fromAddress))),
+                        Map.of("packages", List.of(
+                                createBatchPackageMap(fromContact.getContactId(), fromAddress),
+                                createBatchPackageMap(fromContact.getContactId(), fromAddress)))
+                )
+        );
+
+        when(this.httpClientMock.post(any(String.class), any(Map.class)))
+                .thenReturn(new HttpResult(HttpStatus.OK.value()));
+
+        RequestBuilder requestBuilder = post("/customers/" + customer.getCustomerId() + "/delivery-orders/batch")
+                .contentType("application/json")
+                .header("X-Access-Key", "5b2a34267dba613f7f9aef3a16e1e194f6fe4d3e8bfed24dcc2fc8c2ee2fdc9a")
+                .content(new JSONObject(requestBody).toString());
+
+        MockHttpServletResponse result = this.mvc.perform(requestBuilder).andReturn().getResponse();
+        assertThat(result.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(parseResponseBody(result).get("createdCount")).isEqualTo(2);
+
+        // All three packages go to the same new contact, which is saved once
+        List<Contact> savedContacts = this.contactRepository
+                .findByCustomerIdAndIsSavedOrderByNameAsc(customer.getCustomerId(), true);
+        assertThat(savedContacts.stream().filter(c -> c.getPhoneNumberOne().equals("250788221133")).count()).isEqualTo(1);
+        // And the existing pick-up contact and address get a single ContactAddress
+        assertThat(this.contactAddressRepository.countByContact(fromContact)).isEqualTo(1);
+    }
+
+    @Test
+    public void testCreateDeliveryOrders_returnsErrorForInvalidBatch() throws Exception {
+        Customer customer = this.orderFactory.createCustomer();
+
+        RequestBuilder requestBuilder = post("/customers/" + customer.getCustomerId() + "/delivery-orders/batch")
+                .contentType("application/json")
+                .header("X-Access-Key", "5b2a34267dba613f7f9aef3a16e1e194f6fe4d3e8bfed24dcc2fc8c2ee2fdc9a")
+                .content(new JSONObject(Map.of("deliveryOrders", List.of())).toString());
+        MockHttpServletResponse result = this.mvc.perform(requestBuilder).andReturn().getResponse();
+
+        assertThat(result.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+        assertThat(parseResponseBody(result)).isEqualTo(Map.of(
+                "errorCode", "INVALID_REQUEST",
+                "errorMessage", "The batch must contain at least one delivery order"
+        ));
+
+        // Batches are for API users only
+        requestBuilder = post("/customers/" + customer.getCustomerId() + "/delivery-orders/batch")
+                .contentType("application/json")
+                .content(new JSONObject(Map.of("deliveryOrders", List.of())).toString());
+        result = this.mvc.perform(requestBuilder).andReturn().getResponse();
+        assertThat(result.getStatus()).isEqualTo(HttpStatus.FORBIDDEN.value());
+    }
+
+    private static Map<String, Object> createBatchPackageMap(String fromContactId, Address fromAddress) {
+        return Map.of(
+                "size", PackageSize.SMALL.name(),
+                "fromContact", Map.of("contactId", fromContactId),
+                "toContact", Map.of("phoneNumberOne", "250788221133"),
+                "fromAddress", Map.of("addressId", fromAddress.getAddressId()),
+                "toAddress", Map.of(
+                        "houseNumber", "12",
+                        "streetName", "KG 32 ST",
+                        "district", "Gasabo",
+                        "latitude", -1.94995,
+                        "longitude", 30.05885,
+                        "addressName", "Test address"
+                ),
+                "pickUpStart", TimeUtils.getUtcNow().plusHours(1).toString()
+        );
+    }
+
     @Test
     public void testGetDeliveryOrder_returnsFullOrderJsonObject() throws Exception {
         Customer customer = this.orderFactory.createCustomer();
@@ -679,7 +945,7 @@ public class DeliveryOrderControllerTest {
 
         // Validate SMS payload
         ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
-        verify(this.httpClientMock, times(1)).post(eq("null/sms"), captor.capture());
+        verify(this.httpClientMock, timeout(5_000).times(1)).post(eq("null/sms"), captor.capture());
         Map<String, Object> actualSmsPayload = captor.getValue();
         Map<String, Object> expectedSmsPayload = Map.of(
                 "isUnicode", false,
@@ -977,7 +1243,7 @@ public class DeliveryOrderControllerTest {
 
         // Validate sent web push
         ArgumentCaptor<Map<String, Object>> webPushPayloadCaptor = ArgumentCaptor.forClass(Map.class);
-        verify(this.httpClientMock, times(1)).post(eq("null/push"), webPushPayloadCaptor.capture());
+        verify(this.httpClientMock, timeout(5_000).times(1)).post(eq("null/push"), webPushPayloadCaptor.capture());
         Map<String, Object> actualWebPushPayload = webPushPayloadCaptor.getValue();
         Map<String, Object> expectedWebPushPayload = Map.of(
                 "heading", "New Delivery Request!",
@@ -1062,7 +1328,7 @@ public class DeliveryOrderControllerTest {
 
         // Validate sent web push
         ArgumentCaptor<Map<String, Object>> webPushPayloadCaptor = ArgumentCaptor.forClass(Map.class);
-        verify(this.httpClientMock, times(1)).post(eq("null/push"), webPushPayloadCaptor.capture());
+        verify(this.httpClientMock, timeout(5_000).times(1)).post(eq("null/push"), webPushPayloadCaptor.capture());
         Map<String, Object> actualWebPushPayload = webPushPayloadCaptor.getValue();
         Map<String, Object> expectedWebPushPayload = Map.of(
                 "heading", "New Delivery Request!",
@@ -1084,7 +1350,7 @@ public class DeliveryOrderControllerTest {
     }
 
     @Test
-    public void testCreateDeliveryRequest_returnsErrorWhenSendingSMSFailed() throws Exception {
+    public void testCreateDeliveryRequest_retriesSMSWhenSendingFailed() throws Exception {
         // Mock communication-api call
         when(this.httpClientMock.post(any(String.class), any(Map.class)))
                 .thenReturn(new HttpResult(new HashMap<>(), HttpStatus.INTERNAL_SERVER_ERROR.value()));
@@ -1117,14 +1383,30 @@ public class DeliveryOrderControllerTest {
                 .contentType("application/json")
                 .content(new JSONObject(requestBody).toString());
 
+        OffsetDateTime startedAt = TimeUtils.getUtcNow();
         MockHttpServletResponse result = this.mvc.perform(requestBuilder).andReturn().getResponse();
 
-        assertThat(result.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
-        Map<String, Object> actualPayload = parseResponseBody(result);
-        Map<String, Object> expectedPayload = Map.of(
-                "errorCode", "INVALID_REQUEST",
-                "errorMessage", "Unable to send SMS"
-        );
-        assertThat(actualPayload).isEqualTo(expectedPayload);
+        // The request no longer depends on the communication-api, the SMS is retried by the outbox relay
+        assertThat(result.getStatus()).isEqualTo(HttpStatus.CREATED.value());
+        verify(this.httpClientMock, timeout(5_000)).post(eq("null/sms"), any(Map.class));
+
+        OutboxMessage sms = this.awaitOutboxMessage(OutboxDestination.SMS, OutboxMessageStatus.PENDING, startedAt);
+        assertThat(sms.getAttempts()).isEqualTo(1);
+        assertThat(sms.getLastError()).startsWith("HTTP 500");
+        assertThat(sms.getNextAttemptAt()).isAfter(sms.getCreatedAt());
+    }
+
+    // Messages of earlier tests stay in the table, only the ones created since createdAfter are considered
+    private OutboxMessage awaitOutboxMessage(OutboxDestination destination, OutboxMessageStatus status,
+                                             OffsetDateTime createdAfter) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            Optional<OutboxMessage> message = this.outboxMessageRepository.findAll().stream()
+                    .filter(m -> m.getDestination() == destination && m.getStatus() == status && m.getAttempts() > 0)
+                    .filter(m -> !m.getCreatedAt().isBefore(createdAfter))
+                    .findFirst();
+            if (message.isPresent()) return message.get();
+            Thread.sleep(50);
+        }
+        throw new AssertionError("No " + status + " " + destination + " outbox message");
     }
 }
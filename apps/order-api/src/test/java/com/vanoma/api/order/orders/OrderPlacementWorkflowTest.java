@@ -21,11 +21,16 @@ import com.vanoma.api.order.tests.TimeTestUtils;
 import com.vanoma.api.utils.exceptions.InvalidParameterException;
 import com.vanoma.api.utils.exceptions.ResourceNotFoundException;
 import com.vanoma.api.utils.input.TimeUtils;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManagerFactory;
 import java.time.OffsetDateTime;
 import java.time.OffsetTime;
 import java.util.List;
@@ -65,6 +70,10 @@ public class OrderPlacementWorkflowTest {
 
     @Autowired
     private OrderFactory orderFactory;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     @Test
     public void testPlaceDeliveryOrder_withNullPickUpStart() {
@@ -186,6 +195,35 @@ public class OrderPlacementWorkflowTest {
         assertThat(toContactAddress.getLastNote()).isEqualTo("Test to notes");
     }
 
+    @Test
+    public void testPlaceDeliveryOrder_runsTheSameStatementsWhateverThePackageCount() {
+        // Create business hours for today
+        this.orderFactory.createBusinessHour(TimeTestUtils.getDayOfWeek(), OffsetTime.MIN, OffsetTime.MAX);
+
+        long statementCountWithOnePackage = countPlacementStatements(1);
+        long statementCountWithTenPackages = countPlacementStatements(10);
+        assertThat(statementCountWithTenPackages).isEqualTo(statementCountWithOnePackage);
+    }
+
+    private long countPlacementStatements(int packageCount) {
+        DeliveryOrder order = this.orderFactory.createOrder(OrderStatus.STARTED);
+        for (int i = 0; i < packageCount; i++) {
+            Package pkg = this.orderFactory.createPackage(order, PackageSize.SMALL);
+            this.orderFactory.createCharge(pkg, ChargeType.DELIVERY_FEE, ChargeStatus.UNPAID);
+        }
+
+        Statistics statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            new TransactionTemplate(this.transactionManager)
+                    .executeWithoutResult(status -> this.orderPlacementWorkflow.placeDeliveryOrder(order));
+            return statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
     @Test
     public void testPlaceDeliveryOrder_raisesErrorIfDeliveryFeeIsMissing() {
         // Create business hours for today
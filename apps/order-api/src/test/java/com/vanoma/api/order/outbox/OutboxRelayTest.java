@@ -0,0 +1,154 @@
+package com.vanoma.api.order.outbox;
+
+import com.vanoma.api.order.external.CallbackParams;
+import com.vanoma.api.order.maps.IGeocodingService;
+import com.vanoma.api.order.maps.INavigationDistanceApi;
+import com.vanoma.api.utils.httpwrapper.HttpResult;
+import com.vanoma.api.utils.httpwrapper.IHttpClientWrapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@SpringBootTest
+public class OutboxRelayTest {
+    @Autowired
+    private Outbox outbox;
+    @Autowired
+    private OutboxRelay outboxRelay;
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @MockBean
+    private IHttpClientWrapper httpClientMock;
+    @MockBean
+    private IGeocodingService geocodingService;
+    @MockBean
+    private INavigationDistanceApi navigationDistanceApi;
+
+    @BeforeEach
+    public void setUp() {
+        this.outboxMessageRepository.deleteAll();
+        when(this.httpClientMock.post(any(String.class), any(Map.class)))
+                .thenReturn(new HttpResult(new HashMap<>(), HttpStatus.OK.value()));
+    }
+
+    @Test
+    public void testSendSMS_sendsNothingUntilTheTransactionCommits() {
+        TransactionTemplate transaction = new TransactionTemplate(this.transactionManager);
+        OutboxMessage message = transaction.execute(status -> {
+            OutboxMessage sms = this.outbox.sendSMS("Hello", "250788223344");
+            verify(this.httpClientMock, after(200).never()).post(eq("null/sms"), anyMap());
+            return sms;
+        });
+
+        verify(this.httpClientMock, timeout(5_000)).post("null/sms", Map.of(
+                "message", "Hello",
+                "phoneNumbers", List.of("250788223344"),
+                "serviceName", "DELIVERY_NOTIFICATION",
+                "isUnicode", false
+        ));
+        OutboxMessage sent = this.awaitStatus(message.getOutboxMessageId(), OutboxMessageStatus.SENT);
+        assertThat(sent.getAttempts()).isEqualTo(1);
+        assertThat(sent.getSentAt()).isNotNull();
+    }
+
+    @Test
+    public void testSendSMS_sendsNothingWhenTheTransactionRollsBack() {
+        TransactionTemplate transaction = new TransactionTemplate(this.transactionManager);
+        transaction.executeWithoutResult(status -> {
+            this.outbox.sendSMS("Hello", "250788223344");
+            status.setRollbackOnly();
+        });
+
+        verify(this.httpClientMock, after(500).never()).post(eq("null/sms"), anyMap());
+        assertThat(this.outboxMessageRepository.count()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testSendCallback_failsWithoutRetryingRejectedCallbacks() {
+        when(this.httpClientMock.post(eq("https://api.example.com/events"), anyMap()))
+                .thenReturn(new HttpResult(new HashMap<>(), HttpStatus.BAD_REQUEST.value()));
+
+        OutboxMessage message = this.outbox.sendCallback(CallbackParams.builder()
+                .callbackUrl("https://api.example.com/events")
+                .payload(Map.of("eventName", "PACKAGE_DELIVERED"))
+                .build());
+
+        OutboxMessage failed = this.awaitStatus(message.getOutboxMessageId(), OutboxMessageStatus.FAILED);
+        assertThat(failed.getAttempts()).isEqualTo(1);
+        assertThat(failed.getLastError()).startsWith("HTTP 400");
+        assertThat(failed.getDestinationHost()).isEqualTo("api.example.com");
+    }
+
+    @Test
+    public void testSendCallback_limitsConcurrentCallbacksPerHost() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(this.httpClientMock.post(eq("https://slow.example.com/events"), anyMap())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            release.await(5, TimeUnit.SECONDS);
+            running.decrementAndGet();
+            return new HttpResult(new HashMap<>(), HttpStatus.OK.value());
+        });
+
+        List<OutboxMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            messages.add(this.outbox.sendCallback(CallbackParams.builder()
+                    .callbackUrl("https://slow.example.com/events")
+                    .payload(Map.of("index", i))
+                    .build()));
+        }
+        // Other destinations are not held up by the slow host
+        OutboxMessage sms = this.outbox.sendSMS("Hello", "250788223344");
+        this.awaitStatus(sms.getOutboxMessageId(), OutboxMessageStatus.SENT);
+
+        verify(this.httpClientMock, timeout(5_000).times(2)).post(eq("https://slow.example.com/events"), anyMap());
+        release.countDown();
+        for (OutboxMessage message : messages) {
+            this.outboxRelay.dispatch();
+            this.awaitStatus(message.getOutboxMessageId(), OutboxMessageStatus.SENT);
+        }
+        assertThat(maxRunning.get()).isEqualTo(2);
+    }
+
+    private OutboxMessage awaitStatus(String outboxMessageId, OutboxMessageStatus status) {
+        for (int i = 0; i < 100; i++) {
+            OutboxMessage message = this.outboxMessageRepository.findById(outboxMessageId).orElseThrow();
+            if (message.getStatus() == status) return message;
+            this.outboxRelay.dispatch();
+            sleep(50);
+        }
+        throw new AssertionError("Outbox message " + outboxMessageId + " is not " + status);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
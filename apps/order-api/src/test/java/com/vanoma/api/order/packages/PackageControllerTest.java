@@ -1456,7 +1456,7 @@ public class PackageControllerTest {
 
         // Validate cancellation SMS to buyer
         ArgumentCaptor<Map> communicationApiCaptor = ArgumentCaptor.forClass(Map.class);
-        verify(this.httpClientWrapper).post(eq("null/sms"), communicationApiCaptor.capture());
+        verify(this.httpClientWrapper, timeout(5_000)).post(eq("null/sms"), communicationApiCaptor.capture());
         Map<String, Object> actualSMSPayload = (Map<String, Object>) communicationApiCaptor.getValue();
         Map<String, Object> expectedSMSPayload = Map.of(
                 "message", String.format(
@@ -0,0 +1,71 @@
+package com.vanoma.api.order.packages;
+
+import com.vanoma.api.order.charges.ChargeRepository;
+import com.vanoma.api.order.contacts.Address;
+import com.vanoma.api.order.contacts.AddressRepository;
+import com.vanoma.api.order.customers.Customer;
+import com.vanoma.api.order.events.PackageEventRepository;
+import com.vanoma.api.order.tests.OrderFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+@ActiveProfiles("test")
+@SpringBootTest
+public class PackageRepositoryTest {
+    @Autowired
+    PackageRepository packageRepository;
+    @Autowired
+    AddressRepository addressRepository;
+    @Autowired
+    private PackageEventRepository packageEventRepository;
+    @Autowired
+    private ChargeRepository chargeRepository;
+
+    @Autowired
+    OrderFactory orderFactory;
+
+    @BeforeEach
+    public void setUp() {
+        // Same clean up as BackgroundTaskTest, so that packages of other tests don't show up in the counts.
+        this.packageEventRepository.deleteAll();
+        this.chargeRepository.deleteAll();
+        this.packageRepository.deleteAll();
+    }
+
+    @Test
+    public void testFindMostFrequentAddressPairs_countsPlacedCopiesUnderTheSavedAddress() {
+        Customer customer = this.orderFactory.createCustomer();
+        Address home = this.orderFactory.createAddress(customer.getCustomerId());
+        Address office = this.orderFactory.createAddress(customer.getCustomerId());
+        for (int i = 0; i < 3; i++) {
+            createPlacedPackage(customer, home, office);
+        }
+        createPlacedPackage(customer, office, home);
+
+        List<Object[]> rows = this.packageRepository.findMostFrequentAddressPairs(PageRequest.of(0, 10));
+
+        assertThat(rows.size()).isEqualTo(2);
+        assertThat(rows.get(0)[0]).isEqualTo(home.getAddressId());
+        assertThat(rows.get(0)[1]).isEqualTo(office.getAddressId());
+        assertThat(((Number) rows.get(0)[2]).longValue()).isEqualTo(3L);
+        assertThat(rows.get(1)[0]).isEqualTo(office.getAddressId());
+        assertThat(rows.get(1)[1]).isEqualTo(home.getAddressId());
+        assertThat(((Number) rows.get(1)[2]).longValue()).isEqualTo(1L);
+    }
+
+    // Placing an order stores copies of the addresses on the package, as OrderPlacementWorkflow does.
+    private void createPlacedPackage(Customer customer, Address from, Address to) {
+        Package pkg = this.orderFactory.createPackage(customer, PackageStatus.PLACED)
+                .setFromAddress(this.addressRepository.save(from.buildCopy(false)))
+                .setToAddress(this.addressRepository.save(to.buildCopy(false)));
+        this.packageRepository.save(pkg);
+    }
+}
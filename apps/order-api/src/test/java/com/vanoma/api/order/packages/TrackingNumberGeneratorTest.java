@@ -0,0 +1,118 @@
+package com.vanoma.api.order.packages;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class TrackingNumberGeneratorTest {
+    @Test
+    public void testNext_returnsNumbersOfTheReservedBlock() {
+        TrackingNumberBlockRepository repository = mockRepository(new AtomicLong());
+        TrackingNumberGenerator generator = TrackingNumberGenerator.builder().repository(repository).key("key").build();
+
+        List<String> numbers = IntStream.range(0, (int) TrackingNumberGenerator.BLOCK_SIZE)
+                .mapToObj(i -> generator.next())
+                .collect(Collectors.toList());
+
+        assertThat(Set.copyOf(numbers)).hasSize(numbers.size());
+        assertThat(numbers).allMatch(number -> number.matches("[1-9][0-9]{11}"));
+        assertThat(Long.parseLong(numbers.get(1)) - Long.parseLong(numbers.get(0))).isNotEqualTo(1L);
+
+        // The next block was reserved ahead of time
+        verify(repository, timeout(5_000).times(2)).save(any());
+        generator.next();
+        generator.close();
+        verify(repository, times(2)).save(any());
+        assertThat(generator.getReservedBlockCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testNext_reservesTheNextBlockOnItsOwnThreadBeforeTheBlockIsUsedUp() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        TrackingNumberBlockRepository repository = mockRepository(new AtomicLong(), threads);
+        TrackingNumberGenerator generator = TrackingNumberGenerator.builder().repository(repository).key("key").build();
+
+        long reserveAheadAt = (long) (TrackingNumberGenerator.BLOCK_SIZE * TrackingNumberGenerator.RESERVE_AHEAD_AT);
+        for (long i = 0; i <= reserveAheadAt; i++) {
+            generator.next();
+        }
+
+        verify(repository, timeout(5_000).times(2)).save(any());
+        assertThat(threads).containsExactly("tracking-number-blocks");
+        generator.close();
+    }
+
+    @Test
+    public void testBuild_requiresAKey() {
+        TrackingNumberBlockRepository repository = mockRepository(new AtomicLong());
+
+        assertThatThrownBy(() -> TrackingNumberGenerator.builder().repository(repository).key("").build())
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TrackingNumberGenerator.builder().repository(repository).build())
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    public void testNext_neverRepeatsAcrossThreadsAndNodes() throws Exception {
+        // Two nodes sharing the database
+        AtomicLong blockNumbers = new AtomicLong();
+        TrackingNumberGenerator first = TrackingNumberGenerator.builder()
+                .repository(mockRepository(blockNumbers)).key("key").build();
+        TrackingNumberGenerator second = TrackingNumberGenerator.builder()
+                .repository(mockRepository(blockNumbers)).key("key").build();
+
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = IntStream.range(0, 8)
+                    .mapToObj(i -> executor.submit(() -> {
+                        TrackingNumberGenerator generator = i % 2 == 0 ? first : second;
+                        for (int j = 0; j < 5_000; j++) {
+                            assertThat(numbers.add(generator.next())).isTrue();
+                        }
+                    }))
+                    .collect(Collectors.toList());
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        first.close();
+        second.close();
+        assertThat(numbers).hasSize(40_000);
+        assertThat(first.getReservedBlockCount() + second.getReservedBlockCount()).isEqualTo(blockNumbers.get());
+    }
+
+    private static TrackingNumberBlockRepository mockRepository(AtomicLong blockNumbers) {
+        return mockRepository(blockNumbers, ConcurrentHashMap.newKeySet());
+    }
+
+    // Also collects the names of the threads that reserved blocks
+    private static TrackingNumberBlockRepository mockRepository(AtomicLong blockNumbers, Set<String> threads) {
+        TrackingNumberBlockRepository repository = mock(TrackingNumberBlockRepository.class);
+        when(repository.save(any())).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            TrackingNumberBlock block = invocation.getArgument(0);
+            ReflectionTestUtils.setField(block, "blockNumber", blockNumbers.incrementAndGet());
+            return block;
+        });
+        return repository;
+    }
+}
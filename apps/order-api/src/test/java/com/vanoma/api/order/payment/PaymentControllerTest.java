@@ -130,9 +130,9 @@ public class PaymentControllerTest {
                 "callbackUrl", String.format("null/delivery-payment-requests/%s/callbacks", paymentRequestId),
                 "description", "Delivery transaction",
                 "paymentRequestId", paymentRequestId,
-                "totalAmount", breakdown.getTotalAmount().doubleValue(),
-                "transactionAmount", breakdown.getTransactionAmount().doubleValue(),
-                "transactionFee", breakdown.getTransactionFee().doubleValue(),
+                "totalAmount", breakdown.getTotalAmount().toBigDecimal().doubleValue(),
+                "transactionAmount", breakdown.getTransactionAmount().toBigDecimal().doubleValue(),
+                "transactionFee", breakdown.getTransactionFee().toBigDecimal().doubleValue(),
                 "paymentMethod", Map.of(
                         "paymentMethodId", paymentMethodId
                 )
@@ -326,9 +326,9 @@ public class PaymentControllerTest {
                 "callbackUrl", String.format("null/delivery-payment-requests/%s/callbacks", paymentRequestId),
                 "description", "Delivery transaction",
                 "paymentRequestId", paymentRequestId,
-                "totalAmount", breakdown.getTotalAmount().doubleValue(),
-                "transactionAmount", breakdown.getTransactionAmount().doubleValue(),
-                "transactionFee", breakdown.getTransactionFee().doubleValue(),
+                "totalAmount", breakdown.getTotalAmount().toBigDecimal().doubleValue(),
+                "transactionAmount", breakdown.getTransactionAmount().toBigDecimal().doubleValue(),
+                "transactionFee", breakdown.getTransactionFee().toBigDecimal().doubleValue(),
                 "paymentMethod", Map.of(
                         "paymentMethodId", paymentMethodId
                 )
@@ -392,9 +392,9 @@ public class PaymentControllerTest {
                 "callbackUrl", String.format("null/delivery-payment-requests/%s/callbacks", paymentRequestId),
                 "description", "Delivery transaction",
                 "paymentRequestId", paymentRequestId,
-                "totalAmount", breakdown.getTotalAmount().doubleValue(),
-                "transactionAmount", breakdown.getTransactionAmount().doubleValue(),
-                "transactionFee", breakdown.getTransactionFee().doubleValue(),
+                "totalAmount", breakdown.getTotalAmount().toBigDecimal().doubleValue(),
+                "transactionAmount", breakdown.getTransactionAmount().toBigDecimal().doubleValue(),
+                "transactionFee", breakdown.getTransactionFee().toBigDecimal().doubleValue(),
                 "paymentMethod", Map.of(
                         "paymentMethodId", paymentMethodId
                 )
@@ -462,9 +462,9 @@ public class PaymentControllerTest {
                 "callbackUrl", String.format("null/delivery-payment-requests/%s/callbacks", paymentRequestId),
                 "description", "Delivery transaction",
                 "paymentRequestId", paymentRequestId,
-                "totalAmount", breakdown.getTotalAmount().doubleValue(),
-                "transactionAmount", breakdown.getTransactionAmount().doubleValue(),
-                "transactionFee", breakdown.getTransactionFee().doubleValue(),
+                "totalAmount", breakdown.getTotalAmount().toBigDecimal().doubleValue(),
+                "transactionAmount", breakdown.getTransactionAmount().toBigDecimal().doubleValue(),
+                "transactionFee", breakdown.getTransactionFee().toBigDecimal().doubleValue(),
                 "paymentMethod", Map.of(
                         "paymentMethodId", paymentMethodId
                 )
@@ -746,9 +746,9 @@ public class PaymentControllerTest {
         Map<String, Object> actualPayload = (Map<String, Object>) captor.getValue();
         Map<String, Object> expectedPayload = Map.of(
                 "description", "Some description",
-                "totalAmount", breakdown.getTotalAmount().doubleValue(),
-                "transactionAmount", breakdown.getTransactionAmount().doubleValue(),
-                "transactionFee", breakdown.getTransactionFee().doubleValue(),
+                "totalAmount", breakdown.getTotalAmount().toBigDecimal().doubleValue(),
+                "transactionAmount", breakdown.getTransactionAmount().toBigDecimal().doubleValue(),
+                "transactionFee", breakdown.getTransactionFee().toBigDecimal().doubleValue(),
                 "paymentRequestId", paymentRequest.getPaymentRequestId(),
                 "paymentTime", paymentTime,
                 "operatorTransactionId", operatorTransactionId,
@@ -938,9 +938,9 @@ public class PaymentControllerTest {
         Map<String, Object> actualPayload = (Map<String, Object>) captor.getValue();
         Map<String, Object> expectedPayload = Map.of(
                 "description", "Some description",
-                "totalAmount", breakdown.getTotalAmount().doubleValue(),
-                "transactionAmount", breakdown.getTransactionAmount().doubleValue(),
-                "transactionFee", breakdown.getTransactionFee().doubleValue(),
+                "totalAmount", breakdown.getTotalAmount().toBigDecimal().doubleValue(),
+                "transactionAmount", breakdown.getTransactionAmount().toBigDecimal().doubleValue(),
+                "transactionFee", breakdown.getTransactionFee().toBigDecimal().doubleValue(),
                 "paymentRequestId", paymentRequest.getPaymentRequestId(),
                 "paymentTime", paymentTime,
                 "operatorTransactionId", operatorTransactionId,
@@ -1021,9 +1021,9 @@ public class PaymentControllerTest {
         Map<String, Object> actualPayload = (Map<String, Object>) captor.getValue();
         Map<String, Object> expectedPayload = Map.of(
                 "description", "Some description",
-                "totalAmount", breakdown.getTotalAmount().doubleValue(),
-                "transactionAmount", breakdown.getTransactionAmount().doubleValue(),
-                "transactionFee", breakdown.getTransactionFee().doubleValue(),
+                "totalAmount", breakdown.getTotalAmount().toBigDecimal().doubleValue(),
+                "transactionAmount", breakdown.getTransactionAmount().toBigDecimal().doubleValue(),
+                "transactionFee", breakdown.getTransactionFee().toBigDecimal().doubleValue(),
                 "paymentRequestId", paymentRequest.getPaymentRequestId(),
                 "paymentTime", paymentTime,
                 "operatorTransactionId", operatorTransactionId,
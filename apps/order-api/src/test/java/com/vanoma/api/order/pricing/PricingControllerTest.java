@@ -10,6 +10,7 @@ import com.vanoma.api.order.orders.*;
 import com.vanoma.api.order.packages.Package;
 import com.vanoma.api.order.packages.PackageRepository;
 import com.vanoma.api.order.packages.PackageSize;
+import com.vanoma.api.order.packages.PackageStatus;
 import com.vanoma.api.order.tests.OrderFactory;
 import com.vanoma.api.utils.exceptions.InvalidParameterException;
 import com.vanoma.api.utils.input.TimeUtils;
@@ -53,6 +54,8 @@ public class PricingControllerTest {
     private DiscountRepository discountRepository;
     @Autowired
     private PackageRepository packageRepository;
+    @Autowired
+    private QuoteTokenCodec quoteTokenCodec;
     @MockBean
     private IGeocodingService geocodingService;
     @MockBean
@@ -81,6 +84,7 @@ public class PricingControllerTest {
 
         assertThat(result.getStatus()).isEqualTo(200);
         Map<String, Object> actualBody = parseResponseBody(result);
+        assertThat(actualBody.remove("quoteToken")).isInstanceOf(String.class);
         Map<String, Object> expectedBody = Map.of(
                 "totalAmount", 1200,
                 "transactionAmount", 1170,
@@ -112,6 +116,7 @@ public class PricingControllerTest {
 
         assertThat(result.getStatus()).isEqualTo(200);
         Map<String, Object> actualBody = parseResponseBody(result);
+        assertThat(actualBody.remove("quoteToken")).isInstanceOf(String.class);
         Map<String, Object> expectedBody = Map.of(
                 "totalAmount", 1800,
                 "transactionAmount", 1755,
@@ -143,6 +148,7 @@ public class PricingControllerTest {
 
         assertThat(result.getStatus()).isEqualTo(200);
         Map<String, Object> actualBody = parseResponseBody(result);
+        assertThat(actualBody.remove("quoteToken")).isInstanceOf(String.class);
         Map<String, Object> expectedBody = Map.of(
                 "totalAmount", 4800,
                 "transactionAmount", 4680,
@@ -151,6 +157,71 @@ public class PricingControllerTest {
         assertThat(actualBody).isEqualTo(expectedBody);
     }
 
+    @Test
+    public void testGetDeliveryPricing_returns404ForUnknownCustomer() throws Exception {
+        Map<String, Object> requestBody = Map.of(
+                "customerId", "unknown-customer",
+                "packages", List.of(Map.of(
+                        "size", "SMALL",
+                        "origin", Map.of(
+                                "latitude", -1.939308,
+                                "longitude", 30.1312124
+                        ),
+                        "destination", Map.of(
+                                "latitude", -1.9518833,
+                                "longitude", 30.1369548
+                        )
+                ))
+        );
+
+        RequestBuilder requestBuilder = post("/delivery-pricing")
+                .contentType("application/json")
+                .content(stringifyRequestBody(requestBody));
+        MockHttpServletResponse result = this.mvc.perform(requestBuilder).andReturn().getResponse();
+
+        assertThat(result.getStatus()).isEqualTo(404);
+        Map<String, Object> actualBody = parseResponseBody(result);
+        Map<String, Object> expectedBody = Map.of(
+                "errorCode", "RESOURCE_NOT_FOUND",
+                "errorMessage", "Customer not found"
+        );
+        assertThat(actualBody).isEqualTo(expectedBody);
+    }
+
+    @Test
+    public void testGetDeliveryPricing_appliesCustomerWeightingFactor() throws Exception {
+        Customer customer = this.orderFactory.createCustomer(new BigDecimal("2.00"));
+        Map<String, Object> requestBody = Map.of(
+                "customerId", customer.getCustomerId(),
+                "packages", List.of(Map.of(
+                        "size", "SMALL",
+                        "origin", Map.of(
+                                "latitude", -1.939308,
+                                "longitude", 30.1312124
+                        ),
+                        "destination", Map.of(
+                                "latitude", -1.9518833,
+                                "longitude", 30.1369548
+                        )
+                ))
+        );
+
+        RequestBuilder requestBuilder = post("/delivery-pricing")
+                .contentType("application/json")
+                .content(stringifyRequestBody(requestBody));
+        MockHttpServletResponse result = this.mvc.perform(requestBuilder).andReturn().getResponse();
+
+        assertThat(result.getStatus()).isEqualTo(200);
+        Map<String, Object> actualBody = parseResponseBody(result);
+        assertThat(actualBody.remove("quoteToken")).isInstanceOf(String.class);
+        Map<String, Object> expectedBody = Map.of(
+                "totalAmount", 2400,
+                "transactionAmount", 2340,
+                "transactionFee", 60
+        );
+        assertThat(actualBody).isEqualTo(expectedBody);
+    }
+
     @Test
     public void testGetDeliveryPricing_returns400WhenLocationIsNotInKigali() throws Exception {
         when(this.geocodingService.reverseGeocode(any(Coordinates.class)))
@@ -251,6 +322,45 @@ public class PricingControllerTest {
         assertThat(this.discountRepository.findFirstByDeliveryOrderAndType(order, DiscountType.BATCHING)).isNull();
     }
 
+    @Test
+    public void testGetPricingForOrder_keepsPricesOfQuoteToken() throws Exception {
+        Customer customer = this.orderFactory.createCustomer();
+        DeliveryOrder order = this.orderFactory.createOrderWithPackage(customer, PackageSize.SMALL);
+        Package pkg = this.packageRepository.findByDeliveryOrder(order).get(0);
+        QuotedPackage quotedPackage = new QuotedPackage(
+                new Coordinates().setLat(pkg.getFromAddress().getLatitude()).setLng(pkg.getFromAddress().getLongitude()), null,
+                new Coordinates().setLat(pkg.getToAddress().getLatitude()).setLng(pkg.getToAddress().getLongitude()), null,
+                PackageSize.SMALL, BigDecimal.valueOf(975));
+        String otherCustomerToken = this.quoteTokenCodec.encode(new Quote("another-customer", List.of(quotedPackage), BigDecimal.valueOf(975)));
+        String quoteToken = this.quoteTokenCodec.encode(new Quote(customer.getCustomerId(), List.of(quotedPackage), BigDecimal.valueOf(975)));
+
+        // Tokens of other customers are ignored
+        RequestBuilder requestBuilder = post(String.format("/delivery-orders/%s/pricing", order.getDeliveryOrderId()))
+                .contentType("application/json")
+                .content(stringifyRequestBody(Map.of("quoteToken", otherCustomerToken)));
+        MockHttpServletResponse result = this.mvc.perform(requestBuilder).andReturn().getResponse();
+        assertThat(result.getStatus()).isEqualTo(200);
+        assertThat(parseResponseBody(result).get("transactionAmount")).isEqualTo(1170);
+
+        requestBuilder = post(String.format("/delivery-orders/%s/pricing", order.getDeliveryOrderId()))
+                .contentType("application/json")
+                .content(stringifyRequestBody(Map.of("quoteToken", quoteToken)));
+        result = this.mvc.perform(requestBuilder).andReturn().getResponse();
+
+        assertThat(result.getStatus()).isEqualTo(200);
+        Map<String, Object> actualBody = parseResponseBody(result);
+        Map<String, Object> expectedBody = Map.of(
+                "isPrepaid", true,
+                "totalAmount", 1000,
+                "transactionAmount", 975,
+                "transactionFee", 25
+        );
+        assertThat(actualBody).isEqualTo(expectedBody);
+        List<Charge> charges = this.chargeRepository.findByDeliveryOrder(order);
+        assertThat(charges.size()).isEqualTo(1);
+        assertThat(charges.get(0).getTransactionAmount()).isEqualTo(new BigDecimal("975.00"));
+    }
+
     @Test
     public void testGetPricingForOrder_withPrepaidAccountAndFixedPrice() throws Exception {
         // Create required data
@@ -502,4 +612,89 @@ public class PricingControllerTest {
         assertThat(existingCharge2.getStatus()).isEqualTo(ChargeStatus.UNPAID);
         assertThat(existingCharge2.getType()).isEqualTo(ChargeType.DELIVERY_FEE);
     }
+
+    @Test
+    public void testRunPricingBacktest_repricesCompletedPackagesOfCustomers() throws Exception {
+        Customer customer = this.orderFactory.createCustomer();
+        DeliveryOrder order = this.orderFactory.createOrder(customer, OrderStatus.COMPLETE);
+        for (PackageStatus status : List.of(PackageStatus.COMPLETE, PackageStatus.COMPLETE, PackageStatus.CANCELED)) {
+            Package pkg = this.orderFactory.createPackage(order, status, PackageSize.SMALL);
+            this.orderFactory.createCharge(pkg, ChargeType.DELIVERY_FEE, ChargeStatus.PAID, BigDecimal.valueOf(1170));
+        }
+        Map<String, Object> requestBody = Map.of(
+                "customerIds", List.of(customer.getCustomerId()),
+                "pricingMode", "FLAT",
+                "smallPackagePrice", 1300,
+                "weightingFactors", Map.of(customer.getCustomerId(), 1.1)
+        );
+
+        RequestBuilder requestBuilder = post("/pricing-backtests")
+                .contentType("application/json")
+                .content(stringifyRequestBody(requestBody));
+        MockHttpServletResponse result = this.mvc.perform(requestBuilder).andReturn().getResponse();
+
+        assertThat(result.getStatus()).isEqualTo(200);
+        Map<String, Object> actualBody = parseResponseBody(result);
+        Map<String, Object> expectedTotals = Map.of(
+                "packageCount", 2,
+                "currentAmount", 2340.0,
+                "repricedAmount", 2860.0,
+                "delta", 520.0,
+                "deltaPercentage", 22.22
+        );
+        assertThat(actualBody.get("total")).isEqualTo(expectedTotals);
+        assertThat(actualBody.get("customers")).isEqualTo(Map.of(customer.getCustomerId(), expectedTotals));
+        assertThat(actualBody.get("districts")).isEqualTo(Map.of("GASABO", expectedTotals));
+        assertThat(actualBody.get("skippedPackageCount")).isEqualTo(0);
+    }
+
+    @Test
+    public void testRunPricingBacktest_estimatesUnknownDistancesLocally() throws Exception {
+        Customer customer = this.orderFactory.createCustomer();
+        DeliveryOrder order = this.orderFactory.createOrder(customer, OrderStatus.COMPLETE);
+        Package pkg = this.orderFactory.createPackage(order, PackageStatus.COMPLETE, PackageSize.SMALL);
+        this.orderFactory.createCharge(pkg, ChargeType.DELIVERY_FEE, ChargeStatus.PAID, BigDecimal.valueOf(1170));
+        Map<String, Object> requestBody = Map.of(
+                "customerIds", List.of(customer.getCustomerId()),
+                "pricingMode", "DISTANCE",
+                "minPrice", 800
+        );
+
+        RequestBuilder requestBuilder = post("/pricing-backtests")
+                .contentType("application/json")
+                .content(stringifyRequestBody(requestBody));
+        MockHttpServletResponse result = this.mvc.perform(requestBuilder).andReturn().getResponse();
+
+        assertThat(result.getStatus()).isEqualTo(200);
+        Map<String, Object> actualBody = parseResponseBody(result);
+        Map<String, Object> expectedTotals = Map.of(
+                "packageCount", 1,
+                "currentAmount", 1170.0,
+                "repricedAmount", 800.0,
+                "delta", -370.0,
+                "deltaPercentage", -31.62
+        );
+        assertThat(actualBody.get("total")).isEqualTo(expectedTotals);
+        assertThat(actualBody.get("estimatedDistanceCount")).isEqualTo(1);
+    }
+
+    @Test
+    public void testRunPricingBacktest_returns400WhenPeriodIsInvalid() throws Exception {
+        Map<String, Object> requestBody = Map.of(
+                "from", "2022-02-01T00:00:00Z",
+                "to", "2022-01-01T00:00:00Z"
+        );
+
+        RequestBuilder requestBuilder = post("/pricing-backtests")
+                .contentType("application/json")
+                .content(stringifyRequestBody(requestBody));
+        MockHttpServletResponse result = this.mvc.perform(requestBuilder).andReturn().getResponse();
+
+        assertThat(result.getStatus()).isEqualTo(400);
+        Map<String, Object> expectedBody = Map.of(
+                "errorCode", "INVALID_REQUEST",
+                "errorMessage", "from must be before to"
+        );
+        assertThat(parseResponseBody(result)).isEqualTo(expectedBody);
+    }
 }
@@ -0,0 +1,122 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.charges.Charge;
+import com.vanoma.api.order.charges.ChargeRepository;
+import com.vanoma.api.order.charges.ChargeType;
+import com.vanoma.api.order.customers.Customer;
+import com.vanoma.api.order.customers.CustomerRepository;
+import com.vanoma.api.order.maps.IGeocodingService;
+import com.vanoma.api.order.maps.INavigationDistanceApi;
+import com.vanoma.api.order.orders.DeliveryOrder;
+import com.vanoma.api.order.packages.PackageSize;
+import com.vanoma.api.order.tests.OrderFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+@ActiveProfiles("test")
+@SpringBootTest
+public class PricingServiceTest {
+
+    @Autowired
+    private IPricingService pricingService;
+    @Autowired
+    private OrderFactory orderFactory;
+    @Autowired
+    private ChargeRepository chargeRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @MockBean
+    private IGeocodingService geocodingService;
+    @MockBean
+    private INavigationDistanceApi navigationDistanceApi;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        this.statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    public void testCreateDeliveryFees_statementCountDoesNotGrowWithPackages() {
+        DeliveryOrder smallOrder = this.createOrder(2);
+        DeliveryOrder largeOrder = this.createOrder(20);
+
+        long smallOrderStatements = this.countStatements(smallOrder);
+        long largeOrderStatements = this.countStatements(largeOrder);
+
+        assertThat(smallOrderStatements).isGreaterThan(0L);
+        assertThat(largeOrderStatements).isEqualTo(smallOrderStatements);
+        assertThat(this.statistics.getEntityInsertCount()).isEqualTo(20L);
+        assertThat(this.chargeRepository.findByDeliveryOrderAndType(largeOrder, ChargeType.DELIVERY_FEE).size()).isEqualTo(20);
+    }
+
+    @Test
+    public void testCreateDeliveryFees_recalculationStatementCountDoesNotGrowWithPackages() {
+        DeliveryOrder smallOrder = this.createOrder(2);
+        DeliveryOrder largeOrder = this.createOrder(20);
+        this.pricingService.createDeliveryFees(smallOrder.getDeliveryOrderId());
+        this.pricingService.createDeliveryFees(largeOrder.getDeliveryOrderId());
+
+        // Every fee changes
+        this.doubleWeightingFactor(smallOrder);
+        this.doubleWeightingFactor(largeOrder);
+        long smallOrderStatements = this.countStatements(smallOrder);
+        long largeOrderStatements = this.countStatements(largeOrder);
+
+        assertThat(largeOrderStatements).isEqualTo(smallOrderStatements);
+        List<Charge> charges = this.chargeRepository.findByDeliveryOrderAndType(largeOrder, ChargeType.DELIVERY_FEE);
+        assertThat(charges.size()).isEqualTo(20);
+        for (Charge charge : charges) {
+            assertThat(charge.getTransactionAmount()).isEqualTo(new BigDecimal("2340.00"));
+        }
+    }
+
+    @Test
+    public void testCreateDeliveryFees_leavesUnchangedFeesAlone() {
+        DeliveryOrder order = this.createOrder(5);
+        this.pricingService.createDeliveryFees(order.getDeliveryOrderId());
+
+        this.statistics.clear();
+        this.pricingService.createDeliveryFees(order.getDeliveryOrderId());
+
+        assertThat(this.statistics.getEntityUpdateCount()).isEqualTo(0L);
+        assertThat(this.statistics.getEntityInsertCount()).isEqualTo(0L);
+        assertThat(this.chargeRepository.findByDeliveryOrderAndType(order, ChargeType.DELIVERY_FEE).size()).isEqualTo(5);
+    }
+
+    private DeliveryOrder createOrder(int packageCount) {
+        Customer customer = this.orderFactory.createCustomer();
+        DeliveryOrder order = this.orderFactory.createOrder(customer);
+        for (int i = 0; i < packageCount; i++) {
+            this.orderFactory.createPackage(order, PackageSize.SMALL);
+        }
+        return order;
+    }
+
+    private void doubleWeightingFactor(DeliveryOrder order) {
+        Customer customer = this.customerRepository.findById(order.getCustomerId()).get();
+        this.customerRepository.save(customer.setWeightingFactor(customer.getWeightingFactor().multiply(BigDecimal.valueOf(2))));
+    }
+
+    private long countStatements(DeliveryOrder order) {
+        this.statistics.clear();
+        this.pricingService.createDeliveryFees(order.getDeliveryOrderId());
+        return this.statistics.getPrepareStatementCount();
+    }
+}
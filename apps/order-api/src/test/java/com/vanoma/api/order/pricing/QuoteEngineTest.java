@@ -0,0 +1,155 @@
+package com.vanoma.api.order.pricing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vanoma.api.order.charges.ChargeUtils;
+import com.vanoma.api.order.customers.Customer;
+import com.vanoma.api.order.maps.Coordinates;
+import com.vanoma.api.order.maps.INavigationDistanceApi;
+import com.vanoma.api.order.maps.KigaliDistrictResolver;
+import com.vanoma.api.order.packages.PackageSize;
+import com.vanoma.api.utils.input.TimeUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class QuoteEngineTest {
+
+    private static final Map<String, Object> ORIGIN = Map.of("latitude", -1.939308, "longitude", 30.1312124);
+    private static final Map<String, Object> DESTINATION = Map.of("latitude", -1.9518833, "longitude", 30.1369548);
+    private static final Map<String, Object> OUTSIDE_KIGALI = Map.of("latitude", -1.4996, "longitude", 29.6344);
+
+    private static KigaliDistrictResolver districtResolver;
+
+    private final BigDecimal smallPackagePrice = PricingConstants.SMALL_PACKAGE_PRICE;
+
+    @BeforeAll
+    public static void setUpAll() {
+        districtResolver = KigaliDistrictResolver.fromClasspath("maps/kigali-districts-fixture.geojson");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        PricingConstants.SMALL_PACKAGE_PRICE = this.smallPackagePrice;
+    }
+
+    @Test
+    public void testQuote_pricesPackagesInsideKigali() {
+        QuoteEngine quoteEngine = createQuoteEngine(PricingMode.FLAT, null);
+
+        Map<String, Object> quote = quoteEngine.quote(createPricingJson(null, "SMALL", "LARGE")).orElseThrow().getAmounts();
+
+        assertThat(quote).isEqualTo(Map.of("transactionAmount", 5850, "transactionFee", 150, "totalAmount", 6000));
+        assertThat(quoteEngine.getQuoteCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testQuote_keepsResolvedDistrictsAndPackagePrices() {
+        QuoteEngine quoteEngine = createQuoteEngine(PricingMode.FLAT, null);
+
+        Quote quote = quoteEngine.quote(createPricingJson(null, "MEDIUM")).orElseThrow();
+
+        QuotedPackage quoted = quote.findPackage(toCoordinates(ORIGIN), toCoordinates(DESTINATION), PackageSize.MEDIUM).orElseThrow();
+        assertThat(quoted.getOriginDistrict()).isEqualTo("GASABO");
+        assertThat(quoted.getDestinationDistrict()).isEqualTo("KICUKIRO");
+        assertThat(quoted.getPrice()).isEqualTo(PricingConstants.MEDIUM_PACKAGE_PRICE);
+        assertThat(quote.findPackage(toCoordinates(ORIGIN), toCoordinates(DESTINATION), PackageSize.SMALL).isPresent()).isFalse();
+    }
+
+    @Test
+    public void testQuote_declinesWhatItCannotAnswerFromMemory() {
+        QuoteEngine quoteEngine = createQuoteEngine(PricingMode.FLAT, null);
+
+        Map<String, Object> outsideKigali = Map.of("size", "SMALL", "origin", ORIGIN, "destination", OUTSIDE_KIGALI);
+        assertThat(quoteEngine.quote(toPricingJson(Map.of("packages", List.of(outsideKigali)))).isPresent()).isFalse();
+        Map<String, Object> withoutSize = Map.of("origin", ORIGIN, "destination", DESTINATION);
+        assertThat(quoteEngine.quote(toPricingJson(Map.of("packages", List.of(withoutSize)))).isPresent()).isFalse();
+        assertThat(quoteEngine.quote(createPricingJson("unknown-customer", "SMALL")).isPresent()).isFalse();
+
+        assertThat(quoteEngine.getDeclinedCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testQuote_appliesCustomerTerms() {
+        QuoteEngine quoteEngine = createQuoteEngine(PricingMode.FLAT, null);
+        Customer weighted = new Customer().setWeightingFactor(new BigDecimal("2.00"));
+        Customer fixedPrice = new Customer()
+                .setFixedPriceAmount(BigDecimal.valueOf(1000))
+                .setFixedPriceExpiry(TimeUtils.getUtcNow().plusDays(1));
+        Customer expiredFixedPrice = new Customer()
+                .setFixedPriceAmount(BigDecimal.valueOf(1000))
+                .setFixedPriceExpiry(TimeUtils.getUtcNow().minusDays(1));
+        quoteEngine.putCustomer(weighted);
+        quoteEngine.putCustomer(fixedPrice);
+        quoteEngine.putCustomer(expiredFixedPrice);
+
+        Map<String, Object> weightedQuote = quoteEngine.quote(createPricingJson(weighted.getCustomerId(), "SMALL")).orElseThrow().getAmounts();
+        Map<String, Object> fixedQuote = quoteEngine.quote(createPricingJson(fixedPrice.getCustomerId(), "LARGE")).orElseThrow().getAmounts();
+        Map<String, Object> expiredQuote = quoteEngine.quote(createPricingJson(expiredFixedPrice.getCustomerId(), "SMALL")).orElseThrow().getAmounts();
+
+        assertThat(weightedQuote.get("transactionAmount")).isEqualTo(2340);
+        assertThat(fixedQuote.get("totalAmount")).isEqualTo(1000);
+        assertThat(expiredQuote.get("transactionAmount")).isEqualTo(1170);
+    }
+
+    @Test
+    public void testRefreshPackagePrices_picksUpPricingConstantChanges() {
+        QuoteEngine quoteEngine = createQuoteEngine(PricingMode.FLAT, null);
+        assertThat(quoteEngine.refreshPackagePrices()).isFalse();
+
+        PricingConstants.SMALL_PACKAGE_PRICE = BigDecimal.valueOf(1365);
+        assertThat(quoteEngine.refreshPackagePrices()).isTrue();
+
+        Map<String, Object> quote = quoteEngine.quote(createPricingJson(null, "SMALL")).orElseThrow().getAmounts();
+        assertThat(quote.get("transactionAmount")).isEqualTo(1365);
+    }
+
+    @Test
+    public void testQuote_usesOnlyTripsAlreadyInTariffMatrix() {
+        TariffMatrix tariffMatrix = TariffMatrix.builder()
+                .distanceApi(mock(INavigationDistanceApi.class))
+                .cellSizeMeters(100)
+                .maxSize(1_000)
+                .build();
+        QuoteEngine quoteEngine = createQuoteEngine(PricingMode.DISTANCE, tariffMatrix);
+
+        assertThat(quoteEngine.quote(createPricingJson(null, "SMALL")).isPresent()).isFalse();
+
+        tariffMatrix.put(toCoordinates(ORIGIN), toCoordinates(DESTINATION), 5_000);
+        Map<String, Object> quote = quoteEngine.quote(createPricingJson(null, "SMALL")).orElseThrow().getAmounts();
+        assertThat(quote.get("transactionAmount"))
+                .isEqualTo(ChargeUtils.roundBigDecimal(DistanceTariff.current().getPrice(5_000)));
+    }
+
+    private static QuoteEngine createQuoteEngine(PricingMode pricingMode, TariffMatrix tariffMatrix) {
+        return QuoteEngine.builder()
+                .districtResolver(districtResolver)
+                .tariffMatrix(tariffMatrix)
+                .pricingMode(pricingMode)
+                .build();
+    }
+
+    private static PricingJson createPricingJson(String customerId, String... sizes) {
+        Map<String, Object> json = new HashMap<>();
+        json.put("customerId", customerId);
+        json.put("packages", List.of(sizes).stream()
+                .map(size -> Map.of("size", size, "origin", ORIGIN, "destination", DESTINATION))
+                .toArray());
+        return toPricingJson(json);
+    }
+
+    private static PricingJson toPricingJson(Map<String, Object> json) {
+        return new ObjectMapper().convertValue(json, PricingJson.class);
+    }
+
+    private static Coordinates toCoordinates(Map<String, Object> json) {
+        return new Coordinates().setLat((Double) json.get("latitude")).setLng((Double) json.get("longitude"));
+    }
+}
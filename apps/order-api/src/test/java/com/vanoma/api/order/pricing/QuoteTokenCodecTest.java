@@ -0,0 +1,62 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.maps.Coordinates;
+import com.vanoma.api.order.packages.PackageSize;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class QuoteTokenCodecTest {
+
+    private static final Quote QUOTE = new Quote("customer-id", List.of(
+            new QuotedPackage(new Coordinates().setLat(-1.939308).setLng(30.1312124), "GASABO",
+                    new Coordinates().setLat(-1.9518833).setLng(30.1369548), "KICUKIRO",
+                    PackageSize.SMALL, new BigDecimal("1170")),
+            new QuotedPackage(new Coordinates().setLat(-1.939308).setLng(30.1312124), "GASABO",
+                    new Coordinates().setLat(-2.0).setLng(30.1), null,
+                    PackageSize.LARGE, new BigDecimal("1234.5678"))),
+            new BigDecimal("2404.5678"));
+
+    private final QuoteTokenCodec quoteTokenCodec = QuoteTokenCodec.builder().secret("secret").ttlSeconds(60).build();
+
+    @Test
+    public void testDecode_returnsEncodedQuote() {
+        Quote decoded = this.quoteTokenCodec.decode(this.quoteTokenCodec.encode(QUOTE)).orElseThrow();
+
+        assertThat(decoded.getCustomerId()).isEqualTo("customer-id");
+        assertThat(decoded.getPackages().equals(QUOTE.getPackages())).isTrue();
+        assertThat(decoded.getTransactionAmount()).isEqualTo(new BigDecimal("2404.5678"));
+        assertThat(decoded.isUsableBy("customer-id")).isTrue();
+        assertThat(decoded.isUsableBy("another-customer")).isFalse();
+        assertThat(this.quoteTokenCodec.getAcceptedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDecode_rejectsTamperedExpiredAndForeignTokens() {
+        String token = this.quoteTokenCodec.encode(QUOTE);
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + parts[1].substring(0, parts[1].length() - 2) + "." + parts[2];
+        QuoteTokenCodec expiredCodec = QuoteTokenCodec.builder().secret("secret").ttlSeconds(-1).build();
+        QuoteTokenCodec foreignCodec = QuoteTokenCodec.builder().secret("another-secret").ttlSeconds(60).build();
+
+        assertThat(this.quoteTokenCodec.decode(tampered)).isEqualTo(Optional.empty());
+        assertThat(this.quoteTokenCodec.decode(expiredCodec.encode(QUOTE))).isEqualTo(Optional.empty());
+        assertThat(this.quoteTokenCodec.decode(foreignCodec.encode(QUOTE))).isEqualTo(Optional.empty());
+        assertThat(this.quoteTokenCodec.decode("not-a-token")).isEqualTo(Optional.empty());
+        assertThat(this.quoteTokenCodec.decode(null)).isEqualTo(Optional.empty());
+        assertThat(this.quoteTokenCodec.getRejectedCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void testDecode_withoutSecretOnlyAcceptsOwnTokens() {
+        QuoteTokenCodec codec = QuoteTokenCodec.builder().ttlSeconds(60).build();
+        QuoteTokenCodec otherInstance = QuoteTokenCodec.builder().ttlSeconds(60).build();
+
+        assertThat(codec.decode(codec.encode(QUOTE)).isPresent()).isTrue();
+        assertThat(codec.decode(otherInstance.encode(QUOTE)).isPresent()).isFalse();
+    }
+}
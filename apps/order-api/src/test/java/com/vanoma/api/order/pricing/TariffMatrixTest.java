@@ -0,0 +1,175 @@
+package com.vanoma.api.order.pricing;
+
+import com.vanoma.api.order.maps.Coordinates;
+import com.vanoma.api.order.maps.GridCell;
+import com.vanoma.api.order.maps.HaversineDistanceEstimator;
+import com.vanoma.api.order.maps.INavigationDistanceApi;
+import com.vanoma.api.order.maps.MapsUnavailableException;
+import com.vanoma.api.utils.exceptions.InvalidParameterException;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+public class TariffMatrixTest {
+
+    private static final Coordinates SHOP = GridCell.of(-1.9441, 30.0619, 100).getCenter();
+    private static final Coordinates CUSTOMER_ONE = GridCell.of(-1.9536, 30.0925, 100).getCenter();
+    private static final Coordinates CUSTOMER_TWO = GridCell.of(-1.9706, 30.1044, 100).getCenter();
+
+    private final int pricePerKilometer = PricingConstants.PRICE_PER_KILOMETER;
+    private StubDistanceApi stubDistanceApi;
+    private HaversineDistanceEstimator estimator;
+    private TariffMatrix tariffMatrix;
+
+    @BeforeEach
+    public void setUp() {
+        this.stubDistanceApi = new StubDistanceApi();
+        this.estimator = new HaversineDistanceEstimator(null, 1);
+        this.tariffMatrix = TariffMatrix.builder()
+                .distanceApi(this.stubDistanceApi)
+                .estimator(this.estimator)
+                .cellSizeMeters(100)
+                .maxSize(1_000)
+                .build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        PricingConstants.PRICE_PER_KILOMETER = this.pricePerKilometer;
+    }
+
+    @Test
+    public void testGetPrices_fetchesMissingPairsInOneRequest() {
+        List<BigDecimal> prices = this.tariffMatrix.getPrices(List.of(
+                Pair.of(SHOP, CUSTOMER_ONE), Pair.of(SHOP, CUSTOMER_TWO), Pair.of(SHOP, CUSTOMER_ONE)));
+
+        assertThat(this.stubDistanceApi.batchCalls).isEqualTo(1);
+        assertThat(prices.get(0)).isEqualTo(DistanceTariff.current().getPrice(StubDistanceApi.distance(SHOP, CUSTOMER_ONE)));
+        assertThat(prices.get(1)).isEqualTo(DistanceTariff.current().getPrice(StubDistanceApi.distance(SHOP, CUSTOMER_TWO)));
+        assertThat(prices.get(2)).isEqualTo(prices.get(0));
+        assertThat(this.tariffMatrix.getSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void testGetPrices_requestsOnlyMissingPairsInTheirDirection() {
+        this.tariffMatrix.getPrices(List.of(
+                Pair.of(SHOP, CUSTOMER_ONE), Pair.of(CUSTOMER_TWO, SHOP), Pair.of(SHOP, CUSTOMER_TWO), Pair.of(CUSTOMER_ONE, CUSTOMER_TWO)));
+
+        // SHOP/CUSTOMER_TWO is requested once, in the direction of its first trip
+        assertThat(this.stubDistanceApi.requested).isEqualTo(List.of(
+                List.of(SHOP.getLat(), CUSTOMER_ONE.getLat()),
+                List.of(CUSTOMER_TWO.getLat(), SHOP.getLat()),
+                List.of(CUSTOMER_ONE.getLat(), CUSTOMER_TWO.getLat())));
+        assertThat(this.tariffMatrix.getSize()).isEqualTo(3);
+    }
+
+    @Test
+    public void testGetPrice_servesKnownPairsInBothDirectionsFromMatrix() {
+        BigDecimal price = this.tariffMatrix.getPrice(SHOP, CUSTOMER_ONE);
+        BigDecimal nudged = this.tariffMatrix.getPrice(nudge(SHOP), nudge(CUSTOMER_ONE));
+        BigDecimal reversed = this.tariffMatrix.getPrice(CUSTOMER_ONE, SHOP);
+
+        assertThat(nudged).isEqualTo(price);
+        assertThat(reversed).isEqualTo(price);
+        assertThat(this.stubDistanceApi.batchCalls).isEqualTo(1);
+        assertThat(this.tariffMatrix.getHitCount()).isEqualTo(2);
+        assertThat(this.tariffMatrix.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testGetPrice_usesPreloadedDistancesAndMinimumPriceWithinACell() {
+        this.tariffMatrix.put(SHOP, CUSTOMER_ONE, 4_000);
+
+        assertThat(this.tariffMatrix.getPrice(SHOP, CUSTOMER_ONE)).isEqualTo(DistanceTariff.current().getPrice(4_000));
+        assertThat(this.tariffMatrix.getPrice(SHOP, nudge(SHOP))).isEqualTo(new BigDecimal(PricingConstants.MIN_PRICE));
+        assertThat(this.stubDistanceApi.batchCalls).isEqualTo(0);
+    }
+
+    @Test
+    public void testRebuildIfTariffChanged_repricesStoredDistances() {
+        this.tariffMatrix.put(SHOP, CUSTOMER_ONE, 10_000);
+        assertThat(this.tariffMatrix.rebuildIfTariffChanged()).isFalse();
+
+        PricingConstants.PRICE_PER_KILOMETER = this.pricePerKilometer * 2;
+        BigDecimal expected = DistanceTariff.current().getPrice(10_000);
+        // Priced with the new tariff before and after the rebuild
+        assertThat(this.tariffMatrix.getPrice(SHOP, CUSTOMER_ONE)).isEqualTo(expected);
+        assertThat(this.tariffMatrix.rebuildIfTariffChanged()).isTrue();
+        assertThat(this.tariffMatrix.getPrice(SHOP, CUSTOMER_ONE)).isEqualTo(expected);
+
+        assertThat(this.tariffMatrix.getTariff()).isEqualTo(DistanceTariff.current());
+        assertThat(this.tariffMatrix.getSize()).isEqualTo(1);
+        assertThat(this.tariffMatrix.getRebuildCount()).isEqualTo(1);
+        assertThat(this.stubDistanceApi.batchCalls).isEqualTo(0);
+    }
+
+    @Test
+    public void testGetPrice_throwsWhenNoRouteIsFound() {
+        this.stubDistanceApi.fail = true;
+
+        assertThatThrownBy(() -> this.tariffMatrix.getPrice(SHOP, CUSTOMER_ONE))
+                .isInstanceOf(InvalidParameterException.class)
+                .hasMessage("utils.matrixApi.navigationDistanceNotFound");
+        assertThat(this.tariffMatrix.getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void testGetPrice_pricesOnEstimatesWithoutKeepingThemWhenApiIsUnavailable() {
+        this.stubDistanceApi.unavailable = true;
+
+        BigDecimal price = this.tariffMatrix.getPrice(SHOP, CUSTOMER_ONE);
+
+        assertThat(price).isEqualTo(DistanceTariff.current().getPrice(this.estimator.getNavigationDistance(SHOP, CUSTOMER_ONE)));
+        assertThat(this.tariffMatrix.getSize()).isEqualTo(0);
+        assertThat(this.tariffMatrix.getEstimateCount()).isEqualTo(1);
+
+        this.stubDistanceApi.unavailable = false;
+        assertThat(this.tariffMatrix.getPrice(SHOP, CUSTOMER_ONE))
+                .isEqualTo(DistanceTariff.current().getPrice(StubDistanceApi.distance(SHOP, CUSTOMER_ONE)));
+        assertThat(this.tariffMatrix.getSize()).isEqualTo(1);
+    }
+
+    private static Coordinates nudge(Coordinates coordinates) {
+        return new Coordinates().setLat(coordinates.getLat() + 0.00001).setLng(coordinates.getLng() - 0.00001);
+    }
+
+    private static class StubDistanceApi implements INavigationDistanceApi {
+        private int batchCalls = 0;
+        private boolean fail = false;
+        private boolean unavailable = false;
+        // Latitudes of the origin and destination of every element requested
+        private final List<List<Double>> requested = new ArrayList<>();
+
+        private static long distance(Coordinates origin, Coordinates destination) {
+            return 1000 + Math.round((Math.abs(origin.getLat() - destination.getLat())
+                    + Math.abs(origin.getLng() - destination.getLng())) * 100_000);
+        }
+
+        @Override
+        public long getNavigationDistance(Coordinates origin, Coordinates destination) {
+            return this.fail ? DISTANCE_NOT_FOUND : distance(origin, destination);
+        }
+
+        @Override
+        public long[][] getNavigationDistances(List<Coordinates> origins, List<Coordinates> destinations) {
+            this.batchCalls++;
+            if (this.unavailable) throw new MapsUnavailableException("distance distance-matrix rejected, circuit open");
+            long[][] distances = new long[origins.size()][destinations.size()];
+            for (int i = 0; i < origins.size(); i++) {
+                for (int j = 0; j < destinations.size(); j++) {
+                    this.requested.add(List.of(origins.get(i).getLat(), destinations.get(j).getLat()));
+                    distances[i][j] = this.fail ? DISTANCE_NOT_FOUND : distance(origins.get(i), destinations.get(j));
+                }
+            }
+            return distances;
+        }
+    }
+}
@@ -66,6 +66,10 @@ public class ObjectFactory {
         return "2507" + NumberUtils.getRandomLongInRange((long) 1e7, (long) 1e8);
     }
 
+    public static String getRandomTrackingNumber() {
+        return String.valueOf(NumberUtils.getRandomLongInRange((long) 1e12, (long) 1e13));
+    }
+
     private static String getRandomHouseNumber() {
         return String.valueOf(NumberUtils.getRandomLongInRange(1, 999));
     }
@@ -86,7 +90,7 @@ public class ObjectFactory {
 
     private static Package createPackage(DeliveryOrder deliveryOrder) {
         String customerId = deliveryOrder.getCustomerId();
-        Package orderPackage = new Package(deliveryOrder)
+        Package orderPackage = new Package(deliveryOrder, getRandomTrackingNumber())
                 .setSize(PackageSize.SMALL)
                 .setPriority(PackagePriority.NORMAL);
         orderPackage.setFromContact(createContact(customerId));
@@ -206,7 +206,7 @@ public class OrderFactory { // TODO: Rename this class to a generic name as it c
     }
 
     public Package createPackage(DeliveryOrder order, PackageStatus status, PackageSize packageSize) {
-        Package pkg = new Package(order)
+        Package pkg = new Package(order, ObjectFactory.getRandomTrackingNumber())
                 .setSize(packageSize)
                 .setPriority(PackagePriority.NORMAL)
                 .setStatus(status)
@@ -0,0 +1,49 @@
+package com.vanoma.api.order.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class KeyedPermutationTest {
+    @Test
+    public void testApply_isAPermutationOfTheRange() {
+        // Not a power of two, so values are walked back into the range
+        KeyedPermutation permutation = new KeyedPermutation(10_000, "key");
+
+        boolean[] seen = new boolean[10_000];
+        for (int i = 0; i < 10_000; i++) {
+            long value = permutation.apply(i);
+            assertThat(value).isBetween(0L, 9_999L);
+            assertThat(seen[(int) value]).isFalse();
+            seen[(int) value] = true;
+        }
+    }
+
+    @Test
+    public void testApply_doesNotKeepConsecutiveValuesTogether() {
+        KeyedPermutation permutation = new KeyedPermutation(900_000_000_000L, "key");
+
+        int close = 0;
+        for (long i = 0; i < 1_000; i++) {
+            if (Math.abs(permutation.apply(i + 1) - permutation.apply(i)) < 1_000_000) close++;
+        }
+        assertThat(close).isLessThan(5);
+    }
+
+    @Test
+    public void testApply_dependsOnTheKey() {
+        KeyedPermutation permutation = new KeyedPermutation(900_000_000_000L, "key");
+
+        assertThat(new KeyedPermutation(900_000_000_000L, "key").apply(42)).isEqualTo(permutation.apply(42));
+        assertThat(new KeyedPermutation(900_000_000_000L, "other key").apply(42)).isNotEqualTo(permutation.apply(42));
+    }
+
+    @Test
+    public void testApply_rejectsValuesOutOfRange() {
+        KeyedPermutation permutation = new KeyedPermutation(100, "key");
+
+        assertThatThrownBy(() -> permutation.apply(100)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> permutation.apply(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,47 @@
+package com.vanoma.api.order.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TimeOrderedIdTest {
+    @Test
+    public void testNext_returnsVersion7UUIDs() {
+        String id = TimeOrderedId.next();
+
+        UUID uuid = UUID.fromString(id);
+        assertThat(id).hasSize(36);
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+    }
+
+    @Test
+    public void testNext_sortsInCreationOrder() {
+        // More than the 4096 IDs the counter holds per millisecond
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            ids.add(TimeOrderedId.next());
+        }
+
+        assertThat(new HashSet<>(ids)).hasSize(ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertThat(ids.get(i).compareTo(ids.get(i - 1))).isPositive();
+        }
+    }
+
+    @Test
+    public void testGetTimestamp_returnsTheCreationTime() {
+        long before = System.currentTimeMillis();
+        String id = TimeOrderedId.next();
+
+        assertThat(TimeOrderedId.getTimestamp(id)).isBetween(before, System.currentTimeMillis() + 1000);
+        assertThatThrownBy(() -> TimeOrderedId.getTimestamp(UUID.randomUUID().toString()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}